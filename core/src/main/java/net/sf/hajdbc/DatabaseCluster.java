@@ -17,6 +17,7 @@
  */
 package net.sf.hajdbc;
 
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadFactory;
 
@@ -27,7 +28,9 @@ import net.sf.hajdbc.dialect.Dialect;
 import net.sf.hajdbc.durability.Durability;
 import net.sf.hajdbc.io.InputSinkStrategy;
 import net.sf.hajdbc.lock.LockManager;
+import net.sf.hajdbc.sql.SQLAnalysisCache;
 import net.sf.hajdbc.state.StateManager;
+import net.sf.hajdbc.sync.SynchronizationThrottle;
 import net.sf.hajdbc.tx.TransactionIdentifierFactory;
 
 /**
@@ -67,6 +70,12 @@ public interface DatabaseCluster<Z, D extends Database<Z>> extends Lifecycle
 	 */
 	D getDatabase(String id);
 	
+	/**
+	 * Returns the identifiers of the inactive databases of this cluster.
+	 * @return a set of database identifiers
+	 */
+	Set<String> getInactiveDatabases();
+	
 	/**
 	 * Returns the Balancer implementation used by this database cluster.
 	 * @return an implementation of <code>Balancer</code>
@@ -75,6 +84,24 @@ public interface DatabaseCluster<Z, D extends Database<Z>> extends Lifecycle
 	
 	TransactionMode getTransactionMode();
 	
+	/**
+	 * Returns the number of backup databases that must complete a write before the result of the primary database is returned to the caller.
+	 * @return a number of backup databases, or a negative number, if writes should wait for all databases.
+	 */
+	int getWriteQuorum();
+	
+	/**
+	 * Returns the maximum number of milliseconds by which the replication of the completion of transactional writes to other nodes may lag behind.
+	 * @return a number of milliseconds, or 0, if completions should be replicated synchronously.
+	 */
+	long getDurabilityReplicationLag();
+	
+	/**
+	 * Returns the number of milliseconds for which this node retains ownership of an acquired named write lock.
+	 * @return a number of milliseconds, or 0, if locks should be released immediately.
+	 */
+	long getLockLease();
+	
 	ExecutorService getExecutor();
 	
 	/**
@@ -101,6 +128,12 @@ public interface DatabaseCluster<Z, D extends Database<Z>> extends Lifecycle
 	 */
 	DatabaseMetaDataCache<Z, D> getDatabaseMetaDataCache();
 	
+	/**
+	 * Returns a cache of SQL statement analysis.
+	 * @return a SQL analysis cache
+	 */
+	SQLAnalysisCache<Z, D> getSQLAnalysisCache();
+	
 	/**
 	 * Indicates whether or not sequence detection is enabled for this cluster.
 	 * @return true, if sequence detection is enabled, false otherwise.
@@ -151,6 +184,12 @@ public interface DatabaseCluster<Z, D extends Database<Z>> extends Lifecycle
 	
 	void removeSynchronizationListener(SynchronizationListener listener);
 	
+	/**
+	 * Returns the throttle that limits the rate at which synchronization reads from the source database.
+	 * @return a synchronization throttle
+	 */
+	SynchronizationThrottle getSynchronizationThrottle();
+	
 	void addConfigurationListener(DatabaseClusterConfigurationListener<Z, D> listener);
 	
 	void removeConfigurationListener(DatabaseClusterConfigurationListener<Z, D> listener);
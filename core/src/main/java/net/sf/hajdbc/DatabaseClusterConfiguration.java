@@ -131,5 +131,35 @@ public interface DatabaseClusterConfiguration<Z, D extends Database<Z>>
 	
 	boolean isEmptyClusterAllowed();
 
+	/**
+	 * Returns the number of backup databases that must complete a write before the result of the primary database is returned to the caller.
+	 * @return a number of backup databases, or a negative number, if writes should wait for all databases.
+	 */
+	int getWriteQuorum();
+
+	/**
+	 * Indicates whether databases are synchronized while the cluster remains writable, such that writes are only blocked while the changes applied in the meantime are replayed.
+	 * @return true, if online activation is enabled, false otherwise.
+	 */
+	boolean isOnlineActivationEnabled();
+
+	/**
+	 * Returns the maximum number of milliseconds by which the replication of the completion of transactional writes to other nodes may lag behind, if this cluster is distributable.
+	 * @return a number of milliseconds, or 0, if completions should be replicated synchronously.
+	 */
+	long getDurabilityReplicationLag();
+
+	/**
+	 * Returns the number of milliseconds for which this node retains ownership of an acquired named write lock, if this cluster is distributable.
+	 * @return a number of milliseconds, or 0, if locks should be released immediately.
+	 */
+	long getLockLease();
+
+	/**
+	 * Indicates whether named write locks are partitioned across nodes, such that each lock is acquired from a single owning node, if this cluster is distributable.
+	 * @return true, if lock partitioning is enabled, false if locks are acquired from all nodes.
+	 */
+	boolean isLockPartitioningEnabled();
+
 	InputSinkProvider getInputSinkProvider();
 }
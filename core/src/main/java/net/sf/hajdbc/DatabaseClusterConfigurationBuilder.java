@@ -54,6 +54,8 @@ import net.sf.hajdbc.sql.DefaultExecutorServiceProvider;
 import net.sf.hajdbc.sql.TransactionModeEnum;
 import net.sf.hajdbc.state.StateManagerFactory;
 import net.sf.hajdbc.state.sql.SQLStateManagerFactory;
+import net.sf.hajdbc.util.Matcher;
+import net.sf.hajdbc.util.ServiceLoaders;
 import net.sf.hajdbc.util.concurrent.cron.CronExpression;
 import net.sf.hajdbc.util.concurrent.cron.CronExpressionBuilder;
 
@@ -85,6 +87,11 @@ public class DatabaseClusterConfigurationBuilder<Z, D extends Database<Z>, B ext
 	
 	private volatile String defaultSynchronizationStrategy;
 	private volatile TransactionMode transactionMode = TransactionModeEnum.SERIAL;
+	private volatile int writeQuorum = -1;
+	private volatile boolean onlineActivation = false;
+	private volatile long durabilityReplicationLag = 0;
+	private volatile long lockLease = 0;
+	private volatile boolean lockPartitioning = false;
 	private volatile boolean evalCurrentDate = false;
 	private volatile boolean evalCurrentTime = false;
 	private volatile boolean evalCurrentTimestamp = false;
@@ -233,6 +240,12 @@ public class DatabaseClusterConfigurationBuilder<Z, D extends Database<Z>, B ext
 		return this;
 	}
 
+	public DatabaseClusterConfigurationBuilder<Z, D, B> executor(String id)
+	{
+		this.executorProviderBuilder = new SimpleBuilder<>(ServiceLoaders.findRequiredService(ExecutorServiceProvider.class, new ExecutorServiceProviderMatcher(id)));
+		return this;
+	}
+
 	public DatabaseClusterConfigurationBuilder<Z, D, B> balancer(String id)
 	{
 		this.balancerFactoryBuilder = new SimpleServiceBuilder<>(BalancerFactory.class, id);
@@ -317,6 +330,36 @@ public class DatabaseClusterConfigurationBuilder<Z, D extends Database<Z>, B ext
 		return this;
 	}
 
+	public DatabaseClusterConfigurationBuilder<Z, D, B> writeQuorum(int quorum)
+	{
+		this.writeQuorum = quorum;
+		return this;
+	}
+
+	public DatabaseClusterConfigurationBuilder<Z, D, B> onlineActivation(boolean enabled)
+	{
+		this.onlineActivation = enabled;
+		return this;
+	}
+
+	public DatabaseClusterConfigurationBuilder<Z, D, B> durabilityReplicationLag(long lag)
+	{
+		this.durabilityReplicationLag = lag;
+		return this;
+	}
+
+	public DatabaseClusterConfigurationBuilder<Z, D, B> lockLease(long lease)
+	{
+		this.lockLease = lease;
+		return this;
+	}
+
+	public DatabaseClusterConfigurationBuilder<Z, D, B> lockPartitioning(boolean enabled)
+	{
+		this.lockPartitioning = enabled;
+		return this;
+	}
+
 	public DatabaseClusterConfigurationBuilder<Z, D, B> autoActivateSchedule(String schedule)
 	{
 		this.autoActivateScheduleBuilder.expression(schedule);
@@ -397,6 +440,11 @@ public class DatabaseClusterConfigurationBuilder<Z, D extends Database<Z>, B ext
 		
 		final String defaultSynchronizationStrategy = this.defaultSynchronizationStrategy;
 		final TransactionMode transactionMode = this.transactionMode;
+		final int writeQuorum = this.writeQuorum;
+		final boolean onlineActivation = this.onlineActivation;
+		final long durabilityReplicationLag = this.durabilityReplicationLag;
+		final long lockLease = this.lockLease;
+		final boolean lockPartitioning = this.lockPartitioning;
 		final boolean evalCurrentDate = this.evalCurrentDate;
 		final boolean evalCurrentTime = this.evalCurrentTime;
 		final boolean evalCurrentTimestamp = this.evalCurrentTimestamp;
@@ -580,6 +628,36 @@ public class DatabaseClusterConfigurationBuilder<Z, D extends Database<Z>, B ext
 				return allowEmptyCluster;
 			}
 
+			@Override
+			public int getWriteQuorum()
+			{
+				return writeQuorum;
+			}
+
+			@Override
+			public boolean isOnlineActivationEnabled()
+			{
+				return onlineActivation;
+			}
+
+			@Override
+			public long getDurabilityReplicationLag()
+			{
+				return durabilityReplicationLag;
+			}
+
+			@Override
+			public long getLockLease()
+			{
+				return lockLease;
+			}
+
+			@Override
+			public boolean isLockPartitioningEnabled()
+			{
+				return lockPartitioning;
+			}
+
 			@Override
 			public InputSinkProvider getInputSinkProvider()
 			{
@@ -587,4 +665,30 @@ public class DatabaseClusterConfigurationBuilder<Z, D extends Database<Z>, B ext
 			}
 		};
 	}
+
+	/**
+	 * Matches the identifiable executor service providers with a given id.
+	 * Executor service providers need not be identifiable, e.g. when constructed by the application.
+	 */
+	private static class ExecutorServiceProviderMatcher implements Matcher<ExecutorServiceProvider>
+	{
+		private final IdentifiableMatcher<Identifiable> matcher;
+
+		ExecutorServiceProviderMatcher(String id)
+		{
+			this.matcher = new IdentifiableMatcher<>(id);
+		}
+
+		@Override
+		public boolean matches(ExecutorServiceProvider provider)
+		{
+			return (provider instanceof Identifiable) && this.matcher.matches((Identifiable) provider);
+		}
+
+		@Override
+		public String toString()
+		{
+			return this.matcher.toString();
+		}
+	}
 }
@@ -20,6 +20,7 @@ package net.sf.hajdbc;
 import java.io.File;
 
 import net.sf.hajdbc.codec.Decoder;
+import net.sf.hajdbc.util.Files;
 
 /**
  * @author Paul Ferraro
@@ -29,4 +30,43 @@ public interface DumpRestoreSupport
 	<Z, D extends Database<Z>> void dump(D database, Decoder decoder, File file, boolean dataOnly) throws Exception;
 
 	<Z, D extends Database<Z>> void restore(D database, Decoder decoder, File file, boolean dataOnly) throws Exception;
+
+	/**
+	 * Restores the specified database from the specified dump file, using the specified number of concurrent jobs.
+	 * By default, the restore tool is not assumed to support concurrent jobs, and the database is restored sequentially.
+	 * @param database the database to restore
+	 * @param decoder a decoder of database passwords
+	 * @param file a dump file
+	 * @param dataOnly indicates whether to restore data only
+	 * @param jobs the number of concurrent jobs to use to restore, if supported by the restore tool
+	 * @throws Exception if the restore failed
+	 */
+	default <Z, D extends Database<Z>> void restore(D database, Decoder decoder, File file, boolean dataOnly, int jobs) throws Exception
+	{
+		this.restore(database, decoder, file, dataOnly);
+	}
+
+	/**
+	 * Restores the target database directly from a dump of the source database.
+	 * By default, the source database is dumped to a temporary file, from which the target database is then restored.
+	 * @param source the database to dump
+	 * @param target the database to restore
+	 * @param decoder a decoder of database passwords
+	 * @param dataOnly indicates whether to dump and restore data only
+	 * @throws Exception if the dump or restore failed
+	 */
+	default <Z, D extends Database<Z>> void transfer(D source, D target, Decoder decoder, boolean dataOnly) throws Exception
+	{
+		File file = Files.createTempFile(".dump");
+		
+		try
+		{
+			this.dump(source, decoder, file, dataOnly);
+			this.restore(target, decoder, file, dataOnly);
+		}
+		finally
+		{
+			Files.delete(file);
+		}
+	}
 }
@@ -85,4 +85,12 @@ public interface TriggerSupport
 	String getCreateTriggerSQL(String name, TableProperties table, TriggerEvent event, String action);
 	
 	String getDropTriggerSQL(String name, TableProperties table);
+	
+	/**
+	 * Returns a query that returns a row if, and only if, the specified trigger exists on the specified table.
+	 * @param name a trigger name
+	 * @param table a table
+	 * @return an SQL query
+	 */
+	String getTriggerExistsSQL(String name, TableProperties table);
 }
@@ -18,17 +18,15 @@
 package net.sf.hajdbc.balancer;
 
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 import net.sf.hajdbc.Database;
 
 /**
  * Thread-safe abstract balancer implementation that implements most of the Balancer interface, except {@link Balancer#next()}.
  * Uses A copy-on-write algorithm for {@link #add(Object)}, {@link #remove(Object)}, and {@link #clear()}.
+ * The set of databases, along with the primary and backup databases, is read from an immutable {@link BalancerSnapshot}, published by the implementation.
  * Calls to {@link #iterator()} are non-blocking.
  * 
  * @author Paul Ferraro
@@ -37,7 +35,32 @@ import net.sf.hajdbc.Database;
  */
 public abstract class AbstractBalancer<Z, D extends Database<Z>> implements Balancer<Z, D>
 {
-	protected abstract Set<D> getDatabases();
+	/**
+	 * {@inheritDoc}
+	 * Implementations must return the snapshot they published, since {@link #primary()} and {@link #backups()} are derived from it.
+	 * @see net.sf.hajdbc.balancer.Balancer#snapshot()
+	 */
+	@Override
+	public abstract BalancerSnapshot<Z, D> snapshot();
+
+	/**
+	 * Returns the current databases of this balancer.
+	 * @return a set of databases
+	 */
+	protected Set<D> getDatabases()
+	{
+		return this.snapshot().getDatabaseSet();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.balancer.Balancer#primary()
+	 */
+	@Override
+	public D primary()
+	{
+		return this.snapshot().primary();
+	}
 
 	/**
 	 * {@inheritDoc}
@@ -46,25 +69,7 @@ public abstract class AbstractBalancer<Z, D extends Database<Z>> implements Bala
 	@Override
 	public Iterable<D> backups()
 	{
-		Iterator<D> databases = this.getDatabases().iterator();
-		
-		if (!databases.hasNext() || ((databases.next() != null) && !databases.hasNext())) return Collections.emptySet();
-		
-		D database = databases.next();
-		
-		if (!databases.hasNext()) return Collections.singleton(database);
-		
-		SortedSet<D> backups = new TreeSet<>();
-		
-		backups.add(database);
-		
-		do
-		{
-			backups.add(databases.next());
-		}
-		while (databases.hasNext());
-
-		return backups;
+		return this.snapshot().backups();
 	}
 	
 	/**
@@ -18,7 +18,6 @@
 package net.sf.hajdbc.balancer;
 
 import java.util.Collection;
-import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -37,17 +36,17 @@ public abstract class AbstractSetBalancer<Z, D extends Database<Z>> extends Abst
 {
 	private final Lock lock = new ReentrantLock();
 
-	private volatile SortedSet<D> databaseSet;
+	private volatile BalancerSnapshot<Z, D> snapshot;
 
 	protected AbstractSetBalancer(Set<D> databases)
 	{
 		if (databases.isEmpty())
 		{
-			this.databaseSet = Collections.emptySortedSet();
+			this.snapshot = new BalancerSnapshot<>(Collections.<D>emptySortedSet());
 		}
 		else if (databases.size() == 1)
 		{
-			this.databaseSet = Collections.singletonSortedSet(databases.iterator().next());
+			this.snapshot = new BalancerSnapshot<>(Collections.singletonSortedSet(databases.iterator().next()));
 		}
 		else
 		{
@@ -58,7 +57,7 @@ public abstract class AbstractSetBalancer<Z, D extends Database<Z>> extends Abst
 				set.add(database);
 			}
 			
-			this.databaseSet = set;
+			this.snapshot = new BalancerSnapshot<>(set);
 		}
 	}
 
@@ -79,29 +78,12 @@ public abstract class AbstractSetBalancer<Z, D extends Database<Z>> extends Abst
 	
 	/**
 	 * {@inheritDoc}
-	 * @see net.sf.hajdbc.balancer.Balancer#primary()
+	 * @see net.sf.hajdbc.balancer.Balancer#snapshot()
 	 */
 	@Override
-	public D primary()
+	public BalancerSnapshot<Z, D> snapshot()
 	{
-		try
-		{
-			return this.databaseSet.first();
-		}
-		catch (NoSuchElementException e)
-		{
-			return null;
-		}
-	}
-
-	/**
-	 * {@inheritDoc}
-	 * @see net.sf.hajdbc.balancer.AbstractBalancer#getDatabases()
-	 */
-	@Override
-	protected Set<D> getDatabases()
-	{
-		return this.databaseSet;
+		return this.snapshot;
 	}
 	
 	/**
@@ -116,21 +98,22 @@ public abstract class AbstractSetBalancer<Z, D extends Database<Z>> extends Abst
 		
 		try
 		{
-			boolean remove = this.databaseSet.contains(database);
+			SortedSet<D> databaseSet = this.snapshot.getDatabaseSet();
+			boolean remove = databaseSet.contains(database);
 
 			if (remove)
 			{
-				if (this.databaseSet.size() == 1)
+				if (databaseSet.size() == 1)
 				{
-					this.databaseSet = Collections.emptySortedSet();
+					this.snapshot = new BalancerSnapshot<>(Collections.<D>emptySortedSet());
 				}
 				else
 				{
-					SortedSet<D> set = new TreeSet<>(this.databaseSet);
+					SortedSet<D> set = new TreeSet<>(databaseSet);
 					
 					set.remove(database);
 					
-					this.databaseSet = set;
+					this.snapshot = new BalancerSnapshot<>(set);
 				}
 				
 				this.removed((D) database);
@@ -161,21 +144,22 @@ public abstract class AbstractSetBalancer<Z, D extends Database<Z>> extends Abst
 		
 		try
 		{
-			boolean add = !this.databaseSet.contains(database);
+			SortedSet<D> databaseSet = this.snapshot.getDatabaseSet();
+			boolean add = !databaseSet.contains(database);
 			
 			if (add)
 			{
-				if (this.databaseSet.isEmpty())
+				if (databaseSet.isEmpty())
 				{
-					this.databaseSet = Collections.singletonSortedSet(database);
+					this.snapshot = new BalancerSnapshot<>(Collections.singletonSortedSet(database));
 				}
 				else
 				{
-					SortedSet<D> set = new TreeSet<>(this.databaseSet);
+					SortedSet<D> set = new TreeSet<>(databaseSet);
 					
 					set.add(database);
 					
-					this.databaseSet = set;
+					this.snapshot = new BalancerSnapshot<>(set);
 				}
 				
 				this.added(database);
@@ -206,7 +190,8 @@ public abstract class AbstractSetBalancer<Z, D extends Database<Z>> extends Abst
 		
 		try
 		{
-			SortedSet<D> addSet = new TreeSet<>(this.databaseSet);
+			SortedSet<D> databaseSet = this.snapshot.getDatabaseSet();
+			SortedSet<D> addSet = new TreeSet<>(databaseSet);
 
 			boolean added = addSet.addAll(databases);
 			
@@ -214,9 +199,9 @@ public abstract class AbstractSetBalancer<Z, D extends Database<Z>> extends Abst
 			{
 				Set<D> removeSet = new TreeSet<>(addSet);
 				
-				removeSet.removeAll(this.databaseSet);
+				removeSet.removeAll(databaseSet);
 				
-				this.databaseSet = addSet;
+				this.snapshot = new BalancerSnapshot<>(addSet);
 				
 				for (D database: removeSet)
 				{
@@ -243,17 +228,18 @@ public abstract class AbstractSetBalancer<Z, D extends Database<Z>> extends Abst
 		
 		try
 		{
-			SortedSet<D> removeSet = new TreeSet<>(this.databaseSet);
+			SortedSet<D> databaseSet = this.snapshot.getDatabaseSet();
+			SortedSet<D> removeSet = new TreeSet<>(databaseSet);
 
 			boolean removed = removeSet.removeAll(databases);
 			
 			if (removed)
 			{
-				Set<D> retainSet = new TreeSet<>(this.databaseSet);
+				Set<D> retainSet = new TreeSet<>(databaseSet);
 				
 				retainSet.retainAll(databases);
 				
-				this.databaseSet = removeSet;
+				this.snapshot = new BalancerSnapshot<>(removeSet);
 				
 				for (D database: retainSet)
 				{
@@ -280,17 +266,18 @@ public abstract class AbstractSetBalancer<Z, D extends Database<Z>> extends Abst
 		
 		try
 		{
-			SortedSet<D> retainSet = new TreeSet<>(this.databaseSet);
+			SortedSet<D> databaseSet = this.snapshot.getDatabaseSet();
+			SortedSet<D> retainSet = new TreeSet<>(databaseSet);
 
 			boolean retained = retainSet.retainAll(databases);
 			
 			if (retained)
 			{
-				Set<D> removeSet = new TreeSet<>(this.databaseSet);
+				Set<D> removeSet = new TreeSet<>(databaseSet);
 				
 				removeSet.removeAll(databases);
 				
-				this.databaseSet = retainSet;
+				this.snapshot = new BalancerSnapshot<>(retainSet);
 				
 				for (D database: removeSet)
 				{
@@ -317,9 +304,9 @@ public abstract class AbstractSetBalancer<Z, D extends Database<Z>> extends Abst
 		
 		try
 		{
-			if (!this.databaseSet.isEmpty())
+			if (this.snapshot.size() > 0)
 			{
-				this.databaseSet = Collections.emptySortedSet();
+				this.snapshot = new BalancerSnapshot<>(Collections.<D>emptySortedSet());
 				
 				this.cleared();
 			}
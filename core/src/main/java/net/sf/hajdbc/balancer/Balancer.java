@@ -18,6 +18,8 @@
 package net.sf.hajdbc.balancer;
 
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import net.sf.hajdbc.Database;
 import net.sf.hajdbc.invocation.Invoker;
@@ -45,6 +47,28 @@ public interface Balancer<Z, D extends Database<Z>> extends Set<D>
 	 */
 	Iterable<D> backups();
 	
+	/**
+	 * Returns an immutable snapshot of the databases of this balancer.
+	 * Callers needing a consistent view of the primary and backup databases should use a single snapshot, rather than consecutive calls to {@link #primary()} and {@link #backups()}.
+	 * By default, a new snapshot is created from {@link #primary()} and {@link #backups()}, which is only consistent if the databases of this balancer do not change concurrently.
+	 * Implementations are expected to publish a snapshot whenever their databases change, and return it.
+	 * @return a snapshot of the current databases
+	 */
+	default BalancerSnapshot<Z, D> snapshot()
+	{
+		SortedSet<D> databases = new TreeSet<>();
+		D primary = this.primary();
+		if (primary != null)
+		{
+			databases.add(primary);
+			for (D backup: this.backups())
+			{
+				databases.add(backup);
+			}
+		}
+		return new BalancerSnapshot<>(databases);
+	}
+	
 	/**
 	 * Returns the next database from this balancer
 	 * @return the next database from this balancer
@@ -0,0 +1,140 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.balancer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import net.sf.hajdbc.Database;
+
+/**
+ * Immutable snapshot of the databases of a balancer.
+ * Databases are indexed densely in their natural order, such that the primary database has index 0, followed by the backup databases.
+ * A balancer publishes a new snapshot whenever its databases change, so that readers see a consistent primary and set of backups,
+ * and can iterate them without locking or allocating.
+ * @author Paul Ferraro
+ * @param <Z> the database connection source
+ * @param <D> the database descriptor
+ */
+public class BalancerSnapshot<Z, D extends Database<Z>>
+{
+	private final SortedSet<D> databaseSet;
+	private final Object[] databases;
+	private final List<D> databaseList;
+	private final List<D> backupList;
+	private final Map<D, Integer> indexes;
+
+	/**
+	 * Creates a snapshot of the specified databases.
+	 * The snapshot assumes ownership of the specified set, if sorted, so it must not be modified thereafter.
+	 * @param databases a set of databases
+	 */
+	@SuppressWarnings("unchecked")
+	public BalancerSnapshot(Set<D> databases)
+	{
+		this.databaseSet = (databases instanceof SortedSet) ? (SortedSet<D>) databases : new TreeSet<>(databases);
+		this.databases = this.databaseSet.toArray();
+		this.databaseList = (List<D>) (List<?>) Collections.unmodifiableList(Arrays.asList(this.databases));
+		this.backupList = (this.databases.length > 1) ? this.databaseList.subList(1, this.databases.length) : Collections.<D>emptyList();
+		this.indexes = new HashMap<>(this.databases.length * 2);
+		for (int i = 0; i < this.databases.length; ++i)
+		{
+			this.indexes.put((D) this.databases[i], i);
+		}
+	}
+
+	/**
+	 * Returns the primary database.
+	 * @return the primary database, or null, if this snapshot is empty
+	 */
+	public D primary()
+	{
+		return (this.databases.length > 0) ? this.get(0) : null;
+	}
+
+	/**
+	 * Returns the non-primary databases, in order.
+	 * @return an unmodifiable list of databases
+	 */
+	public List<D> backups()
+	{
+		return this.backupList;
+	}
+
+	/**
+	 * Returns all databases, in order, beginning with the primary database.
+	 * @return an unmodifiable list of databases
+	 */
+	public List<D> getDatabases()
+	{
+		return this.databaseList;
+	}
+
+	/**
+	 * Returns the number of databases in this snapshot.
+	 * @return a number of databases
+	 */
+	public int size()
+	{
+		return this.databases.length;
+	}
+
+	/**
+	 * Returns the database with the specified index.
+	 * @param index a database index
+	 * @return a database
+	 * @throws ArrayIndexOutOfBoundsException if there is no database with the specified index
+	 */
+	@SuppressWarnings("unchecked")
+	public D get(int index)
+	{
+		return (D) this.databases[index];
+	}
+
+	/**
+	 * Returns the index of the specified database.
+	 * @param database a database
+	 * @return the index of the database, or -1, if the database is not in this snapshot
+	 */
+	public int indexOf(Object database)
+	{
+		Integer index = this.indexes.get(database);
+		return (index != null) ? index.intValue() : -1;
+	}
+
+	SortedSet<D> getDatabaseSet()
+	{
+		return this.databaseSet;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		return this.databaseList.toString();
+	}
+}
@@ -20,7 +20,6 @@ package net.sf.hajdbc.balancer.load;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Map;
-import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -30,6 +29,7 @@ import java.util.concurrent.locks.ReentrantLock;
 
 import net.sf.hajdbc.Database;
 import net.sf.hajdbc.balancer.AbstractBalancer;
+import net.sf.hajdbc.balancer.BalancerSnapshot;
 import net.sf.hajdbc.invocation.Invoker;
 import net.sf.hajdbc.util.Collections;
 
@@ -43,7 +43,7 @@ public class LoadBalancer<Z, D extends Database<Z>> extends AbstractBalancer<Z,
 {
 	private final Lock lock = new ReentrantLock();
 	
-	private volatile SortedMap<D, AtomicInteger> databaseMap = Collections.emptySortedMap();
+	private volatile LoadSnapshot<Z, D> snapshot;
 	
 	private Comparator<Map.Entry<D, AtomicInteger>> comparator = new Comparator<Map.Entry<D, AtomicInteger>>()
 	{
@@ -80,11 +80,11 @@ public class LoadBalancer<Z, D extends Database<Z>> extends AbstractBalancer<Z,
 	{
 		if (databases.isEmpty())
 		{
-			this.databaseMap = Collections.emptySortedMap();
+			this.setDatabaseMap(Collections.<D, AtomicInteger>emptySortedMap());
 		}
 		else if (databases.size() == 1)
 		{
-			this.databaseMap = Collections.singletonSortedMap(databases.iterator().next(), new AtomicInteger(1));
+			this.setDatabaseMap(Collections.singletonSortedMap(databases.iterator().next(), new AtomicInteger(1)));
 		}
 		else
 		{
@@ -95,35 +95,27 @@ public class LoadBalancer<Z, D extends Database<Z>> extends AbstractBalancer<Z,
 				map.put(database, new AtomicInteger(1));
 			}
 			
-			this.databaseMap = map;
+			this.setDatabaseMap(map);
 		}
 	}
 	
 	/**
-	 * {@inheritDoc}
-	 * @see net.sf.hajdbc.balancer.Balancer#primary()
+	 * Publishes a snapshot of the specified database map.
+	 * The map must not be modified thereafter.
 	 */
-	@Override
-	public D primary()
+	private void setDatabaseMap(SortedMap<D, AtomicInteger> map)
 	{
-		try
-		{
-			return this.databaseMap.firstKey();
-		}
-		catch (NoSuchElementException e)
-		{
-			return null;
-		}
+		this.snapshot = new LoadSnapshot<>(map);
 	}
 
 	/**
 	 * {@inheritDoc}
-	 * @see net.sf.hajdbc.balancer.AbstractBalancer#getDatabases()
+	 * @see net.sf.hajdbc.balancer.Balancer#snapshot()
 	 */
 	@Override
-	protected Set<D> getDatabases()
+	public BalancerSnapshot<Z, D> snapshot()
 	{
-		return this.databaseMap.keySet();
+		return this.snapshot;
 	}
 
 	/**
@@ -137,7 +129,7 @@ public class LoadBalancer<Z, D extends Database<Z>> extends AbstractBalancer<Z,
 		
 		try
 		{
-			SortedMap<D, AtomicInteger> addMap = new TreeMap<>(this.databaseMap);
+			SortedMap<D, AtomicInteger> addMap = new TreeMap<>(this.snapshot.databaseMap);
 			
 			boolean added = false;
 			
@@ -148,7 +140,7 @@ public class LoadBalancer<Z, D extends Database<Z>> extends AbstractBalancer<Z,
 			
 			if (added)
 			{
-				this.databaseMap = addMap;
+				this.setDatabaseMap(addMap);
 			}
 			
 			return added;
@@ -170,13 +162,13 @@ public class LoadBalancer<Z, D extends Database<Z>> extends AbstractBalancer<Z,
 		
 		try
 		{
-			SortedMap<D, AtomicInteger> map = new TreeMap<>(this.databaseMap);
+			SortedMap<D, AtomicInteger> map = new TreeMap<>(this.snapshot.databaseMap);
 			
 			boolean removed = map.keySet().removeAll(databases);
 
 			if (removed)
 			{
-				this.databaseMap = map;
+				this.setDatabaseMap(map);
 			}
 			
 			return removed;
@@ -198,13 +190,13 @@ public class LoadBalancer<Z, D extends Database<Z>> extends AbstractBalancer<Z,
 		
 		try
 		{
-			SortedMap<D, AtomicInteger> map = new TreeMap<>(this.databaseMap);
+			SortedMap<D, AtomicInteger> map = new TreeMap<>(this.snapshot.databaseMap);
 			
 			boolean retained = map.keySet().retainAll(databases);
 
 			if (retained)
 			{
-				this.databaseMap = map;
+				this.setDatabaseMap(map);
 			}
 			
 			return retained;
@@ -226,9 +218,9 @@ public class LoadBalancer<Z, D extends Database<Z>> extends AbstractBalancer<Z,
 		
 		try
 		{
-			if (!this.databaseMap.isEmpty())
+			if (!this.snapshot.databaseMap.isEmpty())
 			{
-				this.databaseMap = new TreeMap<>();
+				this.setDatabaseMap(Collections.<D, AtomicInteger>emptySortedMap());
 			}
 		}
 		finally
@@ -248,21 +240,21 @@ public class LoadBalancer<Z, D extends Database<Z>> extends AbstractBalancer<Z,
 		
 		try
 		{
-			boolean remove = this.databaseMap.containsKey(database);
+			boolean remove = this.snapshot.databaseMap.containsKey(database);
 			
 			if (remove)
 			{
-				if (this.databaseMap.size() == 1)
+				if (this.snapshot.databaseMap.size() == 1)
 				{
-					this.databaseMap = Collections.emptySortedMap();
+					this.setDatabaseMap(Collections.<D, AtomicInteger>emptySortedMap());
 				}
 				else
 				{
-					SortedMap<D, AtomicInteger> map = new TreeMap<>(this.databaseMap);
+					SortedMap<D, AtomicInteger> map = new TreeMap<>(this.snapshot.databaseMap);
 
 					map.remove(database);
 					
-					this.databaseMap = map;
+					this.setDatabaseMap(map);
 				}
 			}
 			
@@ -281,7 +273,7 @@ public class LoadBalancer<Z, D extends Database<Z>> extends AbstractBalancer<Z,
 	@Override
 	public D next()
 	{
-		Set<Map.Entry<D, AtomicInteger>> entrySet = this.databaseMap.entrySet();
+		Set<Map.Entry<D, AtomicInteger>> entrySet = this.snapshot.databaseMap.entrySet();
 		
 		return !entrySet.isEmpty() ? java.util.Collections.min(entrySet, this.comparator).getKey() : null;
 	}
@@ -297,23 +289,23 @@ public class LoadBalancer<Z, D extends Database<Z>> extends AbstractBalancer<Z,
 		
 		try
 		{
-			boolean add = !this.databaseMap.containsKey(database);
+			boolean add = !this.snapshot.databaseMap.containsKey(database);
 			
 			if (add)
 			{
 				AtomicInteger load = new AtomicInteger(1);
 				
-				if (this.databaseMap.isEmpty())
+				if (this.snapshot.databaseMap.isEmpty())
 				{
-					this.databaseMap = Collections.singletonSortedMap(database, load);
+					this.setDatabaseMap(Collections.singletonSortedMap(database, load));
 				}
 				else
 				{
-					SortedMap<D, AtomicInteger> map = new TreeMap<>(this.databaseMap);
+					SortedMap<D, AtomicInteger> map = new TreeMap<>(this.snapshot.databaseMap);
 					
 					map.put(database, load);
 					
-					this.databaseMap = map;
+					this.setDatabaseMap(map);
 				}
 			}
 			
@@ -332,7 +324,7 @@ public class LoadBalancer<Z, D extends Database<Z>> extends AbstractBalancer<Z,
 	@Override
 	public <T, R, E extends Exception> R invoke(Invoker<Z, D, T, R, E> invoker, D database, T object) throws E
 	{
-		AtomicInteger load = this.databaseMap.get(database);
+		AtomicInteger load = this.snapshot.databaseMap.get(database);
 		
 		if (load != null)
 		{
@@ -351,4 +343,18 @@ public class LoadBalancer<Z, D extends Database<Z>> extends AbstractBalancer<Z,
 			}
 		}
 	}
+
+	/**
+	 * Snapshot of the databases of this balancer, along with their loads, such that both are published together.
+	 */
+	private static class LoadSnapshot<Z, D extends Database<Z>> extends BalancerSnapshot<Z, D>
+	{
+		final SortedMap<D, AtomicInteger> databaseMap;
+
+		LoadSnapshot(SortedMap<D, AtomicInteger> databaseMap)
+		{
+			super(databaseMap.keySet());
+			this.databaseMap = databaseMap;
+		}
+	}
 }
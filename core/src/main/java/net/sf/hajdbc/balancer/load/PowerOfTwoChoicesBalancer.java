@@ -0,0 +1,228 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.balancer.load;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.hajdbc.Database;
+import net.sf.hajdbc.balancer.AbstractSetBalancer;
+import net.sf.hajdbc.invocation.Invoker;
+
+/**
+ * Lock-free variant of {@link LoadBalancer}, whose {@link #next()} implementation samples two distinct databases at random and returns the one with the lesser weighted load.
+ * Unlike {@link LoadBalancer}, selection does not scan every database, nor does it allocate.
+ * Databases with a weight of 0 are never selected, unless there are no other databases.
+ *
+ * @author  Paul Ferraro
+ * @param <D> either java.sql.Driver or javax.sql.DataSource
+ */
+public class PowerOfTwoChoicesBalancer<Z, D extends Database<Z>> extends AbstractSetBalancer<Z, D>
+{
+	private volatile Candidates<D> candidates = new Candidates<>();
+
+	/**
+	 * Constructs a new PowerOfTwoChoicesBalancer
+	 * @param databases
+	 */
+	public PowerOfTwoChoicesBalancer(Set<D> databases)
+	{
+		super(databases);
+		
+		this.reset();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.balancer.Balancer#next()
+	 */
+	@Override
+	public D next()
+	{
+		Candidates<D> candidates = this.candidates;
+		int size = candidates.size();
+		
+		if (size == 0)
+		{
+			return this.primary();
+		}
+		if (size == 1)
+		{
+			return candidates.get(0);
+		}
+		
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int index1 = random.nextInt(size);
+		// Choose a second, distinct index
+		int index2 = random.nextInt(size - 1);
+		if (index2 >= index1)
+		{
+			index2 += 1;
+		}
+		
+		return (candidates.compare(index1, index2) <= 0) ? candidates.get(index1) : candidates.get(index2);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.balancer.AbstractSetBalancer#invoke(net.sf.hajdbc.invocation.Invoker, net.sf.hajdbc.Database, java.lang.Object)
+	 */
+	@Override
+	public <T, R, E extends Exception> R invoke(Invoker<Z, D, T, R, E> invoker, D database, T object) throws E
+	{
+		AtomicInteger load = this.candidates.getLoad(database);
+		
+		if (load != null)
+		{
+			load.incrementAndGet();
+		}
+		
+		try
+		{
+			return invoker.invoke(database, object);
+		}
+		finally
+		{
+			if (load != null)
+			{
+				load.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.balancer.AbstractSetBalancer#added(net.sf.hajdbc.Database)
+	 */
+	@Override
+	protected void added(D database)
+	{
+		this.reset();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.balancer.AbstractSetBalancer#removed(net.sf.hajdbc.Database)
+	 */
+	@Override
+	protected void removed(D database)
+	{
+		this.reset();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.balancer.AbstractSetBalancer#cleared()
+	 */
+	@Override
+	protected void cleared()
+	{
+		this.candidates = new Candidates<>();
+	}
+	
+	private void reset()
+	{
+		this.candidates = new Candidates<>(this.snapshot().getDatabases(), this.candidates);
+	}
+	
+	/**
+	 * Immutable set of selectable databases, along with their weights and mutable loads.
+	 * Load counters of databases common to successive instances are shared, so that in-flight invocations remain accounted for.
+	 */
+	private static class Candidates<D extends Database<?>>
+	{
+		private final Object[] databases;
+		private final int[] weights;
+		private final AtomicInteger[] loads;
+		private final Map<D, AtomicInteger> loadMap;
+		
+		Candidates()
+		{
+			this.databases = new Object[0];
+			this.weights = new int[0];
+			this.loads = new AtomicInteger[0];
+			this.loadMap = Collections.emptyMap();
+		}
+		
+		Candidates(List<D> databases, Candidates<D> previous)
+		{
+			int size = 0;
+			for (D database: databases)
+			{
+				if (database.getWeight() > 0)
+				{
+					size += 1;
+				}
+			}
+			
+			this.databases = new Object[size];
+			this.weights = new int[size];
+			this.loads = new AtomicInteger[size];
+			this.loadMap = new HashMap<>(size * 2);
+			
+			int index = 0;
+			for (D database: databases)
+			{
+				int weight = database.getWeight();
+				if (weight > 0)
+				{
+					AtomicInteger load = previous.getLoad(database);
+					
+					this.databases[index] = database;
+					this.weights[index] = weight;
+					this.loads[index] = (load != null) ? load : new AtomicInteger();
+					this.loadMap.put(database, this.loads[index]);
+					index += 1;
+				}
+			}
+		}
+		
+		int size()
+		{
+			return this.databases.length;
+		}
+		
+		@SuppressWarnings("unchecked")
+		D get(int index)
+		{
+			return (D) this.databases[index];
+		}
+		
+		AtomicInteger getLoad(Object database)
+		{
+			return this.loadMap.get(database);
+		}
+		
+		/**
+		 * Compares the weighted loads of the databases with the specified indexes, as if each were to receive one additional request.
+		 * i.e. (load1 + 1) / weight1 vs (load2 + 1) / weight2, cross-multiplied to avoid division.
+		 */
+		int compare(int index1, int index2)
+		{
+			long load1 = this.loads[index1].get() + 1L;
+			long load2 = this.loads[index2].get() + 1L;
+			
+			return Long.compare(load1 * this.weights[index2], load2 * this.weights[index1]);
+		}
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.balancer.roundrobin;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.hajdbc.Database;
+import net.sf.hajdbc.balancer.AbstractSetBalancer;
+import net.sf.hajdbc.balancer.BalancerSnapshot;
+
+/**
+ * Lock-free variant of {@link RoundRobinBalancer}, whose {@link #next()} implementation advances an atomic counter over an immutable schedule.
+ * The schedule contains each database as many times as its weight, and is rebuilt from the balancer snapshot whenever the databases change.
+ * 
+ * @author  Paul Ferraro
+ * @param <D> either java.sql.Driver or javax.sql.DataSource
+ */
+public class ConcurrentRoundRobinBalancer<P, D extends Database<P>> extends AbstractSetBalancer<P, D>
+{
+	private static final Object[] EMPTY_SCHEDULE = new Object[0];
+	
+	private final AtomicInteger counter = new AtomicInteger();
+	
+	private volatile Object[] schedule = EMPTY_SCHEDULE;
+
+	/**
+	 * Constructs a new ConcurrentRoundRobinBalancer
+	 * @param databases
+	 */
+	public ConcurrentRoundRobinBalancer(Set<D> databases)
+	{
+		super(databases);
+		
+		this.reset();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.balancer.Balancer#next()
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public D next()
+	{
+		Object[] schedule = this.schedule;
+		
+		switch (schedule.length)
+		{
+			case 0:
+			{
+				return this.primary();
+			}
+			case 1:
+			{
+				return (D) schedule[0];
+			}
+			default:
+			{
+				// Math.floorMod(...) keeps the index positive once the counter overflows
+				return (D) schedule[Math.floorMod(this.counter.getAndIncrement(), schedule.length)];
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.balancer.AbstractSetBalancer#added(net.sf.hajdbc.Database)
+	 */
+	@Override
+	protected void added(D database)
+	{
+		this.reset();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.balancer.AbstractSetBalancer#removed(net.sf.hajdbc.Database)
+	 */
+	@Override
+	protected void removed(D database)
+	{
+		this.reset();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.balancer.AbstractSetBalancer#cleared()
+	 */
+	@Override
+	protected void cleared()
+	{
+		this.schedule = EMPTY_SCHEDULE;
+	}
+	
+	private void reset()
+	{
+		BalancerSnapshot<P, D> snapshot = this.snapshot();
+		int total = 0;
+		
+		for (D database: snapshot.getDatabases())
+		{
+			total += database.getWeight();
+		}
+		
+		Object[] schedule = new Object[total];
+		int index = 0;
+		
+		for (D database: snapshot.getDatabases())
+		{
+			int weight = database.getWeight();
+			for (int i = 0; i < weight; ++i)
+			{
+				schedule[index++] = database;
+			}
+		}
+		
+		this.schedule = schedule;
+	}
+}
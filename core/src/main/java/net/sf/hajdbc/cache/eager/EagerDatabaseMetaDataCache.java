@@ -22,6 +22,8 @@ import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import net.sf.hajdbc.Database;
 import net.sf.hajdbc.DatabaseCluster;
@@ -36,6 +38,7 @@ import net.sf.hajdbc.dialect.Dialect;
 public class EagerDatabaseMetaDataCache<Z, D extends Database<Z>> implements DatabaseMetaDataCache<Z, D>
 {
 	private final Map<D, DatabaseProperties> map = new TreeMap<>();
+	private final Lock lock = new ReentrantLock();
 	private final DatabaseCluster<Z, D> cluster;
 	
 	public EagerDatabaseMetaDataCache(DatabaseCluster<Z, D> cluster)
@@ -60,11 +63,16 @@ public class EagerDatabaseMetaDataCache<Z, D extends Database<Z>> implements Dat
 			}
 		}
 		
-		synchronized (this.map)
+		this.lock.lock();
+		try
 		{
 			this.map.clear();
 			this.map.putAll(map);
 		}
+		finally
+		{
+			this.lock.unlock();
+		}
 	}
 
 	/**
@@ -74,7 +82,8 @@ public class EagerDatabaseMetaDataCache<Z, D extends Database<Z>> implements Dat
 	@Override
 	public DatabaseProperties getDatabaseProperties(D database, Connection connection) throws SQLException
 	{
-		synchronized (this.map)
+		this.lock.lock();
+		try
 		{
 			DatabaseProperties properties = this.map.get(database);
 			
@@ -87,6 +96,10 @@ public class EagerDatabaseMetaDataCache<Z, D extends Database<Z>> implements Dat
 			
 			return properties;
 		}
+		finally
+		{
+			this.lock.unlock();
+		}
 	}
 	
 	private DatabaseProperties createDatabaseProperties(Connection connection) throws SQLException
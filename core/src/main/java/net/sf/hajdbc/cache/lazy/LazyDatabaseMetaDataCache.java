@@ -24,6 +24,8 @@ import java.sql.SQLException;
 import java.util.AbstractMap;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import net.sf.hajdbc.Database;
 import net.sf.hajdbc.DatabaseCluster;
@@ -40,6 +42,7 @@ import net.sf.hajdbc.util.ref.SoftReferenceFactory;
 public class LazyDatabaseMetaDataCache<Z, D extends Database<Z>> implements DatabaseMetaDataCache<Z, D>
 {
 	private final Map<D, Map.Entry<DatabaseProperties, LazyDatabaseMetaDataProvider>> map = new ReferenceMap<>(new TreeMap<D, Reference<Map.Entry<DatabaseProperties, LazyDatabaseMetaDataProvider>>>(), SoftReferenceFactory.getInstance());
+	private final Lock lock = new ReentrantLock();
 	private final DatabaseCluster<Z, D> cluster;
 
 	public LazyDatabaseMetaDataCache(DatabaseCluster<Z, D> cluster)
@@ -54,10 +57,15 @@ public class LazyDatabaseMetaDataCache<Z, D extends Database<Z>> implements Data
 	@Override
 	public void flush()
 	{
-		synchronized (this.map)
+		this.lock.lock();
+		try
 		{
 			this.map.clear();
 		}
+		finally
+		{
+			this.lock.unlock();
+		}
 	}
 
 	/**
@@ -67,7 +75,8 @@ public class LazyDatabaseMetaDataCache<Z, D extends Database<Z>> implements Data
 	@Override
 	public DatabaseProperties getDatabaseProperties(D database, Connection connection) throws SQLException
 	{
-		synchronized (this.map)
+		this.lock.lock();
+		try
 		{
 			Map.Entry<DatabaseProperties, LazyDatabaseMetaDataProvider> entry = this.map.get(database);
 			
@@ -89,5 +98,9 @@ public class LazyDatabaseMetaDataCache<Z, D extends Database<Z>> implements Data
 			
 			return entry.getKey();
 		}
+		finally
+		{
+			this.lock.unlock();
+		}
 	}
 }
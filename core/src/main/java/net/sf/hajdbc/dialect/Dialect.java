@@ -91,6 +91,14 @@ public interface Dialect
 	 * @throws SQLException if there was an error fetching meta data.
 	 */
 	String getDropUniqueConstraintSQL(UniqueConstraint constraint) throws SQLException;
+
+	/**
+	 * Returns an aggregate SQL expression that computes a checksum of the specified columns over a group of rows.
+	 * The checksum must not depend on the order of the rows, and must distinguish null values from empty values.
+	 * @param columns a list of column names
+	 * @return an aggregate SQL expression, or null if this dialect does not support checksums.
+	 */
+	String getChecksumAggregate(List<String> columns);
 	
 	/**
 	 * Determines whether the specified SQL is a SELECT ... FOR UPDATE statement
@@ -157,6 +165,24 @@ public interface Dialect
 	 */
 	String evaluateRand(String sql);
 	
+	/**
+	 * Tokenizes the specified SQL statement in a single pass, identifying its locking clause, sequence, insert table, and non-deterministic functions.
+	 * @param sql an SQL statement
+	 * @return a tokenized statement
+	 */
+	TokenizedStatement tokenize(String sql);
+	
+	/**
+	 * Replaces the non-deterministic functions of the specified tokenized statement with deterministic static values, in a single pass.
+	 * @param statement a tokenized statement
+	 * @param date the replacement date, or null, if CURRENT_DATE functions should not be replaced
+	 * @param time the replacement time, or null, if CURRENT_TIME functions should not be replaced
+	 * @param timestamp the replacement timestamp, or null, if CURRENT_TIMESTAMP functions should not be replaced
+	 * @param rand indicates whether RAND() functions should be replaced
+	 * @return an equivalent deterministic SQL statement
+	 */
+	String evaluate(TokenizedStatement statement, java.sql.Date date, java.sql.Time time, java.sql.Timestamp timestamp, boolean rand);
+	
 	/**
 	 * Determines whether the specified exception indicates a catastrophic error.
 	 * @param e an exception
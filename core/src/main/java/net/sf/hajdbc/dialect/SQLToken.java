@@ -0,0 +1,197 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.dialect;
+
+/**
+ * Describes a SQL construct recognized by a {@link SQLTokenizer}, e.g. a keyword sequence or function call.
+ * Keywords are matched case-insensitively, on word boundaries, and may be separated by arbitrary whitespace.
+ * @author Paul Ferraro
+ */
+public class SQLToken
+{
+	/**
+	 * The features of a SQL statement identified by tokens.
+	 */
+	public enum Type
+	{
+		SELECT_FOR_UPDATE, SEQUENCE, CURRENT_DATE, CURRENT_TIME, CURRENT_TIMESTAMP, RAND;
+	}
+	
+	enum Form
+	{
+		// Keywords, optionally followed by parentheses
+		KEYWORD,
+		// Keywords followed by a name, e.g. NEXT VALUE FOR name
+		PREFIX,
+		// A name followed by a period and a keyword, e.g. name.NEXTVAL
+		SUFFIX,
+		// A function whose first argument is a name, e.g. NEXTVAL('name')
+		CALL;
+	}
+	
+	enum Parentheses
+	{
+		NONE, OPTIONAL, REQUIRED;
+	}
+	
+	/**
+	 * Creates a token matching the specified sequence of keywords, e.g. CURRENT_DATE.
+	 * @param keywords one or more keywords
+	 * @return a token
+	 */
+	public static SQLToken keyword(String... keywords)
+	{
+		return new SQLToken(Form.KEYWORD, keywords, Parentheses.NONE, null, false);
+	}
+	
+	/**
+	 * Creates a token matching a function with no arguments, e.g. NOW().
+	 * @param name a function name
+	 * @return a token
+	 */
+	public static SQLToken function(String name)
+	{
+		return new SQLToken(Form.KEYWORD, new String[] { name }, Parentheses.REQUIRED, null, false);
+	}
+	
+	/**
+	 * Creates a token matching a function with the specified literal argument, e.g. DATE('TODAY').
+	 * @param name a function name
+	 * @param argument the text of the argument
+	 * @return a token
+	 */
+	public static SQLToken function(String name, String argument)
+	{
+		return new SQLToken(Form.KEYWORD, new String[] { name }, Parentheses.REQUIRED, argument, false);
+	}
+	
+	/**
+	 * Creates a token matching the specified sequence of keywords followed by a name, e.g. NEXT VALUE FOR name.
+	 * @param keywords one or more keywords
+	 * @return a token
+	 */
+	public static SQLToken prefix(String... keywords)
+	{
+		return new SQLToken(Form.PREFIX, keywords, Parentheses.NONE, null, false);
+	}
+	
+	/**
+	 * Creates a token matching a name followed by a period and the specified keyword, e.g. name.NEXTVAL.
+	 * @param keyword a keyword
+	 * @return a token
+	 */
+	public static SQLToken suffix(String keyword)
+	{
+		return new SQLToken(Form.SUFFIX, new String[] { keyword }, Parentheses.NONE, null, false);
+	}
+	
+	/**
+	 * Creates a token matching a function whose first argument is a name, e.g. NEXTVAL('name').
+	 * @param name a function name
+	 * @return a token
+	 */
+	public static SQLToken call(String name)
+	{
+		return new SQLToken(Form.CALL, new String[] { name }, Parentheses.REQUIRED, null, false);
+	}
+	
+	private final Form form;
+	private final String[] keywords;
+	private final Parentheses parentheses;
+	private final String argument;
+	private final boolean precision;
+	
+	private SQLToken(Form form, String[] keywords, Parentheses parentheses, String argument, boolean precision)
+	{
+		this.form = form;
+		this.keywords = keywords;
+		this.parentheses = parentheses;
+		this.argument = argument;
+		this.precision = precision;
+	}
+	
+	/**
+	 * Returns a variant of this token that accepts an optional numeric precision argument, e.g. CURRENT_TIMESTAMP(3).
+	 * @return a token
+	 */
+	public SQLToken withPrecision()
+	{
+		return new SQLToken(this.form, this.keywords, (this.parentheses == Parentheses.NONE) ? Parentheses.OPTIONAL : this.parentheses, this.argument, true);
+	}
+	
+	Form getForm()
+	{
+		return this.form;
+	}
+	
+	String[] getKeywords()
+	{
+		return this.keywords;
+	}
+	
+	Parentheses getParentheses()
+	{
+		return this.parentheses;
+	}
+	
+	String getArgument()
+	{
+		return this.argument;
+	}
+	
+	boolean isPrecision()
+	{
+		return this.precision;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder builder = new StringBuilder();
+		if (this.form == Form.SUFFIX)
+		{
+			builder.append("name.");
+		}
+		for (int i = 0; i < this.keywords.length; ++i)
+		{
+			if (i > 0)
+			{
+				builder.append(' ');
+			}
+			builder.append(this.keywords[i]);
+		}
+		if (this.form == Form.PREFIX)
+		{
+			builder.append(" name");
+		}
+		else if (this.form == Form.CALL)
+		{
+			builder.append("(name, ...)");
+		}
+		else if (this.parentheses != Parentheses.NONE)
+		{
+			String argument = (this.argument != null) ? this.argument : (this.precision ? "n" : "");
+			builder.append((this.parentheses == Parentheses.OPTIONAL) ? "[(" : "(").append(argument).append((this.parentheses == Parentheses.OPTIONAL) ? ")]" : ")");
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,580 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.dialect;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Single-pass SQL tokenizer that identifies, in one scan of a statement, the locking clauses, sequences, insert table, and non-deterministic functions of interest to HA-JDBC.
+ * String literals, quoted identifiers, and comments are skipped, so tokens appearing within them are never matched.
+ * Tokens are supplied by the dialect, as are any vendor-specific lexical rules.
+ * @author Paul Ferraro
+ */
+public class SQLTokenizer
+{
+	/**
+	 * Vendor-specific lexical rules.
+	 */
+	public enum Syntax
+	{
+		/** Backslash escapes within quoted strings, e.g. 'It\'s' */
+		BACKSLASH_ESCAPES,
+		/** Escape string constants, e.g. E'It\'s' */
+		ESCAPE_STRINGS,
+		/** Back-quoted identifiers, e.g. `name` */
+		BACKTICK_QUOTES,
+		/** Bracketed identifiers, e.g. [name] */
+		BRACKET_QUOTES,
+		/** Line comments beginning with # */
+		HASH_COMMENTS,
+		/** Block comments that may be nested */
+		NESTED_COMMENTS,
+		/** Dollar-quoted strings, e.g. $tag$It's$tag$ */
+		DOLLAR_QUOTES;
+	}
+	
+	private static final Comparator<Candidate> LONGEST_FIRST = new Comparator<Candidate>()
+	{
+		@Override
+		public int compare(Candidate candidate1, Candidate candidate2)
+		{
+			return candidate2.getToken().getKeywords().length - candidate1.getToken().getKeywords().length;
+		}
+	};
+	
+	// Candidate tokens, indexed by the upper case initial of their first keyword, longest first
+	private final List<List<Candidate>> candidates = new ArrayList<>(128);
+	private final List<Candidate> suffixes = new ArrayList<>();
+	private final Set<Syntax> syntax;
+	
+	public SQLTokenizer(Map<SQLToken.Type, ? extends Collection<SQLToken>> tokens, Set<Syntax> syntax)
+	{
+		this.syntax = syntax.isEmpty() ? EnumSet.noneOf(Syntax.class) : EnumSet.copyOf(syntax);
+		
+		for (int i = 0; i < 128; ++i)
+		{
+			this.candidates.add(Collections.<Candidate>emptyList());
+		}
+		
+		for (Map.Entry<SQLToken.Type, ? extends Collection<SQLToken>> entry: tokens.entrySet())
+		{
+			for (SQLToken token: entry.getValue())
+			{
+				Candidate candidate = new Candidate(entry.getKey(), token);
+				
+				if (token.getForm() == SQLToken.Form.SUFFIX)
+				{
+					this.suffixes.add(candidate);
+				}
+				else
+				{
+					int initial = Character.toUpperCase(token.getKeywords()[0].charAt(0));
+					if (initial < 128)
+					{
+						List<Candidate> candidates = this.candidates.get(initial);
+						if (candidates.isEmpty())
+						{
+							candidates = new ArrayList<>();
+							this.candidates.set(initial, candidates);
+						}
+						candidates.add(candidate);
+						Collections.sort(candidates, LONGEST_FIRST);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Tokenizes the specified SQL statement.
+	 * @param sql a SQL statement
+	 * @return a tokenized statement
+	 */
+	public TokenizedStatement tokenize(String sql)
+	{
+		int length = sql.length();
+		boolean select = false;
+		boolean selectForUpdate = false;
+		String sequence = null;
+		String insertTable = null;
+		List<TokenizedStatement.Occurrence> occurrences = null;
+		// Bounds of the name captured by a matching token
+		int[] name = new int[2];
+		// Bounds of the preceding word or quoted name
+		int previousStart = -1;
+		int previousEnd = -1;
+		int index = 0;
+		
+		while (index < length)
+		{
+			char c = sql.charAt(index);
+			int end = this.skip(sql, index, c);
+			
+			if (end > index)
+			{
+				previousStart = index;
+				previousEnd = end;
+				index = end;
+				continue;
+			}
+			
+			// $ may appear within, but not begin, a word
+			if (!isWordPart(c) || (c == '$'))
+			{
+				index += 1;
+				continue;
+			}
+			
+			end = endOfWord(sql, index);
+			
+			if (!Character.isLetter(c))
+			{
+				index = end;
+				continue;
+			}
+			
+			if (this.syntax.contains(Syntax.ESCAPE_STRINGS) && (end == index + 1) && ((c == 'E') || (c == 'e')) && (end < length) && (sql.charAt(end) == '\''))
+			{
+				index = skipQuoted(sql, end, '\'', true);
+				continue;
+			}
+			
+			if ((sequence == null) && (index > 0) && (sql.charAt(index - 1) == '.') && (previousEnd == index - 1))
+			{
+				for (Candidate candidate: this.suffixes)
+				{
+					if (matches(sql, index, end, candidate.getToken().getKeywords()[0]))
+					{
+						sequence = unquote(sql, previousStart, previousEnd);
+						break;
+					}
+				}
+			}
+			
+			int matchEnd = -1;
+			int initial = Character.toUpperCase(c);
+			
+			if (initial < 128)
+			{
+				for (Candidate candidate: this.candidates.get(initial))
+				{
+					matchEnd = this.match(candidate.getToken(), sql, index, end, name);
+					
+					if (matchEnd >= 0)
+					{
+						SQLToken.Type type = candidate.getType();
+						switch (type)
+						{
+							case SELECT_FOR_UPDATE:
+							{
+								selectForUpdate |= select;
+								break;
+							}
+							case SEQUENCE:
+							{
+								if (sequence == null)
+								{
+									sequence = sql.substring(name[0], name[1]);
+								}
+								break;
+							}
+							default:
+							{
+								if (occurrences == null)
+								{
+									occurrences = new ArrayList<>();
+								}
+								occurrences.add(new TokenizedStatement.Occurrence(type, index, matchEnd));
+							}
+						}
+						break;
+					}
+				}
+			}
+			
+			if (matchEnd >= 0)
+			{
+				previousStart = -1;
+				previousEnd = -1;
+				index = matchEnd;
+				continue;
+			}
+			
+			if (matches(sql, index, end, "SELECT"))
+			{
+				select = true;
+			}
+			else if ((insertTable == null) && matches(sql, index, end, "INSERT"))
+			{
+				insertTable = parseInsertTable(sql, end);
+			}
+			
+			previousStart = index;
+			previousEnd = end;
+			index = end;
+		}
+		
+		return new TokenizedStatement(sql, selectForUpdate, sequence, insertTable, occurrences);
+	}
+	
+	/**
+	 * Matches the specified token against the statement, beginning at the specified word.
+	 * @return the index following the matched token, or -1 if the token does not match
+	 */
+	private int match(SQLToken token, String sql, int start, int end, int[] name)
+	{
+		String[] keywords = token.getKeywords();
+		
+		if (!matches(sql, start, end, keywords[0])) return -1;
+		
+		int index = end;
+		
+		for (int i = 1; i < keywords.length; ++i)
+		{
+			int begin = skipWhitespace(sql, index);
+			if (begin == index) return -1;
+			int wordEnd = endOfWord(sql, begin);
+			if (!matches(sql, begin, wordEnd, keywords[i])) return -1;
+			index = wordEnd;
+		}
+		
+		int length = sql.length();
+		
+		switch (token.getForm())
+		{
+			case PREFIX:
+			{
+				int begin = skipWhitespace(sql, index);
+				if (begin == index) return -1;
+				if ((begin < length) && (sql.charAt(begin) == '\''))
+				{
+					begin += 1;
+				}
+				int nameEnd = begin;
+				while ((nameEnd < length) && !isNameDelimiter(sql.charAt(nameEnd)))
+				{
+					nameEnd += 1;
+				}
+				if (nameEnd == begin) return -1;
+				name[0] = begin;
+				name[1] = nameEnd;
+				return nameEnd;
+			}
+			case CALL:
+			{
+				int begin = skipWhitespace(sql, index);
+				if ((begin == length) || (sql.charAt(begin) != '(')) return -1;
+				begin = skipWhitespace(sql, begin + 1);
+				if (begin == length) return -1;
+				if (sql.charAt(begin) == '\'')
+				{
+					int nameEnd = sql.indexOf('\'', begin + 1);
+					if (nameEnd <= begin + 1) return -1;
+					name[0] = begin + 1;
+					name[1] = nameEnd;
+					return nameEnd + 1;
+				}
+				int nameEnd = begin;
+				while ((nameEnd < length) && !isNameDelimiter(sql.charAt(nameEnd)))
+				{
+					nameEnd += 1;
+				}
+				if (nameEnd == begin) return -1;
+				name[0] = begin;
+				name[1] = nameEnd;
+				return nameEnd;
+			}
+			default:
+			{
+				if (token.getParentheses() == SQLToken.Parentheses.NONE) return index;
+				
+				int begin = skipWhitespace(sql, index);
+				if ((begin < length) && (sql.charAt(begin) == '('))
+				{
+					int argumentsEnd = matchArguments(token, sql, begin + 1);
+					if (argumentsEnd >= 0) return argumentsEnd;
+				}
+				return (token.getParentheses() == SQLToken.Parentheses.OPTIONAL) ? index : -1;
+			}
+		}
+	}
+	
+	/**
+	 * Matches the arguments of the specified token, beginning after the open parenthesis.
+	 * @return the index following the close parenthesis, or -1 if the arguments do not match
+	 */
+	private static int matchArguments(SQLToken token, String sql, int index)
+	{
+		int length = sql.length();
+		int end = skipWhitespace(sql, index);
+		String argument = token.getArgument();
+		
+		if (argument != null)
+		{
+			if (!sql.regionMatches(true, end, argument, 0, argument.length())) return -1;
+			end += argument.length();
+		}
+		else if (token.isPrecision())
+		{
+			while ((end < length) && Character.isDigit(sql.charAt(end)))
+			{
+				end += 1;
+			}
+		}
+		
+		end = skipWhitespace(sql, end);
+		
+		return ((end < length) && (sql.charAt(end) == ')')) ? end + 1 : -1;
+	}
+	
+	private static String parseInsertTable(String sql, int index)
+	{
+		int length = sql.length();
+		int begin = skipWhitespace(sql, index);
+		if (begin == index) return null;
+		
+		int end = endOfWord(sql, begin);
+		if (matches(sql, begin, end, "INTO"))
+		{
+			int next = skipWhitespace(sql, end);
+			if (next > end)
+			{
+				begin = next;
+			}
+		}
+		
+		if ((begin < length) && (sql.charAt(begin) == '\''))
+		{
+			begin += 1;
+		}
+		
+		end = begin;
+		while (end < length)
+		{
+			char c = sql.charAt(end);
+			if (Character.isWhitespace(c) || (c == '(') || (c == '\'')) break;
+			end += 1;
+		}
+		
+		return (end > begin) ? sql.substring(begin, end) : null;
+	}
+	
+	/**
+	 * Skips the literal, quoted identifier, or comment beginning at the specified index, if any.
+	 * @return the index following the skipped text, or the specified index, if nothing was skipped
+	 */
+	private int skip(String sql, int index, char c)
+	{
+		int length = sql.length();
+		
+		switch (c)
+		{
+			case '\'':
+			case '"':
+			{
+				return skipQuoted(sql, index, c, this.syntax.contains(Syntax.BACKSLASH_ESCAPES));
+			}
+			case '`':
+			{
+				return this.syntax.contains(Syntax.BACKTICK_QUOTES) ? skipQuoted(sql, index, c, false) : index;
+			}
+			case '[':
+			{
+				if (!this.syntax.contains(Syntax.BRACKET_QUOTES)) return index;
+				int end = sql.indexOf(']', index + 1);
+				return (end >= 0) ? end + 1 : length;
+			}
+			case '-':
+			{
+				return ((index + 1 < length) && (sql.charAt(index + 1) == '-')) ? skipLine(sql, index) : index;
+			}
+			case '#':
+			{
+				return this.syntax.contains(Syntax.HASH_COMMENTS) ? skipLine(sql, index) : index;
+			}
+			case '/':
+			{
+				return ((index + 1 < length) && (sql.charAt(index + 1) == '*')) ? skipComment(sql, index, this.syntax.contains(Syntax.NESTED_COMMENTS)) : index;
+			}
+			case '$':
+			{
+				return this.syntax.contains(Syntax.DOLLAR_QUOTES) ? skipDollarQuoted(sql, index) : index;
+			}
+			default:
+			{
+				return index;
+			}
+		}
+	}
+	
+	private static int skipQuoted(String sql, int index, char quote, boolean escapes)
+	{
+		int length = sql.length();
+		int i = index + 1;
+		while (i < length)
+		{
+			char c = sql.charAt(i);
+			if (escapes && (c == '\\'))
+			{
+				i += 2;
+			}
+			else if (c == quote)
+			{
+				// A doubled quote is an escaped quote
+				if ((i + 1 < length) && (sql.charAt(i + 1) == quote))
+				{
+					i += 2;
+				}
+				else
+				{
+					return i + 1;
+				}
+			}
+			else
+			{
+				i += 1;
+			}
+		}
+		return length;
+	}
+	
+	private static int skipLine(String sql, int index)
+	{
+		int end = sql.indexOf('\n', index);
+		return (end >= 0) ? end + 1 : sql.length();
+	}
+	
+	private static int skipComment(String sql, int index, boolean nested)
+	{
+		int length = sql.length();
+		int depth = 1;
+		int i = index + 2;
+		while (i < length)
+		{
+			char c = sql.charAt(i);
+			if (nested && (c == '/') && (i + 1 < length) && (sql.charAt(i + 1) == '*'))
+			{
+				depth += 1;
+				i += 2;
+			}
+			else if ((c == '*') && (i + 1 < length) && (sql.charAt(i + 1) == '/'))
+			{
+				i += 2;
+				depth -= 1;
+				if (depth == 0) return i;
+			}
+			else
+			{
+				i += 1;
+			}
+		}
+		return length;
+	}
+	
+	private static int skipDollarQuoted(String sql, int index)
+	{
+		int length = sql.length();
+		int i = index + 1;
+		if ((i < length) && (Character.isLetter(sql.charAt(i)) || (sql.charAt(i) == '_')))
+		{
+			while ((i < length) && (Character.isLetterOrDigit(sql.charAt(i)) || (sql.charAt(i) == '_')))
+			{
+				i += 1;
+			}
+		}
+		// Not a dollar quote, e.g. a positional parameter
+		if ((i == length) || (sql.charAt(i) != '$')) return index;
+		
+		String tag = sql.substring(index, i + 1);
+		int end = sql.indexOf(tag, i + 1);
+		return (end >= 0) ? end + tag.length() : length;
+	}
+	
+	private static int skipWhitespace(String sql, int index)
+	{
+		int length = sql.length();
+		int i = index;
+		while ((i < length) && Character.isWhitespace(sql.charAt(i)))
+		{
+			i += 1;
+		}
+		return i;
+	}
+	
+	private static int endOfWord(String sql, int index)
+	{
+		int length = sql.length();
+		int i = index;
+		while ((i < length) && isWordPart(sql.charAt(i)))
+		{
+			i += 1;
+		}
+		return i;
+	}
+	
+	private static boolean isWordPart(char c)
+	{
+		return Character.isLetterOrDigit(c) || (c == '_') || (c == '$');
+	}
+	
+	private static boolean isNameDelimiter(char c)
+	{
+		return Character.isWhitespace(c) || (c == ',') || (c == '\'') || (c == '(') || (c == ')');
+	}
+	
+	private static boolean matches(String sql, int start, int end, String keyword)
+	{
+		return (end - start == keyword.length()) && sql.regionMatches(true, start, keyword, 0, keyword.length());
+	}
+	
+	private static String unquote(String sql, int start, int end)
+	{
+		char c = sql.charAt(start);
+		boolean quoted = (end - start >= 2) && ((c == '\'') || (c == '"') || (c == '`')) && (sql.charAt(end - 1) == c);
+		return quoted ? sql.substring(start + 1, end - 1) : sql.substring(start, end);
+	}
+	
+	private static class Candidate
+	{
+		private final SQLToken.Type type;
+		private final SQLToken token;
+		
+		Candidate(SQLToken.Type type, SQLToken token)
+		{
+			this.type = type;
+			this.token = token;
+		}
+		
+		SQLToken.Type getType()
+		{
+			return this.type;
+		}
+		
+		SQLToken getToken()
+		{
+			return this.token;
+		}
+	}
+}
@@ -29,9 +29,12 @@ import java.sql.SQLTransientConnectionException;
 import java.sql.Statement;
 import java.text.MessageFormat;
 import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -100,13 +103,7 @@ public class StandardDialect implements Dialect, SequenceSupport, IdentityColumn
 		"YEAR",
 	};
 	
-	private final Pattern selectForUpdatePattern = compile(this.selectForUpdatePattern());
-	private final Pattern insertIntoTablePattern = compile(this.insertIntoTablePattern());
-	private final Pattern sequencePattern = compile(this.sequencePattern());
-	private final Pattern currentTimestampPattern = compile(this.currentTimestampPattern());
-	private final Pattern currentDatePattern = compile(this.currentDatePattern());
-	private final Pattern currentTimePattern = compile(this.currentTimePattern());
-	private final Pattern randomPattern = compile(this.randomPattern());
+	private final SQLTokenizer tokenizer = this.createTokenizer();
 	private final Pattern urlPattern = Pattern.compile(String.format("jdbc\\:%s\\:%s", this.vendorPattern(), this.locatorPattern()));
 	
 	protected String vendorPattern()
@@ -119,44 +116,56 @@ public class StandardDialect implements Dialect, SequenceSupport, IdentityColumn
 		return "(?://(?<host>[^\\:/]+)(?:\\:(?<port>\\d+))?/)?(?<database>[^\\?]+)";
 	}
 	
-	private static Pattern compile(String pattern)
+	private SQLTokenizer createTokenizer()
 	{
-		return Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
+		Map<SQLToken.Type, List<SQLToken>> tokens = new EnumMap<>(SQLToken.Type.class);
+		tokens.put(SQLToken.Type.SELECT_FOR_UPDATE, this.selectForUpdateTokens());
+		tokens.put(SQLToken.Type.SEQUENCE, this.sequenceTokens());
+		tokens.put(SQLToken.Type.CURRENT_DATE, this.currentDateTokens());
+		tokens.put(SQLToken.Type.CURRENT_TIME, this.currentTimeTokens());
+		tokens.put(SQLToken.Type.CURRENT_TIMESTAMP, this.currentTimestampTokens());
+		tokens.put(SQLToken.Type.RAND, this.randomTokens());
+		return new SQLTokenizer(tokens, this.syntax());
 	}
 	
-	protected String selectForUpdatePattern()
+	protected static List<SQLToken> tokens(SQLToken... tokens)
 	{
-		return "SELECT\\s+.+\\s+FOR\\s+UPDATE";
+		return new ArrayList<>(Arrays.asList(tokens));
 	}
-
-	protected String insertIntoTablePattern()
+	
+	protected Set<SQLTokenizer.Syntax> syntax()
+	{
+		return EnumSet.noneOf(SQLTokenizer.Syntax.class);
+	}
+	
+	protected List<SQLToken> selectForUpdateTokens()
 	{
-		return "INSERT\\s+(?:INTO\\s+)?'?([^'\\s\\(]+)";
+		return tokens(SQLToken.keyword("FOR", "UPDATE"));
 	}
 
-	protected String sequencePattern()
+	protected List<SQLToken> sequenceTokens()
 	{
-		return "NEXT\\s+VALUE\\s+FOR\\s+'?([^',\\s\\(\\)]+)";
+		return tokens(SQLToken.prefix("NEXT", "VALUE", "FOR"));
 	}
 	
-	protected String currentDatePattern()
+	protected List<SQLToken> currentDateTokens()
 	{
-		return "(?<=\\W)CURRENT_DATE(?=\\W)";
+		return tokens(SQLToken.keyword("CURRENT_DATE"));
 	}
 	
-	protected String currentTimePattern()
+	protected List<SQLToken> currentTimeTokens()
 	{
-		return "(?<=\\W)CURRENT_TIME(?:\\s*\\(\\s*\\d+\\s*\\))?(?=\\W)|(?<=\\W)LOCALTIME(?:\\s*\\(\\s*\\d+\\s*\\))?(?=\\W)";
+		return tokens(SQLToken.keyword("CURRENT_TIME").withPrecision(), SQLToken.keyword("LOCALTIME").withPrecision());
 	}
 
-	protected String currentTimestampPattern()
+	protected List<SQLToken> currentTimestampTokens()
 	{
-		return "(?<=\\W)CURRENT_TIMESTAMP(?:\\s*\\(\\s*\\d+\\s*\\))?(?=\\W)|(?<=\\W)LOCALTIMESTAMP(?:\\s*\\(\\s*\\d+\\s*\\))?(?=\\W)";
+		return tokens(SQLToken.keyword("CURRENT_TIMESTAMP").withPrecision(), SQLToken.keyword("LOCALTIMESTAMP").withPrecision());
 	}
 	
-	protected String randomPattern()
+	protected List<SQLToken> randomTokens()
 	{
-		return "(?<=\\W)RAND\\s*\\(\\s*\\)";
+		return tokens(SQLToken.function("RAND"));
 	}
 
 	@SuppressWarnings("unused")
@@ -264,13 +273,34 @@ public class StandardDialect implements Dialect, SequenceSupport, IdentityColumn
 		return this.dropConstraintFormat();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.dialect.Dialect#getChecksumAggregate(java.util.List)
+	 */
+	@Override
+	public String getChecksumAggregate(List<String> columns)
+	{
+		String format = this.checksumAggregateFormat();
+		
+		return (format != null) ? MessageFormat.format(format, Strings.join(columns, Strings.PADDED_COMMA)) : null;
+	}
+	
+	/**
+	 * Returns the format of an aggregate checksum expression, or null if checksums are not supported.
+	 * The format accepts the comma delimited column list as its only parameter.
+	 */
+	protected String checksumAggregateFormat()
+	{
+		return null;
+	}
+
 	/**
 	 * @see net.sf.hajdbc.dialect.Dialect#isSelectForUpdate(java.lang.String)
 	 */
 	@Override
 	public boolean isSelectForUpdate(String sql)
 	{
-		return this.selectForUpdatePattern.matcher(sql).find();
+		return this.tokenizer.tokenize(sql).isSelectForUpdate();
 	}
 
 	/**
@@ -329,7 +359,7 @@ public class StandardDialect implements Dialect, SequenceSupport, IdentityColumn
 	@Override
 	public String parseSequence(String sql)
 	{
-		return this.parse(this.sequencePattern, sql);
+		return this.tokenizer.tokenize(sql).getSequence();
 	}
 
 	/**
@@ -407,7 +437,7 @@ public class StandardDialect implements Dialect, SequenceSupport, IdentityColumn
 	@Override
 	public String parseInsertTable(String sql)
 	{
-		return this.parse(this.insertIntoTablePattern, sql);
+		return this.tokenizer.tokenize(sql).getInsertTable();
 	}
 
 	@Override
@@ -421,13 +451,6 @@ public class StandardDialect implements Dialect, SequenceSupport, IdentityColumn
 		return "ALTER TABLE {0} ALTER COLUMN {1} RESTART WITH {2}";
 	}
 
-	protected String parse(Pattern pattern, String string)
-	{
-		Matcher matcher = pattern.matcher(string);
-		
-		return matcher.find() ? matcher.group(1) : null;
-	}
-
 	/**
 	 * {@inheritDoc}
 	 * @see net.sf.hajdbc.dialect.Dialect#evaluateCurrentDate(java.lang.String, java.sql.Date)
@@ -435,7 +458,7 @@ public class StandardDialect implements Dialect, SequenceSupport, IdentityColumn
 	@Override
 	public String evaluateCurrentDate(String sql, java.sql.Date date)
 	{
-		return evaluateTemporal(sql, this.currentDatePattern, date, this.dateLiteralFormat());
+		return this.evaluate(this.tokenize(sql), date, null, null, false);
 	}
 	
 	protected String dateLiteralFormat()
@@ -450,7 +473,7 @@ public class StandardDialect implements Dialect, SequenceSupport, IdentityColumn
 	@Override
 	public String evaluateCurrentTime(String sql, java.sql.Time time)
 	{
-		return evaluateTemporal(sql, this.currentTimePattern, time, this.timeLiteralFormat());
+		return this.evaluate(this.tokenize(sql), null, time, null, false);
 	}
 	
 	protected String timeLiteralFormat()
@@ -465,7 +488,7 @@ public class StandardDialect implements Dialect, SequenceSupport, IdentityColumn
 	@Override
 	public String evaluateCurrentTimestamp(String sql, java.sql.Timestamp timestamp)
 	{
-		return evaluateTemporal(sql, this.currentTimestampPattern, timestamp, this.timestampLiteralFormat());
+		return this.evaluate(this.tokenize(sql), null, null, timestamp, false);
 	}
 	
 	protected String timestampLiteralFormat()
@@ -473,11 +496,6 @@ public class StandardDialect implements Dialect, SequenceSupport, IdentityColumn
 		return "TIMESTAMP ''{0}''";
 	}
 
-	private static String evaluateTemporal(String sql, Pattern pattern, java.util.Date date, String format)
-	{
-		return pattern.matcher(sql).replaceAll(MessageFormat.format(format, date.toString()));
-	}
-
 	/**
 	 * {@inheritDoc}
 	 * @see net.sf.hajdbc.dialect.Dialect#evaluateRand(java.lang.String)
@@ -485,15 +503,101 @@ public class StandardDialect implements Dialect, SequenceSupport, IdentityColumn
 	@Override
 	public String evaluateRand(String sql)
 	{	
-		StringBuffer buffer = new StringBuffer();
-		Matcher matcher = this.randomPattern.matcher(sql);
+		return this.evaluate(this.tokenize(sql), null, null, null, true);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.dialect.Dialect#tokenize(java.lang.String)
+	 */
+	@Override
+	public TokenizedStatement tokenize(String sql)
+	{
+		return this.tokenizer.tokenize(sql);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.dialect.Dialect#evaluate(net.sf.hajdbc.dialect.TokenizedStatement, java.sql.Date, java.sql.Time, java.sql.Timestamp, boolean)
+	 */
+	@Override
+	public String evaluate(TokenizedStatement statement, java.sql.Date date, java.sql.Time time, java.sql.Timestamp timestamp, boolean rand)
+	{
+		String sql = statement.getSQL();
+		String dateLiteral = null;
+		String timeLiteral = null;
+		String timestampLiteral = null;
+		StringBuilder builder = null;
+		int index = 0;
 		
-		while (matcher.find())
+		for (TokenizedStatement.Occurrence occurrence: statement.getOccurrences())
 		{
-			matcher.appendReplacement(buffer, Double.toString(Math.random()));
+			String replacement = null;
+			
+			switch (occurrence.getType())
+			{
+				case CURRENT_DATE:
+				{
+					if (date != null)
+					{
+						if (dateLiteral == null)
+						{
+							dateLiteral = MessageFormat.format(this.dateLiteralFormat(), date.toString());
+						}
+						replacement = dateLiteral;
+					}
+					break;
+				}
+				case CURRENT_TIME:
+				{
+					if (time != null)
+					{
+						if (timeLiteral == null)
+						{
+							timeLiteral = MessageFormat.format(this.timeLiteralFormat(), time.toString());
+						}
+						replacement = timeLiteral;
+					}
+					break;
+				}
+				case CURRENT_TIMESTAMP:
+				{
+					if (timestamp != null)
+					{
+						if (timestampLiteral == null)
+						{
+							timestampLiteral = MessageFormat.format(this.timestampLiteralFormat(), timestamp.toString());
+						}
+						replacement = timestampLiteral;
+					}
+					break;
+				}
+				case RAND:
+				{
+					if (rand)
+					{
+						replacement = Double.toString(Math.random());
+					}
+					break;
+				}
+				default:
+				{
+					break;
+				}
+			}
+			
+			if (replacement != null)
+			{
+				if (builder == null)
+				{
+					builder = new StringBuilder(sql.length() + 32);
+				}
+				builder.append(sql, index, occurrence.getStart()).append(replacement);
+				index = occurrence.getEnd();
+			}
 		}
 		
-		return matcher.appendTail(buffer).toString();
+		return (builder != null) ? builder.append(sql, index, sql.length()).toString() : sql;
 	}
 
 	/**
@@ -580,7 +684,7 @@ public class StandardDialect implements Dialect, SequenceSupport, IdentityColumn
 	@Override
 	public String getCreateTriggerSQL(String name, TableProperties table, TriggerEvent event, String action)
 	{
-		return MessageFormat.format(this.createTriggerFormat(), name, event.getTime().toString(), event.toString(), table.getName().getDDLName(), action);
+		return MessageFormat.format(this.createTriggerFormat(), name, event.getTime().toString(), event.toString(), table.getName().getDDLName(), action, this.getTriggerRowAlias(event.getTime()));
 	}
 
 	protected String createTriggerFormat()
@@ -600,7 +704,22 @@ public class StandardDialect implements Dialect, SequenceSupport, IdentityColumn
 
 	protected String dropTriggerFormat()
 	{
-		return "DROP TRIGGER {1} ON {2}";
+		return "DROP TRIGGER {0} ON {1}";
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.TriggerSupport#getTriggerExistsSQL(String, net.sf.hajdbc.TableProperties)
+	 */
+	@Override
+	public String getTriggerExistsSQL(String name, TableProperties table)
+	{
+		return MessageFormat.format(this.triggerExistsFormat(), name, table.getName().getDDLName());
+	}
+
+	protected String triggerExistsFormat()
+	{
+		return "SELECT 1 FROM INFORMATION_SCHEMA.TRIGGERS WHERE LOWER(TRIGGER_NAME) = LOWER(''{0}'')";
 	}
 	
 	/**
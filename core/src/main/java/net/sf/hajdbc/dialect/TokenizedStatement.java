@@ -0,0 +1,143 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.dialect;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of tokenizing a SQL statement via {@link SQLTokenizer}.
+ * @author Paul Ferraro
+ */
+public class TokenizedStatement
+{
+	private final String sql;
+	private final boolean selectForUpdate;
+	private final String sequence;
+	private final String insertTable;
+	private final List<Occurrence> occurrences;
+	
+	public TokenizedStatement(String sql, boolean selectForUpdate, String sequence, String insertTable, List<Occurrence> occurrences)
+	{
+		this.sql = sql;
+		this.selectForUpdate = selectForUpdate;
+		this.sequence = sequence;
+		this.insertTable = insertTable;
+		this.occurrences = (occurrences != null) ? occurrences : Collections.<Occurrence>emptyList();
+	}
+	
+	/**
+	 * Returns the tokenized SQL statement.
+	 * @return a SQL statement
+	 */
+	public String getSQL()
+	{
+		return this.sql;
+	}
+	
+	/**
+	 * Indicates whether this statement is a SELECT...FOR UPDATE statement.
+	 * @return true, if this statement selects for update, false otherwise.
+	 */
+	public boolean isSelectForUpdate()
+	{
+		return this.selectForUpdate;
+	}
+	
+	/**
+	 * Returns the first sequence referenced by this statement.
+	 * @return a sequence name, or null, if this statement references no sequence.
+	 */
+	public String getSequence()
+	{
+		return this.sequence;
+	}
+	
+	/**
+	 * Returns the table into which this statement inserts.
+	 * @return a table name, or null, if this statement is not an insert.
+	 */
+	public String getInsertTable()
+	{
+		return this.insertTable;
+	}
+	
+	/**
+	 * Returns the non-deterministic functions of this statement, in order of appearance.
+	 * @return a list of occurrences
+	 */
+	public List<Occurrence> getOccurrences()
+	{
+		return this.occurrences;
+	}
+	
+	/**
+	 * Indicates whether this statement contains a token of the specified type.
+	 * @param type a token type
+	 * @return true, if this statement contains at least one such token, false otherwise.
+	 */
+	public boolean contains(SQLToken.Type type)
+	{
+		for (Occurrence occurrence: this.occurrences)
+		{
+			if (occurrence.getType() == type)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * The location of a token within a statement.
+	 */
+	public static class Occurrence
+	{
+		private final SQLToken.Type type;
+		private final int start;
+		private final int end;
+		
+		public Occurrence(SQLToken.Type type, int start, int end)
+		{
+			this.type = type;
+			this.start = start;
+			this.end = end;
+		}
+		
+		public SQLToken.Type getType()
+		{
+			return this.type;
+		}
+		
+		/**
+		 * @return the index of the first character of this token
+		 */
+		public int getStart()
+		{
+			return this.start;
+		}
+		
+		/**
+		 * @return the index following the last character of this token
+		 */
+		public int getEnd()
+		{
+			return this.end;
+		}
+	}
+}
@@ -29,6 +29,7 @@ import net.sf.hajdbc.IdentityColumnSupport;
 import net.sf.hajdbc.SequenceProperties;
 import net.sf.hajdbc.SequencePropertiesFactory;
 import net.sf.hajdbc.SequenceSupport;
+import net.sf.hajdbc.dialect.SQLToken;
 import net.sf.hajdbc.dialect.StandardDialect;
 
 /**
@@ -98,12 +99,12 @@ public class DB2Dialect extends StandardDialect
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#sequencePattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#sequenceTokens()
 	 */
 	@Override
-	protected String sequencePattern()
+	protected List<SQLToken> sequenceTokens()
 	{
-		return "(?:NEXT|PREV)VAL\\s+FOR\\s+'?([^',\\s\\(\\)]+)";
+		return tokens(SQLToken.prefix("NEXTVAL", "FOR"), SQLToken.prefix("PREVVAL", "FOR"));
 	}
 
 	/**
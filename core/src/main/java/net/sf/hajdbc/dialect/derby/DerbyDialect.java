@@ -17,8 +17,11 @@
  */
 package net.sf.hajdbc.dialect.derby;
 
+import java.util.List;
+
 import net.sf.hajdbc.IdentityColumnSupport;
 import net.sf.hajdbc.SequenceSupport;
+import net.sf.hajdbc.dialect.SQLToken;
 import net.sf.hajdbc.dialect.StandardDialect;
 
 /**
@@ -85,30 +88,36 @@ public class DerbyDialect extends StandardDialect
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#currentDatePattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#currentDateTokens()
 	 */
 	@Override
-	protected String currentDatePattern()
+	protected List<SQLToken> currentDateTokens()
 	{
-		return super.currentDatePattern() + "|(?<=\\W)CURRENT\\s+DATE(?=\\W)";
+		List<SQLToken> tokens = super.currentDateTokens();
+		tokens.add(SQLToken.keyword("CURRENT", "DATE"));
+		return tokens;
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimePattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimeTokens()
 	 */
 	@Override
-	protected String currentTimePattern()
+	protected List<SQLToken> currentTimeTokens()
 	{
-		return super.currentTimePattern() + "|(?<=\\W)CURRENT\\s+TIME(?=\\W)";
+		List<SQLToken> tokens = super.currentTimeTokens();
+		tokens.add(SQLToken.keyword("CURRENT", "TIME"));
+		return tokens;
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimestampPattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimestampTokens()
 	 */
 	@Override
-	protected String currentTimestampPattern()
+	protected List<SQLToken> currentTimestampTokens()
 	{
-		return super.currentTimestampPattern() + "|(?<=\\W)CURRENT\\s+TIMESTAMP(?=\\W)";
+		List<SQLToken> tokens = super.currentTimestampTokens();
+		tokens.add(SQLToken.keyword("CURRENT", "TIMESTAMP"));
+		return tokens;
 	}
 
 	/**
@@ -28,6 +28,7 @@ import java.util.List;
 import net.sf.hajdbc.SequenceProperties;
 import net.sf.hajdbc.SequencePropertiesFactory;
 import net.sf.hajdbc.SequenceSupport;
+import net.sf.hajdbc.dialect.SQLToken;
 import net.sf.hajdbc.dialect.StandardDialect;
 
 /**
@@ -97,21 +98,21 @@ public class FirebirdDialect extends StandardDialect
 
 	/**
 	 * Firebird 2.0 will support standard syntax.  Until then...
-	 * @see net.sf.hajdbc.dialect.StandardDialect#sequencePattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#sequenceTokens()
 	 */
 	@Override
-	protected String sequencePattern()
+	protected List<SQLToken> sequenceTokens()
 	{
-		return "GEN_ID\\s*\\(\\s*([^\\s,]+)\\s*,\\s*\\d+\\s*\\)";
+		return tokens(SQLToken.call("GEN_ID"));
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#selectForUpdatePattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#selectForUpdateTokens()
 	 */
 	@Override
-	protected String selectForUpdatePattern()
+	protected List<SQLToken> selectForUpdateTokens()
 	{
-		return "SELECT\\s+.+\\s+WITH\\s+LOCK";
+		return tokens(SQLToken.keyword("WITH", "LOCK"));
 	}
 
 	/**
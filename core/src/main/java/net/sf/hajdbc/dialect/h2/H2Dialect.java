@@ -32,6 +32,7 @@ import java.util.Set;
 import net.sf.hajdbc.SequenceProperties;
 import net.sf.hajdbc.SequencePropertiesFactory;
 import net.sf.hajdbc.SequenceSupport;
+import net.sf.hajdbc.dialect.SQLToken;
 import net.sf.hajdbc.dialect.StandardDialect;
 
 /**
@@ -101,39 +102,39 @@ public class H2Dialect extends StandardDialect
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#currentDatePattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#currentDateTokens()
 	 */
 	@Override
-	protected String currentDatePattern()
+	protected List<SQLToken> currentDateTokens()
 	{
-		return "(?<=\\W)CURRENT_DATE(?:\\s*\\(\\s*\\))?(?=\\W)|(?<=\\W)CURDATE\\s*\\(\\s*\\)|(?<=\\W)SYSDATE(?=\\W)|(?<=\\W)TODAY(?=\\W)";
+		return tokens(SQLToken.keyword("CURRENT_DATE").withPrecision(), SQLToken.function("CURDATE"), SQLToken.keyword("SYSDATE"), SQLToken.keyword("TODAY"));
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimePattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimeTokens()
 	 */
 	@Override
-	protected String currentTimePattern()
+	protected List<SQLToken> currentTimeTokens()
 	{
-		return "(?<=\\W)CURRENT_TIME(?:\\s*\\(\\s*\\))?(?=\\W)|(?<=\\W)CURTIME\\s*\\(\\s*\\)";
+		return tokens(SQLToken.keyword("CURRENT_TIME").withPrecision(), SQLToken.function("CURTIME"));
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimestampPattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimestampTokens()
 	 */
 	@Override
-	protected String currentTimestampPattern()
+	protected List<SQLToken> currentTimestampTokens()
 	{
-		return "(?<=\\W)CURRENT_TIMESTAMP(?:\\s*\\(\\s*\\d*\\s*\\))?(?=\\W)|(?<=\\W)NOW\\s*\\(\\s*\\d*\\s*\\)";
+		return tokens(SQLToken.keyword("CURRENT_TIMESTAMP").withPrecision(), SQLToken.function("NOW").withPrecision());
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#randomPattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#randomTokens()
 	 */
 	@Override
-	protected String randomPattern()
+	protected List<SQLToken> randomTokens()
 	{
-		return "(?<=\\W)RAND\\s*\\(\\s*\\d*\\s*\\)";
+		return tokens(SQLToken.function("RAND").withPrecision());
 	}
 
 	/**
@@ -32,6 +32,7 @@ import java.util.Set;
 import net.sf.hajdbc.SequenceProperties;
 import net.sf.hajdbc.SequencePropertiesFactory;
 import net.sf.hajdbc.SequenceSupport;
+import net.sf.hajdbc.dialect.SQLToken;
 import net.sf.hajdbc.dialect.StandardDialect;
 
 /**
@@ -109,30 +110,30 @@ public class HSQLDBDialect extends StandardDialect
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#currentDatePattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#currentDateTokens()
 	 */
 	@Override
-	protected String currentDatePattern()
+	protected List<SQLToken> currentDateTokens()
 	{
-		return "(?<=\\W)CURRENT_DATE(?=\\W)|(?<=\\W)CURDATE\\s*\\(\\s*\\)";
+		return tokens(SQLToken.keyword("CURRENT_DATE"), SQLToken.function("CURDATE"));
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimePattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimeTokens()
 	 */
 	@Override
-	protected String currentTimePattern()
+	protected List<SQLToken> currentTimeTokens()
 	{
-		return "(?<=\\W)CURRENT_TIME(?=\\W)|(?<=\\W)CURTIME\\s*\\(\\s*\\)";
+		return tokens(SQLToken.keyword("CURRENT_TIME"), SQLToken.function("CURTIME"));
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimestampPattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimestampTokens()
 	 */
 	@Override
-	protected String currentTimestampPattern()
+	protected List<SQLToken> currentTimestampTokens()
 	{
-		return "(?<=\\W)CURRENT_TIMESTAMP(?=\\W)|(?<=\\W)NOW\\s*\\(\\s*\\)";
+		return tokens(SQLToken.keyword("CURRENT_TIMESTAMP"), SQLToken.function("NOW"));
 	}
 
 	@Override
@@ -24,11 +24,11 @@ import java.sql.Statement;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.regex.Pattern;
 
 import net.sf.hajdbc.SequenceProperties;
 import net.sf.hajdbc.SequencePropertiesFactory;
 import net.sf.hajdbc.SequenceSupport;
+import net.sf.hajdbc.dialect.SQLToken;
 import net.sf.hajdbc.dialect.StandardDialect;
 
 /**
@@ -38,8 +38,6 @@ import net.sf.hajdbc.dialect.StandardDialect;
  */
 public class IngresDialect extends StandardDialect
 {
-	private final Pattern legacySequencePattern = Pattern.compile("'?(\\w+)'?\\.(?:(?:CURR)|(?:NEXT))VAL", Pattern.CASE_INSENSITIVE);
-	
 	/**
 	 * {@inheritDoc}
 	 * @see net.sf.hajdbc.dialect.StandardDialect#vendorPattern()
@@ -80,58 +78,47 @@ public class IngresDialect extends StandardDialect
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#parseSequence(java.lang.String)
+	 * @see net.sf.hajdbc.dialect.StandardDialect#sequenceTokens()
 	 */
 	@Override
-	public String parseSequence(String sql)
+	protected List<SQLToken> sequenceTokens()
 	{
-		String sequence = super.parseSequence(sql);
-		
-		return (sequence != null) ? sequence : this.parse(this.legacySequencePattern, sql);
+		return tokens(SQLToken.prefix("NEXT", "VALUE", "FOR"), SQLToken.prefix("CURRENT", "VALUE", "FOR"), SQLToken.suffix("NEXTVAL"), SQLToken.suffix("CURRVAL"));
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#sequencePattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#currentDateTokens()
 	 */
 	@Override
-	protected String sequencePattern()
+	protected List<SQLToken> currentDateTokens()
 	{
-		return "(?:NEXT|CURRENT)\\s+VALUE\\s+FOR\\s+'?([^',\\s\\(\\)]+)";
+		return tokens(SQLToken.keyword("CURRENT_DATE"), SQLToken.function("DATE", "'TODAY'"));
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#currentDatePattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimeTokens()
 	 */
 	@Override
-	protected String currentDatePattern()
+	protected List<SQLToken> currentTimeTokens()
 	{
-		return "(?<=\\W)CURRENT_DATE(?=\\W)|(?<=\\W)DATE\\s*\\(\\s*'TODAY'\\s*\\)";
+		return tokens(SQLToken.keyword("CURRENT_TIME"), SQLToken.keyword("LOCAL_TIME"));
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimePattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimestampTokens()
 	 */
 	@Override
-	protected String currentTimePattern()
+	protected List<SQLToken> currentTimestampTokens()
 	{
-		return "(?<=\\W)CURRENT_TIME(?=\\W)|(?<=\\W)LOCAL_TIME(?=\\W)";
+		return tokens(SQLToken.keyword("CURRENT_TIMESTAMP"), SQLToken.keyword("LOCAL_TIMESTAMP"), SQLToken.function("DATE", "'NOW'"));
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimestampPattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#randomTokens()
 	 */
 	@Override
-	protected String currentTimestampPattern()
+	protected List<SQLToken> randomTokens()
 	{
-		return "(?<=\\W)CURRENT_TIMESTAMP(?=\\W)|(?<=\\W)LOCAL_TIMESTAMP(?=\\W)|(?<=\\W)DATE\\s*\\(\\s*'NOW'\\s*\\)";
-	}
-
-	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#randomPattern()
-	 */
-	@Override
-	protected String randomPattern()
-	{
-		return "(?<=\\W)RANDOMF\\s*\\(\\s*\\)";
+		return tokens(SQLToken.function("RANDOMF"));
 	}
 }
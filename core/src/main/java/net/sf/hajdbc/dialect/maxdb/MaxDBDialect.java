@@ -28,6 +28,7 @@ import java.util.List;
 import net.sf.hajdbc.SequenceProperties;
 import net.sf.hajdbc.SequencePropertiesFactory;
 import net.sf.hajdbc.SequenceSupport;
+import net.sf.hajdbc.dialect.SQLToken;
 import net.sf.hajdbc.dialect.StandardDialect;
 
 /**
@@ -105,12 +106,12 @@ public class MaxDBDialect extends StandardDialect
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#sequencePattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#sequenceTokens()
 	 */
 	@Override
-	protected String sequencePattern()
+	protected List<SQLToken> sequenceTokens()
 	{
-		return "'?(\\w+)'?\\.(?:CURR|NEXT)VAL";
+		return tokens(SQLToken.suffix("NEXTVAL"), SQLToken.suffix("CURRVAL"));
 	}
 
 	/**
@@ -17,7 +17,10 @@
  */
 package net.sf.hajdbc.dialect.mckoi;
 
+import java.util.List;
+
 import net.sf.hajdbc.SequenceSupport;
+import net.sf.hajdbc.dialect.SQLToken;
 import net.sf.hajdbc.dialect.StandardDialect;
 
 /**
@@ -49,20 +52,22 @@ public class MckoiDialect extends StandardDialect
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#sequencePattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#sequenceTokens()
 	 */
 	@Override
-	protected String sequencePattern()
+	protected List<SQLToken> sequenceTokens()
 	{
-		return "(?:CURR|NEXT)VAL\\s*\\(\\s*'([^']+)'\\s*\\)";
+		return tokens(SQLToken.call("NEXTVAL"), SQLToken.call("CURRVAL"));
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimestampPattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimestampTokens()
 	 */
 	@Override
-	protected String currentTimestampPattern()
+	protected List<SQLToken> currentTimestampTokens()
 	{
-		return super.currentTimestampPattern() + "|(?<=\\W)DATEOB\\s*\\(\\s*\\)";
+		List<SQLToken> tokens = super.currentTimestampTokens();
+		tokens.add(SQLToken.function("DATEOB"));
+		return tokens;
 	}
 }
@@ -20,8 +20,10 @@ package net.sf.hajdbc.dialect.mysql;
 import java.io.File;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -30,6 +32,8 @@ import net.sf.hajdbc.Database;
 import net.sf.hajdbc.DumpRestoreSupport;
 import net.sf.hajdbc.codec.Decoder;
 import net.sf.hajdbc.dialect.ConnectionProperties;
+import net.sf.hajdbc.dialect.SQLToken;
+import net.sf.hajdbc.dialect.SQLTokenizer;
 import net.sf.hajdbc.dialect.StandardDialect;
 import net.sf.hajdbc.util.Processes;
 import net.sf.hajdbc.util.Strings;
@@ -81,6 +85,16 @@ public class MySQLDialect extends StandardDialect implements DumpRestoreSupport
 		return "mysql";
 	}
 
+	/**
+	 * Recognizes back-quoted identifiers, backslash escapes, and # comments.
+	 * @see net.sf.hajdbc.dialect.StandardDialect#syntax()
+	 */
+	@Override
+	protected Set<SQLTokenizer.Syntax> syntax()
+	{
+		return EnumSet.of(SQLTokenizer.Syntax.BACKSLASH_ESCAPES, SQLTokenizer.Syntax.BACKTICK_QUOTES, SQLTokenizer.Syntax.HASH_COMMENTS);
+	}
+
 	@Override
 	protected Set<String> reservedIdentifiers(DatabaseMetaData metaData)
 	{
@@ -133,6 +147,21 @@ public class MySQLDialect extends StandardDialect implements DumpRestoreSupport
 		return "ALTER TABLE {1} DROP INDEX {0}";
 	}
 
+	/**
+	 * Each column value is prefixed by its length, and null values are encoded as '-', so that distinct rows cannot concatenate to the same string.
+	 * @see net.sf.hajdbc.dialect.StandardDialect#getChecksumAggregate(java.util.List)
+	 */
+	@Override
+	public String getChecksumAggregate(List<String> columns)
+	{
+		List<String> values = new ArrayList<>(columns.size());
+		for (String column: columns)
+		{
+			values.add(String.format("IFNULL(CONCAT(CHAR_LENGTH(%1$s), ':', %1$s), '-')", column));
+		}
+		return String.format("SUM(CAST(CONV(SUBSTRING(MD5(CONCAT(%s)), 1, 16), 16, 10) AS UNSIGNED))", Strings.join(values, Strings.PADDED_COMMA));
+	}
+
 	/**
 	 * @see net.sf.hajdbc.dialect.StandardDialect#alterIdentityColumnFormat()
 	 */
@@ -143,30 +172,37 @@ public class MySQLDialect extends StandardDialect implements DumpRestoreSupport
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#currentDatePattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#currentDateTokens()
 	 */
 	@Override
-	protected String currentDatePattern()
+	protected List<SQLToken> currentDateTokens()
 	{
-		return super.currentDatePattern() + "|(?<=\\W)CURDATE\\s*\\(\\s*\\)";
+		List<SQLToken> tokens = super.currentDateTokens();
+		tokens.add(SQLToken.function("CURDATE"));
+		return tokens;
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimePattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimeTokens()
 	 */
 	@Override
-	protected String currentTimePattern()
+	protected List<SQLToken> currentTimeTokens()
 	{
-		return super.currentTimePattern() + "|(?<=\\W)CURTIME\\s*\\(\\s*\\)";
+		List<SQLToken> tokens = super.currentTimeTokens();
+		tokens.add(SQLToken.function("CURTIME"));
+		return tokens;
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimestampPattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimestampTokens()
 	 */
 	@Override
-	protected String currentTimestampPattern()
+	protected List<SQLToken> currentTimestampTokens()
 	{
-		return super.currentTimestampPattern() + "|(?<=\\W)NOW\\s*\\(\\s*\\)|(?<=\\W)SYSDATE\\s*\\(\\s*\\)";
+		List<SQLToken> tokens = super.currentTimestampTokens();
+		tokens.add(SQLToken.function("NOW"));
+		tokens.add(SQLToken.function("SYSDATE"));
+		return tokens;
 	}
 	
 	/**
@@ -208,6 +244,32 @@ public class MySQLDialect extends StandardDialect implements DumpRestoreSupport
 
 	@Override
 	public <Z, D extends Database<Z>> void dump(D database, Decoder decoder, File file, boolean dataOnly) throws Exception
+	{
+		Processes.run(this.createDumpProcessBuilder(database, decoder, file, dataOnly));
+	}
+
+	@Override
+	public <Z, D extends Database<Z>> void restore(D database, Decoder decoder, File file, boolean dataOnly) throws Exception
+	{
+		// The mysql client executes the dump script sequentially, so concurrent restore jobs are not supported
+		Processes.run(this.createRestoreProcessBuilder(database, decoder).redirectInput(file));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.DumpRestoreSupport#transfer(net.sf.hajdbc.Database, net.sf.hajdbc.Database, net.sf.hajdbc.codec.Decoder, boolean)
+	 */
+	@Override
+	public <Z, D extends Database<Z>> void transfer(D source, D target, Decoder decoder, boolean dataOnly) throws Exception
+	{
+		Processes.pipe(this.createDumpProcessBuilder(source, decoder, null, dataOnly), this.createRestoreProcessBuilder(target, decoder));
+	}
+
+	/**
+	 * Creates a mysqldump process builder for the specified database.
+	 * @param file the dump file, or null, to dump to standard output
+	 */
+	private <Z, D extends Database<Z>> ProcessBuilder createDumpProcessBuilder(D database, Decoder decoder, File file, boolean dataOnly) throws SQLException
 	{
 		ConnectionProperties properties = this.getConnectionProperties(database, decoder);
 		ProcessBuilder builder = new ProcessBuilder("mysqldump");
@@ -221,7 +283,10 @@ public class MySQLDialect extends StandardDialect implements DumpRestoreSupport
 			args.add("--port=" + properties.getPort());
 		}
 		args.add("--user=" + properties.getUser());
-		args.add("--result-file=" + file.getPath());
+		if (file != null)
+		{
+			args.add("--result-file=" + file.getPath());
+		}
 		args.add("--compress");
 		if (dataOnly)
 		{
@@ -229,14 +294,16 @@ public class MySQLDialect extends StandardDialect implements DumpRestoreSupport
 			args.add("--skip-triggers");
 		}
 		args.add(properties.getDatabase());
-		Processes.run(setPassword(builder, properties));
+		return setPassword(builder, properties);
 	}
 
-	@Override
-	public <Z, D extends Database<Z>> void restore(D database, Decoder decoder, File file, boolean dataOnly) throws Exception
+	/**
+	 * Creates a mysql process builder, reading from standard input, for the specified database.
+	 */
+	private <Z, D extends Database<Z>> ProcessBuilder createRestoreProcessBuilder(D database, Decoder decoder) throws SQLException
 	{
 		ConnectionProperties properties = this.getConnectionProperties(database, decoder);
-		ProcessBuilder builder = new ProcessBuilder("mysql").redirectInput(file);
+		ProcessBuilder builder = new ProcessBuilder("mysql");
 		List<String> args = builder.command();
 		if (properties.getHost() != null)
 		{
@@ -248,7 +315,7 @@ public class MySQLDialect extends StandardDialect implements DumpRestoreSupport
 		}
 		args.add("--user=" + properties.getUser());
 		args.add(properties.getDatabase());
-		Processes.run(setPassword(builder, properties));
+		return setPassword(builder, properties);
 	}
 	
 	private static ProcessBuilder setPassword(final ProcessBuilder builder, final ConnectionProperties properties)
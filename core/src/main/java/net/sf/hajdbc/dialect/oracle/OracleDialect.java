@@ -28,6 +28,7 @@ import java.util.List;
 import net.sf.hajdbc.SequenceProperties;
 import net.sf.hajdbc.SequencePropertiesFactory;
 import net.sf.hajdbc.SequenceSupport;
+import net.sf.hajdbc.dialect.SQLToken;
 import net.sf.hajdbc.dialect.StandardDialect;
 
 /**
@@ -111,12 +112,12 @@ public class OracleDialect extends StandardDialect
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#sequencePattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#sequenceTokens()
 	 */
 	@Override
-	protected String sequencePattern()
+	protected List<SQLToken> sequenceTokens()
 	{
-		return "'?(\\w+)'?\\.(?:CURR|NEXT)VAL";
+		return tokens(SQLToken.suffix("NEXTVAL"), SQLToken.suffix("CURRVAL"));
 	}
 
 	/**
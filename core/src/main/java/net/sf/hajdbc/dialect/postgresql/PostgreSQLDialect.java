@@ -25,6 +25,7 @@ import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -38,6 +39,8 @@ import net.sf.hajdbc.SequenceSupport;
 import net.sf.hajdbc.TriggerSupport;
 import net.sf.hajdbc.codec.Decoder;
 import net.sf.hajdbc.dialect.ConnectionProperties;
+import net.sf.hajdbc.dialect.SQLToken;
+import net.sf.hajdbc.dialect.SQLTokenizer;
 import net.sf.hajdbc.dialect.StandardDialect;
 import net.sf.hajdbc.util.Processes;
 import net.sf.hajdbc.util.Strings;
@@ -86,6 +89,16 @@ public class PostgreSQLDialect extends StandardDialect implements DumpRestoreSup
 		return "postgresql";
 	}
 
+	/**
+	 * Recognizes escape strings, dollar-quoted strings, and nested comments.
+	 * @see net.sf.hajdbc.dialect.StandardDialect#syntax()
+	 */
+	@Override
+	protected Set<SQLTokenizer.Syntax> syntax()
+	{
+		return EnumSet.of(SQLTokenizer.Syntax.ESCAPE_STRINGS, SQLTokenizer.Syntax.DOLLAR_QUOTES, SQLTokenizer.Syntax.NESTED_COMMENTS);
+	}
+
 	/**
 	 * PostgreSQL uses a schema search path to locate unqualified table names.
 	 * The default search path is [$user,public], where $user is the current user.
@@ -172,12 +185,12 @@ public class PostgreSQLDialect extends StandardDialect implements DumpRestoreSup
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#sequencePattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#sequenceTokens()
 	 */
 	@Override
-	protected String sequencePattern()
+	protected List<SQLToken> sequenceTokens()
 	{
-		return "(?:CURR|NEXT)VAL\\s*\\(\\s*'([^']+)'\\s*\\)";
+		return tokens(SQLToken.call("NEXTVAL"), SQLToken.call("CURRVAL"));
 	}
 
 	/**
@@ -199,31 +212,36 @@ public class PostgreSQLDialect extends StandardDialect implements DumpRestoreSup
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimestampPattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimestampTokens()
 	 */
 	@Override
-	protected String currentTimestampPattern()
+	protected List<SQLToken> currentTimestampTokens()
 	{
-		return super.currentTimestampPattern() + "|(?<=\\W)NOW\\s*\\(\\s*\\)|(?<=\\W)TRANSACTION_TIMESTAMP\\s*\\(\\s*\\)|(?<=\\W)STATEMENT_TIMESTAMP\\s*\\(\\s*\\)|(?<=\\W)CLOCK_TIMESTAMP\\s*\\(\\s*\\)";
+		List<SQLToken> tokens = super.currentTimestampTokens();
+		tokens.add(SQLToken.function("NOW"));
+		tokens.add(SQLToken.function("TRANSACTION_TIMESTAMP"));
+		tokens.add(SQLToken.function("STATEMENT_TIMESTAMP"));
+		tokens.add(SQLToken.function("CLOCK_TIMESTAMP"));
+		return tokens;
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#randomPattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#randomTokens()
 	 */
 	@Override
-	protected String randomPattern()
+	protected List<SQLToken> randomTokens()
 	{
-		return "(?<=\\W)RANDOM\\s*\\(\\s*\\)";
+		return tokens(SQLToken.function("RANDOM"));
 	}
 
 	/**
 	 * Recognizes FOR SHARE and FOR UPDATE.
-	 * @see net.sf.hajdbc.dialect.StandardDialect#selectForUpdatePattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#selectForUpdateTokens()
 	 */
 	@Override
-	protected String selectForUpdatePattern()
+	protected List<SQLToken> selectForUpdateTokens()
 	{
-		return "SELECT\\s+.+\\s+FOR\\s+(SHARE|UPDATE)";
+		return tokens(SQLToken.keyword("FOR", "SHARE"), SQLToken.keyword("FOR", "UPDATE"));
 	}
 
 	/**
@@ -238,6 +256,42 @@ public class PostgreSQLDialect extends StandardDialect implements DumpRestoreSup
 
 	@Override
 	public <Z, D extends Database<Z>> void dump(D database, Decoder decoder, File file, boolean dataOnly) throws Exception
+	{
+		Processes.run(this.createDumpProcessBuilder(database, decoder, file));
+	}
+
+	@Override
+	public <Z, D extends Database<Z>> void restore(D database, Decoder decoder, File file, boolean dataOnly) throws Exception
+	{
+		this.restore(database, decoder, file, dataOnly, 1);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.DumpRestoreSupport#restore(net.sf.hajdbc.Database, net.sf.hajdbc.codec.Decoder, java.io.File, boolean, int)
+	 */
+	@Override
+	public <Z, D extends Database<Z>> void restore(D database, Decoder decoder, File file, boolean dataOnly, int jobs) throws Exception
+	{
+		Processes.run(this.createRestoreProcessBuilder(database, decoder, file, dataOnly, jobs));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.DumpRestoreSupport#transfer(net.sf.hajdbc.Database, net.sf.hajdbc.Database, net.sf.hajdbc.codec.Decoder, boolean)
+	 */
+	@Override
+	public <Z, D extends Database<Z>> void transfer(D source, D target, Decoder decoder, boolean dataOnly) throws Exception
+	{
+		// pg_restore cannot use concurrent jobs when reading from standard input
+		Processes.pipe(this.createDumpProcessBuilder(source, decoder, null), this.createRestoreProcessBuilder(target, decoder, null, dataOnly, 1));
+	}
+
+	/**
+	 * Creates a pg_dump process builder for the specified database.
+	 * @param file the dump file, or null, to dump to standard output
+	 */
+	private <Z, D extends Database<Z>> ProcessBuilder createDumpProcessBuilder(D database, Decoder decoder, File file) throws SQLException
 	{
 		ConnectionProperties properties = this.getConnectionProperties(database, decoder);
 		ProcessBuilder builder = new ProcessBuilder("pg_dump");
@@ -252,14 +306,21 @@ public class PostgreSQLDialect extends StandardDialect implements DumpRestoreSup
 		}
 		args.add("--username=" + properties.getUser());
 		args.add("--no-password");
-		args.add("--file=" + file.getPath());
-		args.add("--format=tar");
+		if (file != null)
+		{
+			args.add("--file=" + file.getPath());
+		}
+		// Unlike tar format, custom format supports concurrent restore jobs
+		args.add("--format=custom");
 		args.add(properties.getDatabase());
-		Processes.run(setPassword(builder, properties));
+		return setPassword(builder, properties);
 	}
 
-	@Override
-	public <Z, D extends Database<Z>> void restore(D database, Decoder decoder, File file, boolean dataOnly) throws Exception
+	/**
+	 * Creates a pg_restore process builder for the specified database.
+	 * @param file the dump file, or null, to restore from standard input
+	 */
+	private <Z, D extends Database<Z>> ProcessBuilder createRestoreProcessBuilder(D database, Decoder decoder, File file, boolean dataOnly, int jobs) throws SQLException
 	{
 		ConnectionProperties properties = this.getConnectionProperties(database, decoder);
 		ProcessBuilder builder = new ProcessBuilder("pg_restore");
@@ -282,8 +343,15 @@ public class PostgreSQLDialect extends StandardDialect implements DumpRestoreSup
 			args.add("--disable-triggers"); // Used to prevent integrity constraints during restoration of data
 			args.add("--superuser=" + properties.getUser()); // Required by --disable-triggers
 		}
-		args.add(file.getPath());
-		Processes.run(setPassword(builder, properties));
+		if (jobs > 1)
+		{
+			args.add("--jobs=" + jobs);
+		}
+		if (file != null)
+		{
+			args.add(file.getPath());
+		}
+		return setPassword(builder, properties);
 	}
 	
 	private static ProcessBuilder setPassword(ProcessBuilder builder, ConnectionProperties properties)
@@ -296,6 +364,16 @@ public class PostgreSQLDialect extends StandardDialect implements DumpRestoreSup
 		return builder;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.dialect.StandardDialect#checksumAggregateFormat()
+	 */
+	@Override
+	protected String checksumAggregateFormat()
+	{
+		return "SUM((''x'' || SUBSTR(MD5(ROW({0})::TEXT), 1, 16))::BIT(64)::BIGINT)";
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * @see net.sf.hajdbc.dialect.StandardDialect#getTriggerSupport()
@@ -308,12 +386,12 @@ public class PostgreSQLDialect extends StandardDialect implements DumpRestoreSup
 
 	/**
 	 * {@inheritDoc}
-	 * @see net.sf.hajdbc.dialect.StandardDialect#createForeignKeyConstraintFormat()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#createTriggerFormat()
 	 */
 	@Override
 	protected String createTriggerFormat()
 	{
-		return "CREATE FUNCTION {0}_action() BEGIN {4} END; CREATE TRIGGER {0} {1} {2} ON {3} FOR EACH ROW EXECUTE PROCEDURE {0}_action()";
+		return "CREATE FUNCTION {0}_action() RETURNS TRIGGER AS $$ BEGIN {4} RETURN {5}; END; $$ LANGUAGE plpgsql; CREATE TRIGGER {0} {1} {2} ON {3} FOR EACH ROW EXECUTE PROCEDURE {0}_action()";
 	}
 
 	/**
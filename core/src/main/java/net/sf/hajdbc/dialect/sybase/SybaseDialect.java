@@ -20,8 +20,13 @@ package net.sf.hajdbc.dialect.sybase;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 import net.sf.hajdbc.IdentityColumnSupport;
+import net.sf.hajdbc.dialect.SQLToken;
+import net.sf.hajdbc.dialect.SQLTokenizer;
 import net.sf.hajdbc.dialect.StandardDialect;
 
 /**
@@ -51,6 +56,16 @@ public class SybaseDialect extends StandardDialect
 		return "sybase";
 	}
 
+	/**
+	 * Recognizes bracketed identifiers.
+	 * @see net.sf.hajdbc.dialect.StandardDialect#syntax()
+	 */
+	@Override
+	protected Set<SQLTokenizer.Syntax> syntax()
+	{
+		return EnumSet.of(SQLTokenizer.Syntax.BRACKET_QUOTES);
+	}
+
 	/**
 	 * @see net.sf.hajdbc.dialect.StandardDialect#truncateTableFormat()
 	 */
@@ -71,30 +86,30 @@ public class SybaseDialect extends StandardDialect
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#currentDatePattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#currentDateTokens()
 	 */
 	@Override
-	protected String currentDatePattern()
+	protected List<SQLToken> currentDateTokens()
 	{
-		return "(?<=\\W)CURRENT\\s+DATE(?=\\W)|(?<=\\W)TODAY\\s*\\(\\s*\\*\\s*\\)";
+		return tokens(SQLToken.keyword("CURRENT", "DATE"), SQLToken.function("TODAY", "*"));
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimePattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimeTokens()
 	 */
 	@Override
-	protected String currentTimePattern()
+	protected List<SQLToken> currentTimeTokens()
 	{
-		return "(?<=\\W)CURRENT\\s+TIME(?=\\W)";
+		return tokens(SQLToken.keyword("CURRENT", "TIME"));
 	}
 
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimestampPattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#currentTimestampTokens()
 	 */
 	@Override
-	protected String currentTimestampPattern()
+	protected List<SQLToken> currentTimestampTokens()
 	{
-		return "(?<=\\W)CURRENT\\s+TIMESTAMP(?=\\W)|(?<=\\W)GETDATE\\s*\\(\\s*\\)|(?<=\\W)NOW\\s*\\(\\s*\\*\\s*\\)";
+		return tokens(SQLToken.keyword("CURRENT", "TIMESTAMP"), SQLToken.function("GETDATE"), SQLToken.function("NOW", "*"));
 	}
 
 	/**
@@ -125,12 +140,12 @@ public class SybaseDialect extends StandardDialect
 	}
 	
 	/**
-	 * @see net.sf.hajdbc.dialect.StandardDialect#randomPattern()
+	 * @see net.sf.hajdbc.dialect.StandardDialect#randomTokens()
 	 */
 	@Override
-	protected String randomPattern()
+	protected List<SQLToken> randomTokens()
 	{
-		return "(?<=\\W)RAND\\s*\\(\\s*\\d*\\s*\\)";
+		return tokens(SQLToken.function("RAND").withPrecision());
 	}
 
 	/**
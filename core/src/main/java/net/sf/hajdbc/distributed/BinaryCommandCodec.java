@@ -0,0 +1,348 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.distributed;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import net.sf.hajdbc.util.ObjectInputStream;
+import net.sf.hajdbc.util.Objects;
+
+/**
+ * Command codec that encodes the most frequent command types using a compact, hand-written binary encoding, via a set of {@link CommandMarshaller}s.
+ * Commands of any other type fall back to Java serialization.
+ * Since the member that created a command is always its sender, commands need not encode their member, which is instead supplied by the transport.
+ * @author Paul Ferraro
+ * @param <C> the command execution context type
+ */
+public class BinaryCommandCodec<C> implements CommandCodec<C>
+{
+	private static final int SERIALIZED_COMMAND = 0;
+	
+	private static final int NULL_TYPE = 0;
+	private static final int SERIALIZED_TYPE = 1;
+	private static final int STRING_TYPE = 2;
+	private static final int INTEGER_TYPE = 3;
+	private static final int LONG_TYPE = 4;
+	private static final int BOOLEAN_TYPE = 5;
+	private static final int UUID_TYPE = 6;
+	private static final int INT_ARRAY_TYPE = 7;
+	private static final int LONG_ARRAY_TYPE = 8;
+	
+	private static final int INITIAL_BUFFER_SIZE = 64;
+	// Guarantees that the modified UTF-8 encoding of a string fits within the 65535 byte limit of DataOutput.writeUTF(...)
+	private static final int MAX_UTF_LENGTH = 65535 / 3;
+	
+	private final List<CommandMarshaller<C, ?>> marshallers = new ArrayList<>();
+	private final Map<Class<?>, Integer> tags = new IdentityHashMap<>();
+	
+	/**
+	 * Registers the specified marshaller.
+	 * The order of registration defines the encoding, and so must be consistent across group members.
+	 * @param marshaller a command marshaller
+	 */
+	protected void register(CommandMarshaller<C, ?> marshaller)
+	{
+		this.marshallers.add(marshaller);
+		this.tags.put(marshaller.getCommandClass(), this.marshallers.size());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.distributed.CommandCodec#encode(net.sf.hajdbc.distributed.Command)
+	 */
+	@Override
+	public byte[] encode(Command<?, C> command)
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+		
+		try (DataOutputStream output = new DataOutputStream(bytes))
+		{
+			this.write(output, command);
+			output.flush();
+			
+			return bytes.toByteArray();
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.distributed.CommandCodec#decode(byte[], int, int, net.sf.hajdbc.distributed.Member)
+	 */
+	@Override
+	public Command<Object, C> decode(byte[] buffer, int offset, int length, Member sender)
+	{
+		try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(buffer, offset, length)))
+		{
+			return this.read(input, sender);
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Writes the specified command to the specified output.
+	 * Used by marshallers of composite commands.
+	 * @param output a data output
+	 * @param command a command
+	 * @throws IOException if the command could not be written
+	 */
+	public void write(DataOutput output, Command<?, C> command) throws IOException
+	{
+		Integer tag = this.tags.get(command.getClass());
+		
+		if (tag != null)
+		{
+			output.writeByte(tag.intValue());
+			write(output, this.marshallers.get(tag.intValue() - 1), command);
+		}
+		else
+		{
+			output.writeByte(SERIALIZED_COMMAND);
+			writeBytes(output, Objects.serialize(command));
+		}
+	}
+	
+	private static <C, T extends Command<?, C>> void write(DataOutput output, CommandMarshaller<C, T> marshaller, Command<?, C> command) throws IOException
+	{
+		marshaller.write(output, marshaller.getCommandClass().cast(command));
+	}
+	
+	/**
+	 * Reads a command from the specified input.
+	 * Used by marshallers of composite commands.
+	 * @param input a data input
+	 * @param sender the member from which the command was received
+	 * @return a command
+	 * @throws IOException if the command could not be read
+	 */
+	@SuppressWarnings("unchecked")
+	public Command<Object, C> read(DataInput input, Member sender) throws IOException
+	{
+		int tag = input.readUnsignedByte();
+		
+		if (tag == SERIALIZED_COMMAND)
+		{
+			return Objects.deserialize(readBytes(input), Command.class);
+		}
+		
+		if (tag > this.marshallers.size())
+		{
+			throw new IOException(String.format("Unexpected command tag: %d", tag));
+		}
+		
+		return (Command<Object, C>) this.marshallers.get(tag - 1).read(input, sender);
+	}
+	
+	/**
+	 * Writes the specified value, using a compact encoding for common types, and Java serialization otherwise.
+	 * @param output a data output
+	 * @param value a value, possibly null
+	 * @throws IOException if the value could not be written
+	 */
+	public static void writeObject(DataOutput output, Object value) throws IOException
+	{
+		if (value == null)
+		{
+			output.writeByte(NULL_TYPE);
+		}
+		else if ((value instanceof String) && (((String) value).length() <= MAX_UTF_LENGTH))
+		{
+			output.writeByte(STRING_TYPE);
+			output.writeUTF((String) value);
+		}
+		else if (value instanceof Integer)
+		{
+			output.writeByte(INTEGER_TYPE);
+			output.writeInt((Integer) value);
+		}
+		else if (value instanceof Long)
+		{
+			output.writeByte(LONG_TYPE);
+			output.writeLong((Long) value);
+		}
+		else if (value instanceof Boolean)
+		{
+			output.writeByte(BOOLEAN_TYPE);
+			output.writeBoolean((Boolean) value);
+		}
+		else if (value instanceof UUID)
+		{
+			UUID uuid = (UUID) value;
+			output.writeByte(UUID_TYPE);
+			output.writeLong(uuid.getMostSignificantBits());
+			output.writeLong(uuid.getLeastSignificantBits());
+		}
+		else if (value instanceof int[])
+		{
+			int[] values = (int[]) value;
+			output.writeByte(INT_ARRAY_TYPE);
+			output.writeInt(values.length);
+			for (int element: values)
+			{
+				output.writeInt(element);
+			}
+		}
+		else if (value instanceof long[])
+		{
+			long[] values = (long[]) value;
+			output.writeByte(LONG_ARRAY_TYPE);
+			output.writeInt(values.length);
+			for (long element: values)
+			{
+				output.writeLong(element);
+			}
+		}
+		else
+		{
+			output.writeByte(SERIALIZED_TYPE);
+			writeBytes(output, Objects.serialize(value));
+		}
+	}
+	
+	/**
+	 * Reads a value written via {@link #writeObject(DataOutput, Object)}.
+	 * @param input a data input
+	 * @return a value, possibly null
+	 * @throws IOException if the value could not be read
+	 */
+	public static Object readObject(DataInput input) throws IOException
+	{
+		int type = input.readUnsignedByte();
+		switch (type)
+		{
+			case NULL_TYPE:
+			{
+				return null;
+			}
+			case STRING_TYPE:
+			{
+				return input.readUTF();
+			}
+			case INTEGER_TYPE:
+			{
+				return input.readInt();
+			}
+			case LONG_TYPE:
+			{
+				return input.readLong();
+			}
+			case BOOLEAN_TYPE:
+			{
+				return input.readBoolean();
+			}
+			case UUID_TYPE:
+			{
+				return new UUID(input.readLong(), input.readLong());
+			}
+			case INT_ARRAY_TYPE:
+			{
+				int[] values = new int[input.readInt()];
+				for (int i = 0; i < values.length; ++i)
+				{
+					values[i] = input.readInt();
+				}
+				return values;
+			}
+			case LONG_ARRAY_TYPE:
+			{
+				long[] values = new long[input.readInt()];
+				for (int i = 0; i < values.length; ++i)
+				{
+					values[i] = input.readLong();
+				}
+				return values;
+			}
+			case SERIALIZED_TYPE:
+			{
+				return deserialize(readBytes(input));
+			}
+			default:
+			{
+				throw new IOException(String.format("Unexpected value type: %d", type));
+			}
+		}
+	}
+	
+	/**
+	 * Writes an enum constant as a single byte, or -1, if null.
+	 * @param output a data output
+	 * @param value an enum constant, possibly null
+	 * @throws IOException if the value could not be written
+	 */
+	public static void writeEnum(DataOutput output, Enum<?> value) throws IOException
+	{
+		output.writeByte((value != null) ? value.ordinal() : -1);
+	}
+	
+	/**
+	 * Reads an enum constant written via {@link #writeEnum(DataOutput, Enum)}.
+	 * @param input a data input
+	 * @param values the constants of the enum type
+	 * @return an enum constant, possibly null
+	 * @throws IOException if the value could not be read
+	 */
+	public static <E extends Enum<E>> E readEnum(DataInput input, E[] values) throws IOException
+	{
+		int ordinal = input.readByte();
+		return (ordinal >= 0) ? values[ordinal] : null;
+	}
+	
+	private static void writeBytes(DataOutput output, byte[] bytes) throws IOException
+	{
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+	
+	private static byte[] readBytes(DataInput input) throws IOException
+	{
+		byte[] bytes = new byte[input.readInt()];
+		input.readFully(bytes);
+		return bytes;
+	}
+	
+	private static Object deserialize(byte[] bytes) throws IOException
+	{
+		// Resolve against our own class loader, since the loader of Object cannot see JDBC or application classes
+		try (ObjectInput input = new ObjectInputStream(new ByteArrayInputStream(bytes), BinaryCommandCodec.class.getClassLoader()))
+		{
+			return input.readObject();
+		}
+		catch (ClassNotFoundException e)
+		{
+			throw new IOException(e);
+		}
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.distributed;
+
+/**
+ * Encodes commands for transmission to other group members, and decodes commands received from other group members.
+ * @author Paul Ferraro
+ * @param <C> the command execution context type
+ */
+public interface CommandCodec<C>
+{
+	/**
+	 * Encodes the specified command.
+	 * @param command a command
+	 * @return the encoded command
+	 */
+	byte[] encode(Command<?, C> command);
+
+	/**
+	 * Decodes a command from the specified buffer.
+	 * @param buffer a buffer containing an encoded command
+	 * @param offset the offset of the encoded command within the buffer
+	 * @param length the length of the encoded command
+	 * @param sender the member from which the command was received
+	 * @return the decoded command
+	 */
+	Command<Object, C> decode(byte[] buffer, int offset, int length, Member sender);
+}
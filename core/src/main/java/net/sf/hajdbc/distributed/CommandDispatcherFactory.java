@@ -34,10 +34,11 @@ public interface CommandDispatcherFactory extends Identifiable, Serializable
 	 * @param <C> execution context type
 	 * @param id unique identifier of this dispatcher
 	 * @param context command execution context
+	 * @param codec encodes and decodes commands
 	 * @param stateful handler for state transfers
 	 * @param membershipListener handler for group membership changes
 	 * @return a new command dispatcher
 	 * @throws Exception if an error occurred creating the dispatcher
 	 */
-	<C> CommandDispatcher<C> createCommandDispatcher(String id, C context, Stateful stateful, MembershipListener membershipListener) throws Exception;
+	<C> CommandDispatcher<C> createCommandDispatcher(String id, C context, CommandCodec<C> codec, Stateful stateful, MembershipListener membershipListener) throws Exception;
 }
@@ -0,0 +1,54 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.distributed;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes and reads a specific type of command using a compact binary encoding.
+ * @author Paul Ferraro
+ * @param <C> the command execution context type
+ * @param <T> the command type
+ */
+public interface CommandMarshaller<C, T extends Command<?, C>>
+{
+	/**
+	 * Returns the type of command handled by this marshaller.
+	 * @return a command class
+	 */
+	Class<T> getCommandClass();
+
+	/**
+	 * Writes the specified command to the specified output.
+	 * @param output a data output
+	 * @param command a command
+	 * @throws IOException if the command could not be written
+	 */
+	void write(DataOutput output, T command) throws IOException;
+
+	/**
+	 * Reads a command from the specified input.
+	 * @param input a data input
+	 * @param sender the member from which the command was received
+	 * @return a command
+	 * @throws IOException if the command could not be read
+	 */
+	T read(DataInput input, Member sender) throws IOException;
+}
@@ -0,0 +1,61 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.distributed;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInput;
+
+import net.sf.hajdbc.util.ObjectInputStream;
+import net.sf.hajdbc.util.Objects;
+
+/**
+ * Command codec that uses Java serialization.
+ * @author Paul Ferraro
+ * @param <C> the command execution context type
+ */
+public class SerializationCommandCodec<C> implements CommandCodec<C>
+{
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.distributed.CommandCodec#encode(net.sf.hajdbc.distributed.Command)
+	 */
+	@Override
+	public byte[] encode(Command<?, C> command)
+	{
+		return Objects.serialize(command);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.distributed.CommandCodec#decode(byte[], int, int, net.sf.hajdbc.distributed.Member)
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public Command<Object, C> decode(byte[] buffer, int offset, int length, Member sender)
+	{
+		try (ObjectInput input = new ObjectInputStream(new ByteArrayInputStream(buffer, offset, length), Command.class.getClassLoader()))
+		{
+			return Objects.readObject(input, Command.class);
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.distributed;
+
+import java.util.Set;
+
+/**
+ * Used to notify the implementor of each new group view, in addition to the individual membership changes.
+ * 
+ * @author Paul Ferraro
+ */
+public interface ViewListener extends MembershipListener
+{
+	/**
+	 * Indicates that the group installed a new view, once its added and removed members were reported.
+	 * Each view is identified by the same id on every member, which increases with each view installed by the group.
+	 * @param view the id of the new view
+	 * @param members the members of the new view
+	 */
+	void viewChanged(long view, Set<Member> members);
+}
@@ -30,6 +30,7 @@ import net.sf.hajdbc.durability.InvokerEvent;
 import net.sf.hajdbc.durability.none.NoDurability;
 import net.sf.hajdbc.invocation.InvocationStrategy;
 import net.sf.hajdbc.invocation.Invoker;
+import net.sf.hajdbc.invocation.QuorumResultsCollector;
 import net.sf.hajdbc.sql.ProxyFactory;
 import net.sf.hajdbc.state.StateManager;
 
@@ -72,7 +73,7 @@ public class CoarseDurability<Z, D extends Database<Z>> extends NoDurability<Z,
 			@Override
 			public <ZZ, DD extends Database<ZZ>, T, R, EE extends Exception> SortedMap<DD, R> invoke(ProxyFactory<ZZ, DD, T, EE> proxy, Invoker<ZZ, DD, T, R, EE> invoker) throws EE
 			{
-				InvocationEvent event = new InvocationEventImpl(transactionId, phase, proxy.getExceptionFactory().getType());
+				final InvocationEvent event = new InvocationEventImpl(transactionId, phase, proxy.getExceptionFactory().getType());
 
 				listener.beforeInvocation(event);
 
@@ -86,7 +87,15 @@ public class CoarseDurability<Z, D extends Database<Z>> extends NoDurability<Z,
 				}
 				finally
 				{
-					listener.afterInvocation(event);
+					// Backup databases may still be completing asynchronously, if a write quorum is configured
+					QuorumResultsCollector.afterCompletion(proxy, new Runnable()
+					{
+						@Override
+						public void run()
+						{
+							listener.afterInvocation(event);
+						}
+					});
 				}
 			}
 		};
@@ -22,7 +22,7 @@ import java.util.Map;
 import net.sf.hajdbc.Database;
 import net.sf.hajdbc.DatabaseCluster;
 import net.sf.hajdbc.ExceptionFactory;
-import net.sf.hajdbc.balancer.Balancer;
+import net.sf.hajdbc.balancer.BalancerSnapshot;
 import net.sf.hajdbc.durability.DurabilityListener;
 import net.sf.hajdbc.durability.InvocationEvent;
 import net.sf.hajdbc.durability.InvokerEvent;
@@ -100,8 +100,8 @@ public class FineDurability<Z, D extends Database<Z>> extends CoarseDurability<Z
 	public void recover(Map<InvocationEvent, Map<String, InvokerEvent>> map)
 	{
 		StateManager stateManager = this.cluster.getStateManager();
-		Balancer<Z, D> balancer = this.cluster.getBalancer();
-		D primary = balancer.primary();
+		BalancerSnapshot<Z, D> snapshot = this.cluster.getBalancer().snapshot();
+		D primary = snapshot.primary();
 
 		for (Map.Entry<InvocationEvent, Map<String, InvokerEvent>> entry: map.entrySet())
 		{
@@ -110,7 +110,7 @@ public class FineDurability<Z, D extends Database<Z>> extends CoarseDurability<Z
 
 			if (!invokers.isEmpty())
 			{
-				for (D backup: balancer.backups())
+				for (D backup: snapshot.backups())
 				{
 					if (this.deactivateSlave(primary, backup, invocation, invokers))
 					{
@@ -20,7 +20,6 @@ package net.sf.hajdbc.invocation;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.AbstractMap;
@@ -32,6 +31,8 @@ import java.util.concurrent.Future;
 import net.sf.hajdbc.Database;
 import net.sf.hajdbc.DatabaseCluster;
 import net.sf.hajdbc.ExceptionFactory;
+import net.sf.hajdbc.balancer.Balancer;
+import net.sf.hajdbc.balancer.BalancerSnapshot;
 import net.sf.hajdbc.messages.Messages;
 import net.sf.hajdbc.messages.MessagesFactory;
 import net.sf.hajdbc.sql.ProxyFactory;
@@ -63,19 +64,20 @@ public class AllResultsCollector implements InvokeOnManyInvocationStrategy.Resul
 	{
 		DatabaseCluster<Z, D> cluster = factory.getDatabaseCluster();
 		ExceptionFactory<E> exceptionFactory = factory.getExceptionFactory();
-		Set<D> databaseSet = cluster.getBalancer();
+		Balancer<Z, D> balancer = cluster.getBalancer();
+		BalancerSnapshot<Z, D> snapshot = balancer.snapshot();
+		int size = snapshot.size();
 		
-		if (databaseSet.isEmpty())
+		if (size == 0)
 		{
 			exceptionFactory.createException(messages.noActiveDatabases(cluster));
 		}
 
-		int size = databaseSet.size();
-		
 		List<Invocation<Z, D, T, R, E>> invocationList = new ArrayList<>(size);
 		
-		for (D database: databaseSet)
+		for (int i = 0; i < size; ++i)
 		{
+			D database = snapshot.get(i);
 			invocationList.add(new Invocation<>(invoker, database, factory.get(database)));
 		}
 		
@@ -97,7 +99,7 @@ public class AllResultsCollector implements InvokeOnManyInvocationStrategy.Resul
 				catch (ExecutionException e)
 				{
 					// If this database was concurrently deactivated, just ignore the failure
-					if (databaseSet.contains(database))
+					if (balancer.contains(database))
 					{
 						exceptionMap.put(database, exceptionFactory.createException(e.getCause()));
 					}
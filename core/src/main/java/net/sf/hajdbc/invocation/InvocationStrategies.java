@@ -15,7 +15,7 @@ public enum InvocationStrategies implements InvocationStrategy
 	INVOKE_ON_EXISTING(new InvokeOnManyInvocationStrategy(new ExistingResultsCollector())),
 	INVOKE_ON_NEXT(new InvokeOnOneInvocationStrategy(new NextDatabaseSelector())),
 	INVOKE_ON_PRIMARY(new InvokeOnOneInvocationStrategy(new PrimaryDatabaseSelector())),
-	TRANSACTION_INVOKE_ON_ALL(new InvokeOnManyInvocationStrategy(new AllResultsCollector(new TransactionalExecutorProvider(false)))),
+	TRANSACTION_INVOKE_ON_ALL(new InvokeOnManyInvocationStrategy(new QuorumResultsCollector(new TransactionalExecutorProvider(false)))),
 	END_TRANSACTION_INVOKE_ON_ALL(new InvokeOnManyInvocationStrategy(new AllResultsCollector(new TransactionalExecutorProvider(true)))),
 	;
 	
@@ -32,6 +32,11 @@ public enum InvocationStrategies implements InvocationStrategy
 	public <Z, D extends Database<Z>, T, R, E extends Exception> SortedMap<D, R> invoke(ProxyFactory<Z, D, T, E> map, Invoker<Z, D, T, R, E> invoker) throws E
 	{
 		logger.log(Level.TRACE, "Invoking {0} using {1} strategy.", invoker, this);
+		if (this != TRANSACTION_INVOKE_ON_ALL)
+		{
+			// Wait for any writes still pending on backup databases
+			QuorumResultsCollector.await(map);
+		}
 		return this.strategy.invoke(map, invoker);
 	}
 }
\ No newline at end of file
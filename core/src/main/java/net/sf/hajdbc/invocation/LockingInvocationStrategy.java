@@ -60,6 +60,11 @@ public class LockingInvocationStrategy implements InvocationStrategy
 		}
 		finally
 		{
+			if (!this.lockList.isEmpty())
+			{
+				// Backup databases must complete before releasing locks
+				QuorumResultsCollector.await(proxy);
+			}
 			for (Lock lock: this.lockList)
 			{
 				lock.unlock();
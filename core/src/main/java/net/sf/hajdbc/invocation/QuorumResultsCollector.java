@@ -0,0 +1,436 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.invocation;
+
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import net.sf.hajdbc.Database;
+import net.sf.hajdbc.DatabaseCluster;
+import net.sf.hajdbc.ExceptionFactory;
+import net.sf.hajdbc.TransactionMode;
+import net.sf.hajdbc.balancer.Balancer;
+import net.sf.hajdbc.balancer.BalancerSnapshot;
+import net.sf.hajdbc.invocation.AllResultsCollector.ExecutorProvider;
+import net.sf.hajdbc.logging.Level;
+import net.sf.hajdbc.logging.Logger;
+import net.sf.hajdbc.logging.LoggerFactory;
+import net.sf.hajdbc.messages.Messages;
+import net.sf.hajdbc.messages.MessagesFactory;
+import net.sf.hajdbc.sql.ChildProxyFactory;
+import net.sf.hajdbc.sql.ProxyFactory;
+import net.sf.hajdbc.sql.TransactionModeEnum;
+import net.sf.hajdbc.util.Objects;
+
+/**
+ * Results collector that returns as soon as the primary database and a quorum of backup databases have completed.
+ * The remaining backup databases complete asynchronously, and are deactivated if they fail, or if their result differs from that of the primary database.
+ * Invocations against a backup database are ordered behind any asynchronous invocations pending for the same connection.
+ * Results that would need to be proxied (e.g. result sets) always wait for all databases.
+ * @author Paul Ferraro
+ */
+public class QuorumResultsCollector implements InvokeOnManyInvocationStrategy.ResultsCollector
+{
+	private static final Messages messages = MessagesFactory.getMessages();
+	private static final Logger logger = LoggerFactory.getLogger(QuorumResultsCollector.class);
+
+	// Asynchronous backup invocations, per connection, that have not yet completed
+	private static final ConcurrentMap<ProxyFactory<?, ?, ?, ?>, PendingInvocations> pending = new ConcurrentHashMap<>();
+	private static final CompletableFuture<Void> COMPLETED = CompletableFuture.completedFuture(null);
+	private static final BiFunction<Object, Throwable, Void> IGNORE = new BiFunction<Object, Throwable, Void>()
+	{
+		@Override
+		public Void apply(Object result, Throwable exception)
+		{
+			return null;
+		}
+	};
+
+	/**
+	 * Waits for any asynchronous backup invocations pending for the connection of the specified proxy factory.
+	 * @param factory a proxy factory
+	 */
+	public static void await(ProxyFactory<?, ?, ?, ?> factory)
+	{
+		if (!pending.isEmpty())
+		{
+			PendingInvocations invocations = pending.get(getScope(factory));
+			if (invocations != null)
+			{
+				invocations.getCompletion().join();
+			}
+		}
+	}
+
+	/**
+	 * Runs the specified task once any asynchronous backup invocations pending for the connection of the specified proxy factory have completed, or were deactivated.
+	 * If there are no pending invocations, the task runs immediately.
+	 * @param factory a proxy factory
+	 * @param task a task to run
+	 */
+	public static void afterCompletion(ProxyFactory<?, ?, ?, ?> factory, Runnable task)
+	{
+		PendingInvocations invocations = !pending.isEmpty() ? pending.get(getScope(factory)) : null;
+		if (invocations != null)
+		{
+			invocations.getCompletion().thenRun(task);
+		}
+		else
+		{
+			task.run();
+		}
+	}
+
+	/**
+	 * Returns the outer-most child proxy factory, i.e. the proxy factory of the connection, of the specified proxy factory.
+	 */
+	private static ProxyFactory<?, ?, ?, ?> getScope(ProxyFactory<?, ?, ?, ?> factory)
+	{
+		ProxyFactory<?, ?, ?, ?> scope = factory;
+		while (scope instanceof ChildProxyFactory)
+		{
+			ProxyFactory<?, ?, ?, ?> parent = ((ChildProxyFactory<?, ?, ?, ?, ?, ?>) scope).getParent();
+			if (!(parent instanceof ChildProxyFactory))
+			{
+				break;
+			}
+			scope = parent;
+		}
+		return scope;
+	}
+
+	/**
+	 * Indicates whether the specified result can be returned without the corresponding results from the backup databases.
+	 */
+	private static boolean isDetachable(Object result)
+	{
+		return (result == null) || (result instanceof Number) || (result instanceof Boolean) || (result instanceof int[]) || (result instanceof long[]);
+	}
+
+	private final ExecutorProvider provider;
+	private final InvokeOnManyInvocationStrategy.ResultsCollector collector;
+
+	public QuorumResultsCollector(ExecutorProvider provider)
+	{
+		this.provider = provider;
+		this.collector = new AllResultsCollector(provider);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <Z, D extends Database<Z>, T, R, E extends Exception> Map.Entry<SortedMap<D, R>, SortedMap<D, E>> collectResults(ProxyFactory<Z, D, T, E> factory, Invoker<Z, D, T, R, E> invoker)
+	{
+		DatabaseCluster<Z, D> cluster = factory.getDatabaseCluster();
+		Balancer<Z, D> balancer = cluster.getBalancer();
+		// Use a consistent view of the primary and backup databases
+		BalancerSnapshot<Z, D> snapshot = balancer.snapshot();
+		int quorum = cluster.getWriteQuorum();
+		final ProxyFactory<?, ?, ?, ?> scope = getScope(factory);
+
+		if ((quorum < 0) || (quorum >= snapshot.size() - 1))
+		{
+			await(scope);
+			return this.collector.collectResults(factory, invoker);
+		}
+
+		ExceptionFactory<E> exceptionFactory = factory.getExceptionFactory();
+		TransactionMode mode = cluster.getTransactionMode();
+		D primary = snapshot.primary();
+		Invocation<Z, D, T, R, E> primaryInvocation = new Invocation<>(invoker, primary, factory.get(primary));
+		CompletableFuture<R> primaryFuture = null;
+		
+		if (mode == TransactionModeEnum.SERIAL)
+		{
+			// The primary database completes before any backup database begins
+			primaryFuture = COMPLETED.thenApply(primaryInvocation);
+		}
+		else if (mode != TransactionModeEnum.CALLER_RUNS)
+		{
+			primaryFuture = COMPLETED.thenApplyAsync(primaryInvocation, this.provider.getExecutor(cluster));
+		}
+		
+		List<D> backups = snapshot.backups();
+		PendingInvocations previous = pending.get(scope);
+		CompletableFuture<Void> quorumFuture = new CompletableFuture<>();
+		QuorumListener listener = new QuorumListener(quorumFuture, quorum, backups.size());
+		Executor executor = cluster.getExecutor();
+		SortedMap<D, CompletableFuture<R>> backupFutures = new TreeMap<>();
+		// Completes once a backup invocation was reconciled with that of the primary database
+		SortedMap<D, CompletableFuture<Void>> settlements = new TreeMap<>();
+		
+		for (D backup: backups)
+		{
+			// Ensure invocations against the same backup connection execute in order
+			CompletableFuture<?> prior = (previous != null) ? previous.getFutures().get(backup) : null;
+			CompletableFuture<Void> ready = (prior != null) ? prior.handle(IGNORE) : COMPLETED;
+			CompletableFuture<R> future = ready.thenApplyAsync(new Invocation<>(invoker, backup, factory.get(backup)), executor);
+			future.whenComplete(listener);
+			backupFutures.put(backup, future);
+			settlements.put(backup, new CompletableFuture<Void>());
+		}
+		
+		final PendingInvocations invocations = new PendingInvocations(backupFutures, settlements.values());
+		pending.put(scope, invocations);
+		invocations.getCompletion().thenRun(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				pending.remove(scope, invocations);
+			}
+		});
+		
+		if (primaryFuture == null)
+		{
+			// The primary database executes in the caller thread, while the backup databases execute concurrently
+			primaryFuture = COMPLETED.thenApply(primaryInvocation);
+		}
+		
+		SortedMap<D, R> resultMap = new TreeMap<>();
+		SortedMap<D, E> exceptionMap = new TreeMap<>();
+		
+		try
+		{
+			collect(primary, primaryFuture, balancer, exceptionFactory, resultMap, exceptionMap);
+			
+			R primaryResult = resultMap.get(primary);
+			
+			// If the primary failed, its result must be proxied, or too many backups failed to reach a quorum, wait for all databases
+			if (!exceptionMap.isEmpty() || !isDetachable(primaryResult) || !awaitQuorum(quorumFuture))
+			{
+				for (Map.Entry<D, CompletableFuture<R>> entry: backupFutures.entrySet())
+				{
+					collect(entry.getKey(), entry.getValue(), balancer, exceptionFactory, resultMap, exceptionMap);
+				}
+			}
+			else
+			{
+				for (Map.Entry<D, CompletableFuture<R>> entry: backupFutures.entrySet())
+				{
+					D backup = entry.getKey();
+					CompletableFuture<R> backupFuture = entry.getValue();
+					
+					if (backupFuture.isDone())
+					{
+						collect(backup, backupFuture, balancer, exceptionFactory, resultMap, exceptionMap);
+					}
+					else
+					{
+						backupFuture.whenComplete(new Reconciler<>(cluster, backup, primaryResult, settlements.remove(backup)));
+					}
+				}
+			}
+		}
+		finally
+		{
+			// Collected results are reconciled by the invocation strategy before the caller proceeds
+			for (CompletableFuture<Void> settlement: settlements.values())
+			{
+				settlement.complete(null);
+			}
+		}
+		
+		return new AbstractMap.SimpleImmutableEntry<>(resultMap, exceptionMap);
+	}
+	
+	/**
+	 * Waits for a quorum of backup databases to complete successfully.
+	 * @return true, if the quorum was reached, false if too many backup databases failed
+	 */
+	private static boolean awaitQuorum(CompletableFuture<Void> future)
+	{
+		try
+		{
+			future.join();
+			return true;
+		}
+		catch (CompletionException e)
+		{
+			return false;
+		}
+	}
+	
+	private static <Z, D extends Database<Z>, R, E extends Exception> void collect(D database, CompletableFuture<R> future, Balancer<Z, D> balancer, ExceptionFactory<E> exceptionFactory, Map<D, R> resultMap, Map<D, E> exceptionMap)
+	{
+		try
+		{
+			resultMap.put(database, future.join());
+		}
+		catch (CompletionException e)
+		{
+			// If this database was concurrently deactivated, just ignore the failure
+			if (balancer.contains(database))
+			{
+				exceptionMap.put(database, exceptionFactory.createException(e.getCause()));
+			}
+		}
+	}
+	
+	/**
+	 * The most recent asynchronous invocation per backup database of a given connection.
+	 */
+	private static class PendingInvocations
+	{
+		private final Map<? extends Database<?>, ? extends CompletableFuture<?>> futures;
+		private final CompletableFuture<Void> completion;
+		
+		PendingInvocations(Map<? extends Database<?>, ? extends CompletableFuture<?>> futures, Collection<? extends CompletableFuture<?>> settlements)
+		{
+			this.futures = futures;
+			this.completion = CompletableFuture.allOf(settlements.toArray(new CompletableFuture<?>[settlements.size()])).handle(IGNORE);
+		}
+		
+		Map<? extends Database<?>, ? extends CompletableFuture<?>> getFutures()
+		{
+			return this.futures;
+		}
+		
+		CompletableFuture<Void> getCompletion()
+		{
+			return this.completion;
+		}
+	}
+	
+	/**
+	 * Completes a future once a given number of backup invocations have succeeded,
+	 * or fails it once so many backup invocations have failed that this number can no longer be reached.
+	 */
+	private static class QuorumListener implements BiConsumer<Object, Throwable>
+	{
+		private final CompletableFuture<Void> future;
+		private final AtomicInteger remaining;
+		// Number of failed backup invocations that the quorum can still tolerate
+		private final AtomicInteger tolerance;
+		
+		QuorumListener(CompletableFuture<Void> future, int quorum, int backups)
+		{
+			this.future = future;
+			this.remaining = new AtomicInteger(quorum);
+			this.tolerance = new AtomicInteger(backups - quorum);
+			if (quorum == 0)
+			{
+				future.complete(null);
+			}
+		}
+
+		@Override
+		public void accept(Object result, Throwable exception)
+		{
+			if (exception == null)
+			{
+				if (this.remaining.decrementAndGet() == 0)
+				{
+					this.future.complete(null);
+				}
+			}
+			else if (this.tolerance.decrementAndGet() < 0)
+			{
+				this.future.completeExceptionally(exception);
+			}
+		}
+	}
+	
+	/**
+	 * Deactivates a backup database whose asynchronous invocation failed, or whose result differs from that of the primary database.
+	 */
+	private static class Reconciler<Z, D extends Database<Z>> implements BiConsumer<Object, Throwable>
+	{
+		private final DatabaseCluster<Z, D> cluster;
+		private final D database;
+		private final Object primaryResult;
+		private final CompletableFuture<Void> settlement;
+		
+		Reconciler(DatabaseCluster<Z, D> cluster, D database, Object primaryResult, CompletableFuture<Void> settlement)
+		{
+			this.cluster = cluster;
+			this.database = database;
+			this.primaryResult = primaryResult;
+			this.settlement = settlement;
+		}
+
+		@Override
+		public void accept(Object result, Throwable exception)
+		{
+			try
+			{
+				if (exception != null)
+				{
+					Throwable cause = ((exception instanceof CompletionException) && (exception.getCause() != null)) ? exception.getCause() : exception;
+					
+					if (this.cluster.deactivate(this.database, this.cluster.getStateManager()))
+					{
+						logger.log(Level.ERROR, cause, messages.deactivated(this.cluster, this.database));
+					}
+				}
+				else if (!Objects.equals(this.primaryResult, result))
+				{
+					if (this.cluster.deactivate(this.database, this.cluster.getStateManager()))
+					{
+						logger.log(Level.ERROR, messages.inconsistent(this.cluster, this.database, this.primaryResult, result));
+					}
+				}
+			}
+			finally
+			{
+				this.settlement.complete(null);
+			}
+		}
+	}
+	
+	private static class Invocation<Z, D extends Database<Z>, T, R, E extends Exception> implements Function<Object, R>
+	{
+		private final Invoker<Z, D, T, R, E> invoker;
+		private final D database;
+		private final T object;
+		
+		Invocation(Invoker<Z, D, T, R, E> invoker, D database, T object)
+		{
+			this.invoker = invoker;
+			this.database = database;
+			this.object = object;
+		}
+		
+		@Override
+		public R apply(Object ignored)
+		{
+			try
+			{
+				return this.invoker.invoke(this.database, this.object);
+			}
+			catch (Exception e)
+			{
+				throw new CompletionException(e);
+			}
+		}
+	}
+}
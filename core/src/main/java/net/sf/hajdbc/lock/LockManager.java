@@ -17,6 +17,7 @@
  */
 package net.sf.hajdbc.lock;
 
+import java.util.SortedSet;
 import java.util.concurrent.locks.Lock;
 
 import net.sf.hajdbc.Lifecycle;
@@ -42,4 +43,13 @@ public interface LockManager extends Lifecycle
 	 * @return a write lock
 	 */
 	Lock writeLock(String object);
+
+	/**
+	 * Obtains a single lock over the named write locks of the specified objects.
+	 * The named locks are acquired in the order of the specified set.
+	 * If any named lock cannot be acquired, any named locks already acquired are released.
+	 * @param objects a set of objects to lock
+	 * @return a write lock
+	 */
+	Lock writeLocks(SortedSet<String> objects);
 }
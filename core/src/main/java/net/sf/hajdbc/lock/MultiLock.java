@@ -0,0 +1,143 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.lock;
+
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * A single lock over a list of locks.
+ * Locks are acquired in list order and released in reverse order.
+ * If any lock cannot be acquired, those locks already acquired are released, such that either all or none of the locks are held.
+ * @author Paul Ferraro
+ */
+public class MultiLock implements Lock
+{
+	private final List<Lock> locks;
+	
+	public MultiLock(List<Lock> locks)
+	{
+		this.locks = locks;
+	}
+
+	@Override
+	public void lock()
+	{
+		for (Lock lock: this.locks)
+		{
+			lock.lock();
+		}
+	}
+
+	@Override
+	public void lockInterruptibly() throws InterruptedException
+	{
+		ListIterator<Lock> locks = this.locks.listIterator();
+		
+		try
+		{
+			while (locks.hasNext())
+			{
+				locks.next().lockInterruptibly();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			// Skip the lock that was not acquired
+			locks.previous();
+			unlock(locks);
+			throw e;
+		}
+	}
+
+	@Override
+	public boolean tryLock()
+	{
+		ListIterator<Lock> locks = this.locks.listIterator();
+		
+		while (locks.hasNext())
+		{
+			if (!locks.next().tryLock())
+			{
+				locks.previous();
+				unlock(locks);
+				return false;
+			}
+		}
+		
+		return true;
+	}
+
+	@Override
+	public boolean tryLock(long time, TimeUnit unit) throws InterruptedException
+	{
+		long timeout = unit.toNanos(time);
+		long start = System.nanoTime();
+		long remaining = timeout;
+		ListIterator<Lock> locks = this.locks.listIterator();
+		
+		try
+		{
+			while (locks.hasNext())
+			{
+				if (!locks.next().tryLock(Math.max(remaining, 0L), TimeUnit.NANOSECONDS))
+				{
+					locks.previous();
+					unlock(locks);
+					return false;
+				}
+				
+				remaining = timeout - (System.nanoTime() - start);
+			}
+			
+			return true;
+		}
+		catch (InterruptedException e)
+		{
+			locks.previous();
+			unlock(locks);
+			throw e;
+		}
+	}
+
+	@Override
+	public void unlock()
+	{
+		unlock(this.locks.listIterator(this.locks.size()));
+	}
+	
+	/**
+	 * Releases the locks preceding the current position of the specified iterator, in reverse order.
+	 */
+	private static void unlock(ListIterator<Lock> locks)
+	{
+		while (locks.hasPrevious())
+		{
+			locks.previous().unlock();
+		}
+	}
+
+	@Override
+	public Condition newCondition()
+	{
+		throw new UnsupportedOperationException();
+	}
+}
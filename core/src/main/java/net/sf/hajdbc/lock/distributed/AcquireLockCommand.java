@@ -33,11 +33,44 @@ public class AcquireLockCommand implements Command<Boolean, LockCommandContext>
 
 	private final RemoteLockDescriptor descriptor;
 	private final long timeout;
+	private final long view;
 
+	/**
+	 * Creates a command that acquires a lock held by every group member.
+	 * @param descriptor a lock descriptor
+	 * @param timeout the number of milliseconds to wait for the lock
+	 */
 	public AcquireLockCommand(RemoteLockDescriptor descriptor, long timeout)
+	{
+		this(descriptor, timeout, 0);
+	}
+
+	/**
+	 * Creates a command that acquires a lock from its owner.
+	 * @param descriptor a lock descriptor
+	 * @param timeout the number of milliseconds to wait for the lock
+	 * @param view the id of the group view within which the sender located the owner of the lock
+	 */
+	public AcquireLockCommand(RemoteLockDescriptor descriptor, long timeout, long view)
 	{
 		this.descriptor = descriptor;
 		this.timeout = timeout;
+		this.view = view;
+	}
+
+	RemoteLockDescriptor getDescriptor()
+	{
+		return this.descriptor;
+	}
+
+	long getTimeout()
+	{
+		return this.timeout;
+	}
+
+	long getView()
+	{
+		return this.view;
 	}
 
 	/**
@@ -47,12 +80,24 @@ public class AcquireLockCommand implements Command<Boolean, LockCommandContext>
 	@Override
 	public Boolean execute(LockCommandContext context)
 	{
+		if (!this.isGrantable(context))
+		{
+			return false;
+		}
+		
 		Lock lock = context.getLock(this.descriptor);
 		
 		try
 		{
 			boolean locked = lock.tryLock(this.timeout, TimeUnit.MILLISECONDS);
 			
+			// Ownership may have been reassigned while we were waiting
+			if (locked && !this.isGrantable(context))
+			{
+				lock.unlock();
+				locked = false;
+			}
+			
 			if (locked)
 			{
 				Map<LockDescriptor, Lock> lockMap = context.getRemoteLocks(this.descriptor);
@@ -72,6 +117,17 @@ public class AcquireLockCommand implements Command<Boolean, LockCommandContext>
 		}
 	}
 
+	/**
+	 * Indicates whether the lock may currently be granted.
+	 * Locks must not be granted while their ownership is being reassigned, nor to a sender that located the owner within a different view.
+	 * @param context the command context
+	 * @return true, if the lock may be granted, false otherwise
+	 */
+	boolean isGrantable(LockCommandContext context)
+	{
+		return !context.isRebalancing(this.descriptor, this.view);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * @see java.lang.Object#toString()
@@ -0,0 +1,105 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.lock.distributed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import net.sf.hajdbc.distributed.Command;
+import net.sf.hajdbc.lock.MultiLock;
+
+/**
+ * Acquires a list of locks on a group member, in order, such that either all or none of the locks are acquired.
+ * @author Paul Ferraro
+ */
+public class AcquireLocksCommand implements Command<Boolean, LockCommandContext>
+{
+	private static final long serialVersionUID = -2361447016329434538L;
+
+	private final List<RemoteLockDescriptor> descriptors;
+	private final long timeout;
+
+	public AcquireLocksCommand(List<RemoteLockDescriptor> descriptors, long timeout)
+	{
+		this.descriptors = descriptors;
+		this.timeout = timeout;
+	}
+
+	List<RemoteLockDescriptor> getDescriptors()
+	{
+		return this.descriptors;
+	}
+
+	long getTimeout()
+	{
+		return this.timeout;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.distributed.Command#execute(java.lang.Object)
+	 */
+	@Override
+	public Boolean execute(LockCommandContext context)
+	{
+		List<Lock> locks = new ArrayList<>(this.descriptors.size());
+		
+		for (RemoteLockDescriptor descriptor: this.descriptors)
+		{
+			locks.add(context.getLock(descriptor));
+		}
+		
+		try
+		{
+			boolean locked = new MultiLock(locks).tryLock(this.timeout, TimeUnit.MILLISECONDS);
+			
+			if (locked)
+			{
+				Map<LockDescriptor, Lock> lockMap = context.getRemoteLocks(this.descriptors.get(0));
+				
+				synchronized (lockMap)
+				{
+					for (int i = 0; i < this.descriptors.size(); ++i)
+					{
+						lockMap.put(this.descriptors.get(i), locks.get(i));
+					}
+				}
+			}
+			
+			return locked;
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		return String.format("%s(%s)", this.getClass().getSimpleName(), this.descriptors);
+	}
+}
@@ -24,12 +24,21 @@ import java.io.ObjectOutput;
 import java.io.ObjectOutputStream;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
@@ -53,23 +62,36 @@ import net.sf.hajdbc.messages.MessagesFactory;
 import net.sf.hajdbc.util.Objects;
 
 /**
+ * Lock manager that acquires write locks on all group members, via the group coordinator.
+ * If a lock lease is configured, a member retains ownership of a named write lock once released,
+ * such that subsequent acquisitions by the same member are local, until the lease expires or is revoked by another member requesting the same lock.
  * @author Paul Ferraro
  */
 public class DistributedLockManager implements LockManager, LockCommandContext, Stateful, MembershipListener
 {
 	static final Logger logger = LoggerFactory.getLogger(DistributedLockManager.class);
 	static final Messages messages = MessagesFactory.getMessages();
+	// Maximum number of retries of a non-blocking acquisition
+	static final int MAX_RETRIES = 3;
+	// Maximum number of milliseconds to wait between retries
+	private static final long MAX_BACKOFF = 100;
 
 	final CommandDispatcher<LockCommandContext> dispatcher;
 	
 	private final LockManager lockManager;
 	private final ConcurrentMap<Member, Map<LockDescriptor, Lock>> remoteLockDescriptorMap = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Lease> leases = new ConcurrentHashMap<>();
+	private final ThreadFactory threadFactory;
+	final long leaseDuration;
+	volatile ScheduledExecutorService scheduler;
 	
 	public <Z, D extends Database<Z>> DistributedLockManager(DatabaseCluster<Z, D> cluster, CommandDispatcherFactory dispatcherFactory) throws Exception
 	{
 		this.lockManager = cluster.getLockManager();
+		this.threadFactory = cluster.getThreadFactory();
+		this.leaseDuration = cluster.getLockLease();
 		LockCommandContext context = this;
-		this.dispatcher = dispatcherFactory.createCommandDispatcher(cluster.getId() + ".lock", context, this, this);
+		this.dispatcher = dispatcherFactory.createCommandDispatcher(cluster.getId() + ".lock", context, new LockCommandCodec(), this, this);
 	}
 	
 	/**
@@ -88,9 +110,57 @@ public class DistributedLockManager implements LockManager, LockCommandContext,
 	 */
 	@Override
 	public Lock writeLock(String id)
+	{
+		if ((id != null) && (this.leaseDuration > 0))
+		{
+			Lease lease = this.leases.get(id);
+			if (lease == null)
+			{
+				lease = new Lease(this.createWriteLock(id));
+				Lease existing = this.leases.putIfAbsent(id, lease);
+				if (existing != null)
+				{
+					lease = existing;
+				}
+			}
+			return lease;
+		}
+		
+		return this.createWriteLock(id);
+	}
+	
+	private Lock createWriteLock(String id)
 	{
 		RemoteLockDescriptor descriptor = new RemoteLockDescriptorImpl(id, LockType.WRITE, this.dispatcher.getLocal());
-		return new DistributedLock(descriptor, this.getLock(descriptor), this.dispatcher);
+		return new DistributedLock(Collections.singletonList(descriptor), this.getLock(descriptor), this.dispatcher, this.leaseDuration > 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Acquires all named locks using a single command per group member.
+	 * @see net.sf.hajdbc.lock.LockManager#writeLocks(java.util.SortedSet)
+	 */
+	@Override
+	public Lock writeLocks(SortedSet<String> ids)
+	{
+		if (ids.isEmpty())
+		{
+			return this.lockManager.writeLocks(ids);
+		}
+		
+		if (ids.size() == 1)
+		{
+			// Allow a single lock to be leased
+			return this.writeLock(ids.first());
+		}
+		
+		Member local = this.dispatcher.getLocal();
+		List<RemoteLockDescriptor> descriptors = new ArrayList<>(ids.size());
+		for (String id: ids)
+		{
+			descriptors.add(new RemoteLockDescriptorImpl(id, LockType.WRITE, local));
+		}
+		return new DistributedLock(descriptors, this.lockManager.writeLocks(ids), this.dispatcher, this.leaseDuration > 0);
 	}
 
 	/**
@@ -127,6 +197,10 @@ public class DistributedLockManager implements LockManager, LockCommandContext,
 	public void start() throws SQLException
 	{
 		this.lockManager.start();
+		if (this.leaseDuration > 0)
+		{
+			this.scheduler = (this.threadFactory != null) ? Executors.newSingleThreadScheduledExecutor(this.threadFactory) : Executors.newSingleThreadScheduledExecutor();
+		}
 		this.dispatcher.start();
 	}
 
@@ -137,6 +211,19 @@ public class DistributedLockManager implements LockManager, LockCommandContext,
 	@Override
 	public void stop()
 	{
+		ScheduledExecutorService scheduler = this.scheduler;
+		if (scheduler != null)
+		{
+			this.scheduler = null;
+			scheduler.shutdownNow();
+			
+			// Relinquish any leases while we are still connected
+			for (Lease lease: this.leases.values())
+			{
+				lease.revoke();
+			}
+			this.leases.clear();
+		}
 		this.dispatcher.stop();
 		this.lockManager.stop();
 	}
@@ -151,6 +238,81 @@ public class DistributedLockManager implements LockManager, LockCommandContext,
 		return this.remoteLockDescriptorMap.get(remote.getMember());
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.lock.distributed.LockCommandContext#revokeLeases(java.util.List)
+	 */
+	@Override
+	public void revokeLeases(List<? extends LockDescriptor> descriptors)
+	{
+		ScheduledExecutorService scheduler = this.scheduler;
+		
+		if ((scheduler != null) && !this.leases.isEmpty())
+		{
+			List<Lease> leases = new ArrayList<>(descriptors.size());
+			
+			for (LockDescriptor descriptor: descriptors)
+			{
+				String id = descriptor.getId();
+				
+				if (id == null)
+				{
+					// The global lock conflicts with all leases
+					leases = new ArrayList<>(this.leases.values());
+					break;
+				}
+				
+				Lease lease = this.leases.get(id);
+				
+				if (lease != null)
+				{
+					leases.add(lease);
+				}
+			}
+			
+			// Relinquishing a lease requires remote invocations, so must not execute within the calling command
+			for (final Lease lease: leases)
+			{
+				try
+				{
+					scheduler.execute(new Runnable()
+					{
+						@Override
+						public void run()
+						{
+							lease.revoke();
+						}
+					});
+				}
+				catch (RejectedExecutionException e)
+				{
+					// We are stopping, which relinquishes all leases anyway
+				}
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.lock.distributed.LockCommandContext#isRebalancing(net.sf.hajdbc.lock.distributed.LockDescriptor, long)
+	 */
+	@Override
+	public boolean isRebalancing(LockDescriptor descriptor, long view)
+	{
+		// Locks are held by all members
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.lock.distributed.LockCommandContext#rebalanced(net.sf.hajdbc.distributed.Member, long)
+	 */
+	@Override
+	public void rebalanced(Member member, long view)
+	{
+		// Locks are held by all members
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * @see net.sf.hajdbc.distributed.Stateful#writeState(java.io.ObjectOutput)
@@ -248,25 +410,335 @@ public class DistributedLockManager implements LockManager, LockCommandContext,
 		}
 	}
 	
+	/**
+	 * Waits before retrying a failed acquisition, for a random interval whose upper bound grows exponentially with each retry,
+	 * so that contending members do not retry in lockstep.
+	 * @param retry the number of previous attempts
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	static void backoff(int retry) throws InterruptedException
+	{
+		if (retry > 0)
+		{
+			Thread.sleep(ThreadLocalRandom.current().nextLong(Math.min(MAX_BACKOFF, 1L << Math.min(retry, 7)) + 1));
+		}
+	}
+	
+	/**
+	 * A lease on a distributed write lock.
+	 * Once acquired, the distributed lock is retained until the lease expires or is revoked, while local threads are serialized via a semaphore.
+	 * A revoked lease is relinquished as soon as it is no longer in use.
+	 */
+	private class Lease implements Lock, Runnable
+	{
+		private final Lock lock;
+		private final Semaphore semaphore = new Semaphore(1);
+		// Guarded by this
+		private boolean owned = false;
+		private boolean revoked = false;
+		private Future<?> expiration = null;
+		
+		Lease(Lock lock)
+		{
+			this.lock = lock;
+		}
+		
+		@Override
+		public void lock()
+		{
+			this.semaphore.acquireUninterruptibly();
+			
+			boolean locked = false;
+			try
+			{
+				if (!this.isOwned())
+				{
+					this.lock.lock();
+					this.own();
+				}
+				locked = true;
+			}
+			finally
+			{
+				if (!locked)
+				{
+					this.semaphore.release();
+				}
+			}
+		}
+
+		@Override
+		public void lockInterruptibly() throws InterruptedException
+		{
+			this.semaphore.acquire();
+			
+			boolean locked = false;
+			try
+			{
+				if (!this.isOwned())
+				{
+					this.lock.lockInterruptibly();
+					this.own();
+				}
+				locked = true;
+			}
+			finally
+			{
+				if (!locked)
+				{
+					this.semaphore.release();
+				}
+			}
+		}
+
+		@Override
+		public boolean tryLock()
+		{
+			if (!this.semaphore.tryAcquire()) return false;
+			
+			boolean locked = false;
+			try
+			{
+				locked = this.isOwned();
+				
+				if (!locked && this.lock.tryLock())
+				{
+					this.own();
+					locked = true;
+				}
+			}
+			finally
+			{
+				if (!locked)
+				{
+					this.semaphore.release();
+				}
+			}
+			return locked;
+		}
+
+		@Override
+		public boolean tryLock(long time, TimeUnit unit) throws InterruptedException
+		{
+			long stop = System.nanoTime() + unit.toNanos(time);
+			
+			if (!this.semaphore.tryAcquire(time, unit)) return false;
+			
+			boolean locked = false;
+			try
+			{
+				locked = this.isOwned();
+				
+				if (!locked && this.lock.tryLock(Math.max(stop - System.nanoTime(), 0L), TimeUnit.NANOSECONDS))
+				{
+					this.own();
+					locked = true;
+				}
+			}
+			finally
+			{
+				if (!locked)
+				{
+					this.semaphore.release();
+				}
+			}
+			return locked;
+		}
+
+		@Override
+		public void unlock()
+		{
+			this.semaphore.release();
+			
+			// If revoked while in use, relinquish the lease now
+			if (this.isRevoked())
+			{
+				this.release();
+			}
+		}
+
+		@Override
+		public Condition newCondition()
+		{
+			throw new UnsupportedOperationException();
+		}
+		
+		/**
+		 * Indicates whether this lease is owned, while holding the semaphore.
+		 * A revoked lease is relinquished first, so that it is reacquired in competition with other members.
+		 */
+		private boolean isOwned()
+		{
+			boolean owned = false;
+			synchronized (this)
+			{
+				if (this.owned && !this.revoked) return true;
+				
+				owned = this.disown();
+			}
+			if (owned)
+			{
+				this.lock.unlock();
+			}
+			return false;
+		}
+		
+		private synchronized boolean isRevoked()
+		{
+			return this.revoked;
+		}
+		
+		private synchronized void own()
+		{
+			this.owned = true;
+			
+			ScheduledExecutorService scheduler = DistributedLockManager.this.scheduler;
+			if (scheduler != null)
+			{
+				try
+				{
+					this.expiration = scheduler.schedule(this, DistributedLockManager.this.leaseDuration, TimeUnit.MILLISECONDS);
+				}
+				catch (RejectedExecutionException e)
+				{
+					// We are stopping, which relinquishes all leases anyway
+				}
+			}
+		}
+		
+		// Must be called while holding this monitor
+		private boolean disown()
+		{
+			boolean owned = this.owned;
+			this.owned = false;
+			this.revoked = false;
+			if (this.expiration != null)
+			{
+				this.expiration.cancel(false);
+				this.expiration = null;
+			}
+			return owned;
+		}
+		
+		/**
+		 * Relinquishes this lease, if it is not in use.
+		 */
+		private void release()
+		{
+			if (this.semaphore.tryAcquire())
+			{
+				try
+				{
+					boolean owned = false;
+					synchronized (this)
+					{
+						owned = this.disown();
+					}
+					if (owned)
+					{
+						this.lock.unlock();
+					}
+				}
+				finally
+				{
+					this.semaphore.release();
+				}
+			}
+		}
+		
+		/**
+		 * Revokes this lease, relinquishing it immediately if not in use, or otherwise once unlocked.
+		 */
+		void revoke()
+		{
+			synchronized (this)
+			{
+				if (!this.owned) return;
+				
+				this.revoked = true;
+			}
+			this.release();
+		}
+
+		/**
+		 * Expires this lease.
+		 */
+		@Override
+		public void run()
+		{
+			this.revoke();
+		}
+	}
+	
 	private static class DistributedLock implements Lock
 	{
-		private static final int[] BACKOFF_INTERVALS = new int[] { 1, 10, 100 };
-		private final RemoteLockDescriptor descriptor;
+		private final List<RemoteLockDescriptor> descriptors;
 		private final Lock lock;
 		private final CommandDispatcher<LockCommandContext> dispatcher;
+		private final boolean leased;
 		
-		DistributedLock(RemoteLockDescriptor descriptor, Lock lock, CommandDispatcher<LockCommandContext> dispatcher)
+		DistributedLock(List<RemoteLockDescriptor> descriptors, Lock lock, CommandDispatcher<LockCommandContext> dispatcher, boolean leased)
 		{
-			this.descriptor = descriptor;
+			this.descriptors = descriptors;
 			this.lock = lock;
 			this.dispatcher = dispatcher;
+			this.leased = leased;
 		}
 		
-		private static void sleep(int retry) throws InterruptedException
+		private Command<Boolean, LockCommandContext> createAcquireCommand(long timeout)
+		{
+			return (this.descriptors.size() == 1) ? new AcquireLockCommand(this.descriptors.get(0), timeout) : new AcquireLocksCommand(this.descriptors, timeout);
+		}
+		
+		private Command<Void, LockCommandContext> createReleaseCommand()
+		{
+			return (this.descriptors.size() == 1) ? new ReleaseLockCommand(this.descriptors.get(0)) : new ReleaseLocksCommand(this.descriptors);
+		}
+		
+		/**
+		 * Prepares to retry a failed acquisition.
+		 * If locks are leased, requests that any member holding a lease on our locks relinquish it.
+		 */
+		private void backoff(int retry) throws InterruptedException
 		{
 			if (retry > 0)
 			{
-				Thread.sleep(BACKOFF_INTERVALS[Math.min(retry, BACKOFF_INTERVALS.length) - 1]);
+				if (this.leased)
+				{
+					this.revokeLeases();
+				}
+				DistributedLockManager.backoff(retry);
+			}
+		}
+		
+		/**
+		 * If locks are leased, attempts to acquire our local lock without blocking, and otherwise revokes any conflicting lease,
+		 * which would otherwise block the subsequent acquisition until it expires.
+		 */
+		private boolean tryLockLeased()
+		{
+			if (!this.leased) return false;
+			
+			if (this.lock.tryLock()) return true;
+			
+			this.revokeLeases();
+			return false;
+		}
+		
+		private void revokeLeases()
+		{
+			Command<Void, LockCommandContext> command = new RevokeLeasesCommand(this.descriptors);
+			try
+			{
+				Map<Member, CommandResponse<Void>> responses = this.dispatcher.executeAll(command);
+				for (Map.Entry<Member, CommandResponse<Void>> entry: responses.entrySet())
+				{
+					readResponse(command, entry.getKey(), entry.getValue(), null);
+				}
+			}
+			catch (Exception e)
+			{
+				logger.log(Level.WARN, e, messages.sendCommandToClusterFailed(command));
 			}
 		}
 		
@@ -280,7 +752,7 @@ public class DistributedLockManager implements LockManager, LockCommandContext,
 			{
 				try
 				{
-					sleep(retry);
+					this.backoff(retry);
 				}
 				catch (InterruptedException e)
 				{
@@ -291,7 +763,10 @@ public class DistributedLockManager implements LockManager, LockCommandContext,
 				
 				if (this.dispatcher.getLocal().equals(coordinator))
 				{
-					this.lock.lock();
+					if (!this.tryLockLeased())
+					{
+						this.lock.lock();
+					}
 					
 					try
 					{
@@ -322,13 +797,16 @@ public class DistributedLockManager implements LockManager, LockCommandContext,
 			
 			while (!locked)
 			{
-				sleep(retry);
+				this.backoff(retry);
 				
 				Member coordinator = this.dispatcher.getCoordinator();
 				
 				if (this.dispatcher.getLocal().equals(coordinator))
 				{
-					this.lock.lockInterruptibly();
+					if (!this.tryLockLeased())
+					{
+						this.lock.lockInterruptibly();
+					}
 					
 					try
 					{
@@ -364,9 +842,9 @@ public class DistributedLockManager implements LockManager, LockCommandContext,
 			
 			try
 			{
-				while (!locked && (retry <= BACKOFF_INTERVALS.length))
+				while (!locked && (retry <= MAX_RETRIES))
 				{
-					sleep(retry);
+					this.backoff(retry);
 					
 					Member coordinator = this.dispatcher.getCoordinator();
 					
@@ -416,13 +894,13 @@ public class DistributedLockManager implements LockManager, LockCommandContext,
 			{
 				while (!locked && (now <= stop))
 				{
-					sleep(retry);
+					this.backoff(retry);
 					
 					Member coordinator = this.dispatcher.getCoordinator();
 					long timeout = stop - now;
 					if (this.dispatcher.getLocal().equals(coordinator))
 					{
-						if (this.lock.tryLock(timeout, TimeUnit.MILLISECONDS))
+						if (this.tryLockLeased() || this.lock.tryLock(timeout, TimeUnit.MILLISECONDS))
 						{
 							try
 							{
@@ -475,7 +953,7 @@ public class DistributedLockManager implements LockManager, LockCommandContext,
 		
 		private boolean lockMembers(Member coordinator)
 		{
-			Command<Boolean, LockCommandContext> command = new AcquireLockCommand(this.descriptor, 0);
+			Command<Boolean, LockCommandContext> command = this.createAcquireCommand(0);
 			try
 			{
 				Map<Member, CommandResponse<Boolean>> results = this.dispatcher.executeAll(command, coordinator);
@@ -511,10 +989,18 @@ public class DistributedLockManager implements LockManager, LockCommandContext,
 		
 		private boolean lockCoordinator(Member coordinator, long timeout)
 		{
-			Command<Boolean, LockCommandContext> command = new AcquireLockCommand(this.descriptor, timeout);
+			if (this.leased && (timeout > 0))
+			{
+				// Avoid blocking on a conflicting lease until it expires
+				if (this.lockCoordinator(coordinator, 0)) return true;
+				
+				this.revokeLeases();
+			}
+			
+			Command<Boolean, LockCommandContext> command = this.createAcquireCommand(timeout);
 			try
 			{
-				CommandResponse<Boolean> response = this.dispatcher.execute(new AcquireLockCommand(this.descriptor, timeout), coordinator);
+				CommandResponse<Boolean> response = this.dispatcher.execute(command, coordinator);
 				return readAcquireResponse(command, coordinator, response);
 			}
 			catch (Exception e)
@@ -548,7 +1034,7 @@ public class DistributedLockManager implements LockManager, LockCommandContext,
 		
 		private void unlockMembers(Member... excluded)
 		{
-			Command<Void, LockCommandContext> command = new ReleaseLockCommand(this.descriptor);
+			Command<Void, LockCommandContext> command = this.createReleaseCommand();
 			try
 			{
 				Map<Member, CommandResponse<Void>> responses = this.dispatcher.executeAll(command, excluded);
@@ -565,7 +1051,7 @@ public class DistributedLockManager implements LockManager, LockCommandContext,
 
 		private void unlock(Member member)
 		{
-			Command<Void, LockCommandContext> command = new ReleaseLockCommand(this.descriptor);
+			Command<Void, LockCommandContext> command = this.createReleaseCommand();
 			try
 			{
 				CommandResponse<Void> response = this.dispatcher.execute(command, member);
@@ -602,7 +1088,7 @@ public class DistributedLockManager implements LockManager, LockCommandContext,
 		}
 	}
 	
-	private static class RemoteLockDescriptorImpl implements RemoteLockDescriptor
+	static class RemoteLockDescriptorImpl implements RemoteLockDescriptor
 	{
 		private static final long serialVersionUID = 1950781245453120790L;
 		
@@ -0,0 +1,99 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.lock.distributed;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import net.sf.hajdbc.distributed.Member;
+
+/**
+ * Immutable consistent hash of lock identifiers to the members of a group view.
+ * Each member occupies a number of points on the ring, derived from its hash code,
+ * such that a membership change only reassigns the locks owned by the departed or joining member.
+ * Members of the same view must therefore compute the same hash code for a given member.
+ * @author Paul Ferraro
+ */
+class HashRing
+{
+	// Number of points per member, to even out the distribution of locks
+	private static final int POINTS = 64;
+	
+	private final int[] hashes;
+	private final Member[] members;
+	
+	HashRing(Collection<Member> view)
+	{
+		long[] points = new long[view.size() * POINTS];
+		Member[] members = view.toArray(new Member[view.size()]);
+		// Sort members, so that point collisions are resolved identically by all members
+		Arrays.sort(members);
+		
+		int index = 0;
+		for (int i = 0; i < members.length; ++i)
+		{
+			int hash = mix(members[i].hashCode());
+			for (int j = 0; j < POINTS; ++j)
+			{
+				// Pack each point with the index of its member, so that points sort by hash
+				points[index++] = ((long) mix(hash + j * 0x9E3779B9) << 32) | i;
+			}
+		}
+		Arrays.sort(points);
+		
+		this.hashes = new int[points.length];
+		this.members = new Member[points.length];
+		for (int i = 0; i < points.length; ++i)
+		{
+			this.hashes[i] = (int) (points[i] >> 32);
+			this.members[i] = members[(int) points[i]];
+		}
+	}
+	
+	/**
+	 * Returns the member that owns the specified lock.
+	 * @param id a lock identifier
+	 * @return a group member, or null, if this ring is empty
+	 */
+	Member locate(String id)
+	{
+		if (this.hashes.length == 0) return null;
+		
+		int index = Arrays.binarySearch(this.hashes, mix(id.hashCode()));
+		if (index < 0)
+		{
+			index = -(index + 1);
+		}
+		// Wrap around the ring
+		return this.members[(index < this.hashes.length) ? index : 0];
+	}
+	
+	/**
+	 * Scrambles the bits of a hash code (i.e. the murmur3 finalizer), since neither member nor string hash codes are well distributed.
+	 */
+	private static int mix(int hash)
+	{
+		int h = hash;
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return h;
+	}
+}
@@ -0,0 +1,236 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.lock.distributed;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.hajdbc.distributed.BinaryCommandCodec;
+import net.sf.hajdbc.distributed.CommandMarshaller;
+import net.sf.hajdbc.distributed.Member;
+
+/**
+ * Compact binary codec for lock commands.
+ * @author Paul Ferraro
+ */
+public class LockCommandCodec extends BinaryCommandCodec<LockCommandContext>
+{
+	public LockCommandCodec()
+	{
+		this.register(new AcquireLockCommandMarshaller());
+		this.register(new ReleaseLockCommandMarshaller());
+		this.register(new AcquireLocksCommandMarshaller());
+		this.register(new ReleaseLocksCommandMarshaller());
+		this.register(new RevokeLeasesCommandMarshaller());
+		this.register(new TransferLockCommandMarshaller());
+		this.register(new RebalancedCommandMarshaller());
+	}
+	
+	static void writeDescriptor(DataOutput output, LockDescriptor descriptor) throws IOException
+	{
+		// The global lock has no id
+		writeObject(output, descriptor.getId());
+		writeEnum(output, descriptor.getType());
+	}
+	
+	static RemoteLockDescriptor readDescriptor(DataInput input, Member sender) throws IOException
+	{
+		String id = (String) readObject(input);
+		LockType type = readEnum(input, LockType.values());
+		return new DistributedLockManager.RemoteLockDescriptorImpl(id, type, sender);
+	}
+	
+	static void writeDescriptors(DataOutput output, List<RemoteLockDescriptor> descriptors) throws IOException
+	{
+		output.writeInt(descriptors.size());
+		for (RemoteLockDescriptor descriptor: descriptors)
+		{
+			writeDescriptor(output, descriptor);
+		}
+	}
+	
+	static List<RemoteLockDescriptor> readDescriptors(DataInput input, Member sender) throws IOException
+	{
+		int size = input.readInt();
+		List<RemoteLockDescriptor> descriptors = new ArrayList<>(size);
+		for (int i = 0; i < size; ++i)
+		{
+			descriptors.add(readDescriptor(input, sender));
+		}
+		return descriptors;
+	}
+	
+	static class AcquireLockCommandMarshaller implements CommandMarshaller<LockCommandContext, AcquireLockCommand>
+	{
+		@Override
+		public Class<AcquireLockCommand> getCommandClass()
+		{
+			return AcquireLockCommand.class;
+		}
+
+		@Override
+		public void write(DataOutput output, AcquireLockCommand command) throws IOException
+		{
+			writeDescriptor(output, command.getDescriptor());
+			output.writeLong(command.getTimeout());
+			output.writeLong(command.getView());
+		}
+
+		@Override
+		public AcquireLockCommand read(DataInput input, Member sender) throws IOException
+		{
+			RemoteLockDescriptor descriptor = readDescriptor(input, sender);
+			long timeout = input.readLong();
+			return new AcquireLockCommand(descriptor, timeout, input.readLong());
+		}
+	}
+	
+	static class ReleaseLockCommandMarshaller implements CommandMarshaller<LockCommandContext, ReleaseLockCommand>
+	{
+		@Override
+		public Class<ReleaseLockCommand> getCommandClass()
+		{
+			return ReleaseLockCommand.class;
+		}
+
+		@Override
+		public void write(DataOutput output, ReleaseLockCommand command) throws IOException
+		{
+			writeDescriptor(output, command.getDescriptor());
+		}
+
+		@Override
+		public ReleaseLockCommand read(DataInput input, Member sender) throws IOException
+		{
+			return new ReleaseLockCommand(readDescriptor(input, sender));
+		}
+	}
+	
+	static class AcquireLocksCommandMarshaller implements CommandMarshaller<LockCommandContext, AcquireLocksCommand>
+	{
+		@Override
+		public Class<AcquireLocksCommand> getCommandClass()
+		{
+			return AcquireLocksCommand.class;
+		}
+
+		@Override
+		public void write(DataOutput output, AcquireLocksCommand command) throws IOException
+		{
+			writeDescriptors(output, command.getDescriptors());
+			output.writeLong(command.getTimeout());
+		}
+
+		@Override
+		public AcquireLocksCommand read(DataInput input, Member sender) throws IOException
+		{
+			List<RemoteLockDescriptor> descriptors = readDescriptors(input, sender);
+			return new AcquireLocksCommand(descriptors, input.readLong());
+		}
+	}
+	
+	static class ReleaseLocksCommandMarshaller implements CommandMarshaller<LockCommandContext, ReleaseLocksCommand>
+	{
+		@Override
+		public Class<ReleaseLocksCommand> getCommandClass()
+		{
+			return ReleaseLocksCommand.class;
+		}
+
+		@Override
+		public void write(DataOutput output, ReleaseLocksCommand command) throws IOException
+		{
+			writeDescriptors(output, command.getDescriptors());
+		}
+
+		@Override
+		public ReleaseLocksCommand read(DataInput input, Member sender) throws IOException
+		{
+			return new ReleaseLocksCommand(readDescriptors(input, sender));
+		}
+	}
+	
+	static class RevokeLeasesCommandMarshaller implements CommandMarshaller<LockCommandContext, RevokeLeasesCommand>
+	{
+		@Override
+		public Class<RevokeLeasesCommand> getCommandClass()
+		{
+			return RevokeLeasesCommand.class;
+		}
+
+		@Override
+		public void write(DataOutput output, RevokeLeasesCommand command) throws IOException
+		{
+			writeDescriptors(output, command.getDescriptors());
+		}
+
+		@Override
+		public RevokeLeasesCommand read(DataInput input, Member sender) throws IOException
+		{
+			return new RevokeLeasesCommand(readDescriptors(input, sender));
+		}
+	}
+	
+	static class TransferLockCommandMarshaller implements CommandMarshaller<LockCommandContext, TransferLockCommand>
+	{
+		@Override
+		public Class<TransferLockCommand> getCommandClass()
+		{
+			return TransferLockCommand.class;
+		}
+
+		@Override
+		public void write(DataOutput output, TransferLockCommand command) throws IOException
+		{
+			writeDescriptor(output, command.getDescriptor());
+			output.writeLong(command.getTimeout());
+		}
+
+		@Override
+		public TransferLockCommand read(DataInput input, Member sender) throws IOException
+		{
+			RemoteLockDescriptor descriptor = readDescriptor(input, sender);
+			return new TransferLockCommand(descriptor, input.readLong());
+		}
+	}
+	
+	static class RebalancedCommandMarshaller implements CommandMarshaller<LockCommandContext, RebalancedCommand>
+	{
+		@Override
+		public Class<RebalancedCommand> getCommandClass()
+		{
+			return RebalancedCommand.class;
+		}
+
+		@Override
+		public void write(DataOutput output, RebalancedCommand command) throws IOException
+		{
+			// The member is always the sender
+			output.writeLong(command.getView());
+		}
+
+		@Override
+		public RebalancedCommand read(DataInput input, Member sender) throws IOException
+		{
+			return new RebalancedCommand(sender, input.readLong());
+		}
+	}
+}
@@ -17,9 +17,11 @@
  */
 package net.sf.hajdbc.lock.distributed;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.Lock;
 
+import net.sf.hajdbc.distributed.Member;
 import net.sf.hajdbc.distributed.Remote;
 
 /**
@@ -31,4 +33,27 @@ public interface LockCommandContext
 	Lock getLock(LockDescriptor descriptor);
 	
 	Map<LockDescriptor, Lock> getRemoteLocks(Remote remote);
+	
+	/**
+	 * Asynchronously relinquishes any lease held by the local member on the specified locks.
+	 * A lock with a null id conflicts with, and thus revokes, all leases.
+	 * @param descriptors a list of lock descriptors
+	 */
+	void revokeLeases(List<? extends LockDescriptor> descriptors);
+	
+	/**
+	 * Indicates whether ownership of the specified lock is being reassigned following a membership change,
+	 * or was assigned within a view other than the specified view of the requester, in which case the lock must not yet be granted.
+	 * @param descriptor a lock descriptor
+	 * @param view the id of the group view within which the requester located the owner of the lock
+	 * @return true, if the lock is being rebalanced, false otherwise
+	 */
+	boolean isRebalancing(LockDescriptor descriptor, long view);
+	
+	/**
+	 * Indicates that the specified member has transferred the locks it holds to their owners within the specified view.
+	 * @param member a group member
+	 * @param view the id of a group view
+	 */
+	void rebalanced(Member member, long view);
 }
@@ -0,0 +1,641 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.lock.distributed;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.sf.hajdbc.Database;
+import net.sf.hajdbc.DatabaseCluster;
+import net.sf.hajdbc.distributed.Command;
+import net.sf.hajdbc.distributed.CommandDispatcherFactory;
+import net.sf.hajdbc.distributed.CommandResponse;
+import net.sf.hajdbc.distributed.Member;
+import net.sf.hajdbc.distributed.ViewListener;
+import net.sf.hajdbc.lock.MultiLock;
+import net.sf.hajdbc.logging.Level;
+
+/**
+ * Distributed lock manager that partitions named write locks across group members using a consistent hash of the current view.
+ * A named write lock is only held by its owner, and is acquired via a single command to that owner.
+ * The global write lock is still acquired on all group members.
+ * When the view changes, each member transfers the locks it holds to their new owners.
+ * No member grants a named lock until every member has done so, nor to a member that located its owner within a different view.
+ * Views are identified by the view id reported by the command dispatcher, which must therefore notify its membership listener of each new {@link ViewListener view}.
+ * @author Paul Ferraro
+ */
+public class PartitionedLockManager extends DistributedLockManager implements ViewListener
+{
+	// Number of milliseconds to wait for the new owner of a lock to accept its transfer
+	private static final long TRANSFER_TIMEOUT = 1000;
+	// Identifies the view prior to joining a group
+	private static final long NO_VIEW = -1;
+
+	// The owners of the named locks held by this member
+	private final ConcurrentMap<String, Member> owners = new ConcurrentHashMap<>();
+	// Prevents the hash ring from changing while we record the owner of a newly acquired lock
+	private final ReadWriteLock ownershipLock = new ReentrantReadWriteLock();
+	// The members of the current view, its id, and the last view rebalanced by each member, guarded by this.members
+	private final Set<Member> members = new TreeSet<>();
+	private final Map<Member, Long> rebalancedViews = new HashMap<>();
+	private long view = NO_VIEW;
+	private final ThreadFactory threadFactory;
+	// The owners of named locks, within the last view rebalanced by this member
+	private volatile Partition partition = new Partition(NO_VIEW, Collections.<Member>emptySet());
+	private volatile ExecutorService executor;
+
+	public <Z, D extends Database<Z>> PartitionedLockManager(DatabaseCluster<Z, D> cluster, CommandDispatcherFactory dispatcherFactory) throws Exception
+	{
+		super(cluster, dispatcherFactory);
+		this.threadFactory = cluster.getThreadFactory();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Named write locks are acquired from their owner only, and are never leased.
+	 * @see net.sf.hajdbc.lock.distributed.DistributedLockManager#writeLock(java.lang.String)
+	 */
+	@Override
+	public Lock writeLock(String id)
+	{
+		return (id != null) ? new PartitionedLock(id) : super.writeLock(id);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Since each named lock may have a different owner, locks are acquired individually, in order.
+	 * @see net.sf.hajdbc.lock.distributed.DistributedLockManager#writeLocks(java.util.SortedSet)
+	 */
+	@Override
+	public Lock writeLocks(SortedSet<String> ids)
+	{
+		List<Lock> locks = new ArrayList<>(ids.size());
+		for (String id: ids)
+		{
+			locks.add(this.writeLock(id));
+		}
+		return new MultiLock(locks);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.lock.distributed.DistributedLockManager#start()
+	 */
+	@Override
+	public void start() throws SQLException
+	{
+		// Membership changes may be reported as soon as the dispatcher starts
+		this.executor = (this.threadFactory != null) ? Executors.newSingleThreadExecutor(this.threadFactory) : Executors.newSingleThreadExecutor();
+		super.start();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.lock.distributed.DistributedLockManager#stop()
+	 */
+	@Override
+	public void stop()
+	{
+		ExecutorService executor = this.executor;
+		if (executor != null)
+		{
+			this.executor = null;
+			executor.shutdownNow();
+		}
+		super.stop();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.lock.distributed.DistributedLockManager#isRebalancing(net.sf.hajdbc.lock.distributed.LockDescriptor, long)
+	 */
+	@Override
+	public boolean isRebalancing(LockDescriptor descriptor, long view)
+	{
+		// The global lock is held by all members
+		if (descriptor.getId() == null) return false;
+
+		synchronized (this.members)
+		{
+			// The requester may have located a different owner
+			if (view != this.view) return true;
+
+			for (Member member: this.members)
+			{
+				Long rebalancedView = this.rebalancedViews.get(member);
+				if ((rebalancedView == null) || (rebalancedView.longValue() != view))
+				{
+					return true;
+				}
+			}
+			// Some member already rebalanced a view we have yet to see, and may have transferred this lock to its new owner
+			for (Long rebalancedView: this.rebalancedViews.values())
+			{
+				if (rebalancedView.longValue() > view)
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.lock.distributed.DistributedLockManager#rebalanced(net.sf.hajdbc.distributed.Member, long)
+	 */
+	@Override
+	public void rebalanced(Member member, long view)
+	{
+		synchronized (this.members)
+		{
+			// A member may rebalance a view before we have seen it
+			Long rebalancedView = this.rebalancedViews.get(member);
+			if ((rebalancedView == null) || (rebalancedView.longValue() < view))
+			{
+				this.rebalancedViews.put(member, view);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Each member retains the locks it owns across view changes, so there is no state to transfer.
+	 * @see net.sf.hajdbc.lock.distributed.DistributedLockManager#writeState(java.io.ObjectOutput)
+	 */
+	@Override
+	public void writeState(ObjectOutput output) throws IOException
+	{
+		output.writeInt(0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.lock.distributed.DistributedLockManager#readState(java.io.ObjectInput)
+	 */
+	@Override
+	public void readState(ObjectInput input) throws IOException
+	{
+		input.readInt();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.distributed.ViewListener#viewChanged(long, java.util.Set)
+	 */
+	@Override
+	public void viewChanged(long view, Set<Member> members)
+	{
+		synchronized (this.members)
+		{
+			for (Member member: this.members)
+			{
+				if (!members.contains(member))
+				{
+					this.rebalancedViews.remove(member);
+				}
+			}
+			this.members.clear();
+			this.members.addAll(members);
+			this.view = view;
+
+			this.rebalance(view, new TreeSet<>(members));
+		}
+	}
+
+	/**
+	 * Schedules the transfer of our locks to their owners within the specified view.
+	 * Must be called while holding the monitor of {@link #members}.
+	 */
+	private void rebalance(final long view, final Set<Member> members)
+	{
+		ExecutorService executor = this.executor;
+		if (executor != null)
+		{
+			try
+			{
+				executor.execute(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						PartitionedLockManager.this.rebalance(new Partition(view, members));
+					}
+				});
+			}
+			catch (RejectedExecutionException e)
+			{
+				// We are stopping
+			}
+		}
+	}
+
+	/**
+	 * Transfers each lock held by this member to its owner within the view of the specified partition, then notifies the group.
+	 * The group is not notified unless every lock was transferred, which is retried until the view is superseded, in which case the next rebalance resumes the transfers.
+	 * The copies of transferred locks held by their previous owners are only released once the group was notified,
+	 * so that a previous owner, if not yet aware of the new view, refuses members still locating the lock within a prior view.
+	 * Runs on a single thread, in order of view changes.
+	 * @return true, if the group was notified, false otherwise
+	 */
+	boolean rebalance(Partition partition)
+	{
+		Member local = this.dispatcher.getLocal();
+		long view = partition.getView();
+		// The previous owners of the locks transferred
+		Map<String, Member> transferred = new HashMap<>();
+
+		try
+		{
+			Lock lock = this.ownershipLock.writeLock();
+			lock.lock();
+			try
+			{
+				this.partition = partition;
+
+				for (Map.Entry<String, Member> entry: this.owners.entrySet())
+				{
+					Member previous = entry.getValue();
+					Member owner = partition.locate(entry.getKey());
+
+					if ((owner != null) && !owner.equals(previous))
+					{
+						// Other members will not grant locks within this view until we have rebalanced, so we must not claim to have done so
+						if (!this.transfer(new RemoteLockDescriptorImpl(entry.getKey(), LockType.WRITE, local), owner, view)) return false;
+
+						entry.setValue(owner);
+
+						if (partition.contains(previous))
+						{
+							transferred.put(entry.getKey(), previous);
+						}
+					}
+				}
+			}
+			finally
+			{
+				lock.unlock();
+			}
+
+			this.rebalanced(local, view);
+
+			Command<Void, LockCommandContext> command = new RebalancedCommand(local, view);
+			int retry = 0;
+			boolean sent = false;
+
+			// Other members will not grant locks until notified
+			while (!sent && this.isCurrent(view))
+			{
+				try
+				{
+					backoff(retry);
+
+					Map<Member, CommandResponse<Void>> responses = this.dispatcher.executeAll(command, local);
+					for (Map.Entry<Member, CommandResponse<Void>> entry: responses.entrySet())
+					{
+						read(command, entry.getKey(), entry.getValue(), null);
+					}
+					sent = true;
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					return false;
+				}
+				catch (Exception e)
+				{
+					logger.log(Level.WARN, e, messages.sendCommandToClusterFailed(command));
+				}
+				retry += 1;
+			}
+			return sent;
+		}
+		finally
+		{
+			for (Map.Entry<String, Member> entry: transferred.entrySet())
+			{
+				this.execute(new ReleaseLockCommand(new RemoteLockDescriptorImpl(entry.getKey(), LockType.WRITE, local)), entry.getValue(), null);
+			}
+		}
+	}
+
+	/**
+	 * Acquires the specified lock, already held by this member, from its new owner within the specified view.
+	 * The new owner will not grant this lock to any other member until we have rebalanced, so this should not contend.
+	 * @return true, if the lock was transferred, false if the view was superseded, e.g. because the new owner left the group
+	 */
+	private boolean transfer(RemoteLockDescriptor descriptor, Member owner, long view)
+	{
+		Command<Boolean, LockCommandContext> command = new TransferLockCommand(descriptor, TRANSFER_TIMEOUT);
+		int retry = 0;
+
+		while (this.isCurrent(view))
+		{
+			try
+			{
+				backoff(retry);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				return false;
+			}
+
+			if (this.execute(command, owner, Boolean.FALSE))
+			{
+				return true;
+			}
+
+			retry += 1;
+		}
+		return false;
+	}
+
+	private boolean isCurrent(long view)
+	{
+		synchronized (this.members)
+		{
+			return this.view == view;
+		}
+	}
+
+	/**
+	 * Executes the specified command on the specified member, directly if the member is local.
+	 */
+	<R> R execute(Command<R, LockCommandContext> command, Member member, R failureResult)
+	{
+		if (member.equals(this.dispatcher.getLocal()))
+		{
+			return command.execute(this);
+		}
+
+		try
+		{
+			return read(command, member, this.dispatcher.execute(command, member), failureResult);
+		}
+		catch (Exception e)
+		{
+			logger.log(Level.WARN, e, messages.sendCommandToMemberFailed(command, member));
+			return failureResult;
+		}
+	}
+
+	private static <R> R read(Command<R, LockCommandContext> command, Member member, CommandResponse<R> response, R failureResult)
+	{
+		try
+		{
+			return response.get();
+		}
+		catch (Exception e)
+		{
+			logger.log(Level.WARN, e, messages.executeCommandFailed(command, member));
+			return failureResult;
+		}
+	}
+
+	/**
+	 * Assigns named locks to their owners within a given view.
+	 */
+	static class Partition
+	{
+		private final long view;
+		private final Set<Member> members;
+		private final HashRing ring;
+
+		Partition(long view, Set<Member> members)
+		{
+			this.view = view;
+			this.members = members;
+			this.ring = new HashRing(members);
+		}
+
+		long getView()
+		{
+			return this.view;
+		}
+
+		boolean contains(Member member)
+		{
+			return this.members.contains(member);
+		}
+
+		Member locate(String id)
+		{
+			return this.ring.locate(id);
+		}
+	}
+
+	/**
+	 * A named write lock, held only by its owner.
+	 */
+	private class PartitionedLock implements Lock
+	{
+		private final RemoteLockDescriptor descriptor;
+
+		PartitionedLock(String id)
+		{
+			this.descriptor = new RemoteLockDescriptorImpl(id, LockType.WRITE, PartitionedLockManager.this.dispatcher.getLocal());
+		}
+
+		/**
+		 * Attempts to acquire this lock from its owner within the current view.
+		 */
+		private boolean acquire(long timeout)
+		{
+			PartitionedLockManager manager = PartitionedLockManager.this;
+			String id = this.descriptor.getId();
+			Partition partition = manager.partition;
+			Member owner = partition.locate(id);
+
+			if (owner == null)
+			{
+				// We have not yet joined a group
+				owner = manager.dispatcher.getLocal();
+			}
+
+			// The owner refuses, unless it located itself within the same view
+			if (!manager.execute(new AcquireLockCommand(this.descriptor, timeout, partition.getView()), owner, Boolean.FALSE))
+			{
+				return false;
+			}
+
+			Lock lock = manager.ownershipLock.readLock();
+			lock.lock();
+			try
+			{
+				if (manager.partition == partition)
+				{
+					manager.owners.put(id, owner);
+					return true;
+				}
+			}
+			finally
+			{
+				lock.unlock();
+			}
+
+			// Ownership was reassigned while we were acquiring
+			manager.execute(new ReleaseLockCommand(this.descriptor), owner, null);
+			return false;
+		}
+
+		@Override
+		public void lock()
+		{
+			boolean locked = false;
+			int retry = 0;
+
+			while (!locked)
+			{
+				try
+				{
+					backoff(retry);
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+
+				locked = this.acquire(Long.MAX_VALUE);
+
+				retry += 1;
+			}
+		}
+
+		@Override
+		public void lockInterruptibly() throws InterruptedException
+		{
+			boolean locked = false;
+			int retry = 0;
+
+			while (!locked)
+			{
+				backoff(retry);
+
+				locked = this.acquire(Long.MAX_VALUE);
+
+				if (Thread.interrupted())
+				{
+					if (locked)
+					{
+						this.unlock();
+					}
+					throw new InterruptedException();
+				}
+
+				retry += 1;
+			}
+		}
+
+		@Override
+		public boolean tryLock()
+		{
+			boolean locked = false;
+			int retry = 0;
+
+			try
+			{
+				while (!locked && (retry <= MAX_RETRIES))
+				{
+					backoff(retry);
+
+					locked = this.acquire(0);
+
+					retry += 1;
+				}
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+
+			return locked;
+		}
+
+		@Override
+		public boolean tryLock(long time, TimeUnit unit) throws InterruptedException
+		{
+			boolean locked = false;
+			long start = System.currentTimeMillis();
+			long stop = start + TimeUnit.MILLISECONDS.convert(time, unit);
+			long now = start;
+			int retry = 0;
+
+			while (!locked && (now <= stop))
+			{
+				backoff(retry);
+
+				locked = this.acquire(Math.max(stop - System.currentTimeMillis(), 0));
+
+				now = System.currentTimeMillis();
+				retry += 1;
+			}
+			return locked;
+		}
+
+		@Override
+		public void unlock()
+		{
+			PartitionedLockManager manager = PartitionedLockManager.this;
+			Member owner = null;
+
+			Lock lock = manager.ownershipLock.readLock();
+			lock.lock();
+			try
+			{
+				owner = manager.owners.remove(this.descriptor.getId());
+			}
+			finally
+			{
+				lock.unlock();
+			}
+
+			if (owner != null)
+			{
+				manager.execute(new ReleaseLockCommand(this.descriptor), owner, null);
+			}
+		}
+
+		@Override
+		public Condition newCondition()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+}
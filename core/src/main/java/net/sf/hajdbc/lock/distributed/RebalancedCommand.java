@@ -0,0 +1,70 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.lock.distributed;
+
+import net.sf.hajdbc.distributed.Command;
+import net.sf.hajdbc.distributed.Member;
+
+/**
+ * Notifies the group that a member has transferred the locks it holds to their owners within a given view.
+ * @author Paul Ferraro
+ */
+public class RebalancedCommand implements Command<Void, LockCommandContext>
+{
+	private static final long serialVersionUID = 6021438794625165807L;
+
+	private final Member member;
+	private final long view;
+	
+	public RebalancedCommand(Member member, long view)
+	{
+		this.member = member;
+		this.view = view;
+	}
+
+	Member getMember()
+	{
+		return this.member;
+	}
+
+	long getView()
+	{
+		return this.view;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.distributed.Command#execute(java.lang.Object)
+	 */
+	@Override
+	public Void execute(LockCommandContext context)
+	{
+		context.rebalanced(this.member, this.view);
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		return String.format("%s(%s, %d)", this.getClass().getSimpleName(), this.member, this.view);
+	}
+}
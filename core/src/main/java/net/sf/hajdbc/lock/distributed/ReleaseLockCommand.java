@@ -37,6 +37,11 @@ public class ReleaseLockCommand implements Command<Void, LockCommandContext>
 		this.descriptor = descriptor;
 	}
 
+	RemoteLockDescriptor getDescriptor()
+	{
+		return this.descriptor;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * @see net.sf.hajdbc.distributed.Command#execute(java.lang.Object)
@@ -0,0 +1,64 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.lock.distributed;
+
+import java.util.List;
+
+import net.sf.hajdbc.distributed.Command;
+
+/**
+ * Revokes any lease held by a group member on a list of locks, so that another member may acquire them.
+ * @author Paul Ferraro
+ */
+public class RevokeLeasesCommand implements Command<Void, LockCommandContext>
+{
+	private static final long serialVersionUID = 2170539284472331627L;
+
+	private final List<RemoteLockDescriptor> descriptors;
+	
+	public RevokeLeasesCommand(List<RemoteLockDescriptor> descriptors)
+	{
+		this.descriptors = descriptors;
+	}
+
+	List<RemoteLockDescriptor> getDescriptors()
+	{
+		return this.descriptors;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.distributed.Command#execute(java.lang.Object)
+	 */
+	@Override
+	public Void execute(LockCommandContext context)
+	{
+		context.revokeLeases(this.descriptors);
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		return String.format("%s(%s)", this.getClass().getSimpleName(), this.descriptors);
+	}
+}
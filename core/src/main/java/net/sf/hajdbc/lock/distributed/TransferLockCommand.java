@@ -0,0 +1,45 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.lock.distributed;
+
+/**
+ * Acquires a lock, already held by the sending group member, on behalf of that member from the new owner of the lock following a membership change.
+ * Unlike {@link AcquireLockCommand}, this command is honored while ownership is being reassigned.
+ * @author Paul Ferraro
+ */
+public class TransferLockCommand extends AcquireLockCommand
+{
+	private static final long serialVersionUID = -3547931650276382016L;
+
+	public TransferLockCommand(RemoteLockDescriptor descriptor, long timeout)
+	{
+		// The sender already holds this lock, so the view of the sender is irrelevant
+		super(descriptor, timeout);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.lock.distributed.AcquireLockCommand#isGrantable(net.sf.hajdbc.lock.distributed.LockCommandContext)
+	 */
+	@Override
+	boolean isGrantable(LockCommandContext context)
+	{
+		// The sender already holds this lock
+		return true;
+	}
+}
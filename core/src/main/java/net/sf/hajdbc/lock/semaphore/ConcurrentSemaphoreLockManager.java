@@ -0,0 +1,288 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.lock.semaphore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.BiFunction;
+
+import net.sf.hajdbc.lock.LockManager;
+import net.sf.hajdbc.lock.MultiLock;
+
+/**
+ * Semaphore-based lock manager that avoids any lock manager-wide monitor.
+ * The global lock is held directly, so obtaining the global read lock requires no lookup at all.
+ * Named locks are looked up via a concurrent map, and are reference counted while locked,
+ * such that a named lock is evicted as soon as it is no longer locked by anyone.
+ * @author Paul Ferraro
+ */
+public class ConcurrentSemaphoreLockManager implements LockManager
+{
+	static final BiFunction<String, LockReference, LockReference> RELEASE = new BiFunction<String, LockReference, LockReference>()
+	{
+		@Override
+		public LockReference apply(String id, LockReference reference)
+		{
+			reference.references -= 1;
+			return (reference.references > 0) ? reference : null;
+		}
+	};
+
+	private final ConcurrentMap<String, LockReference> lockMap = new ConcurrentHashMap<>();
+	private final ReadWriteLock globalLock;
+	private final BiFunction<String, LockReference, LockReference> retain;
+
+	public ConcurrentSemaphoreLockManager(final boolean fair)
+	{
+		this.globalLock = createReadWriteLock(fair);
+		this.retain = new BiFunction<String, LockReference, LockReference>()
+		{
+			@Override
+			public LockReference apply(String id, LockReference reference)
+			{
+				LockReference result = (reference != null) ? reference : new LockReference(createReadWriteLock(fair));
+				result.references += 1;
+				return result;
+			}
+		};
+	}
+
+	static ReadWriteLock createReadWriteLock(boolean fair)
+	{
+		return new SemaphoreReadWriteLock(new Semaphore(Integer.MAX_VALUE, fair));
+	}
+
+	/**
+	 * @see net.sf.hajdbc.lock.LockManager#readLock(java.lang.String)
+	 */
+	@Override
+	public Lock readLock(String object)
+	{
+		Lock lock = this.globalLock.readLock();
+		
+		return (object == null) ? lock : new NamedLock(lock, object, false);
+	}
+
+	/**
+	 * @see net.sf.hajdbc.lock.LockManager#writeLock(java.lang.String)
+	 */
+	@Override
+	public Lock writeLock(String object)
+	{
+		return (object == null) ? this.globalLock.writeLock() : new NamedLock(this.globalLock.readLock(), object, true);
+	}
+
+	/**
+	 * @see net.sf.hajdbc.lock.LockManager#writeLocks(java.util.SortedSet)
+	 */
+	@Override
+	public Lock writeLocks(SortedSet<String> objects)
+	{
+		List<Lock> locks = new ArrayList<>(objects.size());
+		for (String object: objects)
+		{
+			locks.add(this.writeLock(object));
+		}
+		return new MultiLock(locks);
+	}
+
+	/**
+	 * Returns the number of named locks currently in use.
+	 * @return a number of locks
+	 */
+	int size()
+	{
+		return this.lockMap.size();
+	}
+
+	// Obtains a reference to the named lock, creating it if necessary
+	ReadWriteLock retain(String object)
+	{
+		return this.lockMap.compute(object, this.retain).lock;
+	}
+
+	// Returns the named lock to which the caller already holds a reference
+	ReadWriteLock get(String object)
+	{
+		return this.lockMap.get(object).lock;
+	}
+
+	void release(String object)
+	{
+		this.lockMap.computeIfPresent(object, RELEASE);
+	}
+
+	static class LockReference
+	{
+		final ReadWriteLock lock;
+		// Guarded by the map entry
+		int references = 0;
+
+		LockReference(ReadWriteLock lock)
+		{
+			this.lock = lock;
+		}
+	}
+
+	private class NamedLock implements Lock
+	{
+		private final Lock globalLock;
+		private final String object;
+		private final boolean write;
+
+		NamedLock(Lock globalLock, String object, boolean write)
+		{
+			this.globalLock = globalLock;
+			this.object = object;
+			this.write = write;
+		}
+
+		private Lock retain()
+		{
+			return this.select(ConcurrentSemaphoreLockManager.this.retain(this.object));
+		}
+
+		private Lock select(ReadWriteLock lock)
+		{
+			return this.write ? lock.writeLock() : lock.readLock();
+		}
+
+		private void release()
+		{
+			ConcurrentSemaphoreLockManager.this.release(this.object);
+		}
+
+		@Override
+		public void lock()
+		{
+			this.globalLock.lock();
+			
+			try
+			{
+				this.retain().lock();
+			}
+			catch (RuntimeException | Error e)
+			{
+				this.release();
+				this.globalLock.unlock();
+				throw e;
+			}
+		}
+
+		@Override
+		public void lockInterruptibly() throws InterruptedException
+		{
+			this.globalLock.lockInterruptibly();
+			
+			try
+			{
+				this.retain().lockInterruptibly();
+			}
+			catch (InterruptedException | RuntimeException | Error e)
+			{
+				this.release();
+				this.globalLock.unlock();
+				throw e;
+			}
+		}
+
+		@Override
+		public boolean tryLock()
+		{
+			if (this.globalLock.tryLock())
+			{
+				if (this.retain().tryLock())
+				{
+					return true;
+				}
+				
+				this.release();
+				this.globalLock.unlock();
+			}
+			
+			return false;
+		}
+
+		@Override
+		public boolean tryLock(long time, TimeUnit unit) throws InterruptedException
+		{
+			if (this.globalLock.tryLock(time, unit))
+			{
+				boolean locked = false;
+				
+				try
+				{
+					locked = this.retain().tryLock(time, unit);
+				}
+				finally
+				{
+					if (!locked)
+					{
+						this.release();
+						this.globalLock.unlock();
+					}
+				}
+				
+				return locked;
+			}
+			
+			return false;
+		}
+
+		@Override
+		public void unlock()
+		{
+			// The reference obtained when locking guarantees that the lock was not yet evicted
+			this.select(ConcurrentSemaphoreLockManager.this.get(this.object)).unlock();
+			this.release();
+			this.globalLock.unlock();
+		}
+
+		@Override
+		public Condition newCondition()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * @see net.sf.hajdbc.Lifecycle#start()
+	 */
+	@Override
+	public void start()
+	{
+		// Do nothing
+	}
+
+	/**
+	 * @see net.sf.hajdbc.Lifecycle#stop()
+	 */
+	@Override
+	public void stop()
+	{
+		this.lockMap.clear();
+	}
+}
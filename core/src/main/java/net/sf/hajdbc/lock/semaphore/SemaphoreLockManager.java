@@ -17,6 +17,9 @@
  */
 package net.sf.hajdbc.lock.semaphore;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Semaphore;
@@ -26,6 +29,7 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import net.sf.hajdbc.lock.LockManager;
+import net.sf.hajdbc.lock.MultiLock;
 
 /**
  * @author Paul Ferraro
@@ -62,6 +66,20 @@ public class SemaphoreLockManager implements LockManager
 		
 		return (object == null) ? readWriteLock.writeLock() : new GlobalLock(readWriteLock.readLock(), this.getReadWriteLock(object).writeLock());
 	}
+
+	/**
+	 * @see net.sf.hajdbc.lock.LockManager#writeLocks(java.util.SortedSet)
+	 */
+	@Override
+	public Lock writeLocks(SortedSet<String> objects)
+	{
+		List<Lock> locks = new ArrayList<>(objects.size());
+		for (String object: objects)
+		{
+			locks.add(this.writeLock(object));
+		}
+		return new MultiLock(locks);
+	}
 	
 	private synchronized ReadWriteLock getReadWriteLock(String object)
 	{
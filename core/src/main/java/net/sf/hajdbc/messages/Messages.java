@@ -71,12 +71,15 @@ public interface Messages
 
 	// Sync strategies
 	String primaryKeyRequired(SynchronizationStrategy strategy, TableProperties table);
+	String changeCaptureNotInstalled(TableProperties table, String name);
 
 	String insertCount(TableProperties table, int count);
 	String updateCount(TableProperties table, int count);
 	String deleteCount(TableProperties table, int count);
+	String tableSynchronized(TableProperties table, int count, int total);
 
 	String dumpRestoreNotSupported(Dialect dialect);
+	String triggerNotSupported(Dialect dialect);
 
 	String noEmbeddedDriverFound();
 
@@ -98,6 +101,9 @@ public interface Messages
 
 	<Z, D extends Database<Z>> String synchronizationBegin(DatabaseCluster<Z, D> cluster, D database, SynchronizationStrategy strategy);
 	<Z, D extends Database<Z>> String synchronizationEnd(DatabaseCluster<Z, D> cluster, D database, SynchronizationStrategy strategy);
+	<Z, D extends Database<Z>> String synchronizationResume(DatabaseCluster<Z, D> cluster, D database);
+	<Z, D extends Database<Z>> String journalReplay(DatabaseCluster<Z, D> cluster, D database);
+	<Z, D extends Database<Z>> String journalNotAvailable(DatabaseCluster<Z, D> cluster, D database);
 	
 	<Z, D extends Database<Z>> String registerDriverFailed(Class<?> driverClass);
 
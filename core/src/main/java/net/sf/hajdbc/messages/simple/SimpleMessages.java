@@ -246,6 +246,24 @@ public class SimpleMessages implements Messages
 		return this.tr("Completed synchronization of database {1} from cluster {0} using {2} synchronization strategy", cluster, database, strategy);
 	}
 
+	@Override
+	public <Z, D extends Database<Z>> String synchronizationResume(DatabaseCluster<Z, D> cluster, D database)
+	{
+		return this.tr("Resuming incomplete synchronization of database {1} from cluster {0}", cluster, database);
+	}
+
+	@Override
+	public <Z, D extends Database<Z>> String journalReplay(DatabaseCluster<Z, D> cluster, D database)
+	{
+		return this.tr("Replaying changes applied to cluster {0} during synchronization of database {1}", cluster, database);
+	}
+
+	@Override
+	public <Z, D extends Database<Z>> String journalNotAvailable(DatabaseCluster<Z, D> cluster, D database)
+	{
+		return this.tr("Changes to database {1} from cluster {0} are not journaled, writes will be blocked for the duration of synchronization", cluster, database);
+	}
+
 	@Override
 	public <Z, D extends Database<Z>> String registerDriverFailed(Class<?> driverClass)
 	{
@@ -288,6 +306,12 @@ public class SimpleMessages implements Messages
 		return this.tr("Table {1} does not define a primary key, a requirement of the {0} synchronization strategy", strategy, table.getName());
 	}
 
+	@Override
+	public String changeCaptureNotInstalled(TableProperties table, String name)
+	{
+		return this.tr("Failed to install change capture object {1} for table {0}", table.getName(), name);
+	}
+
 	@Override
 	public String insertCount(TableProperties table, int count)
 	{
@@ -306,12 +330,24 @@ public class SimpleMessages implements Messages
 		return this.tr("Deleted {1} rows from {0}", table.getName(), count);
 	}
 
+	@Override
+	public String tableSynchronized(TableProperties table, int count, int total)
+	{
+		return this.tr("Synchronized table {0} ({1} of {2})", table.getName(), count, total);
+	}
+
 	@Override
 	public String dumpRestoreNotSupported(Dialect dialect)
 	{
 		return this.tr("The {0} dialect does not yet implement dump-restore support", dialect.getClass().getName());
 	}
 
+	@Override
+	public String triggerNotSupported(Dialect dialect)
+	{
+		return this.tr("The {0} dialect does not yet implement trigger support", dialect.getClass().getName());
+	}
+
 	@Override
 	public <Z, D extends Database<Z>> String sequenceOutOfSync(SequenceProperties sequence, D activeDatabase, long activeValue, D database, long value)
 	{
@@ -22,6 +22,8 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import net.sf.hajdbc.Database;
 import net.sf.hajdbc.DatabaseCluster;
@@ -47,6 +49,9 @@ public abstract class AbstractProxyFactory<Z, D extends Database<Z>, TE extends
 	private final Map<D, T> map;
 	private final Set<ChildProxyFactory<Z, D, T, E, ?, ? extends Exception>> children = Collections.newSetFromMap(new WeakHashMap<ChildProxyFactory<Z, D, T, E, ?, ? extends Exception>, Boolean>());
 	private final Set<Invoker<Z, D, T, ?, E>> invokers = new HashSet<>();
+	// Explicit locks, since these are held across JDBC calls, which would pin a virtual thread holding a monitor
+	private final Lock mapLock = new ReentrantLock();
+	private final Lock invokersLock = new ReentrantLock();
 	private final ExceptionFactory<E> exceptionFactory;
 	
 	/**
@@ -114,7 +119,8 @@ public abstract class AbstractProxyFactory<Z, D extends Database<Z>, TE extends
 	@Override
 	public T get(D database)
 	{
-		synchronized (this.map)
+		this.mapLock.lock();
+		try
 		{
 			T object = this.map.get(database);
 			
@@ -139,6 +145,10 @@ public abstract class AbstractProxyFactory<Z, D extends Database<Z>, TE extends
 			
 			return object;
 		}
+		finally
+		{
+			this.mapLock.unlock();
+		}
 	}
 	
 	protected abstract T create(D database) throws TE;
@@ -147,11 +157,16 @@ public abstract class AbstractProxyFactory<Z, D extends Database<Z>, TE extends
 	public void record(Invoker<Z, D, T, ?, E> invoker)
 	{
 		// Record only the last invocation of a given set*(...) method
-		synchronized (this.invokers)
+		this.invokersLock.lock();
+		try
 		{
 			this.invokers.remove(invoker);
 			this.invokers.add(invoker);
 		}
+		finally
+		{
+			this.invokersLock.unlock();
+		}
 	}
 	
 	/**
@@ -160,7 +175,8 @@ public abstract class AbstractProxyFactory<Z, D extends Database<Z>, TE extends
 	@Override
 	public void replay(D database, T object) throws E
 	{
-		synchronized (this.invokers)
+		this.invokersLock.lock();
+		try
 		{
 			for (Invoker<Z, D, T, ?, E> invoker: this.invokers)
 			{
@@ -176,6 +192,10 @@ public abstract class AbstractProxyFactory<Z, D extends Database<Z>, TE extends
 				}
 			}
 		}
+		finally
+		{
+			this.invokersLock.unlock();
+		}
 	}
 	
 	/**
@@ -18,24 +18,19 @@
 package net.sf.hajdbc.sql;
 
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.locks.Lock;
 
 import net.sf.hajdbc.Database;
 import net.sf.hajdbc.DatabaseCluster;
 import net.sf.hajdbc.DatabaseProperties;
-import net.sf.hajdbc.IdentityColumnSupport;
-import net.sf.hajdbc.SequenceSupport;
 import net.sf.hajdbc.TableProperties;
-import net.sf.hajdbc.dialect.Dialect;
 import net.sf.hajdbc.invocation.Invoker;
-import net.sf.hajdbc.lock.LockManager;
 
 /**
  * 
@@ -51,34 +46,27 @@ public abstract class AbstractSQLProxyFactory<Z, D extends Database<Z>, P, T> ex
 	@Override
 	public String evaluate(final String rawSQL)
 	{
-		String sql = rawSQL;
-		
-		long now = System.currentTimeMillis();
-		
 		DatabaseCluster<Z, D> cluster = this.getDatabaseCluster();
-		Dialect dialect = cluster.getDialect();
 		
-		if (cluster.isCurrentTimestampEvaluationEnabled())
+		if (!cluster.isCurrentTimestampEvaluationEnabled() && !cluster.isCurrentDateEvaluationEnabled() && !cluster.isCurrentTimeEvaluationEnabled() && !cluster.isRandEvaluationEnabled())
 		{
-			sql = dialect.evaluateCurrentTimestamp(sql, new java.sql.Timestamp(now));
+			return rawSQL;
 		}
 		
-		if (cluster.isCurrentDateEvaluationEnabled())
-		{
-			sql = dialect.evaluateCurrentDate(sql, new java.sql.Date(now));
-		}
+		SQLAnalysis analysis = cluster.getSQLAnalysisCache().analyze(rawSQL);
 		
-		if (cluster.isCurrentTimeEvaluationEnabled())
+		if (!analysis.containsCurrentTimestamp() && !analysis.containsCurrentDate() && !analysis.containsCurrentTime() && !analysis.containsRand())
 		{
-			sql = dialect.evaluateCurrentTime(sql, new java.sql.Time(now));
+			return rawSQL;
 		}
 		
-		if (cluster.isRandEvaluationEnabled())
-		{
-			sql = dialect.evaluateRand(sql);
-		}
+		long now = System.currentTimeMillis();
+		
+		java.sql.Date date = analysis.containsCurrentDate() ? new java.sql.Date(now) : null;
+		java.sql.Time time = analysis.containsCurrentTime() ? new java.sql.Time(now) : null;
+		java.sql.Timestamp timestamp = analysis.containsCurrentTimestamp() ? new java.sql.Timestamp(now) : null;
 		
-		return sql;
+		return cluster.getDialect().evaluate(analysis.getStatement(), date, time, timestamp, analysis.containsRand());
 	}
 	
 	@Override
@@ -89,65 +77,51 @@ public abstract class AbstractSQLProxyFactory<Z, D extends Database<Z>, P, T> ex
 	
 	protected List<Lock> extractLocks(Collection<String> statements) throws SQLException
 	{
-		Set<String> identifierSet = new TreeSet<>();
 		DatabaseCluster<Z, D> cluster = this.getDatabaseCluster();
 		
+		if (!cluster.isSequenceDetectionEnabled() && !cluster.isIdentityColumnDetectionEnabled())
+		{
+			return Collections.emptyList();
+		}
+		
+		SortedSet<String> identifierSet = new TreeSet<>();
+		SQLAnalysisCache<Z, D> cache = cluster.getSQLAnalysisCache();
+		
 		for (String sql: statements)
 		{
-			if (cluster.isSequenceDetectionEnabled())
+			SQLAnalysis analysis = cache.analyze(sql);
+			String sequence = analysis.getSequence();
+			
+			if (sequence != null)
 			{
-				SequenceSupport support = cluster.getDialect().getSequenceSupport();
-				
-				if (support != null)
-				{
-					String sequence = support.parseSequence(sql);
-					
-					if (sequence != null)
-					{
-						identifierSet.add(sequence);
-					}
-				}
+				identifierSet.add(sequence);
 			}
 			
-			if (cluster.isIdentityColumnDetectionEnabled())
+			String table = analysis.getInsertTable();
+			
+			if (table != null)
 			{
-				IdentityColumnSupport support = cluster.getDialect().getIdentityColumnSupport();
+				TableProperties tableProperties = this.getDatabaseProperties().findTable(table);
+				
+				if (tableProperties == null)
+				{
+					throw new SQLException(this.messages.schemaLookupFailed(cluster, table));
+				}
 				
-				if (support != null)
+				if (!tableProperties.getIdentityColumns().isEmpty())
 				{
-					String table = support.parseInsertTable(sql);
-					
-					if (table != null)
-					{
-						TableProperties tableProperties = this.getDatabaseProperties().findTable(table);
-						
-						if (tableProperties == null)
-						{
-							throw new SQLException(this.messages.schemaLookupFailed(cluster, table));
-						}
-						
-						if (!tableProperties.getIdentityColumns().isEmpty())
-						{
-							identifierSet.add(tableProperties.getName().getDMLName());
-						}
-					}
+					identifierSet.add(tableProperties.getName().getDMLName());
 				}
 			}
 		}
 		
-		List<Lock> lockList = new ArrayList<>(identifierSet.size());
-		
-		if (!identifierSet.isEmpty())
+		if (identifierSet.isEmpty())
 		{
-			LockManager lockManager = cluster.getLockManager();
-			
-			for (String identifier: identifierSet)
-			{
-				lockList.add(lockManager.writeLock(identifier));
-			}
+			return Collections.emptyList();
 		}
 		
-		return lockList;
+		// Acquire all locks as a single unit, e.g. using a single round-trip per member for distributed locks
+		return Collections.singletonList(cluster.getLockManager().writeLocks(identifierSet));
 	}
 
 	private DatabaseProperties getDatabaseProperties() throws SQLException
@@ -160,7 +134,7 @@ public abstract class AbstractSQLProxyFactory<Z, D extends Database<Z>, P, T> ex
 	@Override
 	public boolean isSelectForUpdate(String sql) throws SQLException
 	{
-		return this.getDatabaseProperties().supportsSelectForUpdate() ? this.getDatabaseCluster().getDialect().isSelectForUpdate(sql) : false;
+		return this.getDatabaseProperties().supportsSelectForUpdate() ? this.getDatabaseCluster().getSQLAnalysisCache().analyze(sql).isSelectForUpdate() : false;
 	}
 
 	@Override
@@ -20,10 +20,12 @@ package net.sf.hajdbc.sql;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadFactory;
@@ -52,6 +54,7 @@ import net.sf.hajdbc.durability.InvokerEvent;
 import net.sf.hajdbc.io.InputSinkStrategy;
 import net.sf.hajdbc.lock.LockManager;
 import net.sf.hajdbc.lock.distributed.DistributedLockManager;
+import net.sf.hajdbc.lock.distributed.PartitionedLockManager;
 import net.sf.hajdbc.logging.Level;
 import net.sf.hajdbc.logging.Logger;
 import net.sf.hajdbc.logging.LoggerFactory;
@@ -65,8 +68,12 @@ import net.sf.hajdbc.messages.MessagesFactory;
 import net.sf.hajdbc.state.DatabaseEvent;
 import net.sf.hajdbc.state.StateManager;
 import net.sf.hajdbc.state.distributed.DistributedStateManager;
+import net.sf.hajdbc.sync.MultiTargetSynchronizationStrategy;
 import net.sf.hajdbc.sync.SynchronizationContext;
 import net.sf.hajdbc.sync.SynchronizationContextImpl;
+import net.sf.hajdbc.sync.SynchronizationProgress;
+import net.sf.hajdbc.sync.SynchronizationThrottle;
+import net.sf.hajdbc.sync.SynchronizationJournal;
 import net.sf.hajdbc.tx.SimpleTransactionIdentifierFactory;
 import net.sf.hajdbc.tx.TransactionIdentifierFactory;
 import net.sf.hajdbc.tx.UUIDTransactionIdentifierFactory;
@@ -90,6 +97,7 @@ public class DatabaseClusterImpl<Z, D extends Database<Z>> implements DatabaseCl
 	private Dialect dialect;
 	private Durability<Z, D> durability;
 	private DatabaseMetaDataCache<Z, D> databaseMetaDataCache;
+	private SQLAnalysisCache<Z, D> sqlAnalysisCache;
 	private ExecutorService executor;
 	private Decoder decoder;
 	private CronThreadPoolExecutor cronExecutor;
@@ -104,6 +112,9 @@ public class DatabaseClusterImpl<Z, D extends Database<Z>> implements DatabaseCl
 	private final List<DatabaseClusterConfigurationListener<Z, D>> configurationListeners = new CopyOnWriteArrayList<>();	
 	private final List<DatabaseClusterListener> clusterListeners = new CopyOnWriteArrayList<>();
 	private final List<SynchronizationListener> synchronizationListeners = new CopyOnWriteArrayList<>();
+	// Databases currently being activated online
+	private final Set<String> activating = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private final SynchronizationThrottle synchronizationThrottle = new SynchronizationThrottle();
 	
 	public DatabaseClusterImpl(String id, DatabaseClusterConfiguration<Z, D> configuration)
 	{
@@ -192,6 +203,73 @@ public class DatabaseClusterImpl<Z, D extends Database<Z>> implements DatabaseCl
 		}
 	}
 	
+	/**
+	 * Synchronizes, using the default strategy, and reactivates all inactive databases.
+	 * @throws IllegalStateException if synchronization fails.
+	 */
+	@ManagedOperation
+	public void activateAll()
+	{
+		this.activateAll(this.configuration.getDefaultSynchronizationStrategy());
+	}
+
+	/**
+	 * Synchronizes, using the specified strategy, and reactivates all inactive databases.
+	 * If supported by the strategy, all inactive databases are synchronized together, reading from the source database only once.
+	 * @param strategyId the identifer of a synchronization strategy
+	 * @throws IllegalArgumentException if no synchronization strategy exists with the specified identifier.
+	 * @throws IllegalStateException if synchronization fails.
+	 */
+	@ManagedOperation
+	public void activateAll(String strategyId)
+	{
+		SynchronizationStrategy strategy = this.configuration.getSynchronizationStrategyMap().get(strategyId);
+		
+		if (strategy == null)
+		{
+			throw new IllegalArgumentException(messages.invalidSyncStrategy(strategyId, this.configuration.getSynchronizationStrategyMap().keySet()));
+		}
+		
+		Set<D> databases = new TreeSet<>();
+		
+		for (String databaseId: this.getInactiveDatabases())
+		{
+			databases.add(this.getDatabase(databaseId));
+		}
+		
+		try
+		{
+			for (D database: this.activate(databases, strategy))
+			{
+				logger.log(Level.INFO, messages.activated(this, database));
+			}
+		}
+		catch (SQLException e)
+		{
+			for (D database: databases)
+			{
+				logger.log(Level.WARN, e, messages.activationFailed(this, database));
+			}
+			
+			SQLException exception = e.getNextException();
+			
+			while (exception != null)
+			{
+				logger.log(Level.ERROR, exception);
+				
+				exception = exception.getNextException();
+			}
+
+			throw new IllegalStateException(e.toString());
+		}
+		catch (InterruptedException e)
+		{
+			logger.log(Level.WARN, e);
+			
+			Thread.currentThread().interrupt();
+		}
+	}
+	
 	/**
 	 * Determines whether or not the specified database is responsive
 	 * @param databaseId a database identifier
@@ -226,6 +304,7 @@ public class DatabaseClusterImpl<Z, D extends Database<Z>> implements DatabaseCl
 	 * @return a collection of database identifiers
 	 */
 	@ManagedAttribute
+	@Override
 	public Set<String> getInactiveDatabases()
 	{
 		Set<String> databases = new TreeSet<>(this.configuration.getDatabaseMap().keySet());
@@ -362,6 +441,125 @@ public class DatabaseClusterImpl<Z, D extends Database<Z>> implements DatabaseCl
 		}
 	}
 
+	/**
+	 * Flushes this cluster's cache of SQL statement analysis.
+	 */
+	@ManagedOperation
+	@Description("Flushes this cluster's cache of SQL statement analysis")
+	public void flushSQLAnalysisCache()
+	{
+		this.sqlAnalysisCache.flush();
+	}
+
+	/**
+	 * Returns the ratio of hits to lookups of this cluster's cache of SQL statement analysis.
+	 * @return a hit ratio between 0 and 1
+	 */
+	@ManagedAttribute
+	@Description("Ratio of hits to lookups of this cluster's cache of SQL statement analysis")
+	public double getSQLAnalysisCacheHitRatio()
+	{
+		return this.sqlAnalysisCache.getHitRatio();
+	}
+
+	/**
+	 * Returns the number of hits of this cluster's cache of SQL statement analysis.
+	 * @return a number of cache hits
+	 */
+	@ManagedAttribute
+	@Description("Number of hits of this cluster's cache of SQL statement analysis")
+	public long getSQLAnalysisCacheHits()
+	{
+		return this.sqlAnalysisCache.getHits();
+	}
+
+	/**
+	 * Returns the number of misses of this cluster's cache of SQL statement analysis.
+	 * @return a number of cache misses
+	 */
+	@ManagedAttribute
+	@Description("Number of misses of this cluster's cache of SQL statement analysis")
+	public long getSQLAnalysisCacheMisses()
+	{
+		return this.sqlAnalysisCache.getMisses();
+	}
+
+	/**
+	 * Returns the maximum number of rows per second read from the source database during synchronization.
+	 * @return a number of rows per second, or 0 if unlimited
+	 */
+	@ManagedAttribute
+	@Description("Maximum number of rows per second read from the source database during synchronization, or 0 if unlimited")
+	public long getSynchronizationMaxRowRate()
+	{
+		return this.synchronizationThrottle.getMaxRowRate();
+	}
+
+	/**
+	 * Limits the number of rows per second read from the source database during synchronization.
+	 * Takes effect immediately, including for synchronizations already in progress.
+	 * @param rate a number of rows per second, or 0 if unlimited
+	 */
+	@ManagedAttribute
+	public void setSynchronizationMaxRowRate(long rate)
+	{
+		this.synchronizationThrottle.setMaxRowRate(rate);
+	}
+
+	/**
+	 * Returns the maximum number of bytes per second read from the source database during synchronization.
+	 * @return a number of bytes per second, or 0 if unlimited
+	 */
+	@ManagedAttribute
+	@Description("Approximate maximum number of bytes per second read from the source database during synchronization, or 0 if unlimited")
+	public long getSynchronizationMaxByteRate()
+	{
+		return this.synchronizationThrottle.getMaxByteRate();
+	}
+
+	/**
+	 * Limits the approximate number of bytes per second read from the source database during synchronization.
+	 * Takes effect immediately, including for synchronizations already in progress.
+	 * @param rate a number of bytes per second, or 0 if unlimited
+	 */
+	@ManagedAttribute
+	public void setSynchronizationMaxByteRate(long rate)
+	{
+		this.synchronizationThrottle.setMaxByteRate(rate);
+	}
+
+	/**
+	 * Returns the latency of reads from the source database above which synchronization backs off.
+	 * @return a number of milliseconds, or 0 if disabled
+	 */
+	@ManagedAttribute
+	@Description("Latency, in milliseconds, of reads from the source database above which synchronization backs off, or 0 if disabled")
+	public long getSynchronizationMaxLatency()
+	{
+		return this.synchronizationThrottle.getMaxLatency();
+	}
+
+	/**
+	 * Sets the latency of reads from the source database above which synchronization backs off.
+	 * Takes effect immediately, including for synchronizations already in progress.
+	 * @param latency a number of milliseconds, or 0 to disable
+	 */
+	@ManagedAttribute
+	public void setSynchronizationMaxLatency(long latency)
+	{
+		this.synchronizationThrottle.setMaxLatency(latency);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.DatabaseCluster#getSynchronizationThrottle()
+	 */
+	@Override
+	public SynchronizationThrottle getSynchronizationThrottle()
+	{
+		return this.synchronizationThrottle;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * @see net.sf.hajdbc.DatabaseCluster#addConfigurationListener(net.sf.hajdbc.DatabaseClusterConfigurationListener)
@@ -523,6 +721,16 @@ public class DatabaseClusterImpl<Z, D extends Database<Z>> implements DatabaseCl
 		return this.databaseMetaDataCache;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.DatabaseCluster#getSQLAnalysisCache()
+	 */
+	@Override
+	public SQLAnalysisCache<Z, D> getSQLAnalysisCache()
+	{
+		return this.sqlAnalysisCache;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * @see net.sf.hajdbc.DatabaseCluster#getDialect()
@@ -573,6 +781,36 @@ public class DatabaseClusterImpl<Z, D extends Database<Z>> implements DatabaseCl
 		return this.configuration.getTransactionMode();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.DatabaseCluster#getWriteQuorum()
+	 */
+	@Override
+	public int getWriteQuorum()
+	{
+		return this.configuration.getWriteQuorum();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.DatabaseCluster#getDurabilityReplicationLag()
+	 */
+	@Override
+	public long getDurabilityReplicationLag()
+	{
+		return this.configuration.getDurabilityReplicationLag();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.DatabaseCluster#getLockLease()
+	 */
+	@Override
+	public long getLockLease()
+	{
+		return this.configuration.getLockLease();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * @see net.sf.hajdbc.DatabaseCluster#getStateManager()
@@ -690,7 +928,7 @@ public class DatabaseClusterImpl<Z, D extends Database<Z>> implements DatabaseCl
 		{
 			try
 			{
-				this.lockManager = new DistributedLockManager(this, dispatcherFactory);
+				this.lockManager = this.configuration.isLockPartitioningEnabled() ? new PartitionedLockManager(this, dispatcherFactory) : new DistributedLockManager(this, dispatcherFactory);
 				this.stateManager = new DistributedStateManager<>(this, dispatcherFactory);
 			}
 			catch (Exception e)
@@ -701,6 +939,7 @@ public class DatabaseClusterImpl<Z, D extends Database<Z>> implements DatabaseCl
 		
 		this.balancer = this.configuration.getBalancerFactory().createBalancer(new TreeSet<D>());
 		this.dialect = this.configuration.getDialectFactory().createDialect();
+		this.sqlAnalysisCache = new SQLAnalysisCache<>(this, this.dialect);
 		this.durability = this.configuration.getDurabilityFactory().createDurability(this);
 		this.executor = this.configuration.getExecutorProvider().getExecutor(this.configuration.getThreadFactory());
 		this.sinkSourceFactory = this.configuration.getInputSinkProvider().createInputSinkStrategy();
@@ -753,6 +992,11 @@ public class DatabaseClusterImpl<Z, D extends Database<Z>> implements DatabaseCl
 			// Ignore - cache will initialize lazily.
 		}
 		
+		for (SynchronizationStrategy strategy: this.configuration.getSynchronizationStrategyMap().values())
+		{
+			strategy.init(this);
+		}
+		
 		CronExpression failureDetectionExpression = this.configuration.getFailureDetectionExpression();
 		CronExpression autoActivationExpression = this.configuration.getAutoActivationExpression();
 		int threads = requiredThreads(failureDetectionExpression) + requiredThreads(autoActivationExpression);
@@ -821,6 +1065,11 @@ public class DatabaseClusterImpl<Z, D extends Database<Z>> implements DatabaseCl
 			}
 		}
 		
+		for (SynchronizationStrategy strategy: this.configuration.getSynchronizationStrategyMap().values())
+		{
+			strategy.destroy(this);
+		}
+		
 		if (this.registrar != null)
 		{
 			this.registrar.unregister(this);
@@ -874,6 +1123,145 @@ public class DatabaseClusterImpl<Z, D extends Database<Z>> implements DatabaseCl
 	{
 		if (!this.isAlive(database, Level.DEBUG)) return false;
 		
+		SynchronizationJournal journal = this.configuration.isOnlineActivationEnabled() ? this.getSynchronizationJournal() : null;
+		
+		if (journal == null) return this.activateOffline(database, strategy);
+		
+		// Prevent concurrent activations of the same database, since the cluster is not locked during online synchronization
+		if (!this.activating.add(database.getId())) return false;
+		
+		try
+		{
+			// The journal is itself a synchronization strategy that only applies journaled changes, so there is nothing to gain from running it online
+			return (journal != strategy) ? this.activateOnline(database, strategy, journal) : this.activateOffline(database, strategy);
+		}
+		finally
+		{
+			this.activating.remove(database.getId());
+		}
+	}
+
+	/**
+	 * Synchronizes and activates the specified inactive databases.
+	 * If the specified strategy supports it, the databases are synchronized together, reading from a single source database only once, while writes to the cluster are blocked.
+	 * Otherwise, or if online activation is enabled, the databases are activated one at a time, and the failure to activate one does not prevent the activation of the others.
+	 * @return the databases that were activated
+	 */
+	Set<D> activate(Set<D> databases, SynchronizationStrategy strategy) throws SQLException, InterruptedException
+	{
+		Set<D> targets = new TreeSet<>();
+		
+		for (D database: databases)
+		{
+			if (this.isAlive(database, Level.DEBUG))
+			{
+				targets.add(database);
+			}
+		}
+		
+		Set<D> activated = new TreeSet<>();
+		
+		boolean online = this.configuration.isOnlineActivationEnabled() && (this.getSynchronizationJournal() != null);
+		
+		if ((targets.size() < 2) || !(strategy instanceof MultiTargetSynchronizationStrategy) || online || this.balancer.isEmpty())
+		{
+			for (D target: targets)
+			{
+				try
+				{
+					if (this.activate(target, strategy))
+					{
+						activated.add(target);
+					}
+				}
+				catch (SQLException e)
+				{
+					// Continue with the remaining databases
+					logger.log(Level.WARN, e, messages.activationFailed(this, target));
+				}
+			}
+			return activated;
+		}
+		
+		Lock lock = this.lockManager.writeLock(null);
+		
+		lock.lockInterruptibly();
+		
+		try
+		{
+			targets.removeAll(this.balancer);
+			
+			if (targets.isEmpty() || this.balancer.isEmpty()) return activated;
+			
+			D source = this.balancer.next();
+			List<SynchronizationContext<Z, D>> contexts = new ArrayList<>(targets.size());
+			
+			try
+			{
+				for (D target: targets)
+				{
+					// Every context shares the connections of the first to the source database
+					SynchronizationContext<Z, D> context = contexts.isEmpty() ? new SynchronizationContextImpl<>(this, source, target) : new SynchronizationContextImpl<>(this, contexts.get(0), target);
+					contexts.add(context);
+					// Writes applied since a prior incomplete synchronization will not be replayed, so its checkpoint is obsolete
+					context.getProgress().reset();
+				}
+				
+				for (D target: targets)
+				{
+					logger.log(Level.INFO, messages.synchronizationBegin(this, target, strategy));
+					
+					DatabaseEvent event = new DatabaseEvent(target);
+					
+					for (SynchronizationListener listener: this.synchronizationListeners)
+					{
+						listener.beforeSynchronization(event);
+					}
+				}
+				
+				((MultiTargetSynchronizationStrategy) strategy).synchronize(contexts);
+				
+				for (D target: targets)
+				{
+					logger.log(Level.INFO, messages.synchronizationEnd(this, target, strategy));
+					
+					DatabaseEvent event = new DatabaseEvent(target);
+					
+					for (SynchronizationListener listener: this.synchronizationListeners)
+					{
+						listener.afterSynchronization(event);
+					}
+				}
+			}
+			finally
+			{
+				for (SynchronizationContext<Z, D> context: contexts)
+				{
+					context.close();
+				}
+			}
+			
+			for (D target: targets)
+			{
+				if (this.activate(target, this.stateManager))
+				{
+					activated.add(target);
+				}
+			}
+			
+			return activated;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Synchronizes the specified database while writes to the cluster are blocked.
+	 */
+	private boolean activateOffline(D database, SynchronizationStrategy strategy) throws SQLException, InterruptedException
+	{
 		Lock lock = this.lockManager.writeLock(null);
 		
 		lock.lockInterruptibly();
@@ -895,6 +1283,9 @@ public class DatabaseClusterImpl<Z, D extends Database<Z>> implements DatabaseCl
 						listener.beforeSynchronization(event);
 					}
 					
+					// Writes applied since a prior incomplete synchronization will not be replayed, so its checkpoint is obsolete
+					context.getProgress().reset();
+					
 					strategy.synchronize(context);
 	
 					logger.log(Level.INFO, messages.synchronizationEnd(this, database, strategy));
@@ -914,6 +1305,120 @@ public class DatabaseClusterImpl<Z, D extends Database<Z>> implements DatabaseCl
 		}
 	}
 
+	/**
+	 * Synchronizes the specified database while the cluster remains writable, then blocks writes only while replaying the changes journaled in the meantime.
+	 */
+	private boolean activateOnline(D database, SynchronizationStrategy strategy, SynchronizationJournal journal) throws SQLException, InterruptedException
+	{
+		if (this.balancer.contains(database) || this.balancer.isEmpty())
+		{
+			return this.activateOffline(database, strategy);
+		}
+		
+		try (SynchronizationContext<Z, D> context = new SynchronizationContextImpl<>(this, database))
+		{
+			D source = context.getSourceDatabase();
+			
+			if (journal.isJournaled(source))
+			{
+				return this.activateOnline(database, strategy, journal, context);
+			}
+			
+			logger.log(Level.WARN, messages.journalNotAvailable(this, source));
+		}
+		
+		return this.activateOffline(database, strategy);
+	}
+	
+	/**
+	 * Synchronizes the target database of the specified context without locking, then replays the changes journaled on its source database while writes are blocked.
+	 */
+	private boolean activateOnline(D database, SynchronizationStrategy strategy, SynchronizationJournal journal, SynchronizationContext<Z, D> context) throws SQLException, InterruptedException
+	{
+		D source = context.getSourceDatabase();
+		DatabaseEvent event = new DatabaseEvent(database);
+		
+		logger.log(Level.INFO, messages.synchronizationBegin(this, database, strategy));
+		
+		for (SynchronizationListener listener: this.synchronizationListeners)
+		{
+			listener.beforeSynchronization(event);
+		}
+		
+		SynchronizationProgress progress = context.getProgress();
+		
+		Lock lock = this.lockManager.writeLock(null);
+		
+		// Replaying the journal will also apply any writes made since the checkpoint to the rows already copied
+		if (journal.isResumable(database) && progress.resume())
+		{
+			logger.log(Level.INFO, messages.synchronizationResume(this, database));
+		}
+		else
+		{
+			progress.reset();
+			
+			// Writes journaled prior to now will be copied, so need not be replayed
+			lock.lockInterruptibly();
+			
+			try
+			{
+				journal.begin(context);
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+		
+		strategy.synchronize(context);
+		
+		lock.lockInterruptibly();
+		
+		try
+		{
+			if (this.balancer.contains(database)) return false;
+			
+			// If the source database was deactivated in the meantime, its journal may be incomplete
+			if (!this.balancer.contains(source)) return false;
+			
+			logger.log(Level.INFO, messages.journalReplay(this, database));
+			
+			journal.replay(context);
+			
+			logger.log(Level.INFO, messages.synchronizationEnd(this, database, strategy));
+			
+			for (SynchronizationListener listener: this.synchronizationListeners)
+			{
+				listener.afterSynchronization(event);
+			}
+			
+			progress.reset();
+			
+			return this.activate(database, this.stateManager);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Returns the first configured synchronization strategy that journals changes to the active databases.
+	 * @return a synchronization journal, or null, if no synchronization strategy journals changes.
+	 */
+	private SynchronizationJournal getSynchronizationJournal()
+	{
+		for (SynchronizationStrategy strategy: this.configuration.getSynchronizationStrategyMap().values())
+		{
+			if (strategy instanceof SynchronizationJournal)
+			{
+				return (SynchronizationJournal) strategy;
+			}
+		}
+		return null;
+	}
+
 	class FailureDetectionTask implements Runnable
 	{
 		@Override
@@ -964,23 +1469,28 @@ public class DatabaseClusterImpl<Z, D extends Database<Z>> implements DatabaseCl
 				
 				if (!activeDatabases.isEmpty())
 				{
+					Set<D> inactiveDatabases = new TreeSet<>();
+					
 					for (D database: DatabaseClusterImpl.this.configuration.getDatabaseMap().values())
 					{
 						if (!activeDatabases.contains(database))
 						{
-							try
-							{
-								if (DatabaseClusterImpl.this.activate(database, DatabaseClusterImpl.this.configuration.getSynchronizationStrategyMap().get(DatabaseClusterImpl.this.configuration.getDefaultSynchronizationStrategy())))
-								{
-									logger.log(Level.INFO, messages.activated(DatabaseClusterImpl.this, database));
-								}
-							}
-							catch (SQLException e)
-							{
-								logger.log(Level.DEBUG, e);
-							}
+							inactiveDatabases.add(database);
+						}
+					}
+					
+					try
+					{
+						// Inactive databases are synchronized together, if supported by the default strategy
+						for (D database: DatabaseClusterImpl.this.activate(inactiveDatabases, DatabaseClusterImpl.this.configuration.getSynchronizationStrategyMap().get(DatabaseClusterImpl.this.configuration.getDefaultSynchronizationStrategy())))
+						{
+							logger.log(Level.INFO, messages.activated(DatabaseClusterImpl.this, database));
 						}
 					}
+					catch (SQLException e)
+					{
+						logger.log(Level.DEBUG, e);
+					}
 				}
 			}
 			catch (InterruptedException e)
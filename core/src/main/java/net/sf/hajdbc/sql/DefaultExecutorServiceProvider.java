@@ -23,15 +23,26 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 
 import net.sf.hajdbc.ExecutorServiceProvider;
+import net.sf.hajdbc.Identifiable;
 
 /**
  * @author paul
  *
  */
-public class DefaultExecutorServiceProvider implements ExecutorServiceProvider, Serializable
+public class DefaultExecutorServiceProvider implements ExecutorServiceProvider, Identifiable, Serializable
 {
 	private static final long serialVersionUID = 5781743869682086889L;
 
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.Identifiable#getId()
+	 */
+	@Override
+	public String getId()
+	{
+		return "default";
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * @see net.sf.hajdbc.ExecutorServiceProvider#getExecutor(java.util.concurrent.ThreadFactory)
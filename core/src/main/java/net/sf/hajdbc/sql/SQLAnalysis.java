@@ -0,0 +1,120 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.sql;
+
+import net.sf.hajdbc.dialect.TokenizedStatement;
+
+/**
+ * The result of analyzing a SQL statement for the features of interest to HA-JDBC.
+ * @author Paul Ferraro
+ */
+public class SQLAnalysis
+{
+	private final TokenizedStatement statement;
+	private final String sequence;
+	private final String insertTable;
+	private final boolean selectForUpdate;
+	private final boolean currentDate;
+	private final boolean currentTime;
+	private final boolean currentTimestamp;
+	private final boolean rand;
+	
+	public SQLAnalysis(TokenizedStatement statement, String sequence, String insertTable, boolean selectForUpdate, boolean currentDate, boolean currentTime, boolean currentTimestamp, boolean rand)
+	{
+		this.statement = statement;
+		this.sequence = sequence;
+		this.insertTable = insertTable;
+		this.selectForUpdate = selectForUpdate;
+		this.currentDate = currentDate;
+		this.currentTime = currentTime;
+		this.currentTimestamp = currentTimestamp;
+		this.rand = rand;
+	}
+
+	/**
+	 * Returns the tokenized form of this statement.
+	 * @return a tokenized statement
+	 */
+	public TokenizedStatement getStatement()
+	{
+		return this.statement;
+	}
+
+	/**
+	 * Returns the sequence referenced by this statement.
+	 * @return a sequence name, or null, if this statement references no sequence, or if sequence detection is disabled.
+	 */
+	public String getSequence()
+	{
+		return this.sequence;
+	}
+
+	/**
+	 * Returns the table into which this statement inserts.
+	 * @return a table name, or null, if this statement is not an insert, or if identity column detection is disabled.
+	 */
+	public String getInsertTable()
+	{
+		return this.insertTable;
+	}
+
+	/**
+	 * Indicates whether this statement is a SELECT...FOR UPDATE statement.
+	 * @return true, if this statement selects for update, false otherwise.
+	 */
+	public boolean isSelectForUpdate()
+	{
+		return this.selectForUpdate;
+	}
+
+	/**
+	 * Indicates whether this statement contains CURRENT_DATE functions to be evaluated.
+	 * @return true, if this statement requires evaluation, false otherwise.
+	 */
+	public boolean containsCurrentDate()
+	{
+		return this.currentDate;
+	}
+
+	/**
+	 * Indicates whether this statement contains CURRENT_TIME functions to be evaluated.
+	 * @return true, if this statement requires evaluation, false otherwise.
+	 */
+	public boolean containsCurrentTime()
+	{
+		return this.currentTime;
+	}
+
+	/**
+	 * Indicates whether this statement contains CURRENT_TIMESTAMP functions to be evaluated.
+	 * @return true, if this statement requires evaluation, false otherwise.
+	 */
+	public boolean containsCurrentTimestamp()
+	{
+		return this.currentTimestamp;
+	}
+
+	/**
+	 * Indicates whether this statement contains RAND() functions to be evaluated.
+	 * @return true, if this statement requires evaluation, false otherwise.
+	 */
+	public boolean containsRand()
+	{
+		return this.rand;
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.sql;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.sf.hajdbc.Database;
+import net.sf.hajdbc.DatabaseCluster;
+import net.sf.hajdbc.dialect.Dialect;
+import net.sf.hajdbc.dialect.SQLToken;
+import net.sf.hajdbc.dialect.TokenizedStatement;
+
+/**
+ * Bounded cache of {@link SQLAnalysis}, keyed by SQL text, so that repeated statements are only parsed once.
+ * When full, the least recently used entry is evicted to make room for a new entry.
+ * @author Paul Ferraro
+ */
+public class SQLAnalysisCache<Z, D extends Database<Z>>
+{
+	public static final int DEFAULT_MAX_SIZE = 1000;
+	
+	// Access-ordered, guarded by itself
+	private final Map<String, SQLAnalysis> map;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final DatabaseCluster<Z, D> cluster;
+	private final Dialect dialect;
+	
+	public SQLAnalysisCache(DatabaseCluster<Z, D> cluster, Dialect dialect)
+	{
+		this(cluster, dialect, DEFAULT_MAX_SIZE);
+	}
+	
+	public SQLAnalysisCache(DatabaseCluster<Z, D> cluster, Dialect dialect, final int maxSize)
+	{
+		this.cluster = cluster;
+		this.dialect = dialect;
+		this.map = new LinkedHashMap<String, SQLAnalysis>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = -4716328547652316391L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, SQLAnalysis> eldest)
+			{
+				return this.size() > maxSize;
+			}
+		};
+	}
+	
+	/**
+	 * Returns the analysis of the specified SQL statement, analyzing it only if not already cached.
+	 * @param sql a SQL statement
+	 * @return the analysis of the SQL statement
+	 */
+	public SQLAnalysis analyze(String sql)
+	{
+		SQLAnalysis analysis;
+		
+		synchronized (this.map)
+		{
+			analysis = this.map.get(sql);
+		}
+		
+		if (analysis != null)
+		{
+			this.hits.increment();
+			return analysis;
+		}
+		
+		this.misses.increment();
+		
+		// Analyze outside of the lock, at the risk of analyzing the same statement concurrently
+		analysis = this.createAnalysis(sql);
+		
+		synchronized (this.map)
+		{
+			SQLAnalysis existing = this.map.putIfAbsent(sql, analysis);
+			
+			return (existing != null) ? existing : analysis;
+		}
+	}
+	
+	private SQLAnalysis createAnalysis(String sql)
+	{
+		TokenizedStatement statement = this.dialect.tokenize(sql);
+		
+		String sequence = (this.cluster.isSequenceDetectionEnabled() && (this.dialect.getSequenceSupport() != null)) ? statement.getSequence() : null;
+		String table = (this.cluster.isIdentityColumnDetectionEnabled() && (this.dialect.getIdentityColumnSupport() != null)) ? statement.getInsertTable() : null;
+		boolean currentDate = this.cluster.isCurrentDateEvaluationEnabled() && statement.contains(SQLToken.Type.CURRENT_DATE);
+		boolean currentTime = this.cluster.isCurrentTimeEvaluationEnabled() && statement.contains(SQLToken.Type.CURRENT_TIME);
+		boolean currentTimestamp = this.cluster.isCurrentTimestampEvaluationEnabled() && statement.contains(SQLToken.Type.CURRENT_TIMESTAMP);
+		boolean rand = this.cluster.isRandEvaluationEnabled() && statement.contains(SQLToken.Type.RAND);
+		
+		return new SQLAnalysis(statement, sequence, table, statement.isSelectForUpdate(), currentDate, currentTime, currentTimestamp, rand);
+	}
+	
+	/**
+	 * Removes all entries from this cache.
+	 */
+	public void flush()
+	{
+		synchronized (this.map)
+		{
+			this.map.clear();
+		}
+	}
+	
+	/**
+	 * Returns the number of statements in this cache.
+	 * @return the number of cached statements
+	 */
+	public int size()
+	{
+		synchronized (this.map)
+		{
+			return this.map.size();
+		}
+	}
+	
+	/**
+	 * Returns the number of lookups satisfied by this cache.
+	 * @return a number of cache hits
+	 */
+	public long getHits()
+	{
+		return this.hits.sum();
+	}
+	
+	/**
+	 * Returns the number of lookups that required analysis of a statement.
+	 * @return a number of cache misses
+	 */
+	public long getMisses()
+	{
+		return this.misses.sum();
+	}
+	
+	/**
+	 * Returns the ratio of cache hits to lookups.
+	 * @return a hit ratio between 0 and 1
+	 */
+	public double getHitRatio()
+	{
+		long hits = this.hits.sum();
+		long lookups = hits + this.misses.sum();
+		return (lookups > 0) ? (double) hits / lookups : 0;
+	}
+}
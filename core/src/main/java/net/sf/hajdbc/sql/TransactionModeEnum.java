@@ -21,6 +21,7 @@ import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 
 import net.sf.hajdbc.TransactionMode;
+import net.sf.hajdbc.util.concurrent.CallerRunsExecutor;
 import net.sf.hajdbc.util.concurrent.SynchronousExecutor;
 
 /**
@@ -28,25 +29,55 @@ import net.sf.hajdbc.util.concurrent.SynchronousExecutor;
  */
 public enum TransactionModeEnum implements TransactionMode
 {
-	PARALLEL(false),
-	SERIAL(true),
-	;
-	private final boolean synchronous;
-	
-	private TransactionModeEnum(boolean synchronous)
+	/**
+	 * Executes statements against all databases in parallel using the cluster executor.
+	 */
+	PARALLEL
 	{
-		this.synchronous = synchronous;
-	}
-	
-	@Override
-	public ExecutorService getTransactionExecutor(ExecutorService executor, boolean end)
+		@Override
+		public ExecutorService getTransactionExecutor(ExecutorService executor, boolean end)
+		{
+			return executor;
+		}
+	},
+	/**
+	 * Executes statements against the primary database in the caller thread, then against the backup databases in parallel.
+	 * When ending a transaction, the backup databases execute first.
+	 */
+	SERIAL
+	{
+		@Override
+		public ExecutorService getTransactionExecutor(ExecutorService executor, boolean end)
+		{
+			return new SynchronousExecutor(executor, end);
+		}
+	},
+	/**
+	 * Executes statements against the primary database in the caller thread, while the backup databases execute in parallel using the cluster executor.
+	 */
+	CALLER_RUNS
+	{
+		@Override
+		public ExecutorService getTransactionExecutor(ExecutorService executor, boolean end)
+		{
+			return new CallerRunsExecutor(executor);
+		}
+	},
+	;
+
+	/**
+	 * Returns the transaction mode identified by the specified XML attribute value.
+	 * @param value a transaction mode, e.g. caller-runs
+	 * @return a transaction mode
+	 */
+	public static TransactionModeEnum forValue(String value)
 	{
-		return this.synchronous ? new SynchronousExecutor(executor, end) : executor;
+		return valueOf(value.replace('-', '_').toUpperCase(Locale.ENGLISH));
 	}
 
 	@Override
 	public String toString()
 	{
-		return this.name().toLowerCase(Locale.US);
+		return this.name().replace('_', '-').toLowerCase(Locale.US);
 	}
 }
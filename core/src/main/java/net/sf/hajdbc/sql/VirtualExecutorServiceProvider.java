@@ -0,0 +1,87 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.sql;
+
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import net.sf.hajdbc.ExecutorServiceProvider;
+import net.sf.hajdbc.Identifiable;
+import net.sf.hajdbc.logging.Level;
+import net.sf.hajdbc.logging.Logger;
+import net.sf.hajdbc.logging.LoggerFactory;
+
+/**
+ * Provides an executor that runs each task in a new virtual thread.
+ * Since tasks spend nearly all of their time blocked in JDBC drivers, this allows many concurrent invocations without a large thread pool.
+ * Falls back to a cached thread pool on JVMs that do not support virtual threads.
+ * @author Paul Ferraro
+ */
+public class VirtualExecutorServiceProvider implements ExecutorServiceProvider, Identifiable, Serializable
+{
+	private static final long serialVersionUID = -3102938011823650931L;
+	private static final Logger logger = LoggerFactory.getLogger(VirtualExecutorServiceProvider.class);
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.Identifiable#getId()
+	 */
+	@Override
+	public String getId()
+	{
+		return "virtual";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.ExecutorServiceProvider#getExecutor(java.util.concurrent.ThreadFactory)
+	 */
+	@Override
+	public ExecutorService getExecutor(ThreadFactory threadFactory)
+	{
+		try
+		{
+			// Java 21+
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		}
+		catch (NoSuchMethodException e)
+		{
+			logger.log(Level.WARN, "Virtual threads are not supported by this JVM, using platform threads instead.");
+			return Executors.newCachedThreadPool(threadFactory);
+		}
+		catch (IllegalAccessException | InvocationTargetException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.ExecutorServiceProvider#release(java.util.concurrent.ExecutorService)
+	 */
+	@Override
+	public void release(ExecutorService executor)
+	{
+		executor.shutdown();
+	}
+}
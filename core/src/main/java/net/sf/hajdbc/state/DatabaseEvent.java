@@ -33,6 +33,14 @@ public class DatabaseEvent extends Event<String>
 	 */
 	public DatabaseEvent(Database<?> database)
 	{
-		super(database.getId());
+		this(database.getId());
+	}
+
+	/**
+	 * @param databaseId a database identifier
+	 */
+	public DatabaseEvent(String databaseId)
+	{
+		super(databaseId);
 	}
 }
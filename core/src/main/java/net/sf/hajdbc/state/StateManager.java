@@ -40,5 +40,19 @@ public interface StateManager extends DatabaseClusterListener, DurabilityListene
 	
 	Map<InvocationEvent, Map<String, InvokerEvent>> recover();
 	
+	/**
+	 * Returns the checkpoint recorded by the last incomplete synchronization of the specified database.
+	 * @param databaseId a database identifier
+	 * @return a synchronization checkpoint, or null, if none was recorded
+	 */
+	SynchronizationCheckpoint getCheckpoint(String databaseId);
+	
+	/**
+	 * Records the progress of the synchronization of the specified database.
+	 * @param databaseId a database identifier
+	 * @param checkpoint a synchronization checkpoint, or null, to discard any recorded checkpoint
+	 */
+	void setCheckpoint(String databaseId, SynchronizationCheckpoint checkpoint);
+	
 	boolean isEnabled();
 }
@@ -0,0 +1,71 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.state;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The progress of an incomplete synchronization of a database, from which a subsequent synchronization may resume.
+ * @author Paul Ferraro
+ */
+public class SynchronizationCheckpoint implements Serializable
+{
+	private static final long serialVersionUID = -2166624484101466442L;
+
+	private final Set<String> tables;
+	private final Map<String, Long> positions;
+	
+	/**
+	 * @param tables the names of the completely synchronized tables
+	 * @param positions the names of partially synchronized tables, mapped to the last copied primary key value
+	 */
+	public SynchronizationCheckpoint(Set<String> tables, Map<String, Long> positions)
+	{
+		this.tables = Collections.unmodifiableSet(new TreeSet<>(tables));
+		this.positions = Collections.unmodifiableMap(new TreeMap<>(positions));
+	}
+	
+	/**
+	 * Returns the names of the tables that were completely synchronized.
+	 * @return a set of table names
+	 */
+	public Set<String> getTables()
+	{
+		return this.tables;
+	}
+	
+	/**
+	 * Returns the last copied primary key value of the tables that were partially synchronized.
+	 * @return a map of table name to primary key value
+	 */
+	public Map<String, Long> getPositions()
+	{
+		return this.positions;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return String.format("tables=%s, positions=%s", this.tables, this.positions);
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.state.distributed;
+
+import java.util.List;
+
+import net.sf.hajdbc.Database;
+import net.sf.hajdbc.distributed.Command;
+
+/**
+ * Executes a sequence of durability commands, in order, within a single remote invocation.
+ * @author Paul Ferraro
+ */
+public class BatchCommand<Z, D extends Database<Z>> implements Command<Void, StateCommandContext<Z, D>>
+{
+	private static final long serialVersionUID = -4093460722616785112L;
+	
+	private final List<Command<Void, StateCommandContext<Z, D>>> commands;
+	
+	public BatchCommand(List<Command<Void, StateCommandContext<Z, D>>> commands)
+	{
+		this.commands = commands;
+	}
+
+	List<Command<Void, StateCommandContext<Z, D>>> getCommands()
+	{
+		return this.commands;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.distributed.Command#execute(java.lang.Object)
+	 */
+	@Override
+	public Void execute(StateCommandContext<Z, D> context)
+	{
+		for (Command<Void, StateCommandContext<Z, D>> command: this.commands)
+		{
+			command.execute(context);
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		return String.format("%s%s", this.getClass().getSimpleName(), this.commands);
+	}
+}
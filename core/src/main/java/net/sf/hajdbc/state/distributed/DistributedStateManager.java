@@ -48,6 +48,7 @@ import net.sf.hajdbc.messages.Messages;
 import net.sf.hajdbc.messages.MessagesFactory;
 import net.sf.hajdbc.state.DatabaseEvent;
 import net.sf.hajdbc.state.StateManager;
+import net.sf.hajdbc.state.SynchronizationCheckpoint;
 
 /**
  * @author Paul Ferraro
@@ -61,13 +62,15 @@ public class DistributedStateManager<Z, D extends Database<Z>> implements StateM
 	private final StateManager stateManager;
 	private final CommandDispatcher<StateCommandContext<Z, D>> dispatcher;
 	private final ConcurrentMap<Member, Map<InvocationEvent, Map<String, InvokerEvent>>> remoteInvokerMap = new ConcurrentHashMap<>();
+	private final DurabilityReplicator<Z, D> replicator;
 	
 	public DistributedStateManager(DatabaseCluster<Z, D> cluster, CommandDispatcherFactory dispatcherFactory) throws Exception
 	{
 		this.cluster = cluster;
 		this.stateManager = cluster.getStateManager();
 		StateCommandContext<Z, D> context = this;
-		this.dispatcher = dispatcherFactory.createCommandDispatcher(cluster.getId() + ".state", context, this, this);
+		this.dispatcher = dispatcherFactory.createCommandDispatcher(cluster.getId() + ".state", context, new StateCommandCodec<Z, D>(), this, this);
+		this.replicator = new DurabilityReplicator<>(this, cluster.getThreadFactory(), cluster.getDurabilityReplicationLag());
 	}
 
 	@Override
@@ -86,6 +89,26 @@ public class DistributedStateManager<Z, D extends Database<Z>> implements StateM
 		return this.stateManager.getActiveDatabases();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.state.StateManager#getCheckpoint(java.lang.String)
+	 */
+	@Override
+	public SynchronizationCheckpoint getCheckpoint(String databaseId)
+	{
+		return this.stateManager.getCheckpoint(databaseId);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.state.StateManager#setCheckpoint(java.lang.String, net.sf.hajdbc.state.SynchronizationCheckpoint)
+	 */
+	@Override
+	public void setCheckpoint(String databaseId, SynchronizationCheckpoint checkpoint)
+	{
+		this.stateManager.setCheckpoint(databaseId, checkpoint);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * @see net.sf.hajdbc.state.StateManager#setActiveDatabases(java.util.Set)
@@ -126,7 +149,8 @@ public class DistributedStateManager<Z, D extends Database<Z>> implements StateM
 	public void afterInvocation(InvocationEvent event)
 	{
 		this.stateManager.afterInvocation(event);
-		this.execute(new PostInvocationCommand<Z, D>(this.getRemoteDescriptor(event)));
+		// Only needed for crash recovery, so may lag
+		this.replicator.replicateAsync(new PostInvocationCommand<Z, D>(this.getRemoteDescriptor(event)));
 	}
 
 	/**
@@ -137,7 +161,8 @@ public class DistributedStateManager<Z, D extends Database<Z>> implements StateM
 	public void afterInvoker(InvokerEvent event)
 	{
 		this.stateManager.afterInvoker(event);
-		this.execute(new InvokerCommand<Z, D>(this.getRemoteDescriptor(event)));
+		// Only needed for crash recovery, so may lag
+		this.replicator.replicateAsync(new InvokerCommand<Z, D>(this.getRemoteDescriptor(event)));
 	}
 
 	/**
@@ -148,7 +173,7 @@ public class DistributedStateManager<Z, D extends Database<Z>> implements StateM
 	public void beforeInvocation(InvocationEvent event)
 	{
 		this.stateManager.beforeInvocation(event);
-		this.execute(new PreInvocationCommand<Z, D>(this.getRemoteDescriptor(event)));
+		this.replicator.replicate(new PreInvocationCommand<Z, D>(this.getRemoteDescriptor(event)));
 	}
 
 	/**
@@ -159,10 +184,10 @@ public class DistributedStateManager<Z, D extends Database<Z>> implements StateM
 	public void beforeInvoker(InvokerEvent event)
 	{
 		this.stateManager.beforeInvoker(event);
-		this.execute(new InvokerCommand<Z, D>(this.getRemoteDescriptor(event)));
+		this.replicator.replicate(new InvokerCommand<Z, D>(this.getRemoteDescriptor(event)));
 	}
 
-	private <R> void execute(Command<R, StateCommandContext<Z, D>> command)
+	<R> void execute(Command<R, StateCommandContext<Z, D>> command)
 	{
 		try
 		{
@@ -206,6 +231,7 @@ public class DistributedStateManager<Z, D extends Database<Z>> implements StateM
 	{
 		this.stateManager.start();
 		this.dispatcher.start();
+		this.replicator.start();
 	}
 
 	/**
@@ -215,6 +241,7 @@ public class DistributedStateManager<Z, D extends Database<Z>> implements StateM
 	@Override
 	public void stop()
 	{
+		this.replicator.stop();
 		this.dispatcher.stop();
 		this.stateManager.stop();
 	}
@@ -351,7 +378,7 @@ public class DistributedStateManager<Z, D extends Database<Z>> implements StateM
 		}
 	}
 	
-	private static class RemoteInvocationDescriptorImpl extends RemoteDescriptor implements RemoteInvocationDescriptor
+	static class RemoteInvocationDescriptorImpl extends RemoteDescriptor implements RemoteInvocationDescriptor
 	{
 		private static final long serialVersionUID = 7782082258670023082L;
 		
@@ -381,7 +408,7 @@ public class DistributedStateManager<Z, D extends Database<Z>> implements StateM
 		}
 	}
 	
-	private static class RemoteInvokerDescriptorImpl extends RemoteDescriptor implements RemoteInvokerDescriptor
+	static class RemoteInvokerDescriptorImpl extends RemoteDescriptor implements RemoteInvokerDescriptor
 	{
 		private static final long serialVersionUID = 6991831573393882786L;
 		
@@ -0,0 +1,256 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.state.distributed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.sf.hajdbc.Database;
+import net.sf.hajdbc.Lifecycle;
+import net.sf.hajdbc.distributed.Command;
+
+/**
+ * Replicates durability commands to the other members of the group, coalescing the commands of concurrent transactions into batches.
+ * Synchronous commands return once a batch containing them has been executed by all members, where a single thread executes the batch on behalf of all threads waiting at that time (i.e. group commit).
+ * Asynchronous commands return immediately, and are replicated with the next batch, at most some number of milliseconds later.
+ * Commands are always executed remotely in the order in which they were replicated locally.
+ * @author Paul Ferraro
+ */
+public class DurabilityReplicator<Z, D extends Database<Z>> implements Lifecycle
+{
+	private final DistributedStateManager<Z, D> manager;
+	private final ThreadFactory threadFactory;
+	private final long maxLag;
+	
+	private final Lock lock = new ReentrantLock();
+	private final Condition replicated = this.lock.newCondition();
+	private final Runnable flushTask = new Runnable()
+	{
+		@Override
+		public void run()
+		{
+			DurabilityReplicator.this.flush();
+		}
+	};
+	
+	// The following are guarded by lock
+	private List<Command<Void, StateCommandContext<Z, D>>> pending = new ArrayList<>();
+	private long enqueued = 0;
+	private long completed = 0;
+	private boolean flushing = false;
+	private boolean scheduled = false;
+	private ScheduledExecutorService scheduler;
+	
+	/**
+	 * Creates a new replicator.
+	 * @param manager the manager that executes replicated commands on the group
+	 * @param threadFactory the factory of the thread that flushes asynchronous commands
+	 * @param maxLag the maximum number of milliseconds by which replication of asynchronous commands may lag, or 0, if all commands should replicate synchronously
+	 */
+	public DurabilityReplicator(DistributedStateManager<Z, D> manager, ThreadFactory threadFactory, long maxLag)
+	{
+		this.manager = manager;
+		this.threadFactory = threadFactory;
+		this.maxLag = maxLag;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.Lifecycle#start()
+	 */
+	@Override
+	public void start()
+	{
+		if (this.maxLag > 0)
+		{
+			this.lock.lock();
+			try
+			{
+				this.scheduler = (this.threadFactory != null) ? Executors.newSingleThreadScheduledExecutor(this.threadFactory) : Executors.newSingleThreadScheduledExecutor();
+			}
+			finally
+			{
+				this.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.Lifecycle#stop()
+	 */
+	@Override
+	public void stop()
+	{
+		ScheduledExecutorService scheduler = null;
+		this.lock.lock();
+		try
+		{
+			scheduler = this.scheduler;
+			this.scheduler = null;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+		
+		if (scheduler != null)
+		{
+			scheduler.shutdownNow();
+		}
+		
+		// Don't leave any asynchronous commands behind
+		this.flush();
+	}
+	
+	/**
+	 * Replicates the specified command, returning once it has been executed by all members.
+	 * Concurrent callers share a single remote invocation.
+	 * @param command a durability command
+	 */
+	public void replicate(Command<Void, StateCommandContext<Z, D>> command)
+	{
+		this.flush(this.enqueue(command));
+	}
+	
+	/**
+	 * Replicates the specified command asynchronously, with the next batch, or within the maximum lag, whichever is first.
+	 * @param command a durability command
+	 */
+	public void replicateAsync(Command<Void, StateCommandContext<Z, D>> command)
+	{
+		this.lock.lock();
+		try
+		{
+			if (this.scheduler != null)
+			{
+				this.pending.add(command);
+				this.enqueued += 1;
+				
+				if (!this.scheduled)
+				{
+					this.scheduler.schedule(this.flushTask, this.maxLag, TimeUnit.MILLISECONDS);
+					this.scheduled = true;
+				}
+				return;
+			}
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+		
+		// Asynchronous replication is disabled, or stopped
+		this.replicate(command);
+	}
+	
+	/**
+	 * Replicates all pending commands, returning once they have been executed by all members.
+	 */
+	public void flush()
+	{
+		long sequence = 0;
+		this.lock.lock();
+		try
+		{
+			this.scheduled = false;
+			sequence = this.enqueued;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+		this.flush(sequence);
+	}
+	
+	private long enqueue(Command<Void, StateCommandContext<Z, D>> command)
+	{
+		this.lock.lock();
+		try
+		{
+			this.pending.add(command);
+			this.enqueued += 1;
+			return this.enqueued;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+	
+	/**
+	 * Waits until all commands up to the specified sequence number have been replicated.
+	 * If no batch is currently in progress, the calling thread replicates all pending commands itself.
+	 */
+	private void flush(long sequence)
+	{
+		this.lock.lock();
+		try
+		{
+			while (this.completed < sequence)
+			{
+				if (this.flushing)
+				{
+					this.replicated.awaitUninterruptibly();
+				}
+				else
+				{
+					List<Command<Void, StateCommandContext<Z, D>>> batch = this.pending;
+					long last = this.enqueued;
+					this.pending = new ArrayList<>();
+					this.flushing = true;
+					this.lock.unlock();
+					try
+					{
+						this.execute(batch);
+					}
+					finally
+					{
+						this.lock.lock();
+						this.completed = last;
+						this.flushing = false;
+						this.replicated.signalAll();
+					}
+				}
+			}
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+	
+	private void execute(List<Command<Void, StateCommandContext<Z, D>>> batch)
+	{
+		if (batch.size() == 1)
+		{
+			this.manager.execute(batch.get(0));
+		}
+		else if (!batch.isEmpty())
+		{
+			this.manager.execute(new BatchCommand<>(batch));
+		}
+	}
+}
@@ -37,6 +37,11 @@ public abstract class InvocationCommand<Z, D extends Database<Z>> implements Com
 	{
 		this.descriptor = descriptor;
 	}
+
+	RemoteInvocationDescriptor getDescriptor()
+	{
+		return this.descriptor;
+	}
 	
 	/**
 	 * {@inheritDoc}
@@ -36,6 +36,11 @@ public class InvokerCommand<Z, D extends Database<Z>> implements Command<Void, S
 		this.descriptor = descriptor;
 	}
 
+	RemoteInvokerDescriptor getDescriptor()
+	{
+		return this.descriptor;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * @see net.sf.hajdbc.distributed.Command#execute(java.lang.Object)
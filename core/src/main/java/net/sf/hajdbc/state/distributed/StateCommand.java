@@ -37,6 +37,11 @@ public abstract class StateCommand<Z, D extends Database<Z>> implements Command<
 	{
 		this.event = event;
 	}
+
+	DatabaseEvent getEvent()
+	{
+		return this.event;
+	}
 	
 	/**
 	 * {@inheritDoc}
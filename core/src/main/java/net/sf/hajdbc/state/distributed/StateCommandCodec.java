@@ -0,0 +1,267 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.state.distributed;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.hajdbc.Database;
+import net.sf.hajdbc.ExceptionType;
+import net.sf.hajdbc.distributed.BinaryCommandCodec;
+import net.sf.hajdbc.distributed.Command;
+import net.sf.hajdbc.distributed.CommandMarshaller;
+import net.sf.hajdbc.distributed.Member;
+import net.sf.hajdbc.durability.Durability;
+import net.sf.hajdbc.durability.InvocationEvent;
+import net.sf.hajdbc.durability.InvocationEventImpl;
+import net.sf.hajdbc.durability.InvokerEvent;
+import net.sf.hajdbc.durability.InvokerEventImpl;
+import net.sf.hajdbc.durability.InvokerResult;
+import net.sf.hajdbc.durability.InvokerResultImpl;
+import net.sf.hajdbc.state.DatabaseEvent;
+
+/**
+ * Compact binary codec for state commands, i.e. database activations/deactivations and durability events.
+ * @author Paul Ferraro
+ */
+public class StateCommandCodec<Z, D extends Database<Z>> extends BinaryCommandCodec<StateCommandContext<Z, D>>
+{
+	private static final int NO_RESULT = 0;
+	private static final int VALUE_RESULT = 1;
+	private static final int EXCEPTION_RESULT = 2;
+	
+	private static final Durability.Phase[] PHASES = Durability.Phase.values();
+	private static final ExceptionType[] EXCEPTION_TYPES = ExceptionType.values();
+	
+	public StateCommandCodec()
+	{
+		this.register(new PreInvocationCommandMarshaller<Z, D>());
+		this.register(new InvokerCommandMarshaller<Z, D>());
+		this.register(new PostInvocationCommandMarshaller<Z, D>());
+		this.register(new BatchCommandMarshaller());
+		this.register(new ActivationCommandMarshaller<Z, D>());
+		this.register(new DeactivationCommandMarshaller<Z, D>());
+	}
+	
+	static void writeEvent(DataOutput output, InvocationEvent event) throws IOException
+	{
+		writeObject(output, event.getTransactionId());
+		writeEnum(output, event.getPhase());
+		writeEnum(output, event.getExceptionType());
+	}
+	
+	static InvocationEvent readInvocationEvent(DataInput input) throws IOException
+	{
+		Object transactionId = readObject(input);
+		Durability.Phase phase = readEnum(input, PHASES);
+		ExceptionType exceptionType = readEnum(input, EXCEPTION_TYPES);
+		return new InvocationEventImpl(transactionId, phase, exceptionType);
+	}
+	
+	static void writeEvent(DataOutput output, InvokerEvent event) throws IOException
+	{
+		writeObject(output, event.getTransactionId());
+		writeEnum(output, event.getPhase());
+		output.writeUTF(event.getDatabaseId());
+		
+		InvokerResult result = event.getResult();
+		if (result == null)
+		{
+			output.writeByte(NO_RESULT);
+		}
+		else if (result.getException() != null)
+		{
+			output.writeByte(EXCEPTION_RESULT);
+			writeObject(output, result.getException());
+		}
+		else
+		{
+			output.writeByte(VALUE_RESULT);
+			writeObject(output, result.getValue());
+		}
+	}
+	
+	static InvokerEvent readInvokerEvent(DataInput input) throws IOException
+	{
+		Object transactionId = readObject(input);
+		Durability.Phase phase = readEnum(input, PHASES);
+		String databaseId = input.readUTF();
+		InvokerEvent event = new InvokerEventImpl(transactionId, phase, databaseId);
+		
+		int result = input.readUnsignedByte();
+		if (result == EXCEPTION_RESULT)
+		{
+			event.setResult(new InvokerResultImpl((Exception) readObject(input)));
+		}
+		else if (result == VALUE_RESULT)
+		{
+			event.setResult(new InvokerResultImpl(readObject(input)));
+		}
+		return event;
+	}
+	
+	static class PreInvocationCommandMarshaller<Z, D extends Database<Z>> implements CommandMarshaller<StateCommandContext<Z, D>, PreInvocationCommand<Z, D>>
+	{
+		@SuppressWarnings("unchecked")
+		@Override
+		public Class<PreInvocationCommand<Z, D>> getCommandClass()
+		{
+			return (Class<PreInvocationCommand<Z, D>>) (Class<?>) PreInvocationCommand.class;
+		}
+
+		@Override
+		public void write(DataOutput output, PreInvocationCommand<Z, D> command) throws IOException
+		{
+			writeEvent(output, command.getDescriptor().getEvent());
+		}
+
+		@Override
+		public PreInvocationCommand<Z, D> read(DataInput input, Member sender) throws IOException
+		{
+			return new PreInvocationCommand<>(new DistributedStateManager.RemoteInvocationDescriptorImpl(readInvocationEvent(input), sender));
+		}
+	}
+	
+	static class PostInvocationCommandMarshaller<Z, D extends Database<Z>> implements CommandMarshaller<StateCommandContext<Z, D>, PostInvocationCommand<Z, D>>
+	{
+		@SuppressWarnings("unchecked")
+		@Override
+		public Class<PostInvocationCommand<Z, D>> getCommandClass()
+		{
+			return (Class<PostInvocationCommand<Z, D>>) (Class<?>) PostInvocationCommand.class;
+		}
+
+		@Override
+		public void write(DataOutput output, PostInvocationCommand<Z, D> command) throws IOException
+		{
+			writeEvent(output, command.getDescriptor().getEvent());
+		}
+
+		@Override
+		public PostInvocationCommand<Z, D> read(DataInput input, Member sender) throws IOException
+		{
+			return new PostInvocationCommand<>(new DistributedStateManager.RemoteInvocationDescriptorImpl(readInvocationEvent(input), sender));
+		}
+	}
+	
+	static class InvokerCommandMarshaller<Z, D extends Database<Z>> implements CommandMarshaller<StateCommandContext<Z, D>, InvokerCommand<Z, D>>
+	{
+		@SuppressWarnings("unchecked")
+		@Override
+		public Class<InvokerCommand<Z, D>> getCommandClass()
+		{
+			return (Class<InvokerCommand<Z, D>>) (Class<?>) InvokerCommand.class;
+		}
+
+		@Override
+		public void write(DataOutput output, InvokerCommand<Z, D> command) throws IOException
+		{
+			writeEvent(output, command.getDescriptor().getEvent());
+		}
+
+		@Override
+		public InvokerCommand<Z, D> read(DataInput input, Member sender) throws IOException
+		{
+			return new InvokerCommand<>(new DistributedStateManager.RemoteInvokerDescriptorImpl(readInvokerEvent(input), sender));
+		}
+	}
+	
+	static class ActivationCommandMarshaller<Z, D extends Database<Z>> implements CommandMarshaller<StateCommandContext<Z, D>, ActivationCommand<Z, D>>
+	{
+		@SuppressWarnings("unchecked")
+		@Override
+		public Class<ActivationCommand<Z, D>> getCommandClass()
+		{
+			return (Class<ActivationCommand<Z, D>>) (Class<?>) ActivationCommand.class;
+		}
+
+		@Override
+		public void write(DataOutput output, ActivationCommand<Z, D> command) throws IOException
+		{
+			output.writeUTF(command.getEvent().getSource());
+		}
+
+		@Override
+		public ActivationCommand<Z, D> read(DataInput input, Member sender) throws IOException
+		{
+			return new ActivationCommand<>(new DatabaseEvent(input.readUTF()));
+		}
+	}
+	
+	static class DeactivationCommandMarshaller<Z, D extends Database<Z>> implements CommandMarshaller<StateCommandContext<Z, D>, DeactivationCommand<Z, D>>
+	{
+		@SuppressWarnings("unchecked")
+		@Override
+		public Class<DeactivationCommand<Z, D>> getCommandClass()
+		{
+			return (Class<DeactivationCommand<Z, D>>) (Class<?>) DeactivationCommand.class;
+		}
+
+		@Override
+		public void write(DataOutput output, DeactivationCommand<Z, D> command) throws IOException
+		{
+			output.writeUTF(command.getEvent().getSource());
+		}
+
+		@Override
+		public DeactivationCommand<Z, D> read(DataInput input, Member sender) throws IOException
+		{
+			return new DeactivationCommand<>(new DatabaseEvent(input.readUTF()));
+		}
+	}
+	
+	/**
+	 * Writes each command of a batch using this codec.
+	 */
+	class BatchCommandMarshaller implements CommandMarshaller<StateCommandContext<Z, D>, BatchCommand<Z, D>>
+	{
+		@SuppressWarnings("unchecked")
+		@Override
+		public Class<BatchCommand<Z, D>> getCommandClass()
+		{
+			return (Class<BatchCommand<Z, D>>) (Class<?>) BatchCommand.class;
+		}
+
+		@Override
+		public void write(DataOutput output, BatchCommand<Z, D> command) throws IOException
+		{
+			List<Command<Void, StateCommandContext<Z, D>>> commands = command.getCommands();
+			output.writeInt(commands.size());
+			for (Command<Void, StateCommandContext<Z, D>> element: commands)
+			{
+				StateCommandCodec.this.write(output, element);
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public BatchCommand<Z, D> read(DataInput input, Member sender) throws IOException
+		{
+			int size = input.readInt();
+			List<Command<Void, StateCommandContext<Z, D>>> commands = new ArrayList<>(size);
+			for (int i = 0; i < size; ++i)
+			{
+				commands.add((Command<Void, StateCommandContext<Z, D>>) (Command<?, StateCommandContext<Z, D>>) StateCommandCodec.this.read(input, sender));
+			}
+			return new BatchCommand<>(commands);
+		}
+	}
+}
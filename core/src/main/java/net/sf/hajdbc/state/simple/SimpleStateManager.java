@@ -28,11 +28,13 @@ import net.sf.hajdbc.durability.InvocationEventAdapter;
 import net.sf.hajdbc.durability.InvokerEvent;
 import net.sf.hajdbc.state.DatabaseEvent;
 import net.sf.hajdbc.state.StateManager;
+import net.sf.hajdbc.state.SynchronizationCheckpoint;
 
 public class SimpleStateManager implements StateManager
 {
 	private final Map<InvocationEvent, Map<String, InvokerEvent>> invocations = new ConcurrentHashMap<>();
 	private final Set<String> activeDatabases = new CopyOnWriteArraySet<>();
+	private final Map<String, SynchronizationCheckpoint> checkpoints = new ConcurrentHashMap<>();
 
 	@Override
 	public Set<String> getActiveDatabases()
@@ -46,6 +48,25 @@ public class SimpleStateManager implements StateManager
 		return this.invocations;
 	}
 
+	@Override
+	public SynchronizationCheckpoint getCheckpoint(String databaseId)
+	{
+		return this.checkpoints.get(databaseId);
+	}
+
+	@Override
+	public void setCheckpoint(String databaseId, SynchronizationCheckpoint checkpoint)
+	{
+		if (checkpoint != null)
+		{
+			this.checkpoints.put(databaseId, checkpoint);
+		}
+		else
+		{
+			this.checkpoints.remove(databaseId);
+		}
+	}
+
 	@Override
 	public void setActiveDatabases(Set<String> databases)
 	{
@@ -0,0 +1,322 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.state.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.sf.hajdbc.logging.Level;
+import net.sf.hajdbc.logging.Logger;
+import net.sf.hajdbc.logging.LoggerFactory;
+import net.sf.hajdbc.pool.Pool;
+
+/**
+ * Write-ahead journal that groups the transactions of concurrent callers into a single database transaction.
+ * Transactions are buffered until either the maximum batch size is reached or the maximum latency has elapsed since the first buffered transaction,
+ * whereupon the whole batch is executed and committed using a single connection.
+ * Callers block only until the batch containing their transaction is durable.
+ * Once stopped, the journal flushes any buffered transactions and rejects any subsequent transactions.
+ * @author Paul Ferraro
+ */
+class GroupCommitJournal implements Runnable
+{
+	private static final Logger logger = LoggerFactory.getLogger(GroupCommitJournal.class);
+
+	private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+	private final Pool<Connection, SQLException> pool;
+	private final int maxBatchSize;
+	private final long maxBatchLatency;
+	private final Thread thread;
+	// Orders the enqueuing of transactions against the stopping of the journal
+	private final ReadWriteLock lifecycleLock = new ReentrantReadWriteLock();
+
+	private volatile boolean active = true;
+
+	/**
+	 * Creates a new group commit journal
+	 * @param pool a pool of connections to the state database
+	 * @param maxBatchSize the maximum number of transactions to commit at once
+	 * @param maxBatchLatency the maximum number of milliseconds to wait for a batch to fill
+	 * @param threadFactory a factory for creating the flusher thread
+	 */
+	GroupCommitJournal(Pool<Connection, SQLException> pool, int maxBatchSize, long maxBatchLatency, ThreadFactory threadFactory)
+	{
+		this.pool = pool;
+		this.maxBatchSize = maxBatchSize;
+		this.maxBatchLatency = TimeUnit.MILLISECONDS.toNanos(maxBatchLatency);
+		this.thread = threadFactory.newThread(this);
+	}
+
+	public void start()
+	{
+		this.thread.start();
+	}
+
+	/**
+	 * Stops the flusher thread after flushing any buffered transactions.
+	 */
+	public void stop()
+	{
+		// Don't interrupt the flusher thread, since some embedded databases do not tolerate interruption of i/o
+		this.close();
+		try
+		{
+			this.thread.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		// Flush anything the flusher thread did not, e.g. if it was never started
+		this.drain();
+	}
+
+	/**
+	 * Prevents any further transactions from being enqueued.
+	 */
+	private void close()
+	{
+		Lock lock = this.lifecycleLock.writeLock();
+		lock.lock();
+		try
+		{
+			this.active = false;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	private void drain()
+	{
+		List<Entry> batch = new ArrayList<>(this.queue.size());
+		this.queue.drainTo(batch);
+		if (!batch.isEmpty())
+		{
+			this.flush(batch);
+		}
+	}
+
+	/**
+	 * Adds the specified transaction to the current batch, and waits until that batch was committed.
+	 * @param transaction a state manager transaction
+	 * @throws SQLException if the transaction failed, if the journal was stopped, or if the calling thread was interrupted while waiting
+	 */
+	public void execute(SQLStateManager.Transaction transaction) throws SQLException
+	{
+		Entry entry = new Entry(transaction);
+
+		Lock lock = this.lifecycleLock.readLock();
+		lock.lock();
+		try
+		{
+			if (!this.active)
+			{
+				throw new SQLException("Group commit journal was stopped");
+			}
+			this.queue.add(entry);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+
+		try
+		{
+			entry.latch.await();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new SQLException(e);
+		}
+
+		if (entry.exception != null)
+		{
+			throw entry.exception;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run()
+	{
+		List<Entry> batch = new ArrayList<>(this.maxBatchSize);
+
+		while (this.active)
+		{
+			try
+			{
+				Entry first = this.queue.poll(1, TimeUnit.SECONDS);
+				if (first == null) continue;
+
+				batch.add(first);
+
+				long deadline = System.nanoTime() + this.maxBatchLatency;
+
+				while (batch.size() < this.maxBatchSize)
+				{
+					// Grab anything already queued without waiting
+					this.queue.drainTo(batch, this.maxBatchSize - batch.size());
+
+					long remaining = deadline - System.nanoTime();
+					if ((batch.size() >= this.maxBatchSize) || (remaining <= 0)) break;
+
+					Entry entry = this.queue.poll(remaining, TimeUnit.NANOSECONDS);
+					if (entry == null) break;
+
+					batch.add(entry);
+				}
+			}
+			catch (InterruptedException e)
+			{
+				// We own this thread, so just flush what we have collected so far and exit
+				this.close();
+			}
+
+			if (!batch.isEmpty())
+			{
+				this.flush(batch);
+				batch.clear();
+			}
+		}
+
+		// No transactions can be enqueued once inactive, so this flushes the remainder
+		this.drain();
+	}
+
+	private void flush(List<Entry> batch)
+	{
+		try
+		{
+			Connection connection = this.pool.take();
+
+			try
+			{
+				try
+				{
+					for (Entry entry: batch)
+					{
+						entry.transaction.execute(connection);
+					}
+
+					connection.commit();
+
+					for (Entry entry: batch)
+					{
+						entry.complete(null);
+					}
+				}
+				catch (SQLException e)
+				{
+					rollback(connection);
+
+					if (batch.size() == 1)
+					{
+						batch.get(0).complete(e);
+					}
+					else
+					{
+						logger.log(Level.DEBUG, e, "Group commit of {0} transactions failed, retrying individually", batch.size());
+
+						// Isolate the failing transaction(s) so as not to fail the entire batch
+						for (Entry entry: batch)
+						{
+							try
+							{
+								entry.transaction.execute(connection);
+
+								connection.commit();
+
+								entry.complete(null);
+							}
+							catch (SQLException ex)
+							{
+								rollback(connection);
+
+								entry.complete(ex);
+							}
+						}
+					}
+				}
+			}
+			finally
+			{
+				this.pool.release(connection);
+			}
+		}
+		catch (SQLException e)
+		{
+			for (Entry entry: batch)
+			{
+				entry.complete(e);
+			}
+		}
+		catch (RuntimeException e)
+		{
+			for (Entry entry: batch)
+			{
+				entry.complete(new SQLException(e));
+			}
+		}
+	}
+
+	private static void rollback(Connection connection)
+	{
+		try
+		{
+			connection.rollback();
+		}
+		catch (SQLException e)
+		{
+			logger.log(Level.WARN, e);
+		}
+	}
+
+	private static class Entry
+	{
+		final SQLStateManager.Transaction transaction;
+		final CountDownLatch latch = new CountDownLatch(1);
+		volatile SQLException exception;
+
+		Entry(SQLStateManager.Transaction transaction)
+		{
+			this.transaction = transaction;
+		}
+
+		void complete(SQLException exception)
+		{
+			this.exception = exception;
+			this.latch.countDown();
+		}
+	}
+}
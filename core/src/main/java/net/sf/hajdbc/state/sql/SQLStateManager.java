@@ -57,6 +57,7 @@ import net.sf.hajdbc.state.DatabaseEvent;
 import net.sf.hajdbc.state.DurabilityListenerAdapter;
 import net.sf.hajdbc.state.SerializedDurabilityListener;
 import net.sf.hajdbc.state.StateManager;
+import net.sf.hajdbc.state.SynchronizationCheckpoint;
 import net.sf.hajdbc.util.Objects;
 import net.sf.hajdbc.util.ServiceLoaders;
 
@@ -74,12 +75,19 @@ public class SQLStateManager<Z, D extends Database<Z>> implements StateManager,
 	private static final String PHASE_COLUMN = "phase_id";
 	private static final String EXCEPTION_COLUMN = "exception_id";
 	private static final String RESULT_COLUMN = "result";
+
+	private static final String CHECKPOINT_TABLE = "cluster_checkpoint";
+	private static final String CHECKPOINT_COLUMN = "checkpoint";
 	
 	static final String SELECT_STATE_SQL = MessageFormat.format("SELECT {1} FROM {0}", STATE_TABLE, DATABASE_COLUMN);
 	static final String INSERT_STATE_SQL = MessageFormat.format("INSERT INTO {0} ({1}) VALUES (?)", STATE_TABLE, DATABASE_COLUMN);
 	static final String DELETE_STATE_SQL = MessageFormat.format("DELETE FROM {0} WHERE {1} = ?", STATE_TABLE, DATABASE_COLUMN);
 	static final String TRUNCATE_STATE_SQL = MessageFormat.format("DELETE FROM {0}", STATE_TABLE);
 
+	static final String SELECT_CHECKPOINT_SQL = MessageFormat.format("SELECT {2} FROM {0} WHERE {1} = ?", CHECKPOINT_TABLE, DATABASE_COLUMN, CHECKPOINT_COLUMN);
+	static final String INSERT_CHECKPOINT_SQL = MessageFormat.format("INSERT INTO {0} ({1}, {2}) VALUES (?, ?)", CHECKPOINT_TABLE, DATABASE_COLUMN, CHECKPOINT_COLUMN);
+	static final String DELETE_CHECKPOINT_SQL = MessageFormat.format("DELETE FROM {0} WHERE {1} = ?", CHECKPOINT_TABLE, DATABASE_COLUMN);
+
 	static final String SELECT_INVOCATION_SQL = MessageFormat.format("SELECT {1}, {2}, {3} FROM {0}", INVOCATION_TABLE, TRANSACTION_COLUMN, PHASE_COLUMN, EXCEPTION_COLUMN);
 	static final String INSERT_INVOCATION_SQL = MessageFormat.format("INSERT INTO {0} ({1}, {2}, {3}) VALUES (?, ?, ?)", INVOCATION_TABLE, TRANSACTION_COLUMN, PHASE_COLUMN, EXCEPTION_COLUMN);
 	static final String DELETE_INVOCATION_SQL = MessageFormat.format("DELETE FROM {0} WHERE {1} = ? AND {2} = ?", INVOCATION_TABLE, TRANSACTION_COLUMN, PHASE_COLUMN);
@@ -92,6 +100,7 @@ public class SQLStateManager<Z, D extends Database<Z>> implements StateManager,
 	private static final String CREATE_INVOCATION_SQL = MessageFormat.format("CREATE TABLE {0} ({1} {2} NOT NULL, {3} {4} NOT NULL, {5} {6} NOT NULL, PRIMARY KEY ({1}, {3}))", INVOCATION_TABLE, TRANSACTION_COLUMN, "{0}", PHASE_COLUMN, "{1}", EXCEPTION_COLUMN, "{2}");
 	private static final String CREATE_INVOKER_SQL = MessageFormat.format("CREATE TABLE {0} ({1} {2} NOT NULL, {3} {4} NOT NULL, {5} {6} NOT NULL, {7} {8}, PRIMARY KEY ({1}, {3}, {5}))", INVOKER_TABLE, TRANSACTION_COLUMN, "{0}", PHASE_COLUMN, "{1}", DATABASE_COLUMN, "{2}", RESULT_COLUMN, "{3}");
 	private static final String CREATE_STATE_SQL = MessageFormat.format("CREATE TABLE {0} ({1} {2} NOT NULL, PRIMARY KEY ({1}))", STATE_TABLE, DATABASE_COLUMN, "{0}");
+	private static final String CREATE_CHECKPOINT_SQL = MessageFormat.format("CREATE TABLE {0} ({1} {2} NOT NULL, {3} {4} NOT NULL, PRIMARY KEY ({1}))", CHECKPOINT_TABLE, DATABASE_COLUMN, "{0}", CHECKPOINT_COLUMN, "{1}");
 	
 	private static Logger logger = LoggerFactory.getLogger(SQLStateManager.class);
 	
@@ -100,14 +109,32 @@ public class SQLStateManager<Z, D extends Database<Z>> implements StateManager,
 	private final DatabaseCluster<Z, D> cluster;
 	private final PoolFactory poolFactory;
 	private final DriverDatabase database;
+	private final int maxBatchSize;
+	private final long maxBatchLatency;
 	
 	private Pool<Connection, SQLException> pool;
+	private volatile GroupCommitJournal journal;
 	
 	public SQLStateManager(DatabaseCluster<Z, D> cluster, DriverDatabase database, PoolFactory poolFactory)
+	{
+		this(cluster, database, poolFactory, 1, 0);
+	}
+	
+	/**
+	 * Creates a new SQL state manager.
+	 * @param cluster a database cluster
+	 * @param database the embedded database used to persist cluster state
+	 * @param poolFactory a factory for creating a connection pool
+	 * @param maxBatchSize the maximum number of concurrent transactions to group into a single commit.  A value of 1 disables group commit.
+	 * @param maxBatchLatency the maximum number of milliseconds to wait for a group commit batch to fill
+	 */
+	public SQLStateManager(DatabaseCluster<Z, D> cluster, DriverDatabase database, PoolFactory poolFactory, int maxBatchSize, long maxBatchLatency)
 	{
 		this.cluster = cluster;
 		this.database = database;
 		this.poolFactory = poolFactory;
+		this.maxBatchSize = maxBatchSize;
+		this.maxBatchLatency = maxBatchLatency;
 		this.eventFactory = cluster.getDurability();
 		this.listener = new DurabilityListenerAdapter(this, cluster.getTransactionIdentifierFactory(), this.eventFactory);
 	}
@@ -197,6 +224,83 @@ public class SQLStateManager<Z, D extends Database<Z>> implements StateManager,
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.state.StateManager#getCheckpoint(java.lang.String)
+	 */
+	@Override
+	public SynchronizationCheckpoint getCheckpoint(final String databaseId)
+	{
+		Query<SynchronizationCheckpoint> query = new Query<SynchronizationCheckpoint>()
+		{
+			@Override
+			public SynchronizationCheckpoint execute(Connection connection) throws SQLException
+			{
+				try (PreparedStatement statement = connection.prepareStatement(SELECT_CHECKPOINT_SQL))
+				{
+					statement.setString(1, databaseId);
+					
+					try (ResultSet resultSet = statement.executeQuery())
+					{
+						return resultSet.next() ? Objects.deserialize(resultSet.getBytes(1), SynchronizationCheckpoint.class) : null;
+					}
+				}
+			}
+		};
+
+		try
+		{
+			return this.execute(query);
+		}
+		catch (SQLException e)
+		{
+			logger.log(Level.ERROR, e, e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.state.StateManager#setCheckpoint(java.lang.String, net.sf.hajdbc.state.SynchronizationCheckpoint)
+	 */
+	@Override
+	public void setCheckpoint(final String databaseId, final SynchronizationCheckpoint checkpoint)
+	{
+		Transaction transaction = new Transaction()
+		{
+			@Override
+			public void execute(Connection connection) throws SQLException
+			{
+				try (PreparedStatement statement = connection.prepareStatement(DELETE_CHECKPOINT_SQL))
+				{
+					statement.setString(1, databaseId);
+					
+					statement.executeUpdate();
+				}
+				
+				if (checkpoint != null)
+				{
+					try (PreparedStatement statement = connection.prepareStatement(INSERT_CHECKPOINT_SQL))
+					{
+						statement.setString(1, databaseId);
+						statement.setBytes(2, Objects.serialize(checkpoint));
+						
+						statement.executeUpdate();
+					}
+				}
+			}
+		};
+
+		try
+		{
+			this.execute(transaction);
+		}
+		catch (SQLException e)
+		{
+			logger.log(Level.ERROR, e, e.getMessage());
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * @see net.sf.hajdbc.DatabaseClusterListener#activated(net.sf.hajdbc.state.DatabaseEvent)
@@ -550,6 +654,7 @@ public class SQLStateManager<Z, D extends Database<Z>> implements StateManager,
 				createTableIfNotExists(statement, properties, STATE_TABLE, CREATE_STATE_SQL, stringType);
 				createTableIfNotExists(statement, properties, INVOCATION_TABLE, CREATE_INVOCATION_SQL, binaryType, enumType, enumType);
 				createTableIfNotExists(statement, properties, INVOKER_TABLE, CREATE_INVOKER_SQL, binaryType, enumType, stringType, varBinaryType);
+				createTableIfNotExists(statement, properties, CHECKPOINT_TABLE, CREATE_CHECKPOINT_SQL, stringType, varBinaryType);
 
 				if (Boolean.getBoolean(StateManager.CLEAR_LOCAL_STATE))
 				{
@@ -561,6 +666,12 @@ public class SQLStateManager<Z, D extends Database<Z>> implements StateManager,
 		{
 			this.pool.release(connection);
 		}
+		
+		if (this.maxBatchSize > 1)
+		{
+			this.journal = new GroupCommitJournal(this.pool, this.maxBatchSize, this.maxBatchLatency, this.cluster.getThreadFactory());
+			this.journal.start();
+		}
 	}
 
 	private static void createTableIfNotExists(Statement statement, DatabaseProperties properties, String table, String pattern, String... types) throws SQLException
@@ -580,6 +691,12 @@ public class SQLStateManager<Z, D extends Database<Z>> implements StateManager,
 	@Override
 	public void stop()
 	{
+		if (this.journal != null)
+		{
+			this.journal.stop();
+			this.journal = null;
+		}
+		
 		if (this.pool != null)
 		{
 			this.pool.close();
@@ -621,6 +738,14 @@ public class SQLStateManager<Z, D extends Database<Z>> implements StateManager,
 
 	private void execute(Transaction transaction) throws SQLException
 	{
+		GroupCommitJournal journal = this.journal;
+		
+		if (journal != null)
+		{
+			journal.execute(transaction);
+			return;
+		}
+		
 		Connection connection = this.pool.take();
 		
 		try
@@ -70,6 +70,8 @@ public class SQLStateManagerFactory extends GenericObjectPoolConfiguration imple
 	private String urlPattern;
 	private String user;
 	private String password;
+	private int maxBatchSize = 1;
+	private long maxBatchLatency = 5;
 
 	public SQLStateManagerFactory()
 	{
@@ -126,7 +128,7 @@ public class SQLStateManagerFactory extends GenericObjectPoolConfiguration imple
 		
 		logger.log(Level.INFO, messages.clusterStatePersistence(cluster, url));
 		
-		return new SQLStateManager<>(cluster, database, new GenericObjectPoolFactory(this));
+		return new SQLStateManager<>(cluster, database, new GenericObjectPoolFactory(this), this.maxBatchSize, this.maxBatchLatency);
 	}
 	
 	public String getUrlPattern()
@@ -158,4 +160,32 @@ public class SQLStateManagerFactory extends GenericObjectPoolConfiguration imple
 	{
 		this.password = password;
 	}
+
+	/**
+	 * Returns the maximum number of concurrent state transactions to group into a single commit.
+	 * @return the maximum batch size, where 1 indicates that group commit is disabled.
+	 */
+	public int getMaxBatchSize()
+	{
+		return this.maxBatchSize;
+	}
+	
+	public void setMaxBatchSize(int maxBatchSize)
+	{
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * Returns the maximum number of milliseconds that a group commit will wait for its batch to fill.
+	 * @return the maximum batch latency in milliseconds
+	 */
+	public long getMaxBatchLatency()
+	{
+		return this.maxBatchLatency;
+	}
+	
+	public void setMaxBatchLatency(long maxBatchLatency)
+	{
+		this.maxBatchLatency = maxBatchLatency;
+	}
 }
@@ -22,10 +22,14 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -69,6 +73,9 @@ import net.sf.hajdbc.util.Strings;
  *  <li>Re-create the foreign keys on the inactive database</li>
  *  <li>Synchronize sequences</li>
  * </ol>
+ * If configured with a chunk size, and the dialect supports checksums, tables with a single integral primary key column
+ * are first compared by checksums computed by each database over ranges of the primary key.
+ * Ranges whose checksums differ are split recursively, and only ranges containing at most chunk size rows are compared row by row.
  * @author  Paul Ferraro
  */
 public class DifferentialSynchronizationStrategy implements SynchronizationStrategy, TableSynchronizationStrategy
@@ -77,11 +84,15 @@ public class DifferentialSynchronizationStrategy implements SynchronizationStrat
 
 	static Messages messages = MessagesFactory.getMessages();
 	static Logger logger = LoggerFactory.getLogger(DifferentialSynchronizationStrategy.class);
+	
+	// Number of ranges into which a range with differing checksums is split
+	private static final int CHUNK_FANOUT = 16;
 
-	private final SynchronizationStrategy strategy = new PerTableSynchronizationStrategy(this);
+	private final PerTableSynchronizationStrategy strategy = new PerTableSynchronizationStrategy(this);
 	private int fetchSize = 0;
 	private int maxBatchSize = 100;
 	private Pattern versionPattern = null;
+	private int chunkSize = 0;
 	
 	@Override
 	public String getId()
@@ -115,6 +126,18 @@ public class DifferentialSynchronizationStrategy implements SynchronizationStrat
 		this.strategy.destroy(cluster);
 	}
 
+	private int[] getColumnTypes(SynchronizationContext<?, ?> context, TableProperties table, List<String> columns) throws SQLException
+	{
+		int[] types = new int[columns.size()];
+		
+		for (int i = 0; i < types.length; ++i)
+		{
+			types[i] = context.getDialect().getColumnType(table.getColumnProperties(columns.get(i)));
+		}
+		
+		return types;
+	}
+	
 	@Override
 	public <Z, D extends Database<Z>> void dropConstraints(SynchronizationContext<Z, D> context) throws SQLException
 	{
@@ -133,10 +156,160 @@ public class DifferentialSynchronizationStrategy implements SynchronizationStrat
 
 	/**
 	 * {@inheritDoc}
-	 * @see net.sf.hajdbc.SynchronizationStrategy#synchronize(net.sf.hajdbc.sync.SynchronizationContext)
+	 * @see net.sf.hajdbc.sync.TableSynchronizationStrategy#synchronize(net.sf.hajdbc.sync.SynchronizationContext, net.sf.hajdbc.TableProperties)
 	 */
 	@Override
 	public <Z, D extends Database<Z>> void synchronize(SynchronizationContext<Z, D> context, TableProperties table) throws SQLException
+	{
+		String checksum = (this.chunkSize > 0) ? this.getChecksumAggregate(context, table) : null;
+		
+		int[] counts = (checksum != null) ? this.synchronizeChunks(context, table, checksum) : this.synchronize(context, table, null);
+		
+		logger.log(Level.INFO, messages.insertCount(table, counts[0]));
+		logger.log(Level.INFO, messages.updateCount(table, counts[1]));
+		logger.log(Level.INFO, messages.deleteCount(table, counts[2]));
+	}
+	
+	/**
+	 * Returns the checksum aggregate expression for the specified table, or null if the table cannot be compared by checksums,
+	 * i.e. if the dialect does not support checksums, or if the table does not have a single integral primary key column.
+	 */
+	private <Z, D extends Database<Z>> String getChecksumAggregate(SynchronizationContext<Z, D> context, TableProperties table) throws SQLException
+	{
+		UniqueConstraint primaryKey = table.getPrimaryKey();
+		
+		if ((primaryKey == null) || (primaryKey.getColumnList().size() != 1)) return null;
+		
+		if (!KeyRanges.isSplittable(context.getDialect().getColumnType(table.getColumnProperties(primaryKey.getColumnList().get(0))))) return null;
+		
+		return context.getDialect().getChecksumAggregate(new ArrayList<>(table.getColumns()));
+	}
+	
+	/**
+	 * Compares checksums of ranges of the primary key of the specified table, recursing into ranges whose checksums differ,
+	 * until they are small enough to synchronize row by row.
+	 * @return the number of inserted, updated, and deleted rows
+	 */
+	private <Z, D extends Database<Z>> int[] synchronizeChunks(SynchronizationContext<Z, D> context, TableProperties table, String checksum) throws SQLException
+	{
+		String tableName = table.getName().getDMLName();
+		String column = table.getPrimaryKey().getColumnList().get(0);
+		
+		Connection sourceConnection = context.getConnection(context.getSourceDatabase());
+		Connection targetConnection = context.getConnection(context.getTargetDatabase());
+		
+		String boundsSQL = String.format("SELECT MIN(%s), MAX(%s) FROM %s", column, column, tableName);
+		
+		long[] sourceBounds = getBounds(sourceConnection, boundsSQL);
+		long[] targetBounds = getBounds(targetConnection, boundsSQL);
+		
+		int[] counts = new int[3];
+		
+		if ((sourceBounds == null) && (targetBounds == null)) return counts;
+		
+		long min = (sourceBounds == null) ? targetBounds[0] : ((targetBounds == null) ? sourceBounds[0] : Math.min(sourceBounds[0], targetBounds[0]));
+		long max = (sourceBounds == null) ? targetBounds[1] : ((targetBounds == null) ? sourceBounds[1] : Math.max(sourceBounds[1], targetBounds[1]));
+		
+		final String checksumSQL = String.format("SELECT COUNT(*), %s FROM %s WHERE %s >= ? AND %s <= ?", checksum, tableName, column, column);
+		
+		logger.log(Level.DEBUG, checksumSQL);
+		try (PreparedStatement sourceStatement = sourceConnection.prepareStatement(checksumSQL))
+		{
+			try (final PreparedStatement targetStatement = targetConnection.prepareStatement(checksumSQL))
+			{
+				Deque<long[]> ranges = new LinkedList<>();
+				ranges.push(new long[] { min, max });
+				
+				while (!ranges.isEmpty())
+				{
+					final long[] range = ranges.pop();
+					
+					Callable<Map.Entry<Long, String>> task = new Callable<Map.Entry<Long, String>>()
+					{
+						@Override
+						public Map.Entry<Long, String> call() throws SQLException
+						{
+							return getChecksum(targetStatement, range);
+						}
+					};
+					
+					Future<Map.Entry<Long, String>> future = context.getExecutor().submit(task);
+					
+					Map.Entry<Long, String> sourceChecksum = getChecksum(sourceStatement, range);
+					
+					// The checksum query scans each row of the range, but its latency is not that of a single read
+					context.getThrottle().acquire(sourceChecksum.getKey(), 0, 0);
+					
+					Map.Entry<Long, String> targetChecksum = future.get();
+					
+					if (sourceChecksum.equals(targetChecksum)) continue;
+					
+					if ((Math.max(sourceChecksum.getKey(), targetChecksum.getKey()) <= this.chunkSize) || (range[0] == range[1]))
+					{
+						int[] chunkCounts = this.synchronize(context, table, String.format("%s >= %d AND %s <= %d", column, range[0], column, range[1]));
+						
+						for (int i = 0; i < counts.length; ++i)
+						{
+							counts[i] += chunkCounts[i];
+						}
+					}
+					else
+					{
+						for (long[] subrange: KeyRanges.split(range[0], range[1], CHUNK_FANOUT))
+						{
+							ranges.push(subrange);
+						}
+					}
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new SQLException(e);
+		}
+		catch (ExecutionException e)
+		{
+			throw ExceptionType.SQL.<SQLException>getExceptionFactory().createException(e.getCause());
+		}
+		
+		return counts;
+	}
+	
+	private static long[] getBounds(Connection connection, String sql) throws SQLException
+	{
+		logger.log(Level.DEBUG, sql);
+		try (Statement statement = connection.createStatement())
+		{
+			try (ResultSet resultSet = statement.executeQuery(sql))
+			{
+				resultSet.next();
+				
+				long min = resultSet.getLong(1);
+				
+				return resultSet.wasNull() ? null : new long[] { min, resultSet.getLong(2) };
+			}
+		}
+	}
+	
+	static Map.Entry<Long, String> getChecksum(PreparedStatement statement, long[] range) throws SQLException
+	{
+		statement.setLong(1, range[0]);
+		statement.setLong(2, range[1]);
+		
+		try (ResultSet resultSet = statement.executeQuery())
+		{
+			resultSet.next();
+			
+			return new AbstractMap.SimpleImmutableEntry<>(resultSet.getLong(1), resultSet.getString(2));
+		}
+	}
+	
+	/**
+	 * Synchronizes the rows of the specified table matching the specified filter, or all rows if the filter is null.
+	 * @return the number of inserted, updated, and deleted rows
+	 */
+	private <Z, D extends Database<Z>> int[] synchronize(SynchronizationContext<Z, D> context, TableProperties table, String filter) throws SQLException
 	{
 		String tableName = table.getName().getDMLName();
 		
@@ -181,8 +354,12 @@ public class DifferentialSynchronizationStrategy implements SynchronizationStrat
 			selectColumns.addAll(versionColumns);
 		}
 		
+		// Resolve column types once, rather than per row
+		int[] types = this.getColumnTypes(context, table, allColumns);
+		int[] selectTypes = (selectColumns != allColumns) ? this.getColumnTypes(context, table, selectColumns) : types;
+		
 		// Retrieve table rows in primary key order
-		final String selectSQL = String.format("SELECT %s FROM %s ORDER BY %s", Strings.join(selectColumns, Strings.PADDED_COMMA), tableName, Strings.join(primaryKeyColumns, Strings.PADDED_COMMA)); //$NON-NLS-1$
+		final String selectSQL = String.format("SELECT %s FROM %s%s ORDER BY %s", Strings.join(selectColumns, Strings.PADDED_COMMA), tableName, (filter != null) ? " WHERE " + filter : Strings.EMPTY, Strings.join(primaryKeyColumns, Strings.PADDED_COMMA)); //$NON-NLS-1$
 		String primaryKeyWhereClause = Strings.join(new StringBuilder(), primaryKeyColumns, " = ? AND ").append(" = ?").toString(); //$NON-NLS-1$
 		String selectAllSQL = !versionColumns.isEmpty() ? String.format("SELECT %s FROM %s WHERE %s", Strings.join(nonPrimaryKeyColumns, Strings.PADDED_COMMA), tableName, primaryKeyWhereClause) : null;
 		String deleteSQL = String.format("DELETE FROM %s WHERE %s", tableName, primaryKeyWhereClause);
@@ -232,9 +409,10 @@ public class DifferentialSynchronizationStrategy implements SynchronizationStrat
 									{
 										logger.log(Level.DEBUG, updateSQL);
 									}
-									try (PreparedStatement updateStatement = (updateSQL != null) ? sourceConnection.prepareStatement(updateSQL) : null)
+									try (PreparedStatement updateStatement = (updateSQL != null) ? targetConnection.prepareStatement(updateSQL) : null)
 									{
-										boolean hasMoreSourceResults = sourceResultSet.next();
+										SourceCursor source = new SourceCursor(sourceResultSet, context.getThrottle(), this.maxBatchSize);
+										boolean hasMoreSourceResults = source.next();
 										boolean hasMoreTargetResults = targetResultSet.next();
 										
 										int insertCount = 0;
@@ -276,7 +454,7 @@ public class DifferentialSynchronizationStrategy implements SynchronizationStrat
 												
 												for (int i = 1; i <= primaryKeyColumns.size(); ++i)
 												{
-													int type = context.getDialect().getColumnType(table.getColumnProperties(allColumns.get(i - 1)));
+													int type = types[i - 1];
 													
 													deleteStatement.setObject(i, targetResultSet.getObject(i), type);
 												}
@@ -297,7 +475,7 @@ public class DifferentialSynchronizationStrategy implements SynchronizationStrat
 												
 												for (int i = 1; i <= primaryKeyColumns.size(); ++i)
 												{
-													int type = context.getDialect().getColumnType(table.getColumnProperties(allColumns.get(i - 1)));
+													int type = types[i - 1];
 													
 													insertStatement.setObject(i, sourceResultSet.getObject(i), type);
 												}
@@ -306,7 +484,7 @@ public class DifferentialSynchronizationStrategy implements SynchronizationStrat
 												{
 													for (int i = primaryKeyColumns.size() + 1; i <= allColumns.size(); ++i)
 													{
-														int type = context.getDialect().getColumnType(table.getColumnProperties(allColumns.get(i - 1)));
+														int type = types[i - 1];
 														
 														Object object = context.getSynchronizationSupport().getObject(sourceResultSet, i, type);
 														
@@ -328,7 +506,7 @@ public class DifferentialSynchronizationStrategy implements SynchronizationStrat
 														
 														for (int i = 1; i <= primaryKeyColumns.size(); ++i)
 														{
-															int type = context.getDialect().getColumnType(table.getColumnProperties(allColumns.get(i - 1)));
+															int type = types[i - 1];
 															
 															selectAllStatement.setObject(i, sourceResultSet.getObject(i), type);
 														}
@@ -341,7 +519,7 @@ public class DifferentialSynchronizationStrategy implements SynchronizationStrat
 															}
 															for (int i = primaryKeyColumns.size() + 1; i <= allColumns.size(); ++i)
 															{
-																int type = context.getDialect().getColumnType(table.getColumnProperties(allColumns.get(i - 1)));
+																int type = types[i - 1];
 																
 																Object object = context.getSynchronizationSupport().getObject(selectAllResultSet, i - primaryKeyColumns.size(), type);
 																
@@ -376,7 +554,7 @@ public class DifferentialSynchronizationStrategy implements SynchronizationStrat
 												
 												for (int i = primaryKeyColumns.size() + 1; i <= selectColumns.size(); ++i)
 												{
-													int type = context.getDialect().getColumnType(table.getColumnProperties(selectColumns.get(i - 1)));
+													int type = selectTypes[i - 1];
 													
 													Object sourceObject = context.getSynchronizationSupport().getObject(sourceResultSet, i, type);
 													Object targetObject = context.getSynchronizationSupport().getObject(targetResultSet, i, type);
@@ -406,7 +584,7 @@ public class DifferentialSynchronizationStrategy implements SynchronizationStrat
 														
 														for (int i = 1; i <= primaryKeyColumns.size(); ++i)
 														{
-															int type = context.getDialect().getColumnType(table.getColumnProperties(allColumns.get(i - 1)));
+															int type = types[i - 1];
 															
 															selectAllStatement.setObject(i, sourceResultSet.getObject(i), type);
 														}
@@ -419,7 +597,7 @@ public class DifferentialSynchronizationStrategy implements SynchronizationStrat
 															}
 															for (int i = primaryKeyColumns.size() + 1; i <= allColumns.size(); ++i)
 															{
-																int type = context.getDialect().getColumnType(table.getColumnProperties(allColumns.get(i - 1)));
+																int type = types[i - 1];
 																
 																int index = i - primaryKeyColumns.size();
 																
@@ -439,7 +617,7 @@ public class DifferentialSynchronizationStrategy implements SynchronizationStrat
 													
 													for (int i = 1; i <= primaryKeyColumns.size(); ++i)
 													{
-														int type = context.getDialect().getColumnType(table.getColumnProperties(allColumns.get(i - 1)));
+														int type = types[i - 1];
 														
 														updateStatement.setObject(i + nonPrimaryKeyColumns.size(), targetResultSet.getObject(i), type);
 													}
@@ -458,7 +636,7 @@ public class DifferentialSynchronizationStrategy implements SynchronizationStrat
 											
 											if (hasMoreSourceResults && (compare <= 0))
 											{
-												hasMoreSourceResults = sourceResultSet.next();
+												hasMoreSourceResults = source.next();
 											}
 											
 											if (hasMoreTargetResults && (compare >= 0))
@@ -485,9 +663,7 @@ public class DifferentialSynchronizationStrategy implements SynchronizationStrat
 											}
 										}
 										
-										logger.log(Level.INFO, messages.insertCount(table, insertCount));
-										logger.log(Level.INFO, messages.updateCount(table, insertCount));
-										logger.log(Level.INFO, messages.deleteCount(table, insertCount));
+										return new int[] { insertCount, updateCount, deleteCount };
 									}
 								}
 							}
@@ -507,6 +683,46 @@ public class DifferentialSynchronizationStrategy implements SynchronizationStrat
 		}
 	}
 	
+	/**
+	 * Advances a source result set, pausing after every batch of rows as needed to honor the limits of the throttle.
+	 */
+	private static class SourceCursor
+	{
+		private final ResultSet resultSet;
+		private final SynchronizationThrottle throttle;
+		private final int interval;
+		private int count = 0;
+		private long latency = 0;
+		
+		SourceCursor(ResultSet resultSet, SynchronizationThrottle throttle, int interval)
+		{
+			this.resultSet = resultSet;
+			this.throttle = throttle;
+			this.interval = interval;
+		}
+		
+		boolean next() throws SQLException, InterruptedException
+		{
+			if (!this.throttle.isEnabled()) return this.resultSet.next();
+			
+			long start = System.nanoTime();
+			
+			boolean next = this.resultSet.next();
+			
+			this.latency = Math.max(this.latency, System.nanoTime() - start);
+			
+			if (next && (++this.count >= this.interval))
+			{
+				this.throttle.acquire(this.count, 0, this.latency);
+				
+				this.count = 0;
+				this.latency = 0;
+			}
+			
+			return next;
+		}
+	}
+	
 	private static int compare(Object object1, Object object2)
 	{
 		@SuppressWarnings("unchecked")
@@ -562,4 +778,36 @@ public class DifferentialSynchronizationStrategy implements SynchronizationStrat
 	{
 		this.versionPattern = (versionPattern != null) ? Pattern.compile(versionPattern, Pattern.CASE_INSENSITIVE) : null;
 	}
+
+	/**
+	 * @return the number of tables to synchronize concurrently
+	 */
+	public int getParallelism()
+	{
+		return this.strategy.getParallelism();
+	}
+
+	/**
+	 * @param parallelism the number of tables to synchronize concurrently
+	 */
+	public void setParallelism(int parallelism)
+	{
+		this.strategy.setParallelism(parallelism);
+	}
+
+	/**
+	 * @return the maximum number of rows in a primary key range compared row by row, or 0 if checksums are not used
+	 */
+	public int getChunkSize()
+	{
+		return this.chunkSize;
+	}
+
+	/**
+	 * @param chunkSize the maximum number of rows in a primary key range compared row by row, or 0 to disable checksums
+	 */
+	public void setChunkSize(int chunkSize)
+	{
+		this.chunkSize = chunkSize;
+	}
 }
@@ -33,6 +33,8 @@ import net.sf.hajdbc.util.Files;
 
 /**
  * A synchronization strategy that uses dump/restore procedures.
+ * By default, the source database is dumped to a temporary file, from which the target database is then restored.
+ * In streaming mode, the output of the dump is piped directly into the restore, such that both run concurrently, and no temporary disk space is required.
  * @author Paul Ferraro
  */
 public class DumpRestoreSynchronizationStrategy implements SynchronizationStrategy
@@ -43,6 +45,8 @@ public class DumpRestoreSynchronizationStrategy implements SynchronizationStrate
 	private static final String DUMP_FILE_SUFFIX = ".dump";
 
 	private boolean dataOnly = false;
+	private boolean streaming = false;
+	private int jobs = 1;
 
 	@Override
 	public String getId()
@@ -60,6 +64,26 @@ public class DumpRestoreSynchronizationStrategy implements SynchronizationStrate
 		this.dataOnly = dataOnly;
 	}
 
+	public boolean isStreaming()
+	{
+		return this.streaming;
+	}
+
+	public void setStreaming(boolean streaming)
+	{
+		this.streaming = streaming;
+	}
+
+	public int getJobs()
+	{
+		return this.jobs;
+	}
+
+	public void setJobs(int jobs)
+	{
+		this.jobs = jobs;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * @see net.sf.hajdbc.SynchronizationStrategy#init(net.sf.hajdbc.DatabaseCluster)
@@ -96,16 +120,23 @@ public class DumpRestoreSynchronizationStrategy implements SynchronizationStrate
 		
 		try
 		{
-			File file = Files.createTempFile(DUMP_FILE_SUFFIX);
-			
-			try
+			if (this.streaming)
 			{
-				support.dump(context.getSourceDatabase(), decoder, file, this.dataOnly);
-				support.restore(context.getTargetDatabase(), decoder, file, this.dataOnly);
+				support.transfer(context.getSourceDatabase(), context.getTargetDatabase(), decoder, this.dataOnly);
 			}
-			finally
+			else
 			{
-				Files.delete(file);
+				File file = Files.createTempFile(DUMP_FILE_SUFFIX);
+				
+				try
+				{
+					support.dump(context.getSourceDatabase(), decoder, file, this.dataOnly);
+					support.restore(context.getTargetDatabase(), decoder, file, this.dataOnly, this.jobs);
+				}
+				finally
+				{
+					Files.delete(file);
+				}
 			}
 		}
 		catch (Exception e)
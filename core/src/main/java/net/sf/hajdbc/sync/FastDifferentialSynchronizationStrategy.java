@@ -17,18 +17,105 @@
  */
 package net.sf.hajdbc.sync;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import net.sf.hajdbc.Database;
 import net.sf.hajdbc.DatabaseCluster;
+import net.sf.hajdbc.DatabaseClusterConfiguration;
+import net.sf.hajdbc.DatabaseClusterConfigurationListener;
+import net.sf.hajdbc.DatabaseClusterListener;
+import net.sf.hajdbc.DatabaseProperties;
+import net.sf.hajdbc.QualifiedName;
+import net.sf.hajdbc.SynchronizationListener;
 import net.sf.hajdbc.SynchronizationStrategy;
+import net.sf.hajdbc.TableProperties;
+import net.sf.hajdbc.TriggerSupport;
+import net.sf.hajdbc.TriggerSupport.TriggerEventEnum;
+import net.sf.hajdbc.TriggerSupport.TriggerTimeEnum;
+import net.sf.hajdbc.UniqueConstraint;
+import net.sf.hajdbc.dialect.Dialect;
+import net.sf.hajdbc.logging.Level;
+import net.sf.hajdbc.logging.Logger;
+import net.sf.hajdbc.logging.LoggerFactory;
+import net.sf.hajdbc.messages.Messages;
+import net.sf.hajdbc.messages.MessagesFactory;
+import net.sf.hajdbc.state.DatabaseEvent;
+import net.sf.hajdbc.util.Strings;
 
 /**
- * Work in progress...
+ * Synchronization strategy that uses trigger-based change capture to only copy the rows modified while the target database was inactive.
+ * Once change capture is enabled, each table of each active database is given a change table, populated by insert/update/delete triggers with the primary keys of modified rows.
+ * Whenever this strategy synchronizes a database, the changes captured so far are stamped with a new epoch, which becomes the high-water mark of the synchronized database and of each active database.
+ * Changes stamped at or before the lowest high-water mark of the remaining inactive databases are then cleared, since no database requires them any longer.
+ * A database synchronized by any other strategy inherits the lowest high-water mark of the active databases.
+ * The following algorithm is used:
+ * <ol>
+ *  <li>Drop the foreign keys on the inactive database (to avoid integrity constraint violations)</li>
+ *  <li>For each database table:
+ *   <ol>
+ *    <li>Drop the unique constraints on the table (to avoid integrity constraint violations)</li>
+ *    <li>Restore the rows whose keys changed on the inactive database prior to its deactivation from the active database</li>
+ *    <li>Delete the rows whose keys changed on the active database since the high-water mark of the inactive database</li>
+ *    <li>Insert the rows with these keys that still exist in the active database</li>
+ *    <li>Re-create the unique constraints on the table (to avoid integrity constraint violations)</li>
+ *   </ol>
+ *  </li>
+ *  <li>Re-create the foreign keys on the inactive database</li>
+ *  <li>Synchronize sequences</li>
+ * </ol>
+ * If change capture is not enabled, if the dialect does not support triggers, or if the changes to the target database may not have been fully captured
+ * (e.g. change capture was installed while the target database was already inactive), this strategy falls back to a {@link DifferentialSynchronizationStrategy}.
+ * Change tables and triggers are retained across restarts, so that changes are still captured while the cluster is not running.
+ * High-water marks are not, so the changes captured prior to a restart are retained until each database inactive at the time is synchronized.
+ * Change tables also serve as the {@link SynchronizationJournal} of online activation.
+ * When online activation begins, the changes captured on the source database are stamped with a new epoch, which becomes the high-water mark of the target database,
+ * so that only the changes captured while the target database was copied are replayed.
+ * Once replayed, the changes captured on the target database while it was copied are replaced by those captured on the source database,
+ * which the target database retains for the databases that remain inactive.
  * @author Paul Ferraro
  */
-public class FastDifferentialSynchronizationStrategy implements SynchronizationStrategy
+public class FastDifferentialSynchronizationStrategy implements SynchronizationStrategy, TableSynchronizationStrategy, SynchronizationJournal
 {
 	private static final long serialVersionUID = 2556031934309008750L;
 
+	static Messages messages = MessagesFactory.getMessages();
+	static Logger logger = LoggerFactory.getLogger(FastDifferentialSynchronizationStrategy.class);
+
+	private final PerTableSynchronizationStrategy strategy = new PerTableSynchronizationStrategy(this);
+	private final DifferentialSynchronizationStrategy differential = new DifferentialSynchronizationStrategy();
+	private int fetchSize = 0;
+	private int maxBatchSize = 100;
+	private String changeTablePrefix = "hajdbc_";
+	private boolean captureEnabled = false;
+
+	private transient volatile DatabaseCluster<?, ?> cluster;
+	private transient volatile DatabaseClusterListener listener;
+	private transient volatile SynchronizationListener synchronizationListener;
+	private transient volatile DatabaseClusterConfigurationListener<?, ?> configurationListener;
+	// Databases whose changes are being captured
+	private transient Set<String> capturing;
+	// Inactive databases whose changes may not have been captured, and require a differential synchronization
+	private transient Set<String> uncaptured;
+	// Inactive databases partially copied by an incomplete online activation, which require a differential synchronization
+	private transient Set<String> partial;
+	// Epoch of the changes already applied to each database
+	private transient Map<String, Long> marks;
+	private transient long epoch = 0;
+
 	@Override
 	public String getId()
 	{
@@ -37,13 +124,133 @@ public class FastDifferentialSynchronizationStrategy implements SynchronizationS
 
 	/**
 	 * {@inheritDoc}
+	 * If change capture is enabled, installs it on each active database.
 	 * @see net.sf.hajdbc.SynchronizationStrategy#init(net.sf.hajdbc.DatabaseCluster)
 	 */
 	@Override
-	public <Z, D extends Database<Z>> void init(DatabaseCluster<Z, D> cluster)
+	public <Z, D extends Database<Z>> void init(final DatabaseCluster<Z, D> cluster)
 	{
-//		"UPDATE changes.table SET new_flag = $1 WHERE id = NEW.id;";
-//		"INSERT INTO changes.table (id, new_flag) SELECT NEW.id, $1 WHERE NOT EXISTS (SELECT 1 FROM changes.table WHERE id = NEW.id);";
+		this.differential.init(cluster);
+		
+		this.capturing = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		this.uncaptured = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		this.partial = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		this.marks = new ConcurrentHashMap<>();
+		
+		if (!this.captureEnabled) return;
+		
+		Dialect dialect = cluster.getDialect();
+		
+		if (dialect.getTriggerSupport() == null)
+		{
+			logger.log(Level.WARN, messages.triggerNotSupported(dialect));
+			return;
+		}
+		
+		for (D database: cluster.getBalancer())
+		{
+			this.capture(cluster, database);
+		}
+		
+		// Capture changes to databases activated via other synchronization strategies
+		this.listener = new DatabaseClusterListener()
+		{
+			@Override
+			public void activated(DatabaseEvent event)
+			{
+				D database = cluster.getDatabase(event.getSource());
+				
+				if (!FastDifferentialSynchronizationStrategy.this.capturing.contains(database.getId()))
+				{
+					FastDifferentialSynchronizationStrategy.this.capture(cluster, database);
+				}
+			}
+
+			@Override
+			public void deactivated(DatabaseEvent event)
+			{
+				// The high-water mark of an inactive database no longer advances, so the changes it requires are retained
+			}
+		};
+		
+		cluster.addListener(this.listener);
+		
+		// Create the change tables of an inactive database before it is synchronized, since other synchronization strategies copy them from the source database
+		// Databases synchronized via other synchronization strategies inherit the high-water mark of the active databases
+		this.synchronizationListener = new SynchronizationListener()
+		{
+			@Override
+			public void beforeSynchronization(DatabaseEvent event)
+			{
+				D database = cluster.getDatabase(event.getSource());
+				
+				if (!FastDifferentialSynchronizationStrategy.this.capturing.contains(database.getId()))
+				{
+					FastDifferentialSynchronizationStrategy.this.capture(cluster, database);
+				}
+			}
+
+			@Override
+			public void afterSynchronization(DatabaseEvent event)
+			{
+				FastDifferentialSynchronizationStrategy.this.inherit(cluster, event.getSource());
+			}
+		};
+		
+		cluster.addSynchronizationListener(this.synchronizationListener);
+		
+		// A database removed from the cluster no longer requires any changes, nor are its own changes captured
+		DatabaseClusterConfigurationListener<Z, D> configurationListener = new DatabaseClusterConfigurationListener<Z, D>()
+		{
+			@Override
+			public void added(D database, DatabaseClusterConfiguration<Z, D> configuration)
+			{
+				// Do nothing
+			}
+
+			@Override
+			public void removed(D database, DatabaseClusterConfiguration<Z, D> configuration)
+			{
+				FastDifferentialSynchronizationStrategy.this.marks.remove(database.getId());
+				FastDifferentialSynchronizationStrategy.this.capturing.remove(database.getId());
+			}
+		};
+		
+		cluster.addConfigurationListener(configurationListener);
+		
+		this.configurationListener = configurationListener;
+		
+		this.cluster = cluster;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.SynchronizationStrategy#destroy(net.sf.hajdbc.DatabaseCluster)
+	 */
+	@Override
+	public <Z, D extends Database<Z>> void destroy(DatabaseCluster<Z, D> cluster)
+	{
+		this.cluster = null;
+		
+		if (this.listener != null)
+		{
+			cluster.removeListener(this.listener);
+			this.listener = null;
+		}
+		if (this.synchronizationListener != null)
+		{
+			cluster.removeSynchronizationListener(this.synchronizationListener);
+			this.synchronizationListener = null;
+		}
+		if (this.configurationListener != null)
+		{
+			@SuppressWarnings("unchecked")
+			DatabaseClusterConfigurationListener<Z, D> listener = (DatabaseClusterConfigurationListener<Z, D>) this.configurationListener;
+			cluster.removeConfigurationListener(listener);
+			this.configurationListener = null;
+		}
+		
+		this.differential.destroy(cluster);
 	}
 
 	/**
@@ -51,16 +258,935 @@ public class FastDifferentialSynchronizationStrategy implements SynchronizationS
 	 * @see net.sf.hajdbc.SynchronizationStrategy#synchronize(net.sf.hajdbc.sync.SynchronizationContext)
 	 */
 	@Override
-	public <Z, D extends Database<Z>> void synchronize(SynchronizationContext<Z, D> context)
+	public <Z, D extends Database<Z>> void synchronize(SynchronizationContext<Z, D> context) throws SQLException
 	{
+		@SuppressWarnings("unchecked")
+		DatabaseCluster<Z, D> cluster = (DatabaseCluster<Z, D>) this.cluster;
+		
+		if ((cluster == null) || !this.capturing.contains(context.getSourceDatabase().getId()))
+		{
+			this.differential.synchronize(context);
+			return;
+		}
+		
+		D target = context.getTargetDatabase();
+		
+		// Capture changes applied to the target database, so it can serve as the source of a subsequent synchronization
+		if (!this.capturing.contains(target.getId()))
+		{
+			this.capture(cluster, target, context.getConnection(target), context.getTargetDatabaseProperties());
+		}
+		
+		if (this.uncaptured.remove(target.getId()) || this.partial.contains(target.getId()) || !this.capturing.contains(target.getId()))
+		{
+			this.differential.synchronize(context);
+		}
+		else
+		{
+			this.strategy.synchronize(context);
+		}
+		
+		this.mark(cluster, context);
 	}
 
 	/**
 	 * {@inheritDoc}
-	 * @see net.sf.hajdbc.SynchronizationStrategy#destroy(net.sf.hajdbc.DatabaseCluster)
+	 * @see net.sf.hajdbc.sync.SynchronizationJournal#isJournaled(net.sf.hajdbc.Database)
 	 */
 	@Override
-	public <Z, D extends Database<Z>> void destroy(DatabaseCluster<Z, D> cluster)
+	public boolean isJournaled(Database<?> database)
+	{
+		return (this.cluster != null) && this.capturing.contains(database.getId());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Changes are not captured for a database if change capture was installed after its prior synchronization started.
+	 * @see net.sf.hajdbc.sync.SynchronizationJournal#isResumable(net.sf.hajdbc.Database)
+	 */
+	@Override
+	public boolean isResumable(Database<?> database)
+	{
+		return (this.cluster != null) && !this.uncaptured.contains(database.getId());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The changes captured so far on the source database are stamped with a new epoch, which becomes the high-water mark of the target database.
+	 * Until the changes captured since are replayed, the target database requires a differential synchronization.
+	 * @see net.sf.hajdbc.sync.SynchronizationJournal#begin(net.sf.hajdbc.sync.SynchronizationContext)
+	 */
+	@Override
+	public <Z, D extends Database<Z>> void begin(SynchronizationContext<Z, D> context) throws SQLException
+	{
+		D target = context.getTargetDatabase();
+		Connection connection = context.getConnection(context.getSourceDatabase());
+		String quote = connection.getMetaData().getIdentifierQuoteString();
+		String epochColumn = this.getEpochColumn();
+		long epoch = this.nextEpoch();
+		
+		this.partial.add(target.getId());
+		// Retains the changes captured from now on
+		this.marks.put(target.getId(), epoch);
+		
+		try (Statement statement = connection.createStatement())
+		{
+			for (TableProperties table: context.getSourceDatabaseProperties().getTables())
+			{
+				QualifiedName name = table.getName();
+				
+				if (this.isChangeTable(name, quote) || (table.getPrimaryKey() == null)) continue;
+				
+				stamp(statement, this.getChangeTableName(name, name.getDMLName(), quote), epochColumn, epoch);
+			}
+		}
+		
+		if (!connection.getAutoCommit())
+		{
+			connection.commit();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Only the changes captured on the source database are applied, since the changes captured on the target database were superseded by its synchronization.
+	 * @see net.sf.hajdbc.sync.SynchronizationJournal#replay(net.sf.hajdbc.sync.SynchronizationContext)
+	 */
+	@Override
+	public <Z, D extends Database<Z>> void replay(SynchronizationContext<Z, D> context) throws SQLException
+	{
+		@SuppressWarnings("unchecked")
+		DatabaseCluster<Z, D> cluster = (DatabaseCluster<Z, D>) this.cluster;
+		
+		D target = context.getTargetDatabase();
+		Connection sourceConnection = context.getConnection(context.getSourceDatabase());
+		Connection targetConnection = context.getConnection(target);
+		SynchronizationSupport support = context.getSynchronizationSupport();
+		
+		// End any transaction left open by the prior synchronization, so that all changes committed since are visible
+		if (!sourceConnection.getAutoCommit())
+		{
+			sourceConnection.commit();
+		}
+		
+		// Capture changes applied to the target database from now on, so it can serve as the source of a subsequent synchronization
+		if (!this.capturing.contains(target.getId()))
+		{
+			this.capture(cluster, target, targetConnection, context.getTargetDatabaseProperties());
+		}
+		
+		this.uncaptured.remove(target.getId());
+		
+		sourceConnection.setAutoCommit(false);
+		targetConnection.setAutoCommit(false);
+		
+		// Changed rows are deleted before they are re-inserted, so unique constraints cannot be violated
+		support.dropForeignKeys();
+		
+		for (TableProperties table: context.getSourceDatabaseProperties().getTables())
+		{
+			try
+			{
+				this.synchronize(context, table, false);
+				
+				targetConnection.commit();
+			}
+			catch (SQLException e)
+			{
+				support.rollback(targetConnection);
+				throw e;
+			}
+		}
+		
+		support.restoreForeignKeys();
+		
+		this.mirror(context);
+		this.mark(cluster, context);
+		
+		support.synchronizeIdentityColumns();
+		support.synchronizeSequences();
+	}
+
+	@Override
+	public <Z, D extends Database<Z>> void dropConstraints(SynchronizationContext<Z, D> context) throws SQLException
+	{
+		this.differential.dropConstraints(context);
+	}
+
+	@Override
+	public <Z, D extends Database<Z>> void restoreConstraints(SynchronizationContext<Z, D> context) throws SQLException
+	{
+		this.differential.restoreConstraints(context);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.sync.TableSynchronizationStrategy#synchronize(net.sf.hajdbc.sync.SynchronizationContext, net.sf.hajdbc.TableProperties)
+	 */
+	@Override
+	public <Z, D extends Database<Z>> void synchronize(SynchronizationContext<Z, D> context, TableProperties table) throws SQLException
+	{
+		this.synchronize(context, table, true);
+	}
+	
+	/**
+	 * Synchronizes the specified table.
+	 * @param restore indicates whether to restore the rows whose keys changed on the target database, i.e. unless the target database was copied since its deactivation
+	 */
+	private <Z, D extends Database<Z>> void synchronize(SynchronizationContext<Z, D> context, TableProperties table, boolean restore) throws SQLException
+	{
+		Connection sourceConnection = context.getConnection(context.getSourceDatabase());
+		Connection targetConnection = context.getConnection(context.getTargetDatabase());
+		
+		String quote = sourceConnection.getMetaData().getIdentifierQuoteString();
+		
+		if (this.isChangeTable(table.getName(), quote)) return;
+		
+		UniqueConstraint primaryKey = table.getPrimaryKey();
+		
+		if (primaryKey == null)
+		{
+			throw new SQLException(messages.primaryKeyRequired(this, table));
+		}
+		
+		List<String> primaryKeyColumns = primaryKey.getColumnList();
+		List<String> columns = new ArrayList<>(table.getColumns());
+		
+		Dialect dialect = context.getDialect();
+		SynchronizationSupport support = context.getSynchronizationSupport();
+		
+		int[] primaryKeyTypes = new int[primaryKeyColumns.size()];
+		for (int i = 0; i < primaryKeyTypes.length; ++i)
+		{
+			primaryKeyTypes[i] = dialect.getColumnType(table.getColumnProperties(primaryKeyColumns.get(i)));
+		}
+		int[] types = new int[columns.size()];
+		for (int i = 0; i < types.length; ++i)
+		{
+			types[i] = dialect.getColumnType(table.getColumnProperties(columns.get(i)));
+		}
+		
+		String tableName = table.getName().getDMLName();
+		String changeTableName = this.getChangeTableName(table.getName(), table.getName().getDMLName(), quote);
+		String epochColumn = this.getEpochColumn();
+		
+		StringBuilder joinClause = new StringBuilder();
+		for (String column: primaryKeyColumns)
+		{
+			if (joinClause.length() > 0)
+			{
+				joinClause.append(" AND ");
+			}
+			joinClause.append("t.").append(column).append(" = c.").append(column);
+		}
+		List<String> selectColumns = new ArrayList<>(columns.size());
+		for (String column: columns)
+		{
+			selectColumns.add("t." + column);
+		}
+		
+		// Only the changes captured since the high-water mark of the target database need be applied
+		Long mark = this.marks.get(context.getTargetDatabase().getId());
+		String sourceChangesClause = (mark != null) ? String.format(" WHERE (c.%1$s IS NULL) OR (c.%1$s > %2$d)", epochColumn, mark) : "";
+		// Changes captured on the target database while synchronizing are not yet stamped
+		String targetChangesClause = (mark != null) ? String.format(" WHERE c.%s > %d", epochColumn, mark) : String.format(" WHERE c.%s IS NOT NULL", epochColumn);
+		
+		String primaryKeyWhereClause = Strings.join(new StringBuilder(), primaryKeyColumns, " = ? AND ").append(" = ?").toString(); //$NON-NLS-1$
+		String selectSourceChangesSQL = String.format("SELECT %s FROM %s c%s", Strings.join(primaryKeyColumns, Strings.PADDED_COMMA), changeTableName, sourceChangesClause);
+		String selectTargetChangesSQL = String.format("SELECT %s FROM %s c%s", Strings.join(primaryKeyColumns, Strings.PADDED_COMMA), changeTableName, targetChangesClause);
+		String selectChangedRowsSQL = String.format("SELECT %s FROM %s t INNER JOIN %s c ON %s%s", Strings.join(selectColumns, Strings.PADDED_COMMA), tableName, changeTableName, joinClause, sourceChangesClause);
+		String selectSQL = String.format("SELECT %s FROM %s WHERE %s", Strings.join(columns, Strings.PADDED_COMMA), tableName, primaryKeyWhereClause);
+		String deleteSQL = String.format("DELETE FROM %s WHERE %s", tableName, primaryKeyWhereClause);
+		String insertSQL = String.format("INSERT INTO %s (%s) VALUES (%s)", tableName, Strings.join(columns, Strings.PADDED_COMMA), Strings.join(Collections.nCopies(columns.size(), Strings.QUESTION), Strings.PADDED_COMMA)); //$NON-NLS-1$
+		
+		int deleteCount = 0;
+		int insertCount = 0;
+		
+		// Stamp the keys modified on the inactive database prior to its deactivation, to distinguish them from those captured while synchronizing
+		if (restore)
+		{
+			try (Statement statement = targetConnection.createStatement())
+			{
+				stamp(statement, changeTableName, epochColumn, this.nextEpoch());
+			}
+		}
+		
+		logger.log(Level.DEBUG, deleteSQL);
+		try (PreparedStatement deleteStatement = targetConnection.prepareStatement(deleteSQL))
+		{
+			logger.log(Level.DEBUG, insertSQL);
+			try (PreparedStatement insertStatement = targetConnection.prepareStatement(insertSQL))
+			{
+				if (restore)
+				{
+					// Restore the rows with these keys from the active database
+					logger.log(Level.DEBUG, selectSQL);
+					try (PreparedStatement selectStatement = sourceConnection.prepareStatement(selectSQL))
+					{
+						logger.log(Level.DEBUG, selectTargetChangesSQL);
+						try (Statement statement = targetConnection.createStatement())
+						{
+							statement.setFetchSize(this.fetchSize);
+							
+							try (ResultSet keys = statement.executeQuery(selectTargetChangesSQL))
+							{
+								int count = 0;
+								
+								while (keys.next())
+								{
+									deleteStatement.clearParameters();
+									selectStatement.clearParameters();
+									
+									for (int i = 1; i <= primaryKeyTypes.length; ++i)
+									{
+										Object key = keys.getObject(i);
+										deleteStatement.setObject(i, key, primaryKeyTypes[i - 1]);
+										selectStatement.setObject(i, key, primaryKeyTypes[i - 1]);
+									}
+									
+									deleteStatement.addBatch();
+									
+									deleteCount += 1;
+									
+									try (ResultSet resultSet = selectStatement.executeQuery())
+									{
+										if (resultSet.next())
+										{
+											copy(support, resultSet, insertStatement, types);
+											
+											insertCount += 1;
+										}
+									}
+									
+									count += 1;
+									
+									// Deletes must precede the inserts of the same keys
+									if ((count % this.maxBatchSize) == 0)
+									{
+										deleteStatement.executeBatch();
+										deleteStatement.clearBatch();
+										insertStatement.executeBatch();
+										insertStatement.clearBatch();
+									}
+								}
+								
+								if ((count % this.maxBatchSize) > 0)
+								{
+									deleteStatement.executeBatch();
+									deleteStatement.clearBatch();
+									insertStatement.executeBatch();
+									insertStatement.clearBatch();
+								}
+							}
+						}
+					}
+				}
+				
+				// Delete the rows with the keys modified on the active database
+				logger.log(Level.DEBUG, selectSourceChangesSQL);
+				try (Statement statement = sourceConnection.createStatement())
+				{
+					statement.setFetchSize(this.fetchSize);
+					
+					try (ResultSet keys = statement.executeQuery(selectSourceChangesSQL))
+					{
+						int count = 0;
+						
+						while (keys.next())
+						{
+							deleteStatement.clearParameters();
+							
+							for (int i = 1; i <= primaryKeyTypes.length; ++i)
+							{
+								deleteStatement.setObject(i, keys.getObject(i), primaryKeyTypes[i - 1]);
+							}
+							
+							deleteStatement.addBatch();
+							
+							deleteCount += 1;
+							count += 1;
+							
+							if ((count % this.maxBatchSize) == 0)
+							{
+								deleteStatement.executeBatch();
+								deleteStatement.clearBatch();
+							}
+						}
+						
+						if ((count % this.maxBatchSize) > 0)
+						{
+							deleteStatement.executeBatch();
+						}
+					}
+				}
+				
+				// Insert the rows with these keys that still exist on the active database
+				logger.log(Level.DEBUG, selectChangedRowsSQL);
+				try (Statement statement = sourceConnection.createStatement())
+				{
+					statement.setFetchSize(this.fetchSize);
+					
+					try (ResultSet resultSet = statement.executeQuery(selectChangedRowsSQL))
+					{
+						insertCount += new RowCopier(dialect, support, table, columns, this.maxBatchSize).copy(resultSet, insertStatement, context.getExecutor());
+					}
+				}
+			}
+		}
+		
+		logger.log(Level.INFO, messages.deleteCount(table, deleteCount));
+		logger.log(Level.INFO, messages.insertCount(table, insertCount));
+	}
+	
+	private static void copy(SynchronizationSupport support, ResultSet resultSet, PreparedStatement statement, int[] types) throws SQLException
+	{
+		statement.clearParameters();
+		
+		for (int i = 1; i <= types.length; ++i)
+		{
+			int type = types[i - 1];
+			
+			Object object = support.getObject(resultSet, i, type);
+			
+			if (resultSet.wasNull())
+			{
+				statement.setNull(i, type);
+			}
+			else
+			{
+				statement.setObject(i, object, type);
+			}
+		}
+		
+		statement.addBatch();
+	}
+	
+	/**
+	 * Indicates whether the changes to the specified database are being captured.
+	 */
+	boolean isCapturing(Database<?> database)
+	{
+		return this.capturing.contains(database.getId());
+	}
+	
+	/**
+	 * Indicates whether the changes to the specified inactive database may not have been captured.
+	 */
+	boolean isUncaptured(Database<?> database)
+	{
+		return this.uncaptured.contains(database.getId());
+	}
+	
+	/**
+	 * Installs change capture on the specified database, logging any failure.
+	 */
+	<Z, D extends Database<Z>> void capture(DatabaseCluster<Z, D> cluster, D database)
+	{
+		try (Connection connection = database.connect(cluster.getDecoder()))
+		{
+			this.capture(cluster, database, connection, cluster.getDatabaseMetaDataCache().getDatabaseProperties(database, connection));
+		}
+		catch (SQLException e)
+		{
+			logger.log(Level.WARN, e);
+		}
+	}
+	
+	private <Z, D extends Database<Z>> void capture(DatabaseCluster<Z, D> cluster, D database, Connection connection, DatabaseProperties properties) throws SQLException
+	{
+		TriggerSupport support = cluster.getDialect().getTriggerSupport();
+		
+		if (support == null) return;
+		
+		boolean autoCommit = connection.getAutoCommit();
+		
+		connection.setAutoCommit(true);
+		
+		try
+		{
+			if (this.install(connection, properties, support))
+			{
+				// Any changes made prior to now were not captured
+				this.uncaptured.addAll(cluster.getInactiveDatabases());
+			}
+			
+			// Only reached once every change table and trigger is confirmed present
+			this.capturing.add(database.getId());
+		}
+		finally
+		{
+			connection.setAutoCommit(autoCommit);
+		}
+	}
+	
+	/**
+	 * Creates any missing change tables and triggers, and confirms that each was created.
+	 * Since DDL is not transactional on every database, the objects created so far are dropped again if any object could not be created,
+	 * so that no table is left with an incomplete set of triggers.
+	 * @return true, if any change table or trigger was missing, false otherwise.
+	 * @throws SQLException if any change table or trigger could not be created
+	 */
+	private boolean install(Connection connection, DatabaseProperties properties, TriggerSupport support) throws SQLException
+	{
+		String quote = connection.getMetaData().getIdentifierQuoteString();
+		String oldAlias = support.getTriggerRowAlias(TriggerTimeEnum.BEFORE);
+		String newAlias = support.getTriggerRowAlias(TriggerTimeEnum.AFTER);
+		String epochType = properties.findType(0, Types.BIGINT, Types.NUMERIC, Types.DECIMAL);
+		
+		// Statements that drop the objects created so far, most recent first
+		Deque<String> drops = new LinkedList<>();
+		boolean created = false;
+		
+		try (Statement statement = connection.createStatement())
+		{
+			try
+			{
+				for (TableProperties table: properties.getTables())
+				{
+					QualifiedName name = table.getName();
+					
+					if (this.isChangeTable(name, quote)) continue;
+					
+					UniqueConstraint primaryKey = table.getPrimaryKey();
+					
+					if (primaryKey == null)
+					{
+						logger.log(Level.WARN, messages.primaryKeyRequired(this, table));
+						continue;
+					}
+					
+					String changeTableName = this.getChangeTableName(name, name.getDMLName(), quote);
+					List<String> columns = primaryKey.getColumnList();
+					
+					if (!exists(statement, changeTableName))
+					{
+						String columnList = Strings.join(columns, Strings.PADDED_COMMA);
+						
+						execute(statement, String.format("CREATE TABLE %s AS SELECT %s FROM %s WHERE 1 = 0", this.getChangeTableName(name, name.getDDLName(), quote), columnList, name.getDMLName()));
+						drops.push(String.format("DROP TABLE %s", this.getChangeTableName(name, name.getDDLName(), quote)));
+						execute(statement, String.format("ALTER TABLE %s ADD PRIMARY KEY (%s)", this.getChangeTableName(name, name.getDDLName(), quote), columnList));
+						// Null until stamped on synchronization
+						execute(statement, String.format("ALTER TABLE %s ADD %s %s", this.getChangeTableName(name, name.getDDLName(), quote), this.getEpochColumn(), epochType));
+						
+						if (!exists(statement, changeTableName))
+						{
+							throw new SQLException(messages.changeCaptureNotInstalled(table, changeTableName));
+						}
+						
+						created = true;
+					}
+					
+					for (TriggerEventEnum event: TriggerEventEnum.values())
+					{
+						String triggerName = this.getTriggerName(name, event, quote);
+						String triggerExistsSQL = support.getTriggerExistsSQL(triggerName, table);
+						
+						if (hasRow(statement, triggerExistsSQL)) continue;
+						
+						StringBuilder action = new StringBuilder();
+						
+						// Capture the old key of updated rows, in case the primary key itself was modified
+						if ((event == TriggerEventEnum.DELETE) || (event == TriggerEventEnum.UPDATE))
+						{
+							appendCaptureAction(action, changeTableName, columns, oldAlias);
+						}
+						if ((event == TriggerEventEnum.INSERT) || (event == TriggerEventEnum.UPDATE))
+						{
+							appendCaptureAction(action, changeTableName, columns, newAlias);
+						}
+						
+						execute(statement, support.getCreateTriggerSQL(triggerName, table, event, action.toString()));
+						drops.push(support.getDropTriggerSQL(triggerName, table));
+						
+						if (!hasRow(statement, triggerExistsSQL))
+						{
+							throw new SQLException(messages.changeCaptureNotInstalled(table, triggerName));
+						}
+						
+						created = true;
+					}
+				}
+			}
+			catch (SQLException e)
+			{
+				for (String sql: drops)
+				{
+					try
+					{
+						execute(statement, sql);
+					}
+					catch (SQLException dropException)
+					{
+						e.setNextException(dropException);
+					}
+				}
+				throw e;
+			}
+		}
+		
+		return created;
+	}
+	
+	private static void appendCaptureAction(StringBuilder action, String changeTableName, List<String> columns, String alias)
+	{
+		List<String> values = new ArrayList<>(columns.size());
+		List<String> conditions = new ArrayList<>(columns.size());
+		for (String column: columns)
+		{
+			String value = alias + Strings.DOT + column;
+			values.add(value);
+			conditions.add(column + " = " + value);
+		}
+		action.append(String.format("DELETE FROM %s WHERE %s; ", changeTableName, Strings.join(conditions, " AND ")));
+		action.append(String.format("INSERT INTO %s (%s) VALUES (%s); ", changeTableName, Strings.join(columns, Strings.PADDED_COMMA), Strings.join(values, Strings.PADDED_COMMA)));
+	}
+	
+	private static boolean exists(Statement statement, String table)
+	{
+		try
+		{
+			statement.executeQuery(String.format("SELECT 1 FROM %s WHERE 1 = 0", table)).close();
+			return true;
+		}
+		catch (SQLException e)
+		{
+			return false;
+		}
+	}
+	
+	/**
+	 * Indicates whether the specified query returns any row.
+	 */
+	private static boolean hasRow(Statement statement, String sql) throws SQLException
+	{
+		logger.log(Level.DEBUG, sql);
+		try (ResultSet resultSet = statement.executeQuery(sql))
+		{
+			return resultSet.next();
+		}
+	}
+	
+	private static void execute(Statement statement, String sql) throws SQLException
+	{
+		logger.log(Level.DEBUG, sql);
+		statement.execute(sql);
+	}
+	
+	/**
+	 * Stamps the changes captured so far with a new epoch, which becomes the high-water mark of the target database of the specified context and of each active database,
+	 * then clears the changes stamped at or before the lowest high-water mark of the remaining inactive databases.
+	 * Uses the connections of the specified context, and is invoked while writes to the cluster are blocked.
+	 */
+	<Z, D extends Database<Z>> void mark(DatabaseCluster<Z, D> cluster, SynchronizationContext<Z, D> context)
+	{
+		D target = context.getTargetDatabase();
+		long epoch = this.nextEpoch();
+		
+		this.partial.remove(target.getId());
+		
+		Set<D> databases = new HashSet<>(context.getActiveDatabaseSet());
+		databases.add(target);
+		
+		Long floor = epoch;
+		for (String id: cluster.getInactiveDatabases())
+		{
+			if (!id.equals(target.getId()))
+			{
+				Long mark = this.marks.get(id);
+				// The high-water mark of a database inactive since a restart is unknown
+				floor = ((floor != null) && (mark != null)) ? Math.min(floor, mark) : null;
+			}
+		}
+		
+		String epochColumn = this.getEpochColumn();
+		
+		for (D database: databases)
+		{
+			this.marks.put(database.getId(), epoch);
+			
+			if (!this.capturing.contains(database.getId())) continue;
+			
+			try
+			{
+				Connection connection = context.getConnection(database);
+				String quote = connection.getMetaData().getIdentifierQuoteString();
+				
+				try (Statement statement = connection.createStatement())
+				{
+					for (TableProperties table: context.getSourceDatabaseProperties().getTables())
+					{
+						QualifiedName name = table.getName();
+						
+						if (this.isChangeTable(name, quote) || (table.getPrimaryKey() == null)) continue;
+						
+						String changeTableName = this.getChangeTableName(name, name.getDMLName(), quote);
+						
+						stamp(statement, changeTableName, epochColumn, epoch);
+						
+						if (floor != null)
+						{
+							execute(statement, String.format("DELETE FROM %s WHERE %s <= %d", changeTableName, epochColumn, floor));
+						}
+					}
+				}
+				
+				if (!connection.getAutoCommit())
+				{
+					connection.commit();
+				}
+			}
+			catch (SQLException e)
+			{
+				logger.log(Level.WARN, e);
+			}
+		}
+	}
+	
+	/**
+	 * Records the high-water mark of the specified database, once synchronized by any strategy, without stamping any changes.
+	 * The synchronized database has applied at least the changes stamped as of the lowest high-water mark of the active databases.
+	 * Changes captured since are applied again by its next synchronization, which is harmless.
+	 */
+	<Z, D extends Database<Z>> void inherit(DatabaseCluster<Z, D> cluster, String id)
+	{
+		Long mark = null;
+		
+		for (D database: cluster.getBalancer())
+		{
+			Long activeMark = this.marks.get(database.getId());
+			
+			if (activeMark == null)
+			{
+				this.marks.remove(id);
+				return;
+			}
+			
+			mark = (mark != null) ? Math.min(mark, activeMark) : activeMark;
+		}
+		
+		if (mark != null)
+		{
+			this.marks.put(id, mark);
+		}
+	}
+	
+	private static void stamp(Statement statement, String changeTableName, String epochColumn, long epoch) throws SQLException
+	{
+		execute(statement, String.format("UPDATE %s SET %2$s = %3$d WHERE %2$s IS NULL", changeTableName, epochColumn, epoch));
+	}
+	
+	/**
+	 * Returns a new epoch.
+	 * Epochs approximate the current time, so that they continue to increase across restarts.
+	 */
+	private synchronized long nextEpoch()
+	{
+		this.epoch = Math.max(this.epoch + 1, System.currentTimeMillis());
+		return this.epoch;
+	}
+	
+	/**
+	 * Replaces the changes captured on the target database of the specified context with those captured on its source database.
+	 * The keys captured on the target database while it was copied and replayed are superfluous, whereas the changes captured on the source database are required by the databases that remain inactive.
+	 * Invoked while writes to the cluster are blocked.
+	 */
+	private <Z, D extends Database<Z>> void mirror(SynchronizationContext<Z, D> context) throws SQLException
+	{
+		Connection sourceConnection = context.getConnection(context.getSourceDatabase());
+		Connection targetConnection = context.getConnection(context.getTargetDatabase());
+		String quote = sourceConnection.getMetaData().getIdentifierQuoteString();
+		Dialect dialect = context.getDialect();
+		SynchronizationSupport support = context.getSynchronizationSupport();
+		
+		for (TableProperties table: context.getSourceDatabaseProperties().getTables())
+		{
+			QualifiedName name = table.getName();
+			UniqueConstraint primaryKey = table.getPrimaryKey();
+			
+			if (this.isChangeTable(name, quote) || (primaryKey == null)) continue;
+			
+			String changeTableName = this.getChangeTableName(name, name.getDMLName(), quote);
+			List<String> columns = new ArrayList<>(primaryKey.getColumnList());
+			int[] types = new int[columns.size() + 1];
+			for (int i = 0; i < columns.size(); ++i)
+			{
+				types[i] = dialect.getColumnType(table.getColumnProperties(columns.get(i)));
+			}
+			types[columns.size()] = Types.BIGINT;
+			columns.add(this.getEpochColumn());
+			
+			String selectSQL = String.format("SELECT %s FROM %s", Strings.join(columns, Strings.PADDED_COMMA), changeTableName);
+			String insertSQL = String.format("INSERT INTO %s (%s) VALUES (%s)", changeTableName, Strings.join(columns, Strings.PADDED_COMMA), Strings.join(Collections.nCopies(columns.size(), Strings.QUESTION), Strings.PADDED_COMMA));
+			
+			try
+			{
+				try (Statement statement = targetConnection.createStatement())
+				{
+					execute(statement, String.format("DELETE FROM %s", changeTableName));
+				}
+				
+				logger.log(Level.DEBUG, insertSQL);
+				try (PreparedStatement insertStatement = targetConnection.prepareStatement(insertSQL))
+				{
+					logger.log(Level.DEBUG, selectSQL);
+					try (Statement statement = sourceConnection.createStatement())
+					{
+						statement.setFetchSize(this.fetchSize);
+						
+						try (ResultSet resultSet = statement.executeQuery(selectSQL))
+						{
+							int count = 0;
+							
+							while (resultSet.next())
+							{
+								copy(support, resultSet, insertStatement, types);
+								
+								count += 1;
+								
+								if ((count % this.maxBatchSize) == 0)
+								{
+									insertStatement.executeBatch();
+									insertStatement.clearBatch();
+								}
+							}
+							
+							if ((count % this.maxBatchSize) > 0)
+							{
+								insertStatement.executeBatch();
+							}
+						}
+					}
+				}
+				
+				targetConnection.commit();
+			}
+			catch (SQLException e)
+			{
+				support.rollback(targetConnection);
+				throw e;
+			}
+		}
+	}
+	
+	private String getEpochColumn()
+	{
+		return this.changeTablePrefix + "epoch";
+	}
+	
+	private boolean isChangeTable(QualifiedName name, String quote)
+	{
+		return unquote(name.getName(), quote).toLowerCase().startsWith(this.changeTablePrefix.toLowerCase());
+	}
+	
+	/**
+	 * Derives the name of the change table of a table, given its qualified DDL or DML name.
+	 */
+	private String getChangeTableName(QualifiedName name, String qualifiedName, String quote)
+	{
+		String table = name.getName();
+		String schema = qualifiedName.substring(0, qualifiedName.length() - table.length());
+		String raw = unquote(table, quote);
+		String changeTable = this.changeTablePrefix + raw;
+		return schema + ((raw.length() < table.length()) ? quote + changeTable + quote : changeTable);
+	}
+	
+	private String getTriggerName(QualifiedName name, TriggerEventEnum event, String quote)
+	{
+		StringBuilder builder = new StringBuilder(this.changeTablePrefix);
+		if (name.getSchema() != null)
+		{
+			builder.append(unquote(name.getSchema(), quote)).append(Strings.UNDERSCORE);
+		}
+		builder.append(unquote(name.getName(), quote)).append(Strings.UNDERSCORE).append(event.name().toLowerCase());
+		return builder.toString().replaceAll("\\W", Strings.UNDERSCORE);
+	}
+	
+	private static String unquote(String identifier, String quote)
+	{
+		int length = quote.trim().length();
+		return ((length > 0) && (identifier.length() > 2 * length) && identifier.startsWith(quote) && identifier.endsWith(quote)) ? identifier.substring(length, identifier.length() - length) : identifier;
+	}
+	
+	/**
+	 * @return the fetchSize.
+	 */
+	public int getFetchSize()
+	{
+		return this.fetchSize;
+	}
+
+	/**
+	 * @param fetchSize the fetchSize to set.
+	 */
+	public void setFetchSize(int fetchSize)
+	{
+		this.fetchSize = fetchSize;
+		this.differential.setFetchSize(fetchSize);
+	}
+
+	/**
+	 * @return Returns the maxBatchSize.
+	 */
+	public int getMaxBatchSize()
+	{
+		return this.maxBatchSize;
+	}
+
+	/**
+	 * @param maxBatchSize The maxBatchSize to set.
+	 */
+	public void setMaxBatchSize(int maxBatchSize)
+	{
+		this.maxBatchSize = maxBatchSize;
+		this.differential.setMaxBatchSize(maxBatchSize);
+	}
+
+	/**
+	 * @return the prefix of change table and trigger names
+	 */
+	public String getChangeTablePrefix()
+	{
+		return this.changeTablePrefix;
+	}
+
+	/**
+	 * @param changeTablePrefix the prefix of change table and trigger names
+	 */
+	public void setChangeTablePrefix(String changeTablePrefix)
+	{
+		this.changeTablePrefix = changeTablePrefix;
+	}
+
+	/**
+	 * @return true, if change tables and triggers are installed on the active databases, false otherwise
+	 */
+	public boolean isCaptureEnabled()
+	{
+		return this.captureEnabled;
+	}
+
+	/**
+	 * @param captureEnabled indicates whether to install change tables and triggers on the active databases
+	 */
+	public void setCaptureEnabled(boolean captureEnabled)
+	{
+		this.captureEnabled = captureEnabled;
+	}
+
+	/**
+	 * @return the number of tables to synchronize concurrently
+	 */
+	public int getParallelism()
+	{
+		return this.strategy.getParallelism();
+	}
+
+	/**
+	 * @param parallelism the number of tables to synchronize concurrently
+	 */
+	public void setParallelism(int parallelism)
 	{
+		this.strategy.setParallelism(parallelism);
+		this.differential.setParallelism(parallelism);
 	}
 }
@@ -22,10 +22,14 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import net.sf.hajdbc.Database;
@@ -33,6 +37,7 @@ import net.sf.hajdbc.DatabaseCluster;
 import net.sf.hajdbc.ExceptionType;
 import net.sf.hajdbc.SynchronizationStrategy;
 import net.sf.hajdbc.TableProperties;
+import net.sf.hajdbc.UniqueConstraint;
 import net.sf.hajdbc.logging.Level;
 import net.sf.hajdbc.logging.Logger;
 import net.sf.hajdbc.logging.LoggerFactory;
@@ -60,18 +65,25 @@ import net.sf.hajdbc.util.Strings;
  *  <li>Re-create the foreign keys on the inactive database</li>
  *  <li>Synchronize sequences</li>
  * </ol>
+ * If configured with multiple partitions, tables with a single integral primary key column are split into ranges of that key,
+ * each of which is copied concurrently using its own source and target connections.
+ * When synchronizing several databases at once, each table is read from the source database once, and its rows written to all target databases concurrently.
+ * If configured with a checkpoint interval, tables that are not partitioned, but have a single integral primary key column, are copied in chunks of that many rows in key order,
+ * committing and recording a checkpoint after each, so that an interrupted online synchronization may resume from the last checkpoint.
  * @author  Paul Ferraro
  */
-public class FullSynchronizationStrategy implements SynchronizationStrategy, TableSynchronizationStrategy
+public class FullSynchronizationStrategy implements SynchronizationStrategy, TableSynchronizationStrategy, MultiTargetSynchronizationStrategy
 {
 	private static final long serialVersionUID = 9190347092842178162L;
 
 	static Messages messages = MessagesFactory.getMessages();
 	static Logger logger = LoggerFactory.getLogger(FullSynchronizationStrategy.class);
 
-	private SynchronizationStrategy strategy = new PerTableSynchronizationStrategy(this);
+	private final PerTableSynchronizationStrategy strategy = new PerTableSynchronizationStrategy(this);
 	private int maxBatchSize = 100;
 	private int fetchSize = 0;
+	private int partitions = 1;
+	private int checkpointInterval = 0;
 
 	@Override
 	public String getId()
@@ -91,6 +103,144 @@ public class FullSynchronizationStrategy implements SynchronizationStrategy, Tab
 		this.strategy.synchronize(context);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.sync.MultiTargetSynchronizationStrategy#synchronize(java.util.List)
+	 */
+	@Override
+	public <Z, D extends Database<Z>> void synchronize(List<SynchronizationContext<Z, D>> contexts) throws SQLException
+	{
+		if (contexts.size() == 1)
+		{
+			this.synchronize(contexts.get(0));
+			return;
+		}
+		
+		SynchronizationContext<Z, D> context = contexts.get(0);
+		Connection sourceConnection = context.getConnection(context.getSourceDatabase());
+		
+		for (SynchronizationContext<Z, D> targetContext: contexts)
+		{
+			this.dropConstraints(targetContext);
+			
+			targetContext.getConnection(targetContext.getTargetDatabase()).setAutoCommit(false);
+		}
+		
+		sourceConnection.setAutoCommit(false);
+		
+		// Writes to all but the first target database are fanned out via this executor, alongside the source reader
+		ExecutorService executor = Executors.newFixedThreadPool(contexts.size(), context.getThreadFactory());
+		
+		try
+		{
+			Collection<TableProperties> tables = context.getSourceDatabaseProperties().getTables();
+			int count = 0;
+			
+			for (TableProperties table: tables)
+			{
+				try
+				{
+					this.synchronize(contexts, table, executor);
+					
+					for (SynchronizationContext<Z, D> targetContext: contexts)
+					{
+						targetContext.getConnection(targetContext.getTargetDatabase()).commit();
+					}
+				}
+				catch (SQLException e)
+				{
+					for (SynchronizationContext<Z, D> targetContext: contexts)
+					{
+						targetContext.getSynchronizationSupport().rollback(targetContext.getConnection(targetContext.getTargetDatabase()));
+					}
+					throw e;
+				}
+				
+				logger.log(Level.INFO, messages.tableSynchronized(table, ++count, tables.size()));
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+		
+		for (SynchronizationContext<Z, D> targetContext: contexts)
+		{
+			this.restoreConstraints(targetContext);
+			
+			SynchronizationSupport support = targetContext.getSynchronizationSupport();
+			support.synchronizeIdentityColumns();
+			support.synchronizeSequences();
+		}
+	}
+	
+	/**
+	 * Copies the specified table from the common source database into each target database, reading the source table only once.
+	 */
+	private <Z, D extends Database<Z>> void synchronize(List<SynchronizationContext<Z, D>> contexts, TableProperties table, ExecutorService executor) throws SQLException
+	{
+		SynchronizationContext<Z, D> context = contexts.get(0);
+		
+		String tableName = table.getName().getDMLName();
+		List<String> columns = new ArrayList<>(table.getColumns());
+		String commaDelimitedColumns = Strings.join(columns, Strings.PADDED_COMMA);
+		
+		String selectSQL = String.format("SELECT %s FROM %s", commaDelimitedColumns, tableName);
+		String deleteSQL = context.getDialect().getTruncateTableSQL(table);
+		String insertSQL = String.format("INSERT INTO %s (%s) VALUES (%s)", tableName, commaDelimitedColumns, Strings.join(Collections.nCopies(columns.size(), Strings.QUESTION), Strings.PADDED_COMMA));
+		
+		List<PreparedStatement> insertStatements = new ArrayList<>(contexts.size());
+		
+		try
+		{
+			for (SynchronizationContext<Z, D> targetContext: contexts)
+			{
+				Connection targetConnection = targetContext.getConnection(targetContext.getTargetDatabase());
+				
+				try (Statement deleteStatement = targetConnection.createStatement())
+				{
+					logger.log(Level.DEBUG, deleteSQL);
+					int deletedRows = deleteStatement.executeUpdate(deleteSQL);
+					
+					logger.log(Level.INFO, messages.deleteCount(table, deletedRows));
+				}
+				
+				insertStatements.add(targetConnection.prepareStatement(insertSQL));
+			}
+			
+			logger.log(Level.DEBUG, insertSQL);
+			
+			try (Statement selectStatement = context.getConnection(context.getSourceDatabase()).createStatement())
+			{
+				selectStatement.setFetchSize(this.fetchSize);
+				
+				logger.log(Level.DEBUG, selectSQL);
+				try (ResultSet resultSet = selectStatement.executeQuery(selectSQL))
+				{
+					RowCopier copier = new RowCopier(context.getDialect(), context.getSynchronizationSupport(), table, columns, this.maxBatchSize, context.getThrottle());
+					
+					int statementCount = copier.copy(resultSet, insertStatements, executor);
+					
+					logger.log(Level.INFO, messages.insertCount(table, statementCount));
+				}
+			}
+		}
+		finally
+		{
+			for (PreparedStatement insertStatement: insertStatements)
+			{
+				try
+				{
+					insertStatement.close();
+				}
+				catch (SQLException e)
+				{
+					logger.log(Level.WARN, e);
+				}
+			}
+		}
+	}
+
 	@Override
 	public <Z, D extends Database<Z>> void destroy(DatabaseCluster<Z, D> cluster)
 	{
@@ -109,6 +259,22 @@ public class FullSynchronizationStrategy implements SynchronizationStrategy, Tab
 		final String deleteSQL = context.getDialect().getTruncateTableSQL(table);
 		final String insertSQL = String.format("INSERT INTO %s (%s) VALUES (%s)", tableName, commaDelimitedColumns, Strings.join(Collections.nCopies(columns.size(), Strings.QUESTION), Strings.PADDED_COMMA));
 		
+		List<long[]> ranges = (this.partitions > 1) ? this.partition(context, table) : null;
+		
+		if (ranges != null)
+		{
+			this.synchronize(context, table, ranges, selectSQL, deleteSQL, insertSQL);
+			return;
+		}
+		
+		String column = (this.checkpointInterval > 0) ? getSplittableKeyColumn(context, table) : null;
+		
+		if (column != null)
+		{
+			this.synchronize(context, table, column, selectSQL, deleteSQL, insertSQL);
+			return;
+		}
+		
 		Connection sourceConnection = context.getConnection(context.getSourceDatabase());
 		Connection targetConnection = context.getConnection(context.getTargetDatabase());
 		
@@ -140,62 +306,285 @@ public class FullSynchronizationStrategy implements SynchronizationStrategy, Tab
 			
 			try (PreparedStatement insertStatement = targetConnection.prepareStatement(insertSQL))
 			{
-				int statementCount = 0;
-				
 				try (ResultSet resultSet = future.get())
 				{
-					while (resultSet.next())
+					int statementCount = this.insert(context, table, resultSet, insertStatement);
+			
+					logger.log(Level.INFO, messages.insertCount(table, statementCount));
+				}
+			}
+			catch (ExecutionException e)
+			{
+				throw ExceptionType.SQL.<SQLException>getExceptionFactory().createException(e.getCause());
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new SQLException(e);
+			}
+		}
+	}
+	
+	/**
+	 * Copies each primary key range of the specified table concurrently, each using its own source and target connections.
+	 */
+	private <Z, D extends Database<Z>> void synchronize(final SynchronizationContext<Z, D> context, final TableProperties table, List<long[]> ranges, String selectSQL, String deleteSQL, final String insertSQL) throws SQLException
+	{
+		String column = table.getPrimaryKey().getColumnList().get(0);
+		final String selectRangeSQL = String.format("%s WHERE %s >= ? AND %s <= ?", selectSQL, column, column);
+		
+		Connection targetConnection = context.getConnection(context.getTargetDatabase());
+		
+		try (Statement deleteStatement = targetConnection.createStatement())
+		{
+			logger.log(Level.DEBUG, deleteSQL);
+			int deletedRows = deleteStatement.executeUpdate(deleteSQL);
+			
+			logger.log(Level.INFO, messages.deleteCount(table, deletedRows));
+		}
+		
+		// Commit the delete, otherwise it would block the inserts from the other connections
+		if (!targetConnection.getAutoCommit())
+		{
+			targetConnection.commit();
+		}
+		
+		// Each range task also submits a reader task to the same executor
+		final ExecutorService executor = Executors.newFixedThreadPool(2 * ranges.size(), context.getThreadFactory());
+		
+		try
+		{
+			List<Future<Integer>> futures = new ArrayList<>(ranges.size());
+			
+			for (final long[] range: ranges)
+			{
+				Callable<Integer> task = new Callable<Integer>()
+				{
+					@Override
+					public Integer call() throws SQLException
 					{
-						int index = 0;
-						
-						for (String column: table.getColumns())
+						try (SynchronizationContext<Z, D> rangeContext = new IsolatedSynchronizationContext<>(context, executor))
 						{
-							index += 1;
-							
-							int type = context.getDialect().getColumnType(table.getColumnProperties(column));
+							Connection sourceConnection = rangeContext.getConnection(rangeContext.getSourceDatabase());
+							Connection targetConnection = rangeContext.getConnection(rangeContext.getTargetDatabase());
 							
-							Object object = context.getSynchronizationSupport().getObject(resultSet, index, type);
-							
-							if (resultSet.wasNull())
+							logger.log(Level.DEBUG, selectRangeSQL);
+							try (PreparedStatement selectStatement = sourceConnection.prepareStatement(selectRangeSQL))
 							{
-								insertStatement.setNull(index, type);
+								selectStatement.setFetchSize(FullSynchronizationStrategy.this.fetchSize);
+								selectStatement.setLong(1, range[0]);
+								selectStatement.setLong(2, range[1]);
+								
+								try (ResultSet resultSet = selectStatement.executeQuery())
+								{
+									try (PreparedStatement insertStatement = targetConnection.prepareStatement(insertSQL))
+									{
+										int count = FullSynchronizationStrategy.this.insert(rangeContext, table, resultSet, insertStatement);
+										
+										targetConnection.commit();
+										
+										return count;
+									}
+								}
 							}
-							else
+							catch (SQLException e)
 							{
-								insertStatement.setObject(index, object, type);
+								rangeContext.getSynchronizationSupport().rollback(targetConnection);
+								throw e;
 							}
 						}
-						
-						insertStatement.addBatch();
-						statementCount += 1;
-						
-						if ((statementCount % this.maxBatchSize) == 0)
-						{
-							insertStatement.executeBatch();
-							insertStatement.clearBatch();
-						}
-						
-						insertStatement.clearParameters();
 					}
-				}
+				};
 				
-				if ((statementCount % this.maxBatchSize) > 0)
+				futures.add(executor.submit(task));
+			}
+			
+			int statementCount = 0;
+			SQLException exception = null;
+			
+			for (Future<Integer> future: futures)
+			{
+				try
+				{
+					statementCount += future.get();
+				}
+				catch (ExecutionException e)
+				{
+					if (exception == null)
+					{
+						exception = ExceptionType.SQL.<SQLException>getExceptionFactory().createException(e.getCause());
+					}
+				}
+				catch (InterruptedException e)
 				{
-					insertStatement.executeBatch();
+					Thread.currentThread().interrupt();
+					throw new SQLException(e);
 				}
+			}
+			
+			if (exception != null)
+			{
+				throw exception;
+			}
+			
+			logger.log(Level.INFO, messages.insertCount(table, statementCount));
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Copies the specified table in chunks of ascending primary key values, committing and recording a checkpoint after each chunk.
+	 * If a checkpoint was recorded for this table by a prior incomplete synchronization, copying resumes from there.
+	 */
+	private <Z, D extends Database<Z>> void synchronize(SynchronizationContext<Z, D> context, TableProperties table, String column, String selectSQL, String deleteSQL, String insertSQL) throws SQLException
+	{
+		String tableName = table.getName().getDMLName();
+		String selectFirstSQL = String.format("%s ORDER BY %s", selectSQL, column);
+		String selectNextSQL = String.format("%s WHERE %s > ? ORDER BY %s", selectSQL, column, column);
+		String deleteNextSQL = String.format("DELETE FROM %s WHERE %s > ?", tableName, column);
+		String maxSQL = String.format("SELECT MAX(%s) FROM %s", column, tableName);
+		
+		SynchronizationProgress progress = context.getProgress();
+		Long position = progress.getPosition(table);
 		
-				logger.log(Level.INFO, messages.insertCount(table, statementCount));
+		Connection sourceConnection = context.getConnection(context.getSourceDatabase());
+		Connection targetConnection = context.getConnection(context.getTargetDatabase());
+		
+		int deletedRows;
+		
+		if (position == null)
+		{
+			try (Statement deleteStatement = targetConnection.createStatement())
+			{
+				logger.log(Level.DEBUG, deleteSQL);
+				deletedRows = deleteStatement.executeUpdate(deleteSQL);
 			}
-			catch (ExecutionException e)
+		}
+		else
+		{
+			// Rows beyond the checkpoint may have been committed without being recorded
+			try (PreparedStatement deleteStatement = targetConnection.prepareStatement(deleteNextSQL))
 			{
-				throw ExceptionType.SQL.<SQLException>getExceptionFactory().createException(e.getCause());
+				logger.log(Level.DEBUG, deleteNextSQL);
+				deleteStatement.setLong(1, position);
+				deletedRows = deleteStatement.executeUpdate();
 			}
-			catch (InterruptedException e)
+		}
+		
+		logger.log(Level.INFO, messages.deleteCount(table, deletedRows));
+		
+		logger.log(Level.DEBUG, insertSQL);
+		
+		int statementCount = 0;
+		
+		try (PreparedStatement insertStatement = targetConnection.prepareStatement(insertSQL))
+		{
+			while (true)
 			{
-				Thread.currentThread().interrupt();
-				throw new SQLException(e);
+				String sql = (position != null) ? selectNextSQL : selectFirstSQL;
+				int count;
+				
+				logger.log(Level.DEBUG, sql);
+				try (PreparedStatement selectStatement = sourceConnection.prepareStatement(sql))
+				{
+					selectStatement.setFetchSize(this.fetchSize);
+					selectStatement.setMaxRows(this.checkpointInterval);
+					
+					if (position != null)
+					{
+						selectStatement.setLong(1, position);
+					}
+					
+					try (ResultSet resultSet = selectStatement.executeQuery())
+					{
+						count = this.insert(context, table, resultSet, insertStatement);
+					}
+				}
+				
+				if (count == 0) break;
+				
+				statementCount += count;
+				
+				// The rows beyond the position were deleted, so the largest key of the target table is the last copied key
+				logger.log(Level.DEBUG, maxSQL);
+				try (Statement maxStatement = targetConnection.createStatement())
+				{
+					try (ResultSet resultSet = maxStatement.executeQuery(maxSQL))
+					{
+						resultSet.next();
+						position = resultSet.getLong(1);
+					}
+				}
+				
+				targetConnection.commit();
+				
+				progress.setPosition(table, position);
+				
+				if (count < this.checkpointInterval) break;
 			}
 		}
+		
+		logger.log(Level.INFO, messages.insertCount(table, statementCount));
+	}
+	
+	/**
+	 * Splits the specified table into ranges of its primary key, using the minimum and maximum key values.
+	 * @return a list of inclusive ranges, or null if the table does not have a single integral primary key column.
+	 */
+	private <Z, D extends Database<Z>> List<long[]> partition(SynchronizationContext<Z, D> context, TableProperties table) throws SQLException
+	{
+		String column = getSplittableKeyColumn(context, table);
+		
+		if (column == null) return null;
+		
+		String sql = String.format("SELECT MIN(%s), MAX(%s) FROM %s", column, column, table.getName().getDMLName());
+		
+		logger.log(Level.DEBUG, sql);
+		try (Statement statement = context.getConnection(context.getSourceDatabase()).createStatement())
+		{
+			try (ResultSet resultSet = statement.executeQuery(sql))
+			{
+				resultSet.next();
+				
+				long min = resultSet.getLong(1);
+				// Empty table
+				if (resultSet.wasNull()) return null;
+				long max = resultSet.getLong(2);
+				
+				List<long[]> ranges = KeyRanges.split(min, max, this.partitions);
+				
+				return (ranges.size() > 1) ? ranges : null;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the primary key column of the specified table, if it has a single integral primary key column.
+	 * @return a column name, or null if the table does not have a single integral primary key column.
+	 */
+	private static <Z, D extends Database<Z>> String getSplittableKeyColumn(SynchronizationContext<Z, D> context, TableProperties table) throws SQLException
+	{
+		UniqueConstraint primaryKey = table.getPrimaryKey();
+		
+		if ((primaryKey == null) || (primaryKey.getColumnList().size() != 1)) return null;
+		
+		String column = primaryKey.getColumnList().get(0);
+		
+		return KeyRanges.isSplittable(context.getDialect().getColumnType(table.getColumnProperties(column))) ? column : null;
+	}
+	
+	/**
+	 * Copies the rows of the specified result set into the specified insert statement, reading and writing concurrently.
+	 * @return the number of inserted rows
+	 */
+	int insert(SynchronizationContext<?, ?> context, TableProperties table, ResultSet resultSet, PreparedStatement insertStatement) throws SQLException
+	{
+		RowCopier copier = new RowCopier(context.getDialect(), context.getSynchronizationSupport(), table, new ArrayList<>(table.getColumns()), this.maxBatchSize, context.getThrottle());
+		
+		return copier.copy(resultSet, insertStatement, context.getExecutor());
 	}
 	
 	@Override
@@ -241,4 +630,52 @@ public class FullSynchronizationStrategy implements SynchronizationStrategy, Tab
 	{
 		this.maxBatchSize = maxBatchSize;
 	}
+
+	/**
+	 * @return the number of tables to synchronize concurrently
+	 */
+	public int getParallelism()
+	{
+		return this.strategy.getParallelism();
+	}
+
+	/**
+	 * @param parallelism the number of tables to synchronize concurrently
+	 */
+	public void setParallelism(int parallelism)
+	{
+		this.strategy.setParallelism(parallelism);
+	}
+
+	/**
+	 * @return the number of primary key ranges into which each table is split, each copied concurrently
+	 */
+	public int getPartitions()
+	{
+		return this.partitions;
+	}
+
+	/**
+	 * @param partitions the number of primary key ranges into which each table is split, each copied concurrently
+	 */
+	public void setPartitions(int partitions)
+	{
+		this.partitions = partitions;
+	}
+
+	/**
+	 * @return the number of rows copied between checkpoints, or 0 if checkpoints are disabled
+	 */
+	public int getCheckpointInterval()
+	{
+		return this.checkpointInterval;
+	}
+
+	/**
+	 * @param checkpointInterval the number of rows copied between checkpoints, or 0 to disable checkpoints
+	 */
+	public void setCheckpointInterval(int checkpointInterval)
+	{
+		this.checkpointInterval = checkpointInterval;
+	}
 }
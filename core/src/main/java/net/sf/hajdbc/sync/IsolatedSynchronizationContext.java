@@ -0,0 +1,219 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.sync;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+import net.sf.hajdbc.Database;
+import net.sf.hajdbc.DatabaseProperties;
+import net.sf.hajdbc.codec.Decoder;
+import net.sf.hajdbc.dialect.Dialect;
+import net.sf.hajdbc.logging.Level;
+import net.sf.hajdbc.logging.Logger;
+import net.sf.hajdbc.logging.LoggerFactory;
+
+/**
+ * Synchronization context that uses its own non-auto-commit connections, but otherwise delegates to a parent context.
+ * Allows a portion of a synchronization to run concurrently with others.
+ * @author Paul Ferraro
+ */
+public class IsolatedSynchronizationContext<Z, D extends Database<Z>> implements SynchronizationContext<Z, D>
+{
+	private static final Logger logger = LoggerFactory.getLogger(IsolatedSynchronizationContext.class);
+	
+	private final SynchronizationContext<Z, D> context;
+	private final ExecutorService executor;
+	private final Map<D, Connection> connectionMap = new HashMap<>();
+	
+	/**
+	 * @param context the parent context
+	 * @param executor the executor to use in place of the executor of the parent context
+	 */
+	public IsolatedSynchronizationContext(SynchronizationContext<Z, D> context, ExecutorService executor)
+	{
+		this.context = context;
+		this.executor = executor;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.sync.SynchronizationContext#getConnection(net.sf.hajdbc.Database)
+	 */
+	@Override
+	public Connection getConnection(D database) throws SQLException
+	{
+		Connection connection = this.connectionMap.get(database);
+		
+		if (connection == null)
+		{
+			connection = database.connect(this.context.getDecoder());
+			connection.setAutoCommit(false);
+			
+			this.connectionMap.put(database, connection);
+		}
+		
+		return connection;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.sync.SynchronizationContext#getSourceDatabase()
+	 */
+	@Override
+	public D getSourceDatabase()
+	{
+		return this.context.getSourceDatabase();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.sync.SynchronizationContext#getTargetDatabase()
+	 */
+	@Override
+	public D getTargetDatabase()
+	{
+		return this.context.getTargetDatabase();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.sync.SynchronizationContext#getActiveDatabaseSet()
+	 */
+	@Override
+	public Set<D> getActiveDatabaseSet()
+	{
+		return this.context.getActiveDatabaseSet();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.sync.SynchronizationContext#getSourceDatabaseProperties()
+	 */
+	@Override
+	public DatabaseProperties getSourceDatabaseProperties()
+	{
+		return this.context.getSourceDatabaseProperties();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.sync.SynchronizationContext#getTargetDatabaseProperties()
+	 */
+	@Override
+	public DatabaseProperties getTargetDatabaseProperties()
+	{
+		return this.context.getTargetDatabaseProperties();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.sync.SynchronizationContext#getDialect()
+	 */
+	@Override
+	public Dialect getDialect()
+	{
+		return this.context.getDialect();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.sync.SynchronizationContext#getExecutor()
+	 */
+	@Override
+	public ExecutorService getExecutor()
+	{
+		return this.executor;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.sync.SynchronizationContext#getThreadFactory()
+	 */
+	@Override
+	public ThreadFactory getThreadFactory()
+	{
+		return this.context.getThreadFactory();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.sync.SynchronizationContext#getSynchronizationSupport()
+	 */
+	@Override
+	public SynchronizationSupport getSynchronizationSupport()
+	{
+		return new SynchronizationSupportImpl<>(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.sync.SynchronizationContext#getDecoder()
+	 */
+	@Override
+	public Decoder getDecoder()
+	{
+		return this.context.getDecoder();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.sync.SynchronizationContext#getProgress()
+	 */
+	@Override
+	public SynchronizationProgress getProgress()
+	{
+		return this.context.getProgress();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.sync.SynchronizationContext#getThrottle()
+	 */
+	@Override
+	public SynchronizationThrottle getThrottle()
+	{
+		return this.context.getThrottle();
+	}
+
+	/**
+	 * Closes the connections of this context.
+	 * The executor is owned by the caller, and is not shutdown.
+	 * @see net.sf.hajdbc.sync.SynchronizationContext#close()
+	 */
+	@Override
+	public void close()
+	{
+		for (Connection connection: this.connectionMap.values())
+		{
+			try
+			{
+				connection.close();
+			}
+			catch (SQLException e)
+			{
+				logger.log(Level.WARN, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.sync;
+
+import java.math.BigInteger;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility methods for splitting the values of an integral primary key column into contiguous ranges.
+ * @author Paul Ferraro
+ */
+final class KeyRanges
+{
+	/**
+	 * Indicates whether the specified SQL type is integral, and can therefore be split into ranges.
+	 * @param type a SQL type, from {@link java.sql.Types}
+	 * @return true, if the specified type is integral, false otherwise
+	 */
+	static boolean isSplittable(int type)
+	{
+		switch (type)
+		{
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+			case Types.BIGINT:
+			{
+				return true;
+			}
+			default:
+			{
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Splits the specified inclusive range into at most the specified number of contiguous inclusive ranges of equal size.
+	 * @param min the lower bound of the range
+	 * @param max the upper bound of the range
+	 * @param count the maximum number of ranges
+	 * @return a list of ranges, expressed as a 2 element array of lower and upper bound.
+	 */
+	static List<long[]> split(long min, long max, int count)
+	{
+		BigInteger lower = BigInteger.valueOf(min);
+		BigInteger upper = BigInteger.valueOf(max);
+		BigInteger divisor = BigInteger.valueOf(count);
+		// Ceiling of (max - min + 1) / count
+		BigInteger size = upper.subtract(lower).add(divisor).divide(divisor);
+		
+		List<long[]> ranges = new ArrayList<>(count);
+		
+		while (lower.compareTo(upper) <= 0)
+		{
+			BigInteger end = lower.add(size).subtract(BigInteger.ONE).min(upper);
+			ranges.add(new long[] { lower.longValue(), end.longValue() });
+			lower = end.add(BigInteger.ONE);
+		}
+		
+		return ranges;
+	}
+
+	private KeyRanges()
+	{
+		// Hide constructor
+	}
+}
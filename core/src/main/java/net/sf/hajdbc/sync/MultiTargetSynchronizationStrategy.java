@@ -0,0 +1,38 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.sync;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import net.sf.hajdbc.Database;
+import net.sf.hajdbc.SynchronizationStrategy;
+
+/**
+ * A synchronization strategy capable of synchronizing several inactive databases at once, reading from their common source database only once.
+ * @author Paul Ferraro
+ */
+public interface MultiTargetSynchronizationStrategy extends SynchronizationStrategy
+{
+	/**
+	 * Synchronizes the target databases of the specified contexts.
+	 * @param contexts synchronization contexts, one per target database, all sharing the same source database
+	 * @throws SQLException if synchronization of any target database failed
+	 */
+	<Z, D extends Database<Z>> void synchronize(List<SynchronizationContext<Z, D>> contexts) throws SQLException;
+}
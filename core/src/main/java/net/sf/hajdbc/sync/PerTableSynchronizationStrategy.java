@@ -18,18 +18,53 @@
 package net.sf.hajdbc.sync;
 
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.sf.hajdbc.Database;
 import net.sf.hajdbc.DatabaseCluster;
+import net.sf.hajdbc.ExceptionType;
+import net.sf.hajdbc.QualifiedName;
 import net.sf.hajdbc.SynchronizationStrategy;
 import net.sf.hajdbc.TableProperties;
+import net.sf.hajdbc.logging.Level;
+import net.sf.hajdbc.logging.Logger;
+import net.sf.hajdbc.logging.LoggerFactory;
+import net.sf.hajdbc.messages.Messages;
+import net.sf.hajdbc.messages.MessagesFactory;
 
+/**
+ * Synchronization strategy that synchronizes each table independently, committing after each table.
+ * If configured with a parallelism greater than 1, tables are synchronized concurrently, largest first,
+ * each using its own connections to the source and target databases.
+ * Tables recorded as complete by the progress of the synchronization context are skipped.
+ * @author Paul Ferraro
+ */
 public class PerTableSynchronizationStrategy implements SynchronizationStrategy
 {
 	private static final long serialVersionUID = 7952995443041830678L;
 	
+	static Messages messages = MessagesFactory.getMessages();
+	static Logger logger = LoggerFactory.getLogger(PerTableSynchronizationStrategy.class);
+	
 	private final TableSynchronizationStrategy strategy;
+	private int parallelism = 1;
 	
 	@Override
 	public String getId()
@@ -64,21 +99,43 @@ public class PerTableSynchronizationStrategy implements SynchronizationStrategy
 		
 		this.strategy.dropConstraints(context);
 		
-		sourceConnection.setAutoCommit(false);
-		targetConnection.setAutoCommit(false);
-		
-		for (TableProperties table: context.getSourceDatabaseProperties().getTables())
+		if (this.parallelism > 1)
 		{
-			try
+			this.synchronizeConcurrently(context);
+		}
+		else
+		{
+			sourceConnection.setAutoCommit(false);
+			targetConnection.setAutoCommit(false);
+			
+			SynchronizationProgress progress = context.getProgress();
+			Collection<TableProperties> tables = context.getSourceDatabaseProperties().getTables();
+			int count = 0;
+			
+			for (TableProperties table: tables)
 			{
-				this.strategy.synchronize(context, table);
+				// Skip tables already synchronized by a prior incomplete synchronization
+				if (progress.isComplete(table))
+				{
+					++count;
+					continue;
+				}
 				
-				targetConnection.commit();
-			}
-			catch (SQLException e)
-			{
-				support.rollback(targetConnection);
-				throw e;
+				try
+				{
+					this.strategy.synchronize(context, table);
+					
+					targetConnection.commit();
+					
+					progress.complete(table);
+				}
+				catch (SQLException e)
+				{
+					support.rollback(targetConnection);
+					throw e;
+				}
+				
+				logger.log(Level.INFO, messages.tableSynchronized(table, ++count, tables.size()));
 			}
 		}
 		
@@ -87,4 +144,167 @@ public class PerTableSynchronizationStrategy implements SynchronizationStrategy
 		support.synchronizeIdentityColumns();
 		support.synchronizeSequences();
 	}
+	
+	private <Z, D extends Database<Z>> void synchronizeConcurrently(final SynchronizationContext<Z, D> context) throws SQLException
+	{
+		final SynchronizationProgress progress = context.getProgress();
+		final Collection<TableProperties> allTables = context.getSourceDatabaseProperties().getTables();
+		final List<TableProperties> tables = new ArrayList<>(allTables.size());
+		
+		// Skip tables already synchronized by a prior incomplete synchronization
+		for (TableProperties table: allTables)
+		{
+			if (!progress.isComplete(table))
+			{
+				tables.add(table);
+			}
+		}
+		
+		// Schedule the largest tables first, so that they do not end up running alone
+		final Map<TableProperties, Long> sizes = estimateRowCounts(context.getConnection(context.getSourceDatabase()).getMetaData(), tables);
+		Collections.sort(tables, new Comparator<TableProperties>()
+		{
+			@Override
+			public int compare(TableProperties table1, TableProperties table2)
+			{
+				return Long.compare(sizes.get(table2), sizes.get(table1));
+			}
+		});
+		
+		final Queue<TableProperties> queue = new ConcurrentLinkedQueue<>(tables);
+		final AtomicInteger count = new AtomicInteger(allTables.size() - tables.size());
+		int workers = Math.min(this.parallelism, tables.size());
+		
+		if (workers == 0) return;
+		
+		// Each worker may itself submit a task at a time, e.g. to read the source rows of its table
+		final ExecutorService executor = Executors.newFixedThreadPool(2 * workers, context.getThreadFactory());
+		
+		try
+		{
+			List<Future<Void>> futures = new ArrayList<>(workers);
+			
+			for (int i = 0; i < workers; ++i)
+			{
+				Callable<Void> task = new Callable<Void>()
+				{
+					@Override
+					public Void call() throws SQLException
+					{
+						try (SynchronizationContext<Z, D> taskContext = new IsolatedSynchronizationContext<>(context, executor))
+						{
+							Connection targetConnection = taskContext.getConnection(taskContext.getTargetDatabase());
+							
+							TableProperties table = queue.poll();
+							
+							while (table != null)
+							{
+								try
+								{
+									PerTableSynchronizationStrategy.this.strategy.synchronize(taskContext, table);
+									
+									targetConnection.commit();
+									
+									progress.complete(table);
+								}
+								catch (SQLException e)
+								{
+									taskContext.getSynchronizationSupport().rollback(targetConnection);
+									throw e;
+								}
+								
+								logger.log(Level.INFO, messages.tableSynchronized(table, count.incrementAndGet(), allTables.size()));
+								
+								table = queue.poll();
+							}
+						}
+						return null;
+					}
+				};
+				
+				futures.add(executor.submit(task));
+			}
+			
+			SQLException exception = null;
+			
+			for (Future<Void> future: futures)
+			{
+				try
+				{
+					future.get();
+				}
+				catch (ExecutionException e)
+				{
+					// Stop scheduling tables, but let in-progress tables complete
+					queue.clear();
+					
+					if (exception == null)
+					{
+						exception = ExceptionType.SQL.<SQLException>getExceptionFactory().createException(e.getCause());
+					}
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					throw new SQLException(e);
+				}
+			}
+			
+			if (exception != null)
+			{
+				throw exception;
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Estimates the number of rows in each table, using the cardinality reported by approximate index statistics.
+	 */
+	private static Map<TableProperties, Long> estimateRowCounts(DatabaseMetaData metaData, List<TableProperties> tables) throws SQLException
+	{
+		String catalog = metaData.getConnection().getCatalog();
+		Map<TableProperties, Long> sizes = new HashMap<>();
+		
+		for (TableProperties table: tables)
+		{
+			QualifiedName name = table.getName();
+			long size = 0;
+			
+			try (ResultSet resultSet = metaData.getIndexInfo(catalog, name.getSchema(), name.getName(), false, true))
+			{
+				while (resultSet.next())
+				{
+					size = Math.max(size, resultSet.getLong("CARDINALITY"));
+				}
+			}
+			catch (SQLException e)
+			{
+				logger.log(Level.DEBUG, e);
+			}
+			
+			sizes.put(table, size);
+		}
+		
+		return sizes;
+	}
+
+	/**
+	 * @return the number of tables to synchronize concurrently
+	 */
+	public int getParallelism()
+	{
+		return this.parallelism;
+	}
+
+	/**
+	 * @param parallelism the number of tables to synchronize concurrently
+	 */
+	public void setParallelism(int parallelism)
+	{
+		this.parallelism = parallelism;
+	}
 }
@@ -0,0 +1,738 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.sync;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.sf.hajdbc.ExceptionType;
+import net.sf.hajdbc.TableProperties;
+import net.sf.hajdbc.dialect.Dialect;
+
+/**
+ * Copies the rows of a result set into a batched insert statement.
+ * Each column is precompiled into a type-specific reader/writer pair, whose values are buffered into column arrays, avoiding per-cell type lookups and boxing of primitive values.
+ * Rows are read from the source result set by a reader task, and written to the target statement by the calling thread,
+ * with a bounded number of batches buffered between them, so that reading from the source overlaps with writing to the target.
+ * Rows may be copied into several target statements at once, in which case each batch is written to all targets concurrently.
+ * Tables containing LOB columns are read and written by the calling thread, since LOB locators may not remain valid once the result set advances,
+ * and written to one target at a time, since LOB locators must not be read by several statements concurrently.
+ * If given a throttle, reading pauses after each batch as needed to honor its limits.
+ * @author Paul Ferraro
+ */
+public class RowCopier
+{
+	// Number of batches buffered between reader and writer
+	private static final int BUFFER_SIZE = 2;
+	// Marks the end of the batches of the reader
+	private static final Batch END = new Batch(new Column[0], 0);
+	
+	private final ColumnFactory[] factories;
+	private final int batchSize;
+	private final boolean pipelined;
+	private final SynchronizationThrottle throttle;
+	
+	/**
+	 * @param dialect the dialect used to determine column types
+	 * @param support the synchronization support used to read LOB values
+	 * @param table the table whose rows will be copied
+	 * @param columns the columns to copy, in the order of both the result set and statement parameters
+	 * @param batchSize the maximum number of rows per statement batch
+	 * @throws SQLException if the column meta data could not be obtained
+	 */
+	public RowCopier(Dialect dialect, SynchronizationSupport support, TableProperties table, List<String> columns, int batchSize) throws SQLException
+	{
+		this(dialect, support, table, columns, batchSize, null);
+	}
+	
+	/**
+	 * @param dialect the dialect used to determine column types
+	 * @param support the synchronization support used to read LOB values
+	 * @param table the table whose rows will be copied
+	 * @param columns the columns to copy, in the order of both the result set and statement parameters
+	 * @param batchSize the maximum number of rows per statement batch
+	 * @param throttle limits the rate of reading from the source result set, or null if unlimited
+	 * @throws SQLException if the column meta data could not be obtained
+	 */
+	public RowCopier(Dialect dialect, SynchronizationSupport support, TableProperties table, List<String> columns, int batchSize, SynchronizationThrottle throttle) throws SQLException
+	{
+		this.factories = new ColumnFactory[columns.size()];
+		this.batchSize = batchSize;
+		this.throttle = throttle;
+		
+		boolean lob = false;
+		
+		for (int i = 0; i < this.factories.length; ++i)
+		{
+			int type = dialect.getColumnType(table.getColumnProperties(columns.get(i)));
+			
+			this.factories[i] = createColumnFactory(support, type);
+			
+			lob |= (type == Types.BLOB) || (type == Types.CLOB);
+		}
+		
+		this.pipelined = !lob;
+	}
+	
+	/**
+	 * Copies all remaining rows of the specified result set into the specified statement, executing a batch every batch size rows.
+	 * @param resultSet a source result set
+	 * @param statement a target insert statement
+	 * @param executor an executor for the reader task
+	 * @return the number of copied rows
+	 * @throws SQLException if the copy failed
+	 */
+	public int copy(ResultSet resultSet, PreparedStatement statement, ExecutorService executor) throws SQLException
+	{
+		return this.copy(resultSet, Collections.singletonList(statement), executor);
+	}
+	
+	/**
+	 * Copies all remaining rows of the specified result set into each of the specified statements, executing a batch every batch size rows.
+	 * Each batch is written to all statements concurrently, so that the source is only read once.
+	 * @param resultSet a source result set
+	 * @param statements insert statements, each for a different target
+	 * @param executor an executor for the reader task and for concurrent writes, capable of running one task per statement concurrently
+	 * @return the number of rows copied into each statement
+	 * @throws SQLException if the copy failed
+	 */
+	public int copy(final ResultSet resultSet, List<PreparedStatement> statements, ExecutorService executor) throws SQLException
+	{
+		if (!this.pipelined)
+		{
+			Batch batch = this.createBatch();
+			int count = 0;
+			
+			try
+			{
+				while (this.read(batch, resultSet) > 0)
+				{
+					this.throttle(batch);
+					
+					count += this.write(batch, statements, executor);
+				}
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new SQLException(e);
+			}
+			
+			return count;
+		}
+		
+		// Room for every batch, plus the end marker
+		final BlockingQueue<Batch> full = new ArrayBlockingQueue<>(BUFFER_SIZE + 2);
+		final BlockingQueue<Batch> empty = new ArrayBlockingQueue<>(BUFFER_SIZE + 1);
+		
+		for (int i = 0; i <= BUFFER_SIZE; ++i)
+		{
+			empty.add(this.createBatch());
+		}
+		
+		final AtomicBoolean started = new AtomicBoolean(false);
+		final CountDownLatch stopped = new CountDownLatch(1);
+		
+		Callable<Void> reader = new Callable<Void>()
+		{
+			@Override
+			public Void call() throws SQLException, InterruptedException
+			{
+				// The writer already gave up on this reader
+				if (!started.compareAndSet(false, true)) return null;
+				
+				try
+				{
+					while (true)
+					{
+						Batch batch = empty.take();
+						
+						if (RowCopier.this.read(batch, resultSet) == 0) return null;
+						
+						full.put(batch);
+						
+						// The writer may proceed with this batch while reading pauses
+						RowCopier.this.throttle(batch);
+					}
+				}
+				finally
+				{
+					// Signals the end of the result set, or a failure, so that the writer never waits on a reader that has stopped
+					full.add(END);
+					stopped.countDown();
+				}
+			}
+		};
+		
+		Future<Void> future = executor.submit(reader);
+		
+		int count = 0;
+		
+		try
+		{
+			while (true)
+			{
+				Batch batch = full.take();
+				
+				if (batch == END)
+				{
+					future.get();
+					return count;
+				}
+				
+				count += this.write(batch, statements, executor);
+				
+				empty.put(batch);
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new SQLException(e);
+		}
+		catch (ExecutionException e)
+		{
+			throw ExceptionType.SQL.<SQLException>getExceptionFactory().createException(e.getCause());
+		}
+		finally
+		{
+			if (!future.isDone())
+			{
+				future.cancel(true);
+				
+				// A cancelled future does not wait for its task, so wait for the reader to stop using the result set, unless it never started
+				if (!started.compareAndSet(false, true))
+				{
+					await(stopped);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Waits for the specified latch, deferring any interruption.
+	 */
+	private static void await(CountDownLatch latch)
+	{
+		boolean interrupted = false;
+		
+		while (true)
+		{
+			try
+			{
+				latch.await();
+				break;
+			}
+			catch (InterruptedException e)
+			{
+				interrupted = true;
+			}
+		}
+		
+		if (interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Writes the specified batch to each of the specified statements, concurrently if there are several, unless the batch contains LOBs.
+	 * @return the number of rows written to each statement
+	 */
+	private int write(final Batch batch, List<PreparedStatement> statements, ExecutorService executor) throws SQLException
+	{
+		if (!this.pipelined)
+		{
+			int count = 0;
+			
+			for (PreparedStatement statement: statements)
+			{
+				count = batch.write(statement);
+			}
+			
+			return count;
+		}
+		
+		List<Future<Integer>> futures = new ArrayList<>(statements.size() - 1);
+		
+		for (final PreparedStatement statement: statements.subList(1, statements.size()))
+		{
+			Callable<Integer> task = new Callable<Integer>()
+			{
+				@Override
+				public Integer call() throws SQLException
+				{
+					return batch.write(statement);
+				}
+			};
+			
+			futures.add(executor.submit(task));
+		}
+		
+		try
+		{
+			int count = batch.write(statements.get(0));
+			
+			for (Future<Integer> future: futures)
+			{
+				future.get();
+			}
+			
+			return count;
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new SQLException(e);
+		}
+		catch (ExecutionException e)
+		{
+			throw ExceptionType.SQL.<SQLException>getExceptionFactory().createException(e.getCause());
+		}
+		finally
+		{
+			for (Future<Integer> future: futures)
+			{
+				future.cancel(true);
+			}
+		}
+	}
+	
+	private int read(Batch batch, ResultSet resultSet) throws SQLException
+	{
+		return batch.read(resultSet, (this.throttle != null) && this.throttle.isLatencyLimited());
+	}
+	
+	/**
+	 * Pauses, if necessary, after reading the specified batch, to honor the limits of the throttle.
+	 * Must be called before the batch is recycled.
+	 */
+	private void throttle(Batch batch) throws InterruptedException
+	{
+		if ((this.throttle != null) && this.throttle.isEnabled())
+		{
+			this.throttle.acquire(batch.size(), this.throttle.isByteRateLimited() ? batch.bytes() : 0, batch.latency());
+		}
+	}
+	
+	private Batch createBatch()
+	{
+		Column[] columns = new Column[this.factories.length];
+		
+		for (int i = 0; i < columns.length; ++i)
+		{
+			columns[i] = this.factories[i].createColumn(this.batchSize);
+		}
+		
+		return new Batch(columns, this.batchSize);
+	}
+	
+	/**
+	 * A batch of rows, stored as column arrays.
+	 */
+	private static class Batch
+	{
+		private final Column[] columns;
+		private final int capacity;
+		private int size = 0;
+		private long latency = 0;
+		
+		Batch(Column[] columns, int capacity)
+		{
+			this.columns = columns;
+			this.capacity = capacity;
+		}
+		
+		int size()
+		{
+			return this.size;
+		}
+		
+		/**
+		 * Returns the largest latency of advancing the result set while reading this batch.
+		 * @return a latency in nanoseconds, or 0 if not timed
+		 */
+		long latency()
+		{
+			return this.latency;
+		}
+		
+		/**
+		 * Returns the approximate size of the values of this batch.
+		 * @return a number of bytes
+		 */
+		long bytes()
+		{
+			long bytes = 0;
+			
+			for (Column column: this.columns)
+			{
+				for (int row = 0; row < this.size; ++row)
+				{
+					bytes += column.size(row);
+				}
+			}
+			
+			return bytes;
+		}
+		
+		/**
+		 * Fills this batch from the specified result set.
+		 * @param timed indicates whether to record the latency of advancing the result set, which spikes whenever the driver fetches more rows from the database
+		 * @return the number of rows read
+		 */
+		int read(ResultSet resultSet, boolean timed) throws SQLException
+		{
+			this.size = 0;
+			this.latency = 0;
+			
+			while ((this.size < this.capacity) && (timed ? this.next(resultSet) : resultSet.next()))
+			{
+				for (int i = 0; i < this.columns.length; ++i)
+				{
+					this.columns[i].read(resultSet, i + 1, this.size);
+				}
+				
+				this.size += 1;
+			}
+			
+			return this.size;
+		}
+		
+		private boolean next(ResultSet resultSet) throws SQLException
+		{
+			long start = System.nanoTime();
+			
+			boolean next = resultSet.next();
+			
+			this.latency = Math.max(this.latency, System.nanoTime() - start);
+			
+			return next;
+		}
+		
+		/**
+		 * Writes the rows of this batch to the specified statement, and executes the batch.
+		 * @return the number of rows written
+		 */
+		int write(PreparedStatement statement) throws SQLException
+		{
+			for (int row = 0; row < this.size; ++row)
+			{
+				for (int i = 0; i < this.columns.length; ++i)
+				{
+					this.columns[i].write(statement, i + 1, row);
+				}
+				
+				statement.addBatch();
+			}
+			
+			statement.executeBatch();
+			statement.clearBatch();
+			
+			return this.size;
+		}
+	}
+	
+	private static ColumnFactory createColumnFactory(final SynchronizationSupport support, final int type)
+	{
+		switch (type)
+		{
+			case Types.BIGINT:
+			{
+				return new ColumnFactory()
+				{
+					@Override
+					public Column createColumn(int capacity)
+					{
+						return new LongColumn(type, capacity);
+					}
+				};
+			}
+			case Types.INTEGER:
+			case Types.SMALLINT:
+			case Types.TINYINT:
+			{
+				return new ColumnFactory()
+				{
+					@Override
+					public Column createColumn(int capacity)
+					{
+						return new IntColumn(type, capacity);
+					}
+				};
+			}
+			case Types.DOUBLE:
+			case Types.FLOAT:
+			{
+				return new ColumnFactory()
+				{
+					@Override
+					public Column createColumn(int capacity)
+					{
+						return new DoubleColumn(type, capacity);
+					}
+				};
+			}
+			// BIT may denote a string of several bits (e.g. PostgreSQL bit(n)), so is copied as an object
+			case Types.BOOLEAN:
+			{
+				return new ColumnFactory()
+				{
+					@Override
+					public Column createColumn(int capacity)
+					{
+						return new BooleanColumn(type, capacity);
+					}
+				};
+			}
+			default:
+			{
+				return new ColumnFactory()
+				{
+					@Override
+					public Column createColumn(int capacity)
+					{
+						return new ObjectColumn(support, type, capacity);
+					}
+				};
+			}
+		}
+	}
+	
+	private interface ColumnFactory
+	{
+		Column createColumn(int capacity);
+	}
+	
+	/**
+	 * Buffers the values of a column for a batch of rows.
+	 */
+	private abstract static class Column
+	{
+		private final int type;
+		private final boolean[] nulls;
+		
+		Column(int type, int capacity)
+		{
+			this.type = type;
+			this.nulls = new boolean[capacity];
+		}
+		
+		void read(ResultSet resultSet, int index, int row) throws SQLException
+		{
+			this.get(resultSet, index, row);
+			this.nulls[row] = resultSet.wasNull();
+		}
+		
+		void write(PreparedStatement statement, int index, int row) throws SQLException
+		{
+			if (this.nulls[row])
+			{
+				statement.setNull(index, this.type);
+			}
+			else
+			{
+				this.set(statement, index, row);
+			}
+		}
+		
+		int getType()
+		{
+			return this.type;
+		}
+		
+		/**
+		 * Returns the approximate size of the value of the specified row.
+		 */
+		long size(int row)
+		{
+			return this.nulls[row] ? 0 : this.width(row);
+		}
+		
+		abstract long width(int row);
+		
+		abstract void get(ResultSet resultSet, int index, int row) throws SQLException;
+		
+		abstract void set(PreparedStatement statement, int index, int row) throws SQLException;
+	}
+	
+	private static class LongColumn extends Column
+	{
+		private final long[] values;
+		
+		LongColumn(int type, int capacity)
+		{
+			super(type, capacity);
+			this.values = new long[capacity];
+		}
+		
+		@Override
+		long width(int row)
+		{
+			return 8;
+		}
+		
+		@Override
+		void get(ResultSet resultSet, int index, int row) throws SQLException
+		{
+			this.values[row] = resultSet.getLong(index);
+		}
+		
+		@Override
+		void set(PreparedStatement statement, int index, int row) throws SQLException
+		{
+			statement.setLong(index, this.values[row]);
+		}
+	}
+	
+	private static class IntColumn extends Column
+	{
+		private final int[] values;
+		
+		IntColumn(int type, int capacity)
+		{
+			super(type, capacity);
+			this.values = new int[capacity];
+		}
+		
+		@Override
+		long width(int row)
+		{
+			return 4;
+		}
+		
+		@Override
+		void get(ResultSet resultSet, int index, int row) throws SQLException
+		{
+			this.values[row] = resultSet.getInt(index);
+		}
+		
+		@Override
+		void set(PreparedStatement statement, int index, int row) throws SQLException
+		{
+			statement.setInt(index, this.values[row]);
+		}
+	}
+	
+	private static class DoubleColumn extends Column
+	{
+		private final double[] values;
+		
+		DoubleColumn(int type, int capacity)
+		{
+			super(type, capacity);
+			this.values = new double[capacity];
+		}
+		
+		@Override
+		long width(int row)
+		{
+			return 8;
+		}
+		
+		@Override
+		void get(ResultSet resultSet, int index, int row) throws SQLException
+		{
+			this.values[row] = resultSet.getDouble(index);
+		}
+		
+		@Override
+		void set(PreparedStatement statement, int index, int row) throws SQLException
+		{
+			statement.setDouble(index, this.values[row]);
+		}
+	}
+	
+	private static class BooleanColumn extends Column
+	{
+		private final boolean[] values;
+		
+		BooleanColumn(int type, int capacity)
+		{
+			super(type, capacity);
+			this.values = new boolean[capacity];
+		}
+		
+		@Override
+		long width(int row)
+		{
+			return 1;
+		}
+		
+		@Override
+		void get(ResultSet resultSet, int index, int row) throws SQLException
+		{
+			this.values[row] = resultSet.getBoolean(index);
+		}
+		
+		@Override
+		void set(PreparedStatement statement, int index, int row) throws SQLException
+		{
+			statement.setBoolean(index, this.values[row]);
+		}
+	}
+	
+	private static class ObjectColumn extends Column
+	{
+		private final SynchronizationSupport support;
+		private final Object[] values;
+		
+		ObjectColumn(SynchronizationSupport support, int type, int capacity)
+		{
+			super(type, capacity);
+			this.support = support;
+			this.values = new Object[capacity];
+		}
+		
+		@Override
+		long width(int row)
+		{
+			Object value = this.values[row];
+			
+			if (value instanceof String) return ((String) value).length();
+			if (value instanceof byte[]) return ((byte[]) value).length;
+			
+			return 8;
+		}
+		
+		@Override
+		void get(ResultSet resultSet, int index, int row) throws SQLException
+		{
+			this.values[row] = this.support.getObject(resultSet, index, this.getType());
+		}
+		
+		@Override
+		void set(PreparedStatement statement, int index, int row) throws SQLException
+		{
+			statement.setObject(index, this.values[row], this.getType());
+		}
+	}
+}
@@ -21,6 +21,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
 
 import net.sf.hajdbc.Database;
 import net.sf.hajdbc.DatabaseProperties;
@@ -85,10 +86,28 @@ public interface SynchronizationContext<Z, D extends Database<Z>> extends AutoCl
 	 */
 	ExecutorService getExecutor();
 	
+	/**
+	 * Returns the factory of the threads of the cluster, for synchronization tasks that require their own executor.
+	 * @return a thread factory
+	 */
+	ThreadFactory getThreadFactory();
+	
 	SynchronizationSupport getSynchronizationSupport();
 	
 	Decoder getDecoder();
 	
+	/**
+	 * Returns the progress of this synchronization, possibly resumed from a prior incomplete synchronization of the target database.
+	 * @return the synchronization progress
+	 */
+	SynchronizationProgress getProgress();
+	
+	/**
+	 * Returns the throttle that limits the rate at which this synchronization reads from the source database.
+	 * @return a synchronization throttle
+	 */
+	SynchronizationThrottle getThrottle();
+	
 	/**
 	 * Closes any open database connections and shuts down the executor service. 
 	 */
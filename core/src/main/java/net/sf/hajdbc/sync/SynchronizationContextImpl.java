@@ -25,6 +25,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import net.sf.hajdbc.Database;
 import net.sf.hajdbc.DatabaseCluster;
@@ -52,7 +53,9 @@ public class SynchronizationContextImpl<Z, D extends Database<Z>> implements Syn
 	private final DatabaseProperties sourceDatabaseProperties;
 	private final DatabaseProperties targetDatabaseProperties;
 	private final Map<D, Map.Entry<Connection, Boolean>> connectionMap = new HashMap<>();
+	private final SynchronizationContext<Z, D> context;
 	private final ExecutorService executor;
+	private final SynchronizationProgress progress;
 	
 	/**
 	 * @param cluster
@@ -60,21 +63,53 @@ public class SynchronizationContextImpl<Z, D extends Database<Z>> implements Syn
 	 * @throws SQLException
 	 */
 	public SynchronizationContextImpl(DatabaseCluster<Z, D> cluster, D database) throws SQLException
+	{
+		this(cluster, cluster.getBalancer().next(), database);
+	}
+	
+	/**
+	 * Creates a synchronization context using a specific source database.
+	 * @param cluster a database cluster
+	 * @param source an active database from which to synchronize
+	 * @param database the database to synchronize
+	 * @throws SQLException if the meta data of the source or target database could not be obtained
+	 */
+	public SynchronizationContextImpl(DatabaseCluster<Z, D> cluster, D source, D database) throws SQLException
+	{
+		this(cluster, source, database, null);
+	}
+	
+	/**
+	 * Creates a synchronization context for another target database of the specified context,
+	 * sharing its connections to the source database and to the other active databases.
+	 * @param cluster a database cluster
+	 * @param context the context of another target database, which must outlive this context
+	 * @param database the database to synchronize
+	 * @throws SQLException if the meta data of the target database could not be obtained
+	 */
+	public SynchronizationContextImpl(DatabaseCluster<Z, D> cluster, SynchronizationContext<Z, D> context, D database) throws SQLException
+	{
+		this(cluster, context.getSourceDatabase(), database, context);
+	}
+	
+	private SynchronizationContextImpl(DatabaseCluster<Z, D> cluster, D source, D database, SynchronizationContext<Z, D> context) throws SQLException
 	{
 		this.cluster = cluster;
+		this.context = context;
 		
 		Balancer<Z, D> balancer = cluster.getBalancer();
 		
-		this.sourceDatabase = balancer.next();
+		this.sourceDatabase = source;
 		
 		this.activeDatabaseSet = balancer;
 		this.targetDatabase = database;
 		this.executor = Executors.newFixedThreadPool(this.activeDatabaseSet.size(), this.cluster.getThreadFactory());
+		this.progress = new SynchronizationProgress(cluster.getStateManager(), database.getId());
 		
 		DatabaseMetaDataCache<Z, D> cache = cluster.getDatabaseMetaDataCache();
 		
 		this.targetDatabaseProperties = cache.getDatabaseProperties(this.targetDatabase, this.getConnection(this.targetDatabase));
-		this.sourceDatabaseProperties = cache.getDatabaseProperties(this.sourceDatabase, this.getConnection(this.sourceDatabase));
+		this.sourceDatabaseProperties = (context != null) ? context.getSourceDatabaseProperties() : cache.getDatabaseProperties(this.sourceDatabase, this.getConnection(this.sourceDatabase));
 	}
 	
 	/**
@@ -83,6 +118,11 @@ public class SynchronizationContextImpl<Z, D extends Database<Z>> implements Syn
 	@Override
 	public Connection getConnection(D database) throws SQLException
 	{
+		if ((this.context != null) && !database.equals(this.targetDatabase))
+		{
+			return this.context.getConnection(database);
+		}
+		
 		Map.Entry<Connection, Boolean> entry = this.connectionMap.get(database);
 		
 		if (entry == null)
@@ -169,6 +209,16 @@ public class SynchronizationContextImpl<Z, D extends Database<Z>> implements Syn
 		return this.executor;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.sync.SynchronizationContext#getThreadFactory()
+	 */
+	@Override
+	public ThreadFactory getThreadFactory()
+	{
+		return this.cluster.getThreadFactory();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * @see net.sf.hajdbc.sync.SynchronizationContext#getSynchronizationSupport()
@@ -179,6 +229,26 @@ public class SynchronizationContextImpl<Z, D extends Database<Z>> implements Syn
 		return new SynchronizationSupportImpl<>(this);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.sync.SynchronizationContext#getProgress()
+	 */
+	@Override
+	public SynchronizationProgress getProgress()
+	{
+		return this.progress;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.sync.SynchronizationContext#getThrottle()
+	 */
+	@Override
+	public SynchronizationThrottle getThrottle()
+	{
+		return this.cluster.getSynchronizationThrottle();
+	}
+
 	/**
 	 * @see net.sf.hajdbc.sync.SynchronizationContext#close()
 	 */
@@ -0,0 +1,62 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.sync;
+
+import java.sql.SQLException;
+
+import net.sf.hajdbc.Database;
+
+/**
+ * Journal of the changes applied to the active databases of a cluster.
+ * Used to activate a database online, i.e. to bring a target database, synchronized while the cluster remained writable, up to date with the changes applied in the meantime.
+ * @author Paul Ferraro
+ */
+public interface SynchronizationJournal
+{
+	/**
+	 * Indicates whether the changes applied to the specified database are currently journaled.
+	 * @param database a database
+	 * @return true, if changes to this database are journaled, false otherwise
+	 */
+	boolean isJournaled(Database<?> database);
+
+	/**
+	 * Indicates whether all changes applied to the active databases since the prior incomplete synchronization of the specified inactive database are journaled.
+	 * If so, that synchronization may resume from its last checkpoint, since replaying the journal will apply any changes to rows that were already copied.
+	 * @param database an inactive database
+	 * @return true, if a synchronization of this database may resume from its last checkpoint, false otherwise
+	 */
+	boolean isResumable(Database<?> database);
+
+	/**
+	 * Marks the start of the synchronization of the target database of the specified context, such that only changes journaled on the source database from now on need be replayed.
+	 * Must be invoked while writes to the cluster are blocked, before the synchronization starts reading from the source database.
+	 * @param context a synchronization context
+	 * @throws SQLException if the start of the synchronization could not be journaled
+	 */
+	<Z, D extends Database<Z>> void begin(SynchronizationContext<Z, D> context) throws SQLException;
+
+	/**
+	 * Applies the changes journaled on the source database to the target database of the specified context.
+	 * The target database must already have been synchronized, while journaling changes to the source database.
+	 * Only changes journaled since the synchronization began are applied, or since the synchronization that it resumes began.
+	 * @param context a synchronization context
+	 * @throws SQLException if the journaled changes could not be applied
+	 */
+	<Z, D extends Database<Z>> void replay(SynchronizationContext<Z, D> context) throws SQLException;
+}
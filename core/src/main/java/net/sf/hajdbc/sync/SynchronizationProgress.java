@@ -0,0 +1,133 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.sync;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import net.sf.hajdbc.TableProperties;
+import net.sf.hajdbc.state.StateManager;
+import net.sf.hajdbc.state.SynchronizationCheckpoint;
+
+/**
+ * Tracks the progress of the synchronization of a database, i.e. the tables already synchronized, and the last primary key value copied into partially synchronized tables.
+ * Once resumed, progress is recorded as a checkpoint via the state manager, so that a subsequent synchronization may resume where a failed one stopped.
+ * @author Paul Ferraro
+ */
+public class SynchronizationProgress
+{
+	private final StateManager manager;
+	private final String databaseId;
+	private final Set<String> tables = new TreeSet<>();
+	private final Map<String, Long> positions = new TreeMap<>();
+	private boolean persistent = false;
+	
+	/**
+	 * @param manager the state manager in which checkpoints are recorded
+	 * @param databaseId the identifier of the database being synchronized
+	 */
+	public SynchronizationProgress(StateManager manager, String databaseId)
+	{
+		this.manager = manager;
+		this.databaseId = databaseId;
+	}
+	
+	/**
+	 * Restores the progress recorded by a prior incomplete synchronization, if any, and records the progress of this synchronization from now on.
+	 * Callers must ensure that the changes applied to the source database since the checkpoint was recorded will also be applied to the target database.
+	 * @return true, if a prior checkpoint was restored, false otherwise
+	 */
+	public synchronized boolean resume()
+	{
+		this.persistent = true;
+		
+		SynchronizationCheckpoint checkpoint = this.manager.getCheckpoint(this.databaseId);
+		
+		if (checkpoint == null) return false;
+		
+		this.tables.addAll(checkpoint.getTables());
+		this.positions.putAll(checkpoint.getPositions());
+		
+		return true;
+	}
+	
+	/**
+	 * Discards the progress of this synchronization, along with any checkpoint recorded by a prior synchronization.
+	 */
+	public synchronized void reset()
+	{
+		this.tables.clear();
+		this.positions.clear();
+		this.manager.setCheckpoint(this.databaseId, null);
+	}
+	
+	/**
+	 * Indicates whether the specified table was already synchronized.
+	 * @param table a table
+	 * @return true, if the table was synchronized, false otherwise
+	 */
+	public synchronized boolean isComplete(TableProperties table)
+	{
+		return this.tables.contains(table.getName().getDMLName());
+	}
+	
+	/**
+	 * Returns the last primary key value copied into the specified partially synchronized table.
+	 * @param table a table
+	 * @return a primary key value, or null, if no rows of this table were copied
+	 */
+	public synchronized Long getPosition(TableProperties table)
+	{
+		return this.positions.get(table.getName().getDMLName());
+	}
+	
+	/**
+	 * Records the last primary key value copied into the specified table.
+	 * All rows up to and including this value must already be committed to the target database.
+	 * @param table a table
+	 * @param position a primary key value
+	 */
+	public synchronized void setPosition(TableProperties table, long position)
+	{
+		this.positions.put(table.getName().getDMLName(), position);
+		this.save();
+	}
+	
+	/**
+	 * Records the specified table as synchronized.
+	 * The table must already be committed to the target database.
+	 * @param table a table
+	 */
+	public synchronized void complete(TableProperties table)
+	{
+		String name = table.getName().getDMLName();
+		this.positions.remove(name);
+		this.tables.add(name);
+		this.save();
+	}
+	
+	private void save()
+	{
+		if (this.persistent)
+		{
+			this.manager.setCheckpoint(this.databaseId, new SynchronizationCheckpoint(this.tables, this.positions));
+		}
+	}
+}
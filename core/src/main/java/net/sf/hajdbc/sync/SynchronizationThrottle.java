@@ -0,0 +1,186 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.sync;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate at which synchronization reads from the source database, which typically continues to serve production traffic.
+ * Reads may be limited by rows per second and/or bytes per second, and/or adaptively, by pausing between reads whenever the observed latency of reading from the source database exceeds a threshold.
+ * Pauses double while the threshold is exceeded, and halve while it is not.
+ * Limits apply to all concurrent synchronizations of a cluster combined, and may be changed at any time.
+ * @author Paul Ferraro
+ */
+public class SynchronizationThrottle
+{
+	private static final long MIN_PAUSE = TimeUnit.MILLISECONDS.toNanos(1);
+	private static final long MAX_PAUSE = TimeUnit.SECONDS.toNanos(1);
+	
+	private volatile long maxRowRate = 0;
+	private volatile long maxByteRate = 0;
+	private volatile long maxLatency = 0;
+	
+	// The following are guarded by this
+	private long nextRowTime = System.nanoTime();
+	private long nextByteTime = this.nextRowTime;
+	private long pause = 0;
+	
+	/**
+	 * Indicates whether any limit is in effect.
+	 * @return true, if reads are limited, false otherwise
+	 */
+	public boolean isEnabled()
+	{
+		return (this.maxRowRate > 0) || (this.maxByteRate > 0) || (this.maxLatency > 0);
+	}
+	
+	/**
+	 * Indicates whether reads are limited by bytes per second, in which case callers should supply the approximate size of the rows read.
+	 * @return true, if reads are limited by bytes per second, false otherwise
+	 */
+	public boolean isByteRateLimited()
+	{
+		return this.maxByteRate > 0;
+	}
+	
+	/**
+	 * Indicates whether reads are limited by the observed latency of the source database, in which case callers should supply the latency of their reads.
+	 * @return true, if reads are limited by latency, false otherwise
+	 */
+	public boolean isLatencyLimited()
+	{
+		return this.maxLatency > 0;
+	}
+	
+	/**
+	 * Blocks, if necessary, after reading the specified number of rows from the source database, such that the configured limits are honored.
+	 * @param rows the number of rows read
+	 * @param bytes the approximate size of the rows read, or 0 if unknown
+	 * @param latency the largest latency of a single read from the source database, in nanoseconds, or 0 if unknown
+	 * @throws InterruptedException if interrupted while blocked
+	 */
+	public void acquire(long rows, long bytes, long latency) throws InterruptedException
+	{
+		long maxRowRate = this.maxRowRate;
+		long maxByteRate = this.maxByteRate;
+		long maxLatency = this.maxLatency;
+		
+		if ((maxRowRate <= 0) && (maxByteRate <= 0) && (maxLatency <= 0)) return;
+		
+		long delay = 0;
+		
+		synchronized (this)
+		{
+			long now = System.nanoTime();
+			
+			if (maxRowRate > 0)
+			{
+				this.nextRowTime = reserve(this.nextRowTime, now, rows, maxRowRate);
+				delay = Math.max(delay, this.nextRowTime - now);
+			}
+			
+			if ((maxByteRate > 0) && (bytes > 0))
+			{
+				this.nextByteTime = reserve(this.nextByteTime, now, bytes, maxByteRate);
+				delay = Math.max(delay, this.nextByteTime - now);
+			}
+			
+			if (maxLatency > 0)
+			{
+				if (latency > TimeUnit.MILLISECONDS.toNanos(maxLatency))
+				{
+					this.pause = Math.min(Math.max(this.pause * 2, MIN_PAUSE), MAX_PAUSE);
+				}
+				else
+				{
+					this.pause = (this.pause > MIN_PAUSE) ? this.pause / 2 : 0;
+				}
+				
+				delay += this.pause;
+			}
+			else
+			{
+				this.pause = 0;
+			}
+		}
+		
+		if (delay > 0)
+		{
+			TimeUnit.NANOSECONDS.sleep(delay);
+		}
+	}
+	
+	/**
+	 * Reserves the time needed to read the specified amount at the specified rate, starting no earlier than now.
+	 * @return the time at which the reservation ends
+	 */
+	private static long reserve(long next, long now, long amount, long rate)
+	{
+		long start = (next - now > 0) ? next : now;
+		
+		return start + (amount * TimeUnit.SECONDS.toNanos(1)) / rate;
+	}
+	
+	/**
+	 * @return the maximum number of rows per second read from the source database, or 0 if unlimited
+	 */
+	public long getMaxRowRate()
+	{
+		return this.maxRowRate;
+	}
+	
+	/**
+	 * @param maxRowRate the maximum number of rows per second read from the source database, or 0 if unlimited
+	 */
+	public void setMaxRowRate(long maxRowRate)
+	{
+		this.maxRowRate = maxRowRate;
+	}
+	
+	/**
+	 * @return the maximum number of bytes per second read from the source database, or 0 if unlimited
+	 */
+	public long getMaxByteRate()
+	{
+		return this.maxByteRate;
+	}
+	
+	/**
+	 * @param maxByteRate the maximum number of bytes per second read from the source database, or 0 if unlimited
+	 */
+	public void setMaxByteRate(long maxByteRate)
+	{
+		this.maxByteRate = maxByteRate;
+	}
+	
+	/**
+	 * @return the latency, in milliseconds, of a single read from the source database above which synchronization backs off, or 0 if disabled
+	 */
+	public long getMaxLatency()
+	{
+		return this.maxLatency;
+	}
+	
+	/**
+	 * @param maxLatency the latency, in milliseconds, of a single read from the source database above which synchronization backs off, or 0 to disable
+	 */
+	public void setMaxLatency(long maxLatency)
+	{
+		this.maxLatency = maxLatency;
+	}
+}
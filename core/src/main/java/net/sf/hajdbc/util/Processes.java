@@ -1,7 +1,10 @@
 package net.sf.hajdbc.util;
 
 import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.security.PrivilegedExceptionAction;
@@ -17,6 +20,7 @@ public class Processes
 {
 	private static final Messages messages = MessagesFactory.getMessages();
 	private static final Logger logger = LoggerFactory.getLogger(Processes.class);
+	private static final int BUFFER_SIZE = 65536;
 
 	public static Map<String, String> environment(final ProcessBuilder builder)
 	{
@@ -31,22 +35,13 @@ public class Processes
 		return AccessController.doPrivileged(action);
 	}
 	
-	public static void run(final ProcessBuilder processBuilder) throws Exception
+	public static void run(ProcessBuilder processBuilder) throws Exception
 	{
 		processBuilder.redirectErrorStream(true);
 		
 		logger.log(Level.DEBUG, Strings.join(processBuilder.command(), " "));
 		
-		PrivilegedExceptionAction<Process> action = new PrivilegedExceptionAction<Process>()
-		{
-			@Override
-			public Process run() throws Exception
-			{
-				return processBuilder.start();
-			}
-		};
-		
-		Process process = AccessController.doPrivileged(action);
+		Process process = start(processBuilder);
 		
 		try
 		{
@@ -73,6 +68,147 @@ public class Processes
 		}
 	}
 
+	/**
+	 * Runs the specified processes, piping the output of the source process directly into the input of the target process.
+	 * @param sourceBuilder a builder of the process whose output to pipe
+	 * @param targetBuilder a builder of the process into which output will be piped
+	 * @throws Exception if either process could not be started, or completed with a non-zero exit status
+	 */
+	public static void pipe(ProcessBuilder sourceBuilder, ProcessBuilder targetBuilder) throws Exception
+	{
+		targetBuilder.redirectErrorStream(true);
+		
+		logger.log(Level.DEBUG, "{0} | {1}", Strings.join(sourceBuilder.command(), " "), Strings.join(targetBuilder.command(), " "));
+		
+		Process source = start(sourceBuilder);
+		Process target = null;
+		Thread sourceLogger = null;
+		Thread targetLogger = null;
+		
+		try
+		{
+			target = start(targetBuilder);
+			
+			sourceLogger = log(source.getErrorStream());
+			targetLogger = log(target.getInputStream());
+			
+			IOException exception = null;
+			InputStream input = source.getInputStream();
+			OutputStream output = target.getOutputStream();
+			try
+			{
+				byte[] buffer = new byte[BUFFER_SIZE];
+				int bytes = input.read(buffer);
+				while (bytes >= 0)
+				{
+					output.write(buffer, 0, bytes);
+					bytes = input.read(buffer);
+				}
+			}
+			catch (IOException e)
+			{
+				// Most likely, the target process exited prematurely - its exit status is more informative
+				exception = e;
+				source.destroy();
+			}
+			finally
+			{
+				close(output);
+			}
+			
+			int targetStatus = target.waitFor();
+			int sourceStatus = source.waitFor();
+			
+			sourceLogger.join();
+			targetLogger.join();
+			
+			if (targetStatus != 0)
+			{
+				throw new Exception(messages.status(targetBuilder, targetStatus));
+			}
+			if (sourceStatus != 0)
+			{
+				throw new Exception(messages.status(sourceBuilder, sourceStatus));
+			}
+			if (exception != null)
+			{
+				throw exception;
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			
+			throw new Exception(sourceBuilder.toString(), e);
+		}
+		finally
+		{
+			source.destroy();
+			if (target != null)
+			{
+				target.destroy();
+			}
+		}
+	}
+	
+	private static Process start(final ProcessBuilder builder) throws Exception
+	{
+		PrivilegedExceptionAction<Process> action = new PrivilegedExceptionAction<Process>()
+		{
+			@Override
+			public Process run() throws Exception
+			{
+				return builder.start();
+			}
+		};
+		
+		return AccessController.doPrivileged(action);
+	}
+	
+	/**
+	 * Logs the specified process output stream, until exhausted, from a separate thread.
+	 */
+	private static Thread log(final InputStream input)
+	{
+		Runnable task = new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					BufferedReader reader = new BufferedReader(new InputStreamReader(input));
+					String line = reader.readLine();
+					while (line != null)
+					{
+						logger.log(Level.DEBUG, line);
+						line = reader.readLine();
+					}
+				}
+				catch (IOException e)
+				{
+					logger.log(Level.DEBUG, e);
+				}
+			}
+		};
+		Thread thread = new Thread(task, Processes.class.getName());
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+	
+	private static void close(OutputStream output)
+	{
+		try
+		{
+			output.close();
+		}
+		catch (IOException e)
+		{
+			logger.log(Level.DEBUG, e);
+		}
+	}
+	
 	private Processes()
 	{
 		// Hide
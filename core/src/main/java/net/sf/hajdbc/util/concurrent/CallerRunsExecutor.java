@@ -0,0 +1,172 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor service whose {@link #invokeAll(Collection)} executes the first task in the caller thread,
+ * while the remaining tasks execute in parallel using the executor with which this executor was created.
+ * This saves a thread hand-off per invocation, compared to submitting every task to the executor.
+ * 
+ * @author Paul Ferraro
+ */
+public class CallerRunsExecutor extends AbstractExecutorService
+{
+	private final ExecutorService executor;
+	
+	public CallerRunsExecutor(ExecutorService executor)
+	{
+		this.executor = executor;
+	}
+
+	/**
+	 * @see java.util.concurrent.ExecutorService#awaitTermination(long, java.util.concurrent.TimeUnit)
+	 */
+	@Override
+	public boolean awaitTermination(long time, TimeUnit unit) throws InterruptedException
+	{
+		return this.executor.awaitTermination(time, unit);
+	}
+
+	/**
+	 * @see java.util.concurrent.ExecutorService#isShutdown()
+	 */
+	@Override
+	public boolean isShutdown()
+	{
+		return this.executor.isShutdown();
+	}
+
+	/**
+	 * @see java.util.concurrent.ExecutorService#isTerminated()
+	 */
+	@Override
+	public boolean isTerminated()
+	{
+		return this.executor.isTerminated();
+	}
+
+	/**
+	 * @see java.util.concurrent.ExecutorService#shutdown()
+	 */
+	@Override
+	public void shutdown()
+	{
+		this.executor.shutdown();
+	}
+
+	/**
+	 * @see java.util.concurrent.ExecutorService#shutdownNow()
+	 */
+	@Override
+	public List<Runnable> shutdownNow()
+	{
+		return this.executor.shutdownNow();
+	}
+
+	/**
+	 * @see java.util.concurrent.Executor#execute(java.lang.Runnable)
+	 */
+	@Override
+	public void execute(Runnable task)
+	{
+		this.executor.execute(task);
+	}
+
+	/**
+	 * Executes the first of the specified tasks in the caller thread, and the remainder using the executor with which this executor was created.
+	 * {@inheritDoc}
+	 * @see java.util.concurrent.AbstractExecutorService#invokeAll(java.util.Collection)
+	 */
+	@Override
+	public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException
+	{
+		List<Future<T>> futures = new ArrayList<>(tasks.size());
+		boolean done = false;
+		
+		try
+		{
+			RunnableFuture<T> first = null;
+			
+			for (Callable<T> task: tasks)
+			{
+				if (first == null)
+				{
+					first = new FutureTask<>(task);
+					futures.add(first);
+				}
+				else
+				{
+					futures.add(this.executor.submit(task));
+				}
+			}
+			
+			if (first != null)
+			{
+				first.run();
+			}
+			
+			// Wait until all tasks have finished
+			for (Future<T> future: futures)
+			{
+				if (!future.isDone())
+				{
+					try
+					{
+						future.get();
+					}
+					catch (ExecutionException e)
+					{
+						// Ignore
+					}
+					catch (CancellationException e)
+					{
+						// Ignore
+					}
+				}
+			}
+			
+			done = true;
+			
+			return futures;
+		}
+		finally
+		{
+			// If interrupted, cancel any unfinished tasks
+			if (!done)
+			{
+				for (Future<T> future: futures)
+				{
+					future.cancel(true);
+				}
+			}
+		}
+	}
+}
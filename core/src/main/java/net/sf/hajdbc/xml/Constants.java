@@ -37,10 +37,12 @@ public interface Constants
 	final String DIALECT = "dialect";
 	final String DISTRIBUTABLE = "distributable";
 	final String DURABILITY = "durability";
+	final String DURABILITY_REPLICATION_LAG = "durability-replication-lag";
 	final String EVAL_CURRENT_DATE = "eval-current-date";
 	final String EVAL_CURRENT_TIME = "eval-current-time";
 	final String EVAL_CURRENT_TIMESTAMP = "eval-current-timestamp";
 	final String EVAL_RAND = "eval-rand";
+	final String EXECUTOR = "executor";
 	final String FAILURE_DETECT_SCHEDULE = "failure-detect-schedule";
 	final String ID = "id";
 	final String INPUT_SINK = "input-sink";
@@ -48,8 +50,11 @@ public interface Constants
 	final String LOCALITY = "locality";
 	final String LOCATION = "location";
 	final String LOCK = "lock";
+	final String LOCK_LEASE = "lock-lease";
+	final String LOCK_PARTITIONING = "lock-partitioning";
 	final String META_DATA_CACHE = "meta-data-cache";
 	final String NAME = "name";
+	final String ONLINE_ACTIVATION = "online-activation";
 	final String PASSWORD = "password";
 	final String PROPERTY = "property";
 	final String STATE = "state";
@@ -57,4 +62,5 @@ public interface Constants
 	final String TRANSACTION_MODE = "transaction-mode";
 	final String USER = "user";
 	final String WEIGHT = "weight";
+	final String WRITE_QUORUM = "write-quorum";
 }
@@ -19,8 +19,6 @@ package net.sf.hajdbc.xml;
 
 import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
 
-import java.util.Locale;
-
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
@@ -140,9 +138,14 @@ public class DatabaseClusterConfigurationReader_3_0<Z, D extends Database<Z>, B
 					builder.inputSink(value);
 					break;
 				}
+				case EXECUTOR:
+				{
+					builder.executor(value);
+					break;
+				}
 				case TRANSACTION_MODE:
 				{
-					builder.transactionMode(TransactionModeEnum.valueOf(value.toUpperCase(Locale.ENGLISH)));
+					builder.transactionMode(TransactionModeEnum.forValue(value));
 					break;
 				}
 				case AUTO_ACTIVATE_SCHEDULE:
@@ -190,6 +193,31 @@ public class DatabaseClusterConfigurationReader_3_0<Z, D extends Database<Z>, B
 					builder.allowEmptyCluster(Boolean.parseBoolean(value));
 					break;
 				}
+				case ONLINE_ACTIVATION:
+				{
+					builder.onlineActivation(Boolean.parseBoolean(value));
+					break;
+				}
+				case DURABILITY_REPLICATION_LAG:
+				{
+					builder.durabilityReplicationLag(Long.parseLong(value));
+					break;
+				}
+				case LOCK_LEASE:
+				{
+					builder.lockLease(Long.parseLong(value));
+					break;
+				}
+				case LOCK_PARTITIONING:
+				{
+					builder.lockPartitioning(Boolean.parseBoolean(value));
+					break;
+				}
+				case WRITE_QUORUM:
+				{
+					builder.writeQuorum(Integer.parseInt(value));
+					break;
+				}
 				default:
 				{
 					throw new XMLStreamException(messages.unexpectedAttribute(reader, i));
@@ -44,6 +44,7 @@ import net.sf.hajdbc.DatabaseBuilder;
 import net.sf.hajdbc.DatabaseClusterConfiguration;
 import net.sf.hajdbc.DatabaseClusterConfigurationBuilder;
 import net.sf.hajdbc.DatabaseClusterConfigurationFactory;
+import net.sf.hajdbc.ExecutorServiceProvider;
 import net.sf.hajdbc.Identifiable;
 import net.sf.hajdbc.SynchronizationStrategy;
 import net.sf.hajdbc.Version;
@@ -223,14 +224,28 @@ public class XMLDatabaseClusterConfigurationFactory<Z, D extends Database<Z>> im
 				writeAttribute(writer, DETECT_SEQUENCES, config.isSequenceDetectionEnabled());
 				writeAttribute(writer, DIALECT, config.getDialectFactory());
 				writeAttribute(writer, DURABILITY, config.getDurabilityFactory());
+				writeAttribute(writer, DURABILITY_REPLICATION_LAG, Long.valueOf(config.getDurabilityReplicationLag()));
 				writeAttribute(writer, EVAL_CURRENT_DATE, config.isCurrentDateEvaluationEnabled());
 				writeAttribute(writer, EVAL_CURRENT_TIME, config.isCurrentTimeEvaluationEnabled());
 				writeAttribute(writer, EVAL_CURRENT_TIMESTAMP, config.isCurrentTimestampEvaluationEnabled());
 				writeAttribute(writer, EVAL_RAND, config.isRandEvaluationEnabled());
+				ExecutorServiceProvider executorProvider = config.getExecutorProvider();
+				// Application-provided executors cannot be referenced by id
+				if (executorProvider instanceof Identifiable)
+				{
+					writeAttribute(writer, EXECUTOR, (Identifiable) executorProvider);
+				}
 				writeAttribute(writer, FAILURE_DETECT_SCHEDULE, config.getFailureDetectionExpression());
 				writeAttribute(writer, INPUT_SINK, config.getInputSinkProvider());
+				writeAttribute(writer, LOCK_LEASE, Long.valueOf(config.getLockLease()));
+				writeAttribute(writer, LOCK_PARTITIONING, config.isLockPartitioningEnabled());
 				writeAttribute(writer, META_DATA_CACHE, config.getDatabaseMetaDataCacheFactory());
+				writeAttribute(writer, ONLINE_ACTIVATION, config.isOnlineActivationEnabled());
 				writeAttribute(writer, TRANSACTION_MODE, config.getTransactionMode());
+				if (config.getWriteQuorum() >= 0)
+				{
+					writeAttribute(writer, WRITE_QUORUM, Integer.valueOf(config.getWriteQuorum()));
+				}
 				for (D database: config.getDatabaseMap().values())
 				{
 					writer.writeStartElement(DATABASE);
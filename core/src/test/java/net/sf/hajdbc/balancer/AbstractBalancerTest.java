@@ -183,6 +183,49 @@ public abstract class AbstractBalancerTest
 		assertFalse(backups.hasNext());
 	}
 
+	@Test
+	public void snapshot()
+	{
+		Balancer<Void, MockDatabase> balancer = this.factory.createBalancer(Collections.<MockDatabase>emptySet());
+		
+		BalancerSnapshot<Void, MockDatabase> snapshot = balancer.snapshot();
+		assertEquals(0, snapshot.size());
+		assertNull(snapshot.primary());
+		assertTrue(snapshot.backups().isEmpty());
+		assertEquals(-1, snapshot.indexOf(this.databases[0]));
+		
+		balancer.add(this.databases[2]);
+		balancer.add(this.databases[0]);
+		
+		// Previous snapshot is unaffected
+		assertEquals(0, snapshot.size());
+		
+		snapshot = balancer.snapshot();
+		assertEquals(2, snapshot.size());
+		assertSame(this.databases[0], snapshot.primary());
+		assertEquals(Arrays.asList(this.databases[2]), snapshot.backups());
+		assertEquals(Arrays.asList(this.databases[0], this.databases[2]), snapshot.getDatabases());
+		assertSame(this.databases[0], snapshot.get(0));
+		assertSame(this.databases[2], snapshot.get(1));
+		assertEquals(0, snapshot.indexOf(this.databases[0]));
+		assertEquals(1, snapshot.indexOf(this.databases[2]));
+		assertEquals(-1, snapshot.indexOf(this.databases[1]));
+		
+		// Unchanged balancer returns the same snapshot
+		assertSame(snapshot, balancer.snapshot());
+		
+		balancer.remove(this.databases[0]);
+		
+		snapshot = balancer.snapshot();
+		assertSame(this.databases[2], snapshot.primary());
+		assertTrue(snapshot.backups().isEmpty());
+		assertEquals(0, snapshot.indexOf(this.databases[2]));
+		
+		balancer.clear();
+		
+		assertEquals(0, balancer.snapshot().size());
+	}
+
 	/**
 	 * Test method for {@link net.sf.hajdbc.balancer.load.LoadBalancer#addAll(java.util.Collection)}.
 	 */
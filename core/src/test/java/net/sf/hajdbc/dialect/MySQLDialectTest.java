@@ -226,4 +226,14 @@ public class MySQLDialectTest extends StandardDialectTest
 		assertEquals("SELECT LOCALTIME FROM test", this.dialect.evaluateCurrentTimestamp("SELECT LOCALTIME FROM test", timestamp));
 		assertEquals("SELECT 1 FROM test", this.dialect.evaluateCurrentTimestamp("SELECT 1 FROM test", timestamp));
 	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.dialect.StandardDialectTest#getChecksumAggregate()
+	 */
+	@Override
+	public void getChecksumAggregate()
+	{
+		assertEquals("SUM(CAST(CONV(SUBSTRING(MD5(CONCAT(IFNULL(CONCAT(CHAR_LENGTH(column1), ':', column1), '-'), IFNULL(CONCAT(CHAR_LENGTH(column2), ':', column2), '-'))), 1, 16), 16, 10) AS UNSIGNED))", this.dialect.getChecksumAggregate(Arrays.asList("column1", "column2")));
+	}
 }
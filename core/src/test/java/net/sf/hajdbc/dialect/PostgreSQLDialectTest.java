@@ -23,6 +23,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -90,6 +91,16 @@ public class PostgreSQLDialectTest extends StandardDialectTest
 		assertEquals(Types.INTEGER, result);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.dialect.StandardDialectTest#getChecksumAggregate()
+	 */
+	@Override
+	public void getChecksumAggregate()
+	{
+		assertEquals("SUM(('x' || SUBSTR(MD5(ROW(column1, column2)::TEXT), 1, 16))::BIT(64)::BIGINT)", this.dialect.getChecksumAggregate(Arrays.asList("column1", "column2")));
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * @see net.sf.hajdbc.dialect.StandardDialectTest#getTruncateTableSQL()
@@ -0,0 +1,137 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.dialect;
+
+import java.text.MessageFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the single-pass {@link SQLTokenizer} against the per-feature regular expressions it replaced,
+ * for the analysis and evaluation of a statement, as performed per statement execution.
+ * Run via {@link #main(String[])} from the test classpath.
+ * @author Paul Ferraro
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SQLTokenizerBenchmark
+{
+	// The standard patterns formerly used by StandardDialect
+	private static final Pattern SELECT_FOR_UPDATE = compile("SELECT\\s+.+\\s+FOR\\s+UPDATE");
+	private static final Pattern INSERT_INTO_TABLE = compile("INSERT\\s+(?:INTO\\s+)?'?([^'\\s\\(]+)");
+	private static final Pattern SEQUENCE = compile("NEXT\\s+VALUE\\s+FOR\\s+'?([^',\\s\\(\\)]+)");
+	private static final Pattern CURRENT_DATE = compile("(?<=\\W)CURRENT_DATE(?=\\W)");
+	private static final Pattern CURRENT_TIME = compile("(?<=\\W)CURRENT_TIME(?:\\s*\\(\\s*\\d+\\s*\\))?(?=\\W)|(?<=\\W)LOCALTIME(?:\\s*\\(\\s*\\d+\\s*\\))?(?=\\W)");
+	private static final Pattern CURRENT_TIMESTAMP = compile("(?<=\\W)CURRENT_TIMESTAMP(?:\\s*\\(\\s*\\d+\\s*\\))?(?=\\W)|(?<=\\W)LOCALTIMESTAMP(?:\\s*\\(\\s*\\d+\\s*\\))?(?=\\W)");
+	private static final Pattern RAND = compile("(?<=\\W)RAND\\s*\\(\\s*\\)");
+	
+	private static Pattern compile(String pattern)
+	{
+		return Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
+	}
+	
+	@Param({
+		"SELECT id, name FROM account WHERE id = ?",
+		"INSERT INTO audit (id, account, created) VALUES (NEXT VALUE FOR audit_seq, ?, CURRENT_TIMESTAMP)",
+		"UPDATE account SET balance = balance + ?, modified = CURRENT_TIMESTAMP, token = RAND() WHERE opened < CURRENT_DATE AND id = ?",
+	})
+	public String sql;
+	
+	private final Dialect dialect = new StandardDialect();
+	private final java.sql.Date date = new java.sql.Date(System.currentTimeMillis());
+	private final java.sql.Time time = new java.sql.Time(System.currentTimeMillis());
+	private final java.sql.Timestamp timestamp = new java.sql.Timestamp(System.currentTimeMillis());
+	
+	@Setup
+	public void setup()
+	{
+		// Ensure both paths produce the same deterministic result
+		String expected = this.tokenizer(this.sql, false);
+		String result = this.regex(this.sql, false);
+		if (!expected.equals(result))
+		{
+			throw new IllegalStateException(String.format("%s != %s", result, expected));
+		}
+	}
+	
+	@Benchmark
+	public void regex(Blackhole blackhole)
+	{
+		blackhole.consume(this.regex(this.sql, true));
+	}
+	
+	@Benchmark
+	public void tokenizer(Blackhole blackhole)
+	{
+		blackhole.consume(this.tokenizer(this.sql, true));
+	}
+	
+	private String regex(String sql, boolean rand)
+	{
+		boolean selectForUpdate = SELECT_FOR_UPDATE.matcher(sql).find();
+		String sequence = parse(SEQUENCE, sql);
+		String table = parse(INSERT_INTO_TABLE, sql);
+		
+		String result = CURRENT_TIMESTAMP.matcher(sql).replaceAll(MessageFormat.format("TIMESTAMP ''{0}''", this.timestamp.toString()));
+		result = CURRENT_DATE.matcher(result).replaceAll(MessageFormat.format("DATE ''{0}''", this.date.toString()));
+		result = CURRENT_TIME.matcher(result).replaceAll(MessageFormat.format("TIME ''{0}''", this.time.toString()));
+		if (rand)
+		{
+			StringBuffer buffer = new StringBuffer();
+			Matcher matcher = RAND.matcher(result);
+			while (matcher.find())
+			{
+				matcher.appendReplacement(buffer, Double.toString(Math.random()));
+			}
+			result = matcher.appendTail(buffer).toString();
+		}
+		return selectForUpdate + sequence + table + result;
+	}
+	
+	private String tokenizer(String sql, boolean rand)
+	{
+		TokenizedStatement statement = this.dialect.tokenize(sql);
+		return statement.isSelectForUpdate() + statement.getSequence() + statement.getInsertTable() + this.dialect.evaluate(statement, this.date, this.time, this.timestamp, rand);
+	}
+	
+	private static String parse(Pattern pattern, String sql)
+	{
+		Matcher matcher = pattern.matcher(sql);
+		return matcher.find() ? matcher.group(1) : null;
+	}
+	
+	public static void main(String... args) throws RunnerException
+	{
+		new Runner(new OptionsBuilder().include(SQLTokenizerBenchmark.class.getSimpleName()).forks(1).build()).run();
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.dialect;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * @author Paul Ferraro
+ */
+public class SQLTokenizerTest
+{
+	private static SQLTokenizer createTokenizer(Set<SQLTokenizer.Syntax> syntax)
+	{
+		Map<SQLToken.Type, List<SQLToken>> tokens = new EnumMap<>(SQLToken.Type.class);
+		tokens.put(SQLToken.Type.SELECT_FOR_UPDATE, Arrays.asList(SQLToken.keyword("FOR", "UPDATE")));
+		tokens.put(SQLToken.Type.SEQUENCE, Arrays.asList(SQLToken.prefix("NEXT", "VALUE", "FOR"), SQLToken.suffix("NEXTVAL"), SQLToken.call("CURRVAL")));
+		tokens.put(SQLToken.Type.CURRENT_DATE, Arrays.asList(SQLToken.keyword("CURRENT_DATE"), SQLToken.keyword("CURRENT", "DATE"), SQLToken.function("DATE", "'TODAY'")));
+		tokens.put(SQLToken.Type.CURRENT_TIMESTAMP, Arrays.asList(SQLToken.keyword("CURRENT_TIMESTAMP").withPrecision(), SQLToken.function("NOW")));
+		tokens.put(SQLToken.Type.RAND, Arrays.asList(SQLToken.function("RAND")));
+		return new SQLTokenizer(tokens, syntax);
+	}
+	
+	private final SQLTokenizer tokenizer = createTokenizer(Collections.<SQLTokenizer.Syntax>emptySet());
+	
+	@Test
+	public void selectForUpdate()
+	{
+		assertTrue(this.tokenizer.tokenize("SELECT * FROM test FOR UPDATE").isSelectForUpdate());
+		assertTrue(this.tokenizer.tokenize("select * from test for\n\tupdate").isSelectForUpdate());
+		assertFalse(this.tokenizer.tokenize("SELECT * FROM test").isSelectForUpdate());
+		assertFalse(this.tokenizer.tokenize("SELECT * FROM test WHERE name = 'FOR UPDATE'").isSelectForUpdate());
+		assertFalse(this.tokenizer.tokenize("SELECT * FROM test -- FOR UPDATE").isSelectForUpdate());
+		assertFalse(this.tokenizer.tokenize("UPDATE test SET x = 1 /* FOR UPDATE */").isSelectForUpdate());
+	}
+	
+	@Test
+	public void sequence()
+	{
+		assertEquals("test", this.tokenizer.tokenize("SELECT NEXT VALUE FOR test").getSequence());
+		assertEquals("test", this.tokenizer.tokenize("INSERT INTO table VALUES (NEXT  VALUE\nFOR test, 0)").getSequence());
+		assertEquals("test", this.tokenizer.tokenize("SELECT test.NEXTVAL FROM dual").getSequence());
+		assertEquals("test", this.tokenizer.tokenize("SELECT 'test'.NEXTVAL FROM dual").getSequence());
+		assertEquals("test", this.tokenizer.tokenize("SELECT CURRVAL('test')").getSequence());
+		assertEquals("test", this.tokenizer.tokenize("SELECT CURRVAL(test, 1)").getSequence());
+		assertNull(this.tokenizer.tokenize("SELECT 'NEXT VALUE FOR test'").getSequence());
+		assertNull(this.tokenizer.tokenize("SELECT NEXTVAL FROM test").getSequence());
+		assertNull(this.tokenizer.tokenize("SELECT * FROM test").getSequence());
+	}
+	
+	@Test
+	public void insertTable()
+	{
+		assertEquals("table", this.tokenizer.tokenize("INSERT INTO table (column1, column2) VALUES (1, 2)").getInsertTable());
+		assertEquals("table", this.tokenizer.tokenize("INSERT INTO table(column1, column2) VALUES (1, 2)").getInsertTable());
+		assertEquals("table", this.tokenizer.tokenize("INSERT table SELECT column1, column2 FROM dummy").getInsertTable());
+		assertEquals("schema.table", this.tokenizer.tokenize("insert into schema.table values (1, 2)").getInsertTable());
+		assertNull(this.tokenizer.tokenize("UPDATE table SET column = 'INSERT INTO x'").getInsertTable());
+	}
+	
+	@Test
+	public void functions()
+	{
+		String sql = "SELECT CURRENT_DATE, 'CURRENT_DATE', CURRENT  DATE, DATE('TODAY'), CURRENT_TIMESTAMP ( 3 ), NOW(), RAND(), OPERAND(), CURRENT_DATES /* NOW() */ FROM test";
+		List<TokenizedStatement.Occurrence> occurrences = this.tokenizer.tokenize(sql).getOccurrences();
+		
+		assertEquals(6, occurrences.size());
+		assertOccurrence(sql, occurrences.get(0), SQLToken.Type.CURRENT_DATE, "CURRENT_DATE");
+		assertOccurrence(sql, occurrences.get(1), SQLToken.Type.CURRENT_DATE, "CURRENT  DATE");
+		assertOccurrence(sql, occurrences.get(2), SQLToken.Type.CURRENT_DATE, "DATE('TODAY')");
+		assertOccurrence(sql, occurrences.get(3), SQLToken.Type.CURRENT_TIMESTAMP, "CURRENT_TIMESTAMP ( 3 )");
+		assertOccurrence(sql, occurrences.get(4), SQLToken.Type.CURRENT_TIMESTAMP, "NOW()");
+		assertOccurrence(sql, occurrences.get(5), SQLToken.Type.RAND, "RAND()");
+	}
+	
+	private static void assertOccurrence(String sql, TokenizedStatement.Occurrence occurrence, SQLToken.Type type, String text)
+	{
+		assertSame(type, occurrence.getType());
+		assertEquals(text, sql.substring(occurrence.getStart(), occurrence.getEnd()));
+	}
+	
+	@Test
+	public void syntax()
+	{
+		// Standard syntax does not recognize vendor specific quoting
+		assertTrue(this.tokenizer.tokenize("SELECT `RAND()` FROM test").contains(SQLToken.Type.RAND));
+		assertTrue(this.tokenizer.tokenize("SELECT $$RAND()$$ FROM test").contains(SQLToken.Type.RAND));
+		
+		SQLTokenizer tokenizer = createTokenizer(EnumSet.of(SQLTokenizer.Syntax.BACKSLASH_ESCAPES, SQLTokenizer.Syntax.BACKTICK_QUOTES, SQLTokenizer.Syntax.HASH_COMMENTS));
+		
+		assertFalse(tokenizer.tokenize("SELECT `RAND()` FROM test").contains(SQLToken.Type.RAND));
+		assertFalse(tokenizer.tokenize("SELECT 1 FROM test # RAND()").contains(SQLToken.Type.RAND));
+		assertFalse(tokenizer.tokenize("SELECT 'It\\'s RAND()' FROM test").contains(SQLToken.Type.RAND));
+		assertTrue(tokenizer.tokenize("SELECT 'It\\'s', RAND() FROM test").contains(SQLToken.Type.RAND));
+		
+		tokenizer = createTokenizer(EnumSet.of(SQLTokenizer.Syntax.ESCAPE_STRINGS, SQLTokenizer.Syntax.DOLLAR_QUOTES, SQLTokenizer.Syntax.NESTED_COMMENTS));
+		
+		assertFalse(tokenizer.tokenize("SELECT $$RAND()$$ FROM test").contains(SQLToken.Type.RAND));
+		assertFalse(tokenizer.tokenize("SELECT $tag$ $$ RAND() $tag$ FROM test").contains(SQLToken.Type.RAND));
+		assertTrue(tokenizer.tokenize("SELECT $1, RAND() FROM test").contains(SQLToken.Type.RAND));
+		assertFalse(tokenizer.tokenize("SELECT E'It\\'s RAND()' FROM test").contains(SQLToken.Type.RAND));
+		assertFalse(tokenizer.tokenize("SELECT /* outer /* inner */ RAND() */ 1 FROM test").contains(SQLToken.Type.RAND));
+		
+		tokenizer = createTokenizer(EnumSet.of(SQLTokenizer.Syntax.BRACKET_QUOTES));
+		
+		assertFalse(tokenizer.tokenize("SELECT [RAND()] FROM test").contains(SQLToken.Type.RAND));
+	}
+}
@@ -282,6 +282,12 @@ public class StandardDialectTest
 		assertEquals("DELETE FROM table", result);
 	}
 
+	@Test
+	public void getChecksumAggregate()
+	{
+		assertNull(this.dialect.getChecksumAggregate(Arrays.asList("column1", "column2")));
+	}
+
 	@Test
 	public void isSelectForUpdate() throws SQLException
 	{
@@ -349,6 +355,7 @@ public class StandardDialectTest
 		assertEquals("SELECT CURRENT_DATES FROM test", this.dialect.evaluateCurrentDate("SELECT CURRENT_DATES FROM test", date));
 		assertEquals("SELECT CURRENT_TIME FROM test", this.dialect.evaluateCurrentDate("SELECT CURRENT_TIME FROM test", date));
 		assertEquals("SELECT CURRENT_TIMESTAMP FROM test", this.dialect.evaluateCurrentDate("SELECT CURRENT_TIMESTAMP FROM test", date));
+		assertEquals("SELECT 'CURRENT_DATE' FROM test -- CURRENT_DATE", this.dialect.evaluateCurrentDate("SELECT 'CURRENT_DATE' FROM test -- CURRENT_DATE", date));
 	}
 
 	@Test
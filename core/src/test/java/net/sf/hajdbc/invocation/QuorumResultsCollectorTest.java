@@ -0,0 +1,323 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.invocation;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.sf.hajdbc.DatabaseCluster;
+import net.sf.hajdbc.ExceptionType;
+import net.sf.hajdbc.MockDatabase;
+import net.sf.hajdbc.balancer.Balancer;
+import net.sf.hajdbc.balancer.simple.SimpleBalancerFactory;
+import net.sf.hajdbc.sql.ProxyFactory;
+import net.sf.hajdbc.sql.TransactionModeEnum;
+import net.sf.hajdbc.state.StateManager;
+
+/**
+ * @author Paul Ferraro
+ */
+public class QuorumResultsCollectorTest
+{
+	private final MockDatabase primary = new MockDatabase("0");
+	private final MockDatabase backup1 = new MockDatabase("1");
+	private final MockDatabase backup2 = new MockDatabase("2");
+	private final MockDatabase backup3 = new MockDatabase("3");
+	
+	@SuppressWarnings("unchecked")
+	private final DatabaseCluster<Void, MockDatabase> cluster = mock(DatabaseCluster.class);
+	@SuppressWarnings("unchecked")
+	private final ProxyFactory<Void, MockDatabase, Object, SQLException> factory = mock(ProxyFactory.class);
+	private final StateManager stateManager = mock(StateManager.class);
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final MockInvoker invoker = new MockInvoker();
+	private final InvokeOnManyInvocationStrategy.ResultsCollector collector = new QuorumResultsCollector(new TransactionalExecutorProvider(false));
+
+	@Before
+	public void init()
+	{
+		Balancer<Void, MockDatabase> balancer = new SimpleBalancerFactory().createBalancer(new HashSet<>(Arrays.asList(this.primary, this.backup1, this.backup2, this.backup3)));
+		
+		when(this.cluster.getBalancer()).thenReturn(balancer);
+		when(this.cluster.getExecutor()).thenReturn(this.executor);
+		when(this.cluster.getStateManager()).thenReturn(this.stateManager);
+		when(this.cluster.getTransactionMode()).thenReturn(TransactionModeEnum.PARALLEL);
+		when(this.cluster.getWriteQuorum()).thenReturn(1);
+		when(this.factory.getDatabaseCluster()).thenReturn(this.cluster);
+		when(this.factory.getExceptionFactory()).thenReturn(ExceptionType.SQL.<SQLException>getExceptionFactory());
+	}
+
+	@After
+	public void destroy()
+	{
+		this.invoker.release();
+		this.executor.shutdownNow();
+	}
+
+	@Test
+	public void quorumReached() throws Exception
+	{
+		this.invoker.block(this.backup2);
+		this.invoker.block(this.backup3);
+		
+		Map.Entry<SortedMap<MockDatabase, Integer>, SortedMap<MockDatabase, SQLException>> results = this.collector.collectResults(this.factory, this.invoker);
+		
+		assertEquals(Arrays.asList(this.primary, this.backup1), Arrays.asList(results.getKey().keySet().toArray()));
+		assertTrue(results.getValue().isEmpty());
+		
+		final CountDownLatch completion = new CountDownLatch(1);
+		QuorumResultsCollector.afterCompletion(this.factory, new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				completion.countDown();
+			}
+		});
+		
+		// Pending backup invocations defer completion
+		assertFalse(completion.await(100, TimeUnit.MILLISECONDS));
+		
+		this.invoker.release();
+		
+		assertTrue(completion.await(10, TimeUnit.SECONDS));
+		QuorumResultsCollector.await(this.factory);
+		
+		verify(this.cluster, never()).deactivate(any(MockDatabase.class), any(StateManager.class));
+	}
+
+	@Test
+	public void quorumMissed() throws Exception
+	{
+		when(this.cluster.getWriteQuorum()).thenReturn(2);
+		this.invoker.block(this.backup2);
+		this.invoker.block(this.backup3);
+		
+		Future<Map.Entry<SortedMap<MockDatabase, Integer>, SortedMap<MockDatabase, SQLException>>> future = this.executor.submit(new Callable<Map.Entry<SortedMap<MockDatabase, Integer>, SortedMap<MockDatabase, SQLException>>>()
+		{
+			@Override
+			public Map.Entry<SortedMap<MockDatabase, Integer>, SortedMap<MockDatabase, SQLException>> call()
+			{
+				return QuorumResultsCollectorTest.this.collector.collectResults(QuorumResultsCollectorTest.this.factory, QuorumResultsCollectorTest.this.invoker);
+			}
+		});
+		
+		// Only 1 of 2 backups has completed
+		Thread.sleep(100);
+		assertFalse(future.isDone());
+		
+		this.invoker.release(this.backup2);
+		
+		Map.Entry<SortedMap<MockDatabase, Integer>, SortedMap<MockDatabase, SQLException>> results = future.get(10, TimeUnit.SECONDS);
+		
+		assertTrue(results.getKey().keySet().containsAll(Arrays.asList(this.primary, this.backup1, this.backup2)));
+		assertTrue(results.getValue().isEmpty());
+		
+		this.invoker.release();
+		QuorumResultsCollector.await(this.factory);
+		
+		verify(this.cluster, never()).deactivate(any(MockDatabase.class), any(StateManager.class));
+	}
+
+	@Test
+	public void divergentResult() throws Exception
+	{
+		this.invoker.block(this.backup2);
+		this.invoker.block(this.backup3);
+		this.invoker.setResult(this.backup2, 2);
+		
+		Map.Entry<SortedMap<MockDatabase, Integer>, SortedMap<MockDatabase, SQLException>> results = this.collector.collectResults(this.factory, this.invoker);
+		
+		assertEquals(Integer.valueOf(1), results.getKey().get(this.primary));
+		
+		this.invoker.release();
+		QuorumResultsCollector.await(this.factory);
+		
+		verify(this.cluster).deactivate(this.backup2, this.stateManager);
+		verify(this.cluster, never()).deactivate(this.backup3, this.stateManager);
+	}
+
+	@Test
+	public void backupFailure() throws Exception
+	{
+		this.invoker.block(this.backup2);
+		this.invoker.block(this.backup3);
+		this.invoker.setException(this.backup3, new SQLException());
+		
+		Map.Entry<SortedMap<MockDatabase, Integer>, SortedMap<MockDatabase, SQLException>> results = this.collector.collectResults(this.factory, this.invoker);
+		
+		assertTrue(results.getValue().isEmpty());
+		
+		this.invoker.release();
+		QuorumResultsCollector.await(this.factory);
+		
+		verify(this.cluster).deactivate(this.backup3, this.stateManager);
+		verify(this.cluster, never()).deactivate(this.backup2, this.stateManager);
+	}
+
+	@Test
+	public void failedBackups() throws Exception
+	{
+		this.invoker.block(this.backup2);
+		this.invoker.block(this.backup3);
+		this.invoker.setException(this.backup1, new SQLException());
+		
+		Future<Map.Entry<SortedMap<MockDatabase, Integer>, SortedMap<MockDatabase, SQLException>>> future = this.executor.submit(new Callable<Map.Entry<SortedMap<MockDatabase, Integer>, SortedMap<MockDatabase, SQLException>>>()
+		{
+			@Override
+			public Map.Entry<SortedMap<MockDatabase, Integer>, SortedMap<MockDatabase, SQLException>> call()
+			{
+				return QuorumResultsCollectorTest.this.collector.collectResults(QuorumResultsCollectorTest.this.factory, QuorumResultsCollectorTest.this.invoker);
+			}
+		});
+		
+		// A failed backup does not count toward the quorum
+		Thread.sleep(100);
+		assertFalse(future.isDone());
+		
+		this.invoker.setException(this.backup2, new SQLException());
+		this.invoker.release(this.backup2);
+		
+		// Once the quorum can no longer be reached, wait for all databases
+		Thread.sleep(100);
+		assertFalse(future.isDone());
+		
+		this.invoker.release(this.backup3);
+		
+		Map.Entry<SortedMap<MockDatabase, Integer>, SortedMap<MockDatabase, SQLException>> results = future.get(10, TimeUnit.SECONDS);
+		
+		assertEquals(Arrays.asList(this.primary, this.backup3), Arrays.asList(results.getKey().keySet().toArray()));
+		assertEquals(Arrays.asList(this.backup1, this.backup2), Arrays.asList(results.getValue().keySet().toArray()));
+	}
+
+	@Test
+	public void serial() throws Exception
+	{
+		when(this.cluster.getTransactionMode()).thenReturn(TransactionModeEnum.SERIAL);
+		
+		this.collector.collectResults(this.factory, this.invoker);
+		QuorumResultsCollector.await(this.factory);
+		
+		// Primary database completes before any backup database begins
+		assertEquals(Arrays.asList("+0", "-0"), this.invoker.events.subList(0, 2));
+		assertSame(Thread.currentThread(), this.invoker.threads.get(this.primary));
+	}
+
+	@Test
+	public void callerRuns() throws Exception
+	{
+		when(this.cluster.getTransactionMode()).thenReturn(TransactionModeEnum.CALLER_RUNS);
+		
+		this.collector.collectResults(this.factory, this.invoker);
+		QuorumResultsCollector.await(this.factory);
+		
+		assertSame(Thread.currentThread(), this.invoker.threads.get(this.primary));
+		assertNotSame(Thread.currentThread(), this.invoker.threads.get(this.backup1));
+	}
+
+	static class MockInvoker implements Invoker<Void, MockDatabase, Object, Integer, SQLException>
+	{
+		// Start (+) and end (-) of each invocation, in order
+		final List<String> events = new CopyOnWriteArrayList<>();
+		final Map<MockDatabase, Thread> threads = new ConcurrentHashMap<>();
+		private final Map<MockDatabase, CountDownLatch> latches = new ConcurrentHashMap<>();
+		private final Map<MockDatabase, Integer> results = new ConcurrentHashMap<>();
+		private final Map<MockDatabase, SQLException> exceptions = new ConcurrentHashMap<>();
+
+		void block(MockDatabase database)
+		{
+			this.latches.put(database, new CountDownLatch(1));
+		}
+
+		void release(MockDatabase database)
+		{
+			this.latches.get(database).countDown();
+		}
+
+		void release()
+		{
+			for (CountDownLatch latch: this.latches.values())
+			{
+				latch.countDown();
+			}
+		}
+
+		void setResult(MockDatabase database, int result)
+		{
+			this.results.put(database, result);
+		}
+
+		void setException(MockDatabase database, SQLException exception)
+		{
+			this.exceptions.put(database, exception);
+		}
+
+		@Override
+		public Integer invoke(MockDatabase database, Object object) throws SQLException
+		{
+			this.events.add("+" + database.getId());
+			this.threads.put(database, Thread.currentThread());
+			try
+			{
+				CountDownLatch latch = this.latches.get(database);
+				if (latch != null)
+				{
+					try
+					{
+						latch.await(10, TimeUnit.SECONDS);
+					}
+					catch (InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+						throw new SQLException(e);
+					}
+				}
+				SQLException exception = this.exceptions.get(database);
+				if (exception != null)
+				{
+					throw exception;
+				}
+				Integer result = this.results.get(database);
+				return (result != null) ? result : Integer.valueOf(1);
+			}
+			finally
+			{
+				this.events.add("-" + database.getId());
+			}
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.lock;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import net.sf.hajdbc.lock.semaphore.SemaphoreLockManager;
+
+import org.junit.Test;
+
+/**
+ * @author Paul Ferraro
+ */
+public class MultiLockTest
+{
+	private final LockManager manager = new SemaphoreLockManager(false);
+	private final Lock lock1 = this.manager.writeLock("1");
+	private final Lock lock2 = this.manager.writeLock("2");
+	private final Lock lock = new MultiLock(Arrays.asList(this.lock1, this.lock2));
+	
+	@Test
+	public void tryLock() throws InterruptedException
+	{
+		assertTrue(this.lock2.tryLock());
+		
+		// Validate that a partial acquisition is rolled back
+		assertFalse(this.lock.tryLock());
+		assertFalse(this.lock.tryLock(1, TimeUnit.MILLISECONDS));
+		assertTrue(this.lock1.tryLock());
+		this.lock1.unlock();
+		
+		this.lock2.unlock();
+		
+		assertTrue(this.lock.tryLock());
+		assertFalse(this.lock1.tryLock());
+		assertFalse(this.lock2.tryLock());
+		
+		this.lock.unlock();
+		
+		assertTrue(this.lock.tryLock(1, TimeUnit.MILLISECONDS));
+		this.lock.unlock();
+		
+		// Validate that the global write lock is blocked by all named write locks
+		Lock globalLock = this.manager.writeLock(null);
+		assertTrue(globalLock.tryLock());
+		globalLock.unlock();
+	}
+	
+	@Test
+	public void lockInterruptibly() throws InterruptedException
+	{
+		assertTrue(this.lock2.tryLock());
+		
+		Thread.currentThread().interrupt();
+		try
+		{
+			this.lock.lockInterruptibly();
+			fail();
+		}
+		catch (InterruptedException e)
+		{
+			// Validate that a partial acquisition is rolled back
+			assertTrue(this.lock1.tryLock());
+			this.lock1.unlock();
+		}
+		finally
+		{
+			this.lock2.unlock();
+		}
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.lock.distributed;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.hajdbc.distributed.Member;
+
+import org.junit.Test;
+
+/**
+ * @author Paul Ferraro
+ */
+public class HashRingTest
+{
+	private static final int LOCKS = 10000;
+	
+	private final Member member1 = new TestMember("1");
+	private final Member member2 = new TestMember("2");
+	private final Member member3 = new TestMember("3");
+	private final Member member4 = new TestMember("4");
+	
+	@Test
+	public void empty()
+	{
+		assertNull(new HashRing(new ArrayList<Member>()).locate("1"));
+	}
+	
+	@Test
+	public void locate()
+	{
+		HashRing ring = new HashRing(Arrays.asList(this.member1, this.member2, this.member3));
+		// Independent of the order in which members are reported
+		HashRing reordered = new HashRing(Arrays.asList(this.member3, this.member1, this.member2));
+		
+		Map<Member, Integer> counts = new HashMap<>();
+		for (int i = 0; i < LOCKS; ++i)
+		{
+			String id = "table" + i;
+			Member owner = ring.locate(id);
+			assertSame(owner, reordered.locate(id));
+			Integer count = counts.get(owner);
+			counts.put(owner, (count != null) ? count + 1 : 1);
+		}
+		
+		// Each member should own roughly a third of the locks
+		for (Member member: Arrays.asList(this.member1, this.member2, this.member3))
+		{
+			assertTrue(counts.toString(), counts.get(member) > LOCKS / 4);
+		}
+	}
+	
+	@Test
+	public void rebalance()
+	{
+		List<Member> view = new ArrayList<>(Arrays.asList(this.member1, this.member2, this.member3));
+		HashRing ring = new HashRing(view);
+		
+		view.add(this.member4);
+		HashRing joined = new HashRing(view);
+		
+		view.remove(this.member2);
+		HashRing left = new HashRing(view);
+		
+		for (int i = 0; i < LOCKS; ++i)
+		{
+			String id = "table" + i;
+			Member owner = ring.locate(id);
+			Member joinedOwner = joined.locate(id);
+			
+			// Only locks assigned to the joining member move
+			if (joinedOwner != this.member4)
+			{
+				assertSame(owner, joinedOwner);
+			}
+			
+			// Only locks owned by the leaving member move
+			if (joinedOwner != this.member2)
+			{
+				assertSame(joinedOwner, left.locate(id));
+			}
+		}
+	}
+	
+	private static class TestMember implements Member
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final String name;
+		
+		TestMember(String name)
+		{
+			this.name = name;
+		}
+		
+		@Override
+		public int compareTo(Member member)
+		{
+			return this.name.compareTo(((TestMember) member).name);
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return this.name.hashCode();
+		}
+		
+		@Override
+		public String toString()
+		{
+			return this.name;
+		}
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.lock.distributed;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.hajdbc.distributed.Command;
+import net.sf.hajdbc.distributed.Member;
+
+import org.junit.Test;
+
+/**
+ * @author Paul Ferraro
+ */
+public class LockCommandCodecTest
+{
+	private final LockCommandCodec codec = new LockCommandCodec();
+	private final Member sender = mock(Member.class);
+	
+	@Test
+	public void acquire()
+	{
+		AcquireLockCommand command = this.roundTrip(new AcquireLockCommand(new DistributedLockManager.RemoteLockDescriptorImpl("1", LockType.WRITE, this.sender), 10L, 7L));
+		
+		assertEquals("1", command.getDescriptor().getId());
+		assertSame(LockType.WRITE, command.getDescriptor().getType());
+		assertSame(this.sender, command.getDescriptor().getMember());
+		assertEquals(10L, command.getTimeout());
+		assertEquals(7L, command.getView());
+		
+		// Global lock
+		command = this.roundTrip(new AcquireLockCommand(new DistributedLockManager.RemoteLockDescriptorImpl(null, LockType.WRITE, this.sender), 0L));
+		
+		assertNull(command.getDescriptor().getId());
+	}
+	
+	@Test
+	public void release()
+	{
+		ReleaseLockCommand command = this.roundTrip(new ReleaseLockCommand(new DistributedLockManager.RemoteLockDescriptorImpl("1", LockType.READ, this.sender)));
+		
+		assertEquals("1", command.getDescriptor().getId());
+		assertSame(LockType.READ, command.getDescriptor().getType());
+		assertSame(this.sender, command.getDescriptor().getMember());
+	}
+	
+	@Test
+	public void multiple()
+	{
+		List<RemoteLockDescriptor> descriptors = Arrays.<RemoteLockDescriptor>asList(new DistributedLockManager.RemoteLockDescriptorImpl("1", LockType.WRITE, this.sender), new DistributedLockManager.RemoteLockDescriptorImpl("2", LockType.WRITE, this.sender));
+		
+		AcquireLocksCommand acquire = this.roundTrip(new AcquireLocksCommand(descriptors, 10L));
+		
+		assertEquals(descriptors, acquire.getDescriptors());
+		assertEquals(10L, acquire.getTimeout());
+		
+		ReleaseLocksCommand release = this.roundTrip(new ReleaseLocksCommand(descriptors));
+		
+		assertEquals(descriptors, release.getDescriptors());
+		
+		RevokeLeasesCommand revoke = this.roundTrip(new RevokeLeasesCommand(descriptors));
+		
+		assertEquals(descriptors, revoke.getDescriptors());
+	}
+	
+	@Test
+	public void rebalance()
+	{
+		TransferLockCommand transfer = this.roundTrip(new TransferLockCommand(new DistributedLockManager.RemoteLockDescriptorImpl("1", LockType.WRITE, this.sender), 10L));
+		
+		assertEquals("1", transfer.getDescriptor().getId());
+		assertSame(this.sender, transfer.getDescriptor().getMember());
+		assertEquals(10L, transfer.getTimeout());
+		
+		RebalancedCommand rebalanced = this.roundTrip(new RebalancedCommand(this.sender, Long.MAX_VALUE));
+		
+		assertSame(this.sender, rebalanced.getMember());
+		assertEquals(Long.MAX_VALUE, rebalanced.getView());
+	}
+	
+	@SuppressWarnings("unchecked")
+	private <T extends Command<?, LockCommandContext>> T roundTrip(T command)
+	{
+		byte[] bytes = this.codec.encode(command);
+		Command<Object, LockCommandContext> result = this.codec.decode(bytes, 0, bytes.length, this.sender);
+		assertSame(command.getClass(), result.getClass());
+		return (T) result;
+	}
+}
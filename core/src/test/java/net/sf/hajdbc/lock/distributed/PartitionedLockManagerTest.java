@@ -0,0 +1,397 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.lock.distributed;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+
+import net.sf.hajdbc.DatabaseCluster;
+import net.sf.hajdbc.MockDatabase;
+import net.sf.hajdbc.distributed.Command;
+import net.sf.hajdbc.distributed.CommandCodec;
+import net.sf.hajdbc.distributed.CommandDispatcher;
+import net.sf.hajdbc.distributed.CommandDispatcherFactory;
+import net.sf.hajdbc.distributed.CommandResponse;
+import net.sf.hajdbc.distributed.Member;
+import net.sf.hajdbc.distributed.MembershipListener;
+import net.sf.hajdbc.distributed.Stateful;
+import net.sf.hajdbc.distributed.ViewListener;
+import net.sf.hajdbc.lock.semaphore.SemaphoreLockManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link PartitionedLockManager}, using an in-memory group whose views are installed explicitly.
+ * @author Paul Ferraro
+ */
+public class PartitionedLockManagerTest
+{
+	private final Map<Member, Dispatcher> dispatchers = new ConcurrentHashMap<>();
+	private volatile Set<Member> view = Collections.emptySet();
+	private final List<PartitionedLockManager> managers = new ArrayList<>();
+	
+	@Before
+	public void init() throws Exception
+	{
+		for (int i = 1; i <= 4; ++i)
+		{
+			@SuppressWarnings("unchecked")
+			DatabaseCluster<Void, MockDatabase> cluster = mock(DatabaseCluster.class);
+			when(cluster.getId()).thenReturn("cluster");
+			when(cluster.getLockManager()).thenReturn(new SemaphoreLockManager(false));
+			when(cluster.getThreadFactory()).thenReturn(Executors.defaultThreadFactory());
+			
+			PartitionedLockManager manager = new PartitionedLockManager(cluster, new DispatcherFactory(new TestMember(String.valueOf(i))));
+			manager.start();
+			this.managers.add(manager);
+		}
+		
+		this.install(1, this.managers.subList(0, 3));
+	}
+	
+	@After
+	public void destroy()
+	{
+		for (PartitionedLockManager manager: this.managers)
+		{
+			manager.stop();
+		}
+	}
+	
+	@Test
+	public void acquireRelease()
+	{
+		List<PartitionedLockManager> view = this.managers.subList(0, 3);
+		String id = this.locate(view.get(1), view, view.get(1), view);
+		Lock lock = view.get(0).writeLock(id);
+		
+		assertTrue(lock.tryLock());
+		
+		// Acquired via a single command to its owner
+		assertEquals(1, this.count(view.get(1), AcquireLockCommand.class));
+		assertEquals(0, this.count(view.get(2), AcquireLockCommand.class));
+		
+		assertFalse(view.get(1).writeLock(id).tryLock());
+		assertFalse(view.get(2).writeLock(id).tryLock());
+		
+		lock.unlock();
+		
+		assertEquals(1, this.count(view.get(1), ReleaseLockCommand.class));
+		
+		Lock other = view.get(2).writeLock(id);
+		assertTrue(other.tryLock());
+		other.unlock();
+	}
+	
+	@Test
+	public void view()
+	{
+		List<PartitionedLockManager> view = this.managers.subList(0, 3);
+		PartitionedLockManager owner = view.get(1);
+		String id = this.locate(owner, view, owner, view);
+		RemoteLockDescriptor descriptor = new DistributedLockManager.RemoteLockDescriptorImpl(id, LockType.WRITE, view.get(0).dispatcher.getLocal());
+		
+		// The owner refuses members that located it within a different view
+		assertFalse(new AcquireLockCommand(descriptor, 0, 0).execute(owner));
+		assertFalse(new AcquireLockCommand(descriptor, 0, 2).execute(owner));
+		assertTrue(new AcquireLockCommand(descriptor, 0, 1).execute(owner));
+		
+		new ReleaseLockCommand(descriptor).execute(owner);
+		
+		// Once another member rebalanced a subsequent view, the owner may no longer own the lock
+		owner.rebalanced(view.get(2).dispatcher.getLocal(), 2);
+		
+		assertFalse(new AcquireLockCommand(descriptor, 0, 1).execute(owner));
+	}
+	
+	@Test
+	public void transfer()
+	{
+		List<PartitionedLockManager> view = this.managers.subList(0, 3);
+		PartitionedLockManager owner = this.managers.get(1);
+		PartitionedLockManager newOwner = this.managers.get(3);
+		String id = this.locate(owner, view, newOwner, this.managers);
+		Lock lock = this.managers.get(0).writeLock(id);
+		lock.lock();
+		
+		this.install(2, this.managers);
+		
+		// The lock was transferred to its new owner, and released by its previous owner
+		assertEquals(1, this.count(newOwner, TransferLockCommand.class));
+		assertEquals(1, this.count(owner, ReleaseLockCommand.class));
+		assertFalse(owner.writeLock(id).tryLock());
+		assertFalse(newOwner.writeLock(id).tryLock());
+		
+		// The new owner leaves
+		this.install(3, view);
+		
+		assertEquals(1, this.count(owner, TransferLockCommand.class));
+		assertFalse(this.managers.get(2).writeLock(id).tryLock());
+		
+		lock.unlock();
+		
+		Lock other = this.managers.get(2).writeLock(id);
+		assertTrue(other.tryLock());
+		other.unlock();
+	}
+	
+	/**
+	 * Installs a view of the specified managers, then waits for them to rebalance it.
+	 */
+	private void install(long id, List<PartitionedLockManager> managers)
+	{
+		Set<Member> view = this.members(managers);
+		this.view = view;
+		
+		for (Member member: view)
+		{
+			this.dispatchers.get(member).install(id, view);
+		}
+		for (PartitionedLockManager manager: managers)
+		{
+			while (manager.isRebalancing(new DistributedLockManager.RemoteLockDescriptorImpl("", LockType.WRITE, manager.dispatcher.getLocal()), id))
+			{
+				Thread.yield();
+			}
+		}
+	}
+	
+	/**
+	 * Returns a lock id owned by the specified owner within the specified view, and by the specified new owner within the specified new view.
+	 */
+	private String locate(PartitionedLockManager owner, List<PartitionedLockManager> view, PartitionedLockManager newOwner, List<PartitionedLockManager> newView)
+	{
+		HashRing ring = new HashRing(this.members(view));
+		HashRing newRing = new HashRing(this.members(newView));
+		
+		for (int i = 0; ; ++i)
+		{
+			String id = "lock" + i;
+			
+			if ((ring.locate(id) == owner.dispatcher.getLocal()) && (newRing.locate(id) == newOwner.dispatcher.getLocal()))
+			{
+				return id;
+			}
+		}
+	}
+	
+	private Set<Member> members(List<PartitionedLockManager> managers)
+	{
+		Set<Member> members = new TreeSet<>();
+		for (PartitionedLockManager manager: managers)
+		{
+			members.add(manager.dispatcher.getLocal());
+		}
+		return members;
+	}
+	
+	/**
+	 * Returns the number of commands of the specified class received by the specified manager.
+	 */
+	private int count(PartitionedLockManager manager, Class<?> commandClass)
+	{
+		int count = 0;
+		List<Command<?, LockCommandContext>> commands = this.dispatchers.get(manager.dispatcher.getLocal()).commands;
+		synchronized (commands)
+		{
+			for (Command<?, LockCommandContext> command: commands)
+			{
+				if (command.getClass() == commandClass)
+				{
+					count += 1;
+				}
+			}
+		}
+		return count;
+	}
+	
+	private class DispatcherFactory implements CommandDispatcherFactory
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final Member member;
+		
+		DispatcherFactory(Member member)
+		{
+			this.member = member;
+		}
+		
+		@Override
+		public String getId()
+		{
+			return "test";
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public <C> CommandDispatcher<C> createCommandDispatcher(String id, C context, CommandCodec<C> codec, Stateful stateful, MembershipListener listener)
+		{
+			Dispatcher dispatcher = new Dispatcher(this.member, (LockCommandContext) context, (CommandCodec<LockCommandContext>) codec, (ViewListener) listener);
+			PartitionedLockManagerTest.this.dispatchers.put(this.member, dispatcher);
+			return (CommandDispatcher<C>) dispatcher;
+		}
+	}
+	
+	/**
+	 * Executes commands synchronously, by the thread of the sender.
+	 */
+	private class Dispatcher implements CommandDispatcher<LockCommandContext>
+	{
+		private final Member local;
+		private final LockCommandContext context;
+		private final CommandCodec<LockCommandContext> codec;
+		private final ViewListener listener;
+		// Commands received from other members
+		final List<Command<?, LockCommandContext>> commands = Collections.synchronizedList(new ArrayList<Command<?, LockCommandContext>>());
+		private volatile Set<Member> view = Collections.emptySet();
+		
+		Dispatcher(Member local, LockCommandContext context, CommandCodec<LockCommandContext> codec, ViewListener listener)
+		{
+			this.local = local;
+			this.context = context;
+			this.codec = codec;
+			this.listener = listener;
+		}
+		
+		synchronized void install(long id, Set<Member> view)
+		{
+			for (Member member: view)
+			{
+				if (!this.view.contains(member))
+				{
+					this.listener.added(member);
+				}
+			}
+			for (Member member: this.view)
+			{
+				if (!view.contains(member))
+				{
+					this.listener.removed(member);
+				}
+			}
+			this.view = view;
+			this.listener.viewChanged(id, view);
+		}
+		
+		@Override
+		public void start()
+		{
+		}
+		
+		@Override
+		public void stop()
+		{
+		}
+		
+		@Override
+		public <R> Map<Member, CommandResponse<R>> executeAll(Command<R, LockCommandContext> command, Member... excludedMembers) throws Exception
+		{
+			Map<Member, CommandResponse<R>> responses = new TreeMap<>();
+			for (Member member: PartitionedLockManagerTest.this.view)
+			{
+				if (!Arrays.asList(excludedMembers).contains(member))
+				{
+					responses.put(member, this.execute(command, member));
+				}
+			}
+			return responses;
+		}
+		
+		@Override
+		public <R> CommandResponse<R> execute(Command<R, LockCommandContext> command, Member member) throws Exception
+		{
+			Dispatcher dispatcher = PartitionedLockManagerTest.this.dispatchers.get(member);
+			// Like a real group, a member only receives commands from members of its view
+			if (!PartitionedLockManagerTest.this.view.contains(member) || !dispatcher.view.contains(this.local))
+			{
+				throw new IllegalStateException(String.format("%s cannot reach %s", this.local, member));
+			}
+			byte[] bytes = this.codec.encode(command);
+			@SuppressWarnings("unchecked")
+			Command<R, LockCommandContext> received = (Command<R, LockCommandContext>) (Command<?, LockCommandContext>) dispatcher.codec.decode(bytes, 0, bytes.length, this.local);
+			dispatcher.commands.add(received);
+			
+			final R result = received.execute(dispatcher.context);
+			
+			return new CommandResponse<R>()
+			{
+				@Override
+				public R get()
+				{
+					return result;
+				}
+			};
+		}
+		
+		@Override
+		public Member getLocal()
+		{
+			return this.local;
+		}
+		
+		@Override
+		public Member getCoordinator()
+		{
+			return PartitionedLockManagerTest.this.view.iterator().next();
+		}
+	}
+	
+	private static class TestMember implements Member
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final String name;
+		
+		TestMember(String name)
+		{
+			this.name = name;
+		}
+		
+		@Override
+		public int compareTo(Member member)
+		{
+			return this.name.compareTo(((TestMember) member).name);
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return this.name.hashCode();
+		}
+		
+		@Override
+		public String toString()
+		{
+			return this.name;
+		}
+	}
+}
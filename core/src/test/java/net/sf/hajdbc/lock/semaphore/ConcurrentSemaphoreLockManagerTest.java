@@ -0,0 +1,103 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.lock.semaphore;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.locks.Lock;
+
+import org.junit.Test;
+
+public class ConcurrentSemaphoreLockManagerTest
+{
+	private final ConcurrentSemaphoreLockManager manager = new ConcurrentSemaphoreLockManager(false);
+
+	@Test
+	public void globalLock()
+	{
+		Lock writeLock = this.manager.writeLock(null);
+		
+		// Validate that a global write lock blocks global and named locks
+		assertTrue(writeLock.tryLock());
+		try
+		{
+			assertFalse(this.manager.readLock(null).tryLock());
+			assertFalse(this.manager.readLock("a").tryLock());
+			assertFalse(this.manager.writeLock("a").tryLock());
+		}
+		finally
+		{
+			writeLock.unlock();
+		}
+		assertEquals(0, this.manager.size());
+		
+		// Validate that a named lock blocks the global write lock
+		Lock lock = this.manager.readLock("a");
+		assertTrue(lock.tryLock());
+		try
+		{
+			assertFalse(writeLock.tryLock());
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		assertTrue(writeLock.tryLock());
+		writeLock.unlock();
+	}
+
+	@Test
+	public void namedLock()
+	{
+		Lock writeLock = this.manager.writeLock("a");
+		
+		assertTrue(writeLock.tryLock());
+		try
+		{
+			assertEquals(1, this.manager.size());
+			
+			// Validate that a named write lock blocks readers and writers of the same name only
+			assertFalse(this.manager.readLock("a").tryLock());
+			assertFalse(this.manager.writeLock("a").tryLock());
+			
+			Lock lock = this.manager.writeLock("b");
+			assertTrue(lock.tryLock());
+			assertEquals(2, this.manager.size());
+			lock.unlock();
+			
+			assertEquals(1, this.manager.size());
+		}
+		finally
+		{
+			writeLock.unlock();
+		}
+		
+		// Validate that unused locks are evicted
+		assertEquals(0, this.manager.size());
+		
+		Lock readLock1 = this.manager.readLock("a");
+		Lock readLock2 = this.manager.readLock("a");
+		assertTrue(readLock1.tryLock());
+		assertTrue(readLock2.tryLock());
+		assertFalse(writeLock.tryLock());
+		readLock1.unlock();
+		assertEquals(1, this.manager.size());
+		readLock2.unlock();
+		assertEquals(0, this.manager.size());
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.lock.semaphore;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import net.sf.hajdbc.lock.LockManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares lock acquisition throughput of the semaphore-based lock managers under contention.
+ * Run via {@link #main(String[])} from the test classpath.
+ * @author Paul Ferraro
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(8)
+public class LockManagerBenchmark
+{
+	@Param({ "semaphore", "concurrent-semaphore" })
+	public String manager;
+
+	@Param({ "16" })
+	public int objects;
+
+	private LockManager lockManager;
+	private String[] ids;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		this.lockManager = "semaphore".equals(this.manager) ? new SemaphoreLockManager(false) : new ConcurrentSemaphoreLockManager(false);
+		this.lockManager.start();
+		this.ids = new String[this.objects];
+		for (int i = 0; i < this.objects; ++i)
+		{
+			this.ids[i] = "sequence" + i;
+		}
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		this.lockManager.stop();
+	}
+
+	@Benchmark
+	public void globalReadLock()
+	{
+		lock(this.lockManager.readLock(null));
+	}
+
+	@Benchmark
+	public void namedWriteLock()
+	{
+		lock(this.lockManager.writeLock(this.ids[ThreadLocalRandom.current().nextInt(this.ids.length)]));
+	}
+
+	private static void lock(Lock lock)
+	{
+		lock.lock();
+		lock.unlock();
+	}
+
+	public static void main(String... args) throws RunnerException
+	{
+		new Runner(new OptionsBuilder().include(LockManagerBenchmark.class.getSimpleName()).forks(1).build()).run();
+	}
+}
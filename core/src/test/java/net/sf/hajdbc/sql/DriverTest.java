@@ -30,6 +30,7 @@ import net.sf.hajdbc.DatabaseClusterConfigurationFactory;
 import net.sf.hajdbc.DatabaseClusterFactory;
 import net.sf.hajdbc.MockDriver;
 import net.sf.hajdbc.balancer.Balancer;
+import net.sf.hajdbc.balancer.BalancerSnapshot;
 import net.sf.hajdbc.durability.Durability;
 import net.sf.hajdbc.lock.LockManager;
 import net.sf.hajdbc.tx.TransactionIdentifierFactory;
@@ -115,6 +116,7 @@ public class DriverTest
 			when(balancer.size()).thenReturn(1);
 			when(balancer.iterator()).thenReturn(Collections.singleton(database).iterator());
 			when(balancer.next()).thenReturn(database);
+			when(balancer.snapshot()).thenReturn(new BalancerSnapshot<java.sql.Driver, DriverDatabase>(Collections.singleton(database)));
 			when(cluster.getExecutor()).thenReturn(Executors.newCachedThreadPool());
 			when(cluster.getLockManager()).thenReturn(lockManager);
 			when(lockManager.readLock(null)).thenReturn(mock(Lock.class));
@@ -0,0 +1,100 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.sql;
+
+import java.sql.SQLException;
+
+import net.sf.hajdbc.DatabaseCluster;
+import net.sf.hajdbc.MockDatabase;
+import net.sf.hajdbc.dialect.Dialect;
+import net.sf.hajdbc.dialect.db2.DB2DialectFactory;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Paul Ferraro
+ */
+public class SQLAnalysisCacheTest
+{
+	@SuppressWarnings("unchecked")
+	private final DatabaseCluster<Void, MockDatabase> cluster = mock(DatabaseCluster.class);
+	private final Dialect dialect = new DB2DialectFactory().createDialect();
+	
+	@Test
+	public void analyze() throws SQLException
+	{
+		when(this.cluster.isSequenceDetectionEnabled()).thenReturn(true);
+		when(this.cluster.isCurrentTimestampEvaluationEnabled()).thenReturn(true);
+		when(this.cluster.isRandEvaluationEnabled()).thenReturn(true);
+		
+		SQLAnalysisCache<Void, MockDatabase> cache = new SQLAnalysisCache<>(this.cluster, this.dialect);
+		
+		SQLAnalysis analysis = cache.analyze("INSERT INTO test VALUES (NEXTVAL FOR seq, CURRENT_TIMESTAMP)");
+		
+		assertEquals("seq", analysis.getSequence());
+		assertNull(analysis.getInsertTable());
+		assertFalse(analysis.isSelectForUpdate());
+		assertTrue(analysis.containsCurrentTimestamp());
+		assertFalse(analysis.containsCurrentDate());
+		assertFalse(analysis.containsCurrentTime());
+		assertFalse(analysis.containsRand());
+		
+		analysis = cache.analyze("SELECT * FROM test FOR UPDATE");
+		
+		assertNull(analysis.getSequence());
+		assertTrue(analysis.isSelectForUpdate());
+		assertFalse(analysis.containsCurrentTimestamp());
+		
+		assertEquals(0, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		
+		assertSame(analysis, cache.analyze("SELECT * FROM test FOR UPDATE"));
+		
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		assertEquals(1d / 3, cache.getHitRatio(), 0.001);
+		
+		cache.flush();
+		
+		assertEquals(0, cache.size());
+	}
+	
+	@Test
+	public void bounded() throws SQLException
+	{
+		SQLAnalysisCache<Void, MockDatabase> cache = new SQLAnalysisCache<>(this.cluster, this.dialect, 2);
+		
+		cache.analyze("SELECT 1");
+		cache.analyze("SELECT 2");
+		cache.analyze("SELECT 1");
+		cache.analyze("SELECT 3");
+		
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getHits());
+		assertEquals(3, cache.getMisses());
+		
+		// The least recently used statement was evicted
+		cache.analyze("SELECT 1");
+		assertEquals(2, cache.getHits());
+		
+		cache.analyze("SELECT 2");
+		assertEquals(4, cache.getMisses());
+	}
+}
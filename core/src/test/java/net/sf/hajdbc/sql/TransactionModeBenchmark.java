@@ -0,0 +1,106 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the per-statement latency of the fan-out performed by each transaction mode.
+ * Each task simulates a statement execution against one database.
+ * Run via {@link #main(String[])} from the test classpath.
+ * @author Paul Ferraro
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransactionModeBenchmark
+{
+	@Param({ "parallel", "serial", "caller-runs" })
+	public String mode;
+
+	@Param({ "2", "3" })
+	public int databases;
+
+	@Param({ "100" })
+	public long work;
+
+	private ExecutorService service;
+	private ExecutorService executor;
+	private List<Callable<Long>> tasks;
+
+	@Setup
+	public void setup()
+	{
+		this.service = Executors.newCachedThreadPool();
+		this.executor = TransactionModeEnum.forValue(this.mode).getTransactionExecutor(this.service, false);
+		this.tasks = new ArrayList<>(this.databases);
+		for (int i = 0; i < this.databases; ++i)
+		{
+			final long work = this.work;
+			this.tasks.add(new Callable<Long>()
+			{
+				@Override
+				public Long call()
+				{
+					Blackhole.consumeCPU(work);
+					return work;
+				}
+			});
+		}
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		this.service.shutdown();
+	}
+
+	@Benchmark
+	public void invokeAll(Blackhole blackhole) throws Exception
+	{
+		for (Future<Long> future: this.executor.invokeAll(this.tasks))
+		{
+			blackhole.consume(future.get());
+		}
+	}
+
+	public static void main(String... args) throws RunnerException
+	{
+		new Runner(new OptionsBuilder().include(TransactionModeBenchmark.class.getSimpleName()).forks(1).build()).run();
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.state.distributed;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.hajdbc.Database;
+import net.sf.hajdbc.ExceptionType;
+import net.sf.hajdbc.distributed.Command;
+import net.sf.hajdbc.distributed.CommandCodec;
+import net.sf.hajdbc.distributed.Member;
+import net.sf.hajdbc.distributed.SerializationCommandCodec;
+import net.sf.hajdbc.durability.Durability;
+import net.sf.hajdbc.durability.InvocationEvent;
+import net.sf.hajdbc.durability.InvocationEventImpl;
+import net.sf.hajdbc.durability.InvokerEventImpl;
+import net.sf.hajdbc.durability.InvokerResultImpl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the binary {@link StateCommandCodec} against Java serialization,
+ * for the round trip of the batch of durability commands replicated per transaction.
+ * Run via {@link #main(String[])} from the test classpath.
+ * The encoded sizes are compared by {@link StateCommandCodecTest#size()}.
+ * @author Paul Ferraro
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CommandCodecBenchmark
+{
+	enum Codec
+	{
+		SERIALIZATION(new SerializationCommandCodec<StateCommandContext<Void, Database<Void>>>()),
+		BINARY(new StateCommandCodec<Void, Database<Void>>()),
+		;
+		final CommandCodec<StateCommandContext<Void, Database<Void>>> codec;
+		
+		Codec(CommandCodec<StateCommandContext<Void, Database<Void>>> codec)
+		{
+			this.codec = codec;
+		}
+	}
+	
+	@Param({ "SERIALIZATION", "BINARY" })
+	public Codec codec;
+	
+	private final Member member = new MockMember();
+	private Command<Void, StateCommandContext<Void, Database<Void>>> command;
+	private byte[] bytes;
+	
+	@Setup
+	public void setup()
+	{
+		this.command = createCommand(this.member);
+		this.bytes = this.codec.codec.encode(this.command);
+	}
+	
+	@Benchmark
+	public byte[] encode()
+	{
+		return this.codec.codec.encode(this.command);
+	}
+	
+	@Benchmark
+	public Command<Object, StateCommandContext<Void, Database<Void>>> decode()
+	{
+		return this.codec.codec.decode(this.bytes, 0, this.bytes.length, this.member);
+	}
+	
+	static Command<Void, StateCommandContext<Void, Database<Void>>> createCommand(Member member)
+	{
+		InvocationEvent event = new InvocationEventImpl(UUID.randomUUID(), Durability.Phase.COMMIT, ExceptionType.SQL);
+		InvokerEventImpl invokerEvent = new InvokerEventImpl(event.getTransactionId(), Durability.Phase.COMMIT, "db1");
+		invokerEvent.setResult(new InvokerResultImpl(Integer.valueOf(1)));
+		return new BatchCommand<>(Arrays.<Command<Void, StateCommandContext<Void, Database<Void>>>>asList(
+				new PreInvocationCommand<Void, Database<Void>>(new DistributedStateManager.RemoteInvocationDescriptorImpl(event, member)),
+				new InvokerCommand<Void, Database<Void>>(new DistributedStateManager.RemoteInvokerDescriptorImpl(invokerEvent, member)),
+				new PostInvocationCommand<Void, Database<Void>>(new DistributedStateManager.RemoteInvocationDescriptorImpl(event, member))));
+	}
+	
+	static class MockMember implements Member
+	{
+		private static final long serialVersionUID = -7372431924367541519L;
+		
+		private final UUID id = UUID.randomUUID();
+		
+		@Override
+		public int compareTo(Member member)
+		{
+			return this.id.compareTo(((MockMember) member).id);
+		}
+	}
+	
+	public static void main(String... args) throws RunnerException
+	{
+		new Runner(new OptionsBuilder().include(CommandCodecBenchmark.class.getSimpleName()).forks(1).build()).run();
+	}
+}
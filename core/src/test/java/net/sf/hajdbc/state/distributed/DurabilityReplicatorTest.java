@@ -0,0 +1,183 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.state.distributed;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.CountDownLatch;
+
+import net.sf.hajdbc.Database;
+import net.sf.hajdbc.distributed.Command;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * @author Paul Ferraro
+ */
+public class DurabilityReplicatorTest
+{
+	private final DistributedStateManager<Void, Database<Void>> manager = mock(DistributedStateManager.class);
+	
+	@Test
+	public void synchronous()
+	{
+		DurabilityReplicator<Void, Database<Void>> replicator = new DurabilityReplicator<>(this.manager, null, 0);
+		replicator.start();
+		
+		Command<Void, StateCommandContext<Void, Database<Void>>> command1 = mock(Command.class);
+		Command<Void, StateCommandContext<Void, Database<Void>>> command2 = mock(Command.class);
+		
+		replicator.replicate(command1);
+		
+		verify(this.manager).execute(command1);
+		
+		// Without a lag, asynchronous commands are replicated synchronously
+		replicator.replicateAsync(command2);
+		
+		verify(this.manager).execute(command2);
+		
+		replicator.stop();
+		
+		verifyNoMoreInteractions(this.manager);
+	}
+	
+	@Test
+	public void groupCommit() throws InterruptedException
+	{
+		final DurabilityReplicator<Void, Database<Void>> replicator = new DurabilityReplicator<>(this.manager, null, 0);
+		replicator.start();
+		
+		final Command<Void, StateCommandContext<Void, Database<Void>>> command1 = mock(Command.class);
+		final Command<Void, StateCommandContext<Void, Database<Void>>> command2 = mock(Command.class);
+		final Command<Void, StateCommandContext<Void, Database<Void>>> command3 = mock(Command.class);
+		final CountDownLatch latch = new CountDownLatch(1);
+		
+		// Block the first batch, until the other commands are queued behind it
+		doAnswer(new Answer<Void>()
+		{
+			@Override
+			public Void answer(InvocationOnMock invocation) throws InterruptedException
+			{
+				latch.await();
+				return null;
+			}
+		}).when(this.manager).execute(command1);
+		
+		Thread thread1 = replicate(replicator, command1);
+		while (thread1.getState() != Thread.State.WAITING)
+		{
+			Thread.yield();
+		}
+		Thread thread2 = replicate(replicator, command2);
+		Thread thread3 = replicate(replicator, command3);
+		while ((thread2.getState() != Thread.State.WAITING) || (thread3.getState() != Thread.State.WAITING))
+		{
+			Thread.yield();
+		}
+		
+		latch.countDown();
+		
+		thread1.join();
+		thread2.join();
+		thread3.join();
+		
+		verify(this.manager).execute(command1);
+		
+		// Remaining commands are replicated together
+		BatchCommand<Void, Database<Void>> batch = captureBatch();
+		
+		batch.execute(null);
+		
+		verify(command2).execute(null);
+		verify(command3).execute(null);
+		
+		replicator.stop();
+	}
+	
+	@Test
+	public void asynchronous()
+	{
+		DurabilityReplicator<Void, Database<Void>> replicator = new DurabilityReplicator<>(this.manager, null, 50);
+		replicator.start();
+		
+		Command<Void, StateCommandContext<Void, Database<Void>>> command1 = mock(Command.class);
+		Command<Void, StateCommandContext<Void, Database<Void>>> command2 = mock(Command.class);
+		Command<Void, StateCommandContext<Void, Database<Void>>> command3 = mock(Command.class);
+		
+		replicator.replicateAsync(command1);
+		
+		// Replicated within the maximum lag
+		verify(this.manager, timeout(5000)).execute(command1);
+		
+		replicator.replicateAsync(command2);
+		replicator.replicate(command3);
+		
+		// Pending asynchronous commands are replicated ahead of subsequent synchronous commands
+		BatchCommand<Void, Database<Void>> batch = captureBatch();
+		
+		batch.execute(null);
+		
+		verify(command2).execute(null);
+		verify(command3).execute(null);
+		
+		replicator.stop();
+	}
+	
+	@Test
+	public void stop()
+	{
+		DurabilityReplicator<Void, Database<Void>> replicator = new DurabilityReplicator<>(this.manager, null, 60000);
+		replicator.start();
+		
+		Command<Void, StateCommandContext<Void, Database<Void>>> command = mock(Command.class);
+		
+		replicator.replicateAsync(command);
+		
+		verify(this.manager, never()).execute(command);
+		
+		// Pending commands are replicated on stop
+		replicator.stop();
+		
+		verify(this.manager).execute(command);
+	}
+	
+	private BatchCommand<Void, Database<Void>> captureBatch()
+	{
+		ArgumentCaptor<BatchCommand> captor = ArgumentCaptor.forClass(BatchCommand.class);
+		verify(this.manager, atLeastOnce()).execute(captor.capture());
+		return captor.getValue();
+	}
+	
+	private static Thread replicate(final DurabilityReplicator<Void, Database<Void>> replicator, final Command<Void, StateCommandContext<Void, Database<Void>>> command)
+	{
+		Thread thread = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				replicator.replicate(command);
+			}
+		});
+		thread.start();
+		return thread;
+	}
+}
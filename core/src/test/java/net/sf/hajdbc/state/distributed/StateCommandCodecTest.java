@@ -0,0 +1,151 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.state.distributed;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import net.sf.hajdbc.Database;
+import net.sf.hajdbc.ExceptionType;
+import net.sf.hajdbc.distributed.Command;
+import net.sf.hajdbc.distributed.Member;
+import net.sf.hajdbc.distributed.SerializationCommandCodec;
+import net.sf.hajdbc.durability.Durability;
+import net.sf.hajdbc.durability.InvocationEvent;
+import net.sf.hajdbc.durability.InvocationEventImpl;
+import net.sf.hajdbc.durability.InvokerEvent;
+import net.sf.hajdbc.durability.InvokerEventImpl;
+import net.sf.hajdbc.durability.InvokerResultImpl;
+import net.sf.hajdbc.state.DatabaseEvent;
+
+import org.junit.Test;
+
+/**
+ * @author Paul Ferraro
+ */
+public class StateCommandCodecTest
+{
+	private final StateCommandCodec<Void, Database<Void>> codec = new StateCommandCodec<>();
+	private final Member sender = mock(Member.class);
+	private final InvocationEvent invocationEvent = new InvocationEventImpl(UUID.randomUUID(), Durability.Phase.COMMIT, ExceptionType.SQL);
+	
+	@Test
+	public void invocation()
+	{
+		PreInvocationCommand<Void, Database<Void>> pre = this.roundTrip(new PreInvocationCommand<Void, Database<Void>>(new DistributedStateManager.RemoteInvocationDescriptorImpl(this.invocationEvent, this.sender)));
+		
+		assertSame(this.sender, pre.getDescriptor().getMember());
+		assertEquals(this.invocationEvent, pre.getDescriptor().getEvent());
+		assertSame(ExceptionType.SQL, pre.getDescriptor().getEvent().getExceptionType());
+		
+		PostInvocationCommand<Void, Database<Void>> post = this.roundTrip(new PostInvocationCommand<Void, Database<Void>>(new DistributedStateManager.RemoteInvocationDescriptorImpl(this.invocationEvent, this.sender)));
+		
+		assertSame(this.sender, post.getDescriptor().getMember());
+		assertEquals(this.invocationEvent, post.getDescriptor().getEvent());
+	}
+	
+	@Test
+	public void invoker()
+	{
+		InvokerEvent event = new InvokerEventImpl(this.invocationEvent.getTransactionId(), Durability.Phase.COMMIT, "db1");
+		
+		InvokerEvent result = this.roundTrip(event).getDescriptor().getEvent();
+		
+		assertEquals(event, result);
+		assertNull(result.getResult());
+		
+		event.setResult(new InvokerResultImpl(new int[] { 1, 2 }));
+		
+		result = this.roundTrip(event).getDescriptor().getEvent();
+		
+		assertEquals(event, result);
+		assertArrayEquals(new int[] { 1, 2 }, (int[]) result.getResult().getValue());
+		
+		event.setResult(new InvokerResultImpl(new SQLException("failure")));
+		
+		result = this.roundTrip(event).getDescriptor().getEvent();
+		
+		assertNull(result.getResult().getValue());
+		assertEquals("failure", result.getResult().getException().getMessage());
+	}
+	
+	@Test
+	public void state()
+	{
+		DatabaseEvent event = new DatabaseEvent("db1");
+		
+		assertEquals(event, this.roundTrip(new ActivationCommand<Void, Database<Void>>(event)).getEvent());
+		assertEquals(event, this.roundTrip(new DeactivationCommand<Void, Database<Void>>(event)).getEvent());
+	}
+	
+	@Test
+	public void batch()
+	{
+		List<Command<Void, StateCommandContext<Void, Database<Void>>>> commands = Arrays.<Command<Void, StateCommandContext<Void, Database<Void>>>>asList(
+				new PreInvocationCommand<Void, Database<Void>>(new DistributedStateManager.RemoteInvocationDescriptorImpl(this.invocationEvent, this.sender)),
+				new InvokerCommand<Void, Database<Void>>(new DistributedStateManager.RemoteInvokerDescriptorImpl(new InvokerEventImpl(this.invocationEvent.getTransactionId(), Durability.Phase.COMMIT, "db1"), this.sender)),
+				new PostInvocationCommand<Void, Database<Void>>(new DistributedStateManager.RemoteInvocationDescriptorImpl(this.invocationEvent, this.sender)));
+		
+		List<Command<Void, StateCommandContext<Void, Database<Void>>>> result = this.roundTrip(new BatchCommand<>(commands)).getCommands();
+		
+		assertEquals(3, result.size());
+		assertTrue(result.get(0) instanceof PreInvocationCommand);
+		assertTrue(result.get(1) instanceof InvokerCommand);
+		assertTrue(result.get(2) instanceof PostInvocationCommand);
+		assertEquals("db1", ((InvokerCommand<Void, Database<Void>>) result.get(1)).getDescriptor().getEvent().getDatabaseId());
+	}
+	
+	@Test
+	public void size()
+	{
+		Member member = new CommandCodecBenchmark.MockMember();
+		Command<Void, StateCommandContext<Void, Database<Void>>> command = CommandCodecBenchmark.createCommand(member);
+		
+		byte[] serialized = new SerializationCommandCodec<StateCommandContext<Void, Database<Void>>>().encode(command);
+		byte[] bytes = this.codec.encode(command);
+		
+		// The batch replicated per transaction must encode more compactly than via Java serialization
+		assertTrue(String.format("%d bytes, vs %d serialized", bytes.length, serialized.length), bytes.length < serialized.length);
+	}
+	
+	@Test
+	public void unregistered()
+	{
+		// Commands without a marshaller fall back to Java serialization
+		this.roundTrip(new StopCommand<Void, Database<Void>>());
+	}
+	
+	private InvokerCommand<Void, Database<Void>> roundTrip(InvokerEvent event)
+	{
+		return this.roundTrip(new InvokerCommand<Void, Database<Void>>(new DistributedStateManager.RemoteInvokerDescriptorImpl(event, this.sender)));
+	}
+	
+	@SuppressWarnings("unchecked")
+	private <T extends Command<?, StateCommandContext<Void, Database<Void>>>> T roundTrip(T command)
+	{
+		byte[] bytes = this.codec.encode(command);
+		Command<Object, StateCommandContext<Void, Database<Void>>> result = this.codec.decode(bytes, 0, bytes.length, this.sender);
+		assertSame(command.getClass(), result.getClass());
+		return (T) result;
+	}
+}
@@ -0,0 +1,256 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.state.sql;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.sf.hajdbc.pool.Pool;
+
+/**
+ * @author Paul Ferraro
+ */
+public class GroupCommitJournalTest
+{
+	private final Connection connection = mock(Connection.class);
+	@SuppressWarnings("unchecked")
+	private final Pool<Connection, SQLException> pool = mock(Pool.class);
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@Before
+	public void init() throws SQLException
+	{
+		when(this.pool.take()).thenReturn(this.connection);
+	}
+
+	@After
+	public void destroy()
+	{
+		this.executor.shutdownNow();
+	}
+
+	@Test
+	public void batch() throws Exception
+	{
+		// Batch latency is long enough that only a full batch will trigger a flush
+		GroupCommitJournal journal = new GroupCommitJournal(this.pool, 3, TimeUnit.MINUTES.toMillis(1), Executors.defaultThreadFactory());
+		journal.start();
+		try
+		{
+			List<SQLStateManager.Transaction> transactions = new ArrayList<>(3);
+			List<Future<Void>> futures = new ArrayList<>(3);
+			for (int i = 0; i < 3; ++i)
+			{
+				SQLStateManager.Transaction transaction = mock(SQLStateManager.Transaction.class);
+				transactions.add(transaction);
+				futures.add(this.executor.submit(new ExecuteTask(journal, transaction)));
+			}
+			
+			for (Future<Void> future: futures)
+			{
+				future.get(10, TimeUnit.SECONDS);
+			}
+			
+			for (SQLStateManager.Transaction transaction: transactions)
+			{
+				verify(transaction).execute(this.connection);
+			}
+			verify(this.pool).take();
+			verify(this.connection).commit();
+			verify(this.pool).release(this.connection);
+		}
+		finally
+		{
+			journal.stop();
+		}
+	}
+
+	@Test
+	public void connectionFailure() throws Exception
+	{
+		SQLException exception = new SQLException();
+		reset(this.pool);
+		when(this.pool.take()).thenThrow(exception);
+		
+		this.failure(exception);
+	}
+
+	@Test
+	public void commitFailure() throws Exception
+	{
+		SQLException exception = new SQLException();
+		doThrow(exception).when(this.connection).commit();
+		
+		this.failure(exception);
+		
+		verify(this.connection, atLeastOnce()).rollback();
+	}
+
+	private void failure(SQLException exception) throws Exception
+	{
+		GroupCommitJournal journal = new GroupCommitJournal(this.pool, 3, TimeUnit.MINUTES.toMillis(1), Executors.defaultThreadFactory());
+		journal.start();
+		try
+		{
+			List<Future<Void>> futures = new ArrayList<>(3);
+			for (int i = 0; i < 3; ++i)
+			{
+				futures.add(this.executor.submit(new ExecuteTask(journal, mock(SQLStateManager.Transaction.class))));
+			}
+			
+			// Every waiter must see the failure
+			for (Future<Void> future: futures)
+			{
+				try
+				{
+					future.get(10, TimeUnit.SECONDS);
+					fail();
+				}
+				catch (ExecutionException e)
+				{
+					assertSame(exception, e.getCause());
+				}
+			}
+		}
+		finally
+		{
+			journal.stop();
+		}
+	}
+
+	@Test
+	public void stop() throws Exception
+	{
+		// Journal is never started, so nothing is flushed until it is stopped
+		GroupCommitJournal journal = new GroupCommitJournal(this.pool, 10, TimeUnit.MINUTES.toMillis(1), Executors.defaultThreadFactory());
+		
+		List<SQLStateManager.Transaction> transactions = new ArrayList<>(2);
+		List<Future<Void>> futures = new ArrayList<>(2);
+		for (int i = 0; i < 2; ++i)
+		{
+			SQLStateManager.Transaction transaction = mock(SQLStateManager.Transaction.class);
+			transactions.add(transaction);
+			futures.add(this.executor.submit(new ExecuteTask(journal, transaction)));
+		}
+		
+		Thread.sleep(100);
+		
+		for (Future<Void> future: futures)
+		{
+			assertFalse(future.isDone());
+		}
+		
+		journal.stop();
+		
+		for (Future<Void> future: futures)
+		{
+			future.get(10, TimeUnit.SECONDS);
+		}
+		for (SQLStateManager.Transaction transaction: transactions)
+		{
+			verify(transaction).execute(this.connection);
+		}
+		verify(this.connection, atLeastOnce()).commit();
+	}
+
+	@Test
+	public void executeAfterStop() throws Exception
+	{
+		GroupCommitJournal journal = new GroupCommitJournal(this.pool, 10, 1, Executors.defaultThreadFactory());
+		journal.start();
+		journal.stop();
+		
+		SQLStateManager.Transaction transaction = mock(SQLStateManager.Transaction.class);
+		try
+		{
+			journal.execute(transaction);
+			fail();
+		}
+		catch (SQLException e)
+		{
+			verify(transaction, never()).execute(this.connection);
+		}
+	}
+
+	@Test
+	public void concurrentStop() throws Exception
+	{
+		GroupCommitJournal journal = new GroupCommitJournal(this.pool, 10, 1, Executors.defaultThreadFactory());
+		journal.start();
+		
+		List<SQLStateManager.Transaction> transactions = new ArrayList<>(100);
+		List<Future<Void>> futures = new ArrayList<>(100);
+		for (int i = 0; i < 100; ++i)
+		{
+			SQLStateManager.Transaction transaction = mock(SQLStateManager.Transaction.class);
+			transactions.add(transaction);
+			futures.add(this.executor.submit(new ExecuteTask(journal, transaction)));
+		}
+		
+		journal.stop();
+		
+		// Each transaction was either committed or rejected, but none was lost
+		for (int i = 0; i < 100; ++i)
+		{
+			try
+			{
+				futures.get(i).get(10, TimeUnit.SECONDS);
+				verify(transactions.get(i)).execute(this.connection);
+			}
+			catch (ExecutionException e)
+			{
+				assertTrue(e.getCause() instanceof SQLException);
+				verify(transactions.get(i), never()).execute(this.connection);
+			}
+		}
+	}
+
+	private static class ExecuteTask implements Callable<Void>
+	{
+		private final GroupCommitJournal journal;
+		private final SQLStateManager.Transaction transaction;
+		
+		ExecuteTask(GroupCommitJournal journal, SQLStateManager.Transaction transaction)
+		{
+			this.journal = journal;
+			this.transaction = transaction;
+		}
+		
+		@Override
+		public Void call() throws SQLException
+		{
+			this.journal.execute(this.transaction);
+			return null;
+		}
+	}
+}
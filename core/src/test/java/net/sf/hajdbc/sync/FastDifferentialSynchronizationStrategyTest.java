@@ -0,0 +1,1130 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.sync;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import net.sf.hajdbc.DatabaseCluster;
+import net.sf.hajdbc.DatabaseClusterListener;
+import net.sf.hajdbc.DatabaseProperties;
+import net.sf.hajdbc.MockDatabase;
+import net.sf.hajdbc.QualifiedName;
+import net.sf.hajdbc.TableProperties;
+import net.sf.hajdbc.TriggerEvent;
+import net.sf.hajdbc.TriggerSupport;
+import net.sf.hajdbc.TriggerSupport.TriggerEventEnum;
+import net.sf.hajdbc.TriggerSupport.TriggerTimeEnum;
+import net.sf.hajdbc.UniqueConstraint;
+import net.sf.hajdbc.balancer.Balancer;
+import net.sf.hajdbc.balancer.simple.SimpleBalancerFactory;
+import net.sf.hajdbc.cache.DatabaseMetaDataCache;
+import net.sf.hajdbc.codec.Decoder;
+import net.sf.hajdbc.dialect.Dialect;
+
+/**
+ * @author Paul Ferraro
+ */
+public class FastDifferentialSynchronizationStrategyTest
+{
+	private static final String TABLE_EXISTS_SQL = "SELECT 1 FROM hajdbc_t WHERE 1 = 0";
+	private static final Pattern STAMP_PATTERN = Pattern.compile("UPDATE hajdbc_t SET hajdbc_epoch = (\\d+) WHERE hajdbc_epoch IS NULL");
+	
+	private final Dialect dialect = mock(Dialect.class);
+	private final TriggerSupport triggerSupport = mock(TriggerSupport.class);
+	@SuppressWarnings("unchecked")
+	private final DatabaseCluster<Void, MockDatabase> cluster = mock(DatabaseCluster.class);
+	@SuppressWarnings("unchecked")
+	private final DatabaseMetaDataCache<Void, MockDatabase> cache = mock(DatabaseMetaDataCache.class);
+	private final TableProperties table = mock(TableProperties.class);
+	private final DatabaseProperties properties = mock(DatabaseProperties.class);
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	
+	private final Map<String, MockDatabase> databases = new HashMap<>();
+	// SQL executed against each database
+	private final Map<MockDatabase, List<String>> logs = new HashMap<>();
+	// Results of the queries against each database, where a missing result indicates a failed query
+	private final Map<MockDatabase, Map<String, List<Object[]>>> results = new HashMap<>();
+	private final Set<MockDatabase> active = new TreeSet<>();
+	// Prepared statements of each connection
+	private final Map<Connection, Map<String, PreparedStatement>> statements = new HashMap<>();
+	// DDL statements that fail, or that succeed without effect
+	private final Set<String> failures = new TreeSet<>();
+	private final Set<String> ignored = new TreeSet<>();
+	private Balancer<Void, MockDatabase> balancer;
+	
+	private final FastDifferentialSynchronizationStrategy strategy = new FastDifferentialSynchronizationStrategy();
+	
+	@Before
+	public void init() throws SQLException
+	{
+		QualifiedName name = mock(QualifiedName.class);
+		when(name.getName()).thenReturn("t");
+		when(name.getDDLName()).thenReturn("t");
+		when(name.getDMLName()).thenReturn("t");
+		UniqueConstraint primaryKey = mock(UniqueConstraint.class);
+		when(primaryKey.getColumnList()).thenReturn(Collections.singletonList("id"));
+		when(this.table.getName()).thenReturn(name);
+		when(this.table.getPrimaryKey()).thenReturn(primaryKey);
+		when(this.table.getColumns()).thenReturn(Arrays.asList("id", "value"));
+		
+		when(this.properties.getTables()).thenReturn(Collections.singletonList(this.table));
+		when(this.properties.findType(0, Types.BIGINT, Types.NUMERIC, Types.DECIMAL)).thenReturn("BIGINT");
+		when(this.cache.getDatabaseProperties(any(MockDatabase.class), any(Connection.class))).thenReturn(this.properties);
+		
+		when(this.dialect.getTriggerSupport()).thenReturn(this.triggerSupport);
+		when(this.triggerSupport.getTriggerRowAlias(TriggerTimeEnum.BEFORE)).thenReturn("OLD");
+		when(this.triggerSupport.getTriggerRowAlias(TriggerTimeEnum.AFTER)).thenReturn("NEW");
+		when(this.triggerSupport.getCreateTriggerSQL(anyString(), any(TableProperties.class), any(TriggerEvent.class), anyString())).thenAnswer(new Answer<String>()
+		{
+			@Override
+			public String answer(InvocationOnMock invocation)
+			{
+				Object[] arguments = invocation.getArguments();
+				return String.format("CREATE TRIGGER %s %s", arguments[0], arguments[3]);
+			}
+		});
+		when(this.triggerSupport.getDropTriggerSQL(anyString(), any(TableProperties.class))).thenAnswer(new Answer<String>()
+		{
+			@Override
+			public String answer(InvocationOnMock invocation)
+			{
+				return String.format("DROP TRIGGER %s", invocation.getArguments()[0]);
+			}
+		});
+		when(this.triggerSupport.getTriggerExistsSQL(anyString(), any(TableProperties.class))).thenAnswer(new Answer<String>()
+		{
+			@Override
+			public String answer(InvocationOnMock invocation)
+			{
+				return triggerExistsSQL((String) invocation.getArguments()[0]);
+			}
+		});
+		
+		for (String id: Arrays.asList("1", "2", "3"))
+		{
+			this.databases.put(id, this.createDatabase(id));
+		}
+		
+		this.balancer = new SimpleBalancerFactory().createBalancer(this.active);
+		
+		when(this.cluster.getDialect()).thenReturn(this.dialect);
+		when(this.cluster.getBalancer()).thenAnswer(new Answer<Balancer<Void, MockDatabase>>()
+		{
+			@Override
+			public Balancer<Void, MockDatabase> answer(InvocationOnMock invocation)
+			{
+				return FastDifferentialSynchronizationStrategyTest.this.balancer;
+			}
+		});
+		when(this.cluster.getInactiveDatabases()).thenAnswer(new Answer<Set<String>>()
+		{
+			@Override
+			public Set<String> answer(InvocationOnMock invocation)
+			{
+				Set<String> inactive = new TreeSet<>(FastDifferentialSynchronizationStrategyTest.this.databases.keySet());
+				for (MockDatabase database: FastDifferentialSynchronizationStrategyTest.this.balancer)
+				{
+					inactive.remove(database.getId());
+				}
+				return inactive;
+			}
+		});
+		when(this.cluster.getDatabase(anyString())).thenAnswer(new Answer<MockDatabase>()
+		{
+			@Override
+			public MockDatabase answer(InvocationOnMock invocation)
+			{
+				return FastDifferentialSynchronizationStrategyTest.this.databases.get(invocation.getArguments()[0]);
+			}
+		});
+		when(this.cluster.getDatabaseMetaDataCache()).thenReturn(this.cache);
+		
+		this.strategy.setCaptureEnabled(true);
+	}
+	
+	@After
+	public void destroy()
+	{
+		this.strategy.destroy(this.cluster);
+		this.executor.shutdownNow();
+	}
+	
+	@Test
+	public void install() throws SQLException
+	{
+		MockDatabase database = this.databases.get("1");
+		this.activate(database);
+		
+		this.strategy.init(this.cluster);
+		
+		assertEquals(Arrays.asList(
+				TABLE_EXISTS_SQL,
+				"CREATE TABLE hajdbc_t AS SELECT id FROM t WHERE 1 = 0",
+				"ALTER TABLE hajdbc_t ADD PRIMARY KEY (id)",
+				"ALTER TABLE hajdbc_t ADD hajdbc_epoch BIGINT",
+				TABLE_EXISTS_SQL,
+				triggerExistsSQL("hajdbc_t_insert"),
+				"CREATE TRIGGER hajdbc_t_insert DELETE FROM hajdbc_t WHERE id = NEW.id; INSERT INTO hajdbc_t (id) VALUES (NEW.id); ",
+				triggerExistsSQL("hajdbc_t_insert"),
+				triggerExistsSQL("hajdbc_t_update"),
+				"CREATE TRIGGER hajdbc_t_update DELETE FROM hajdbc_t WHERE id = OLD.id; INSERT INTO hajdbc_t (id) VALUES (OLD.id); DELETE FROM hajdbc_t WHERE id = NEW.id; INSERT INTO hajdbc_t (id) VALUES (NEW.id); ",
+				triggerExistsSQL("hajdbc_t_update"),
+				triggerExistsSQL("hajdbc_t_delete"),
+				"CREATE TRIGGER hajdbc_t_delete DELETE FROM hajdbc_t WHERE id = OLD.id; INSERT INTO hajdbc_t (id) VALUES (OLD.id); ",
+				triggerExistsSQL("hajdbc_t_delete")
+			), this.logs.get(database));
+		
+		assertTrue(this.strategy.isCapturing(database));
+		assertFalse(this.strategy.isUncaptured(database));
+		
+		// Existing change tables and triggers are reused
+		this.strategy.destroy(this.cluster);
+		this.logs.get(database).clear();
+		
+		this.strategy.init(this.cluster);
+		
+		assertEquals(Arrays.asList(TABLE_EXISTS_SQL, triggerExistsSQL("hajdbc_t_insert"), triggerExistsSQL("hajdbc_t_update"), triggerExistsSQL("hajdbc_t_delete")), this.logs.get(database));
+		assertTrue(this.strategy.isCapturing(database));
+	}
+	
+	@Test
+	public void missingTrigger() throws SQLException
+	{
+		MockDatabase active = this.databases.get("1");
+		MockDatabase inactive = this.databases.get("2");
+		this.activate(active);
+		this.exists(active);
+		this.results.get(active).put(triggerExistsSQL("hajdbc_t_update"), Collections.<Object[]>emptyList());
+		
+		this.strategy.init(this.cluster);
+		
+		assertEquals(Arrays.asList(
+				TABLE_EXISTS_SQL,
+				triggerExistsSQL("hajdbc_t_insert"),
+				triggerExistsSQL("hajdbc_t_update"),
+				"CREATE TRIGGER hajdbc_t_update DELETE FROM hajdbc_t WHERE id = OLD.id; INSERT INTO hajdbc_t (id) VALUES (OLD.id); DELETE FROM hajdbc_t WHERE id = NEW.id; INSERT INTO hajdbc_t (id) VALUES (NEW.id); ",
+				triggerExistsSQL("hajdbc_t_update"),
+				triggerExistsSQL("hajdbc_t_delete")
+			), this.logs.get(active));
+		
+		// Updates made before the trigger was created were not captured
+		assertTrue(this.strategy.isCapturing(active));
+		assertTrue(this.strategy.isUncaptured(inactive));
+	}
+	
+	@Test
+	public void installFailure() throws SQLException
+	{
+		MockDatabase database = this.databases.get("1");
+		this.activate(database);
+		this.failures.add("CREATE TRIGGER hajdbc_t_delete DELETE FROM hajdbc_t WHERE id = OLD.id; INSERT INTO hajdbc_t (id) VALUES (OLD.id); ");
+		
+		this.strategy.init(this.cluster);
+		
+		// Objects created prior to the failure are dropped, most recent first
+		List<String> log = this.logs.get(database);
+		assertEquals(Arrays.asList("DROP TRIGGER hajdbc_t_update", "DROP TRIGGER hajdbc_t_insert", "DROP TABLE hajdbc_t"), log.subList(log.size() - 3, log.size()));
+		assertFalse(this.strategy.isCapturing(database));
+		
+		// Objects that are missing despite their creation are not trusted
+		this.failures.clear();
+		this.ignored.add("CREATE TRIGGER hajdbc_t_insert DELETE FROM hajdbc_t WHERE id = NEW.id; INSERT INTO hajdbc_t (id) VALUES (NEW.id); ");
+		log.clear();
+		
+		this.strategy.capture(this.cluster, database);
+		
+		assertEquals(Arrays.asList(triggerExistsSQL("hajdbc_t_insert"), "DROP TRIGGER hajdbc_t_insert", "DROP TABLE hajdbc_t"), log.subList(log.size() - 3, log.size()));
+		assertFalse(this.strategy.isCapturing(database));
+	}
+	
+	@Test
+	public void captureDisabled() throws SQLException
+	{
+		MockDatabase database = this.databases.get("1");
+		this.activate(database);
+		
+		this.strategy.setCaptureEnabled(false);
+		this.strategy.init(this.cluster);
+		
+		assertTrue(this.logs.get(database).isEmpty());
+		assertFalse(this.strategy.isCapturing(database));
+		verify(this.cluster, never()).addListener(any(DatabaseClusterListener.class));
+	}
+	
+	@Test
+	public void triggersNotSupported() throws SQLException
+	{
+		MockDatabase database = this.databases.get("1");
+		this.activate(database);
+		
+		when(this.dialect.getTriggerSupport()).thenReturn(null);
+		
+		this.strategy.init(this.cluster);
+		
+		assertTrue(this.logs.get(database).isEmpty());
+		assertFalse(this.strategy.isCapturing(database));
+		verify(this.cluster, never()).addListener(any(DatabaseClusterListener.class));
+	}
+	
+	@Test
+	public void uncaptured() throws SQLException
+	{
+		MockDatabase active = this.databases.get("1");
+		MockDatabase inactive = this.databases.get("2");
+		this.activate(active);
+		this.exists(inactive);
+		
+		this.strategy.init(this.cluster);
+		
+		// Changes made before the change tables of the active database were created were not captured, so the inactive database requires a differential synchronization
+		assertTrue(this.strategy.isCapturing(active));
+		assertFalse(this.strategy.isUncaptured(active));
+		assertFalse(this.strategy.isCapturing(inactive));
+		assertTrue(this.strategy.isUncaptured(inactive));
+		
+		// Once captured, changes to change tables that already existed are not lost
+		this.strategy.capture(this.cluster, inactive);
+		
+		assertTrue(this.strategy.isCapturing(inactive));
+		assertTrue(this.strategy.isUncaptured(inactive));
+	}
+	
+	@Test
+	public void clear() throws SQLException
+	{
+		MockDatabase db1 = this.databases.get("1");
+		MockDatabase db2 = this.databases.get("2");
+		MockDatabase db3 = this.databases.get("3");
+		for (MockDatabase database: this.databases.values())
+		{
+			this.exists(database);
+		}
+		this.activate(db1);
+		
+		this.strategy.init(this.cluster);
+		this.strategy.capture(this.cluster, db2);
+		this.strategy.capture(this.cluster, db3);
+		this.clearLogs();
+		
+		// The high-water mark of db3 is not yet known, so no changes are cleared
+		this.strategy.mark(this.cluster, this.createContext(db1, db2));
+		
+		long epoch1 = this.stamp(db1);
+		assertEquals(Collections.singletonList(stampSQL(epoch1)), this.logs.get(db1));
+		assertEquals(Collections.singletonList(stampSQL(epoch1)), this.logs.get(db2));
+		assertTrue(this.logs.get(db3).isEmpty());
+		
+		this.activate(db2);
+		this.clearLogs();
+		
+		// Once the last inactive database is synchronized, all changes are cleared
+		this.strategy.mark(this.cluster, this.createContext(db1, db3));
+		
+		long epoch2 = this.stamp(db1);
+		assertTrue(epoch2 > epoch1);
+		for (MockDatabase database: Arrays.asList(db1, db2, db3))
+		{
+			assertEquals(Arrays.asList(stampSQL(epoch2), clearSQL(epoch2)), this.logs.get(database));
+		}
+		
+		this.activate(db3);
+		this.deactivate(db1);
+		this.clearLogs();
+		
+		this.strategy.mark(this.cluster, this.createContext(db3, db2));
+		
+		long epoch3 = this.stamp(db2);
+		assertTrue(epoch3 > epoch2);
+		
+		this.deactivate(db3);
+		this.clearLogs();
+		
+		// Changes are retained since the high-water mark of db1, i.e. the last time it was marked while active
+		this.strategy.mark(this.cluster, this.createContext(db2, db3));
+		
+		long epoch4 = this.stamp(db2);
+		assertTrue(epoch4 > epoch3);
+		assertTrue(this.logs.get(db1).isEmpty());
+		for (MockDatabase database: Arrays.asList(db2, db3))
+		{
+			assertEquals(Arrays.asList(stampSQL(epoch4), clearSQL(epoch2)), this.logs.get(database));
+		}
+	}
+	
+	@Test
+	public void synchronize() throws Exception
+	{
+		MockDatabase source = this.databases.get("1");
+		MockDatabase target = this.databases.get("2");
+		this.exists(source);
+		this.exists(target);
+		this.activate(source);
+		
+		this.strategy.init(this.cluster);
+		this.strategy.capture(this.cluster, target);
+		
+		// High-water mark of the target database is not yet known, so all captured changes are applied
+		this.synchronize(source, target, "SELECT id FROM hajdbc_t c", "SELECT t.id, t.value FROM t t INNER JOIN hajdbc_t c ON t.id = c.id", "SELECT id FROM hajdbc_t c WHERE c.hajdbc_epoch IS NOT NULL");
+		
+		this.clearLogs();
+		this.strategy.mark(this.cluster, this.createContext(source, target));
+		
+		long mark = this.stamp(target);
+		
+		this.synchronize(source, target, String.format("SELECT id FROM hajdbc_t c WHERE (c.hajdbc_epoch IS NULL) OR (c.hajdbc_epoch > %d)", mark), String.format("SELECT t.id, t.value FROM t t INNER JOIN hajdbc_t c ON t.id = c.id WHERE (c.hajdbc_epoch IS NULL) OR (c.hajdbc_epoch > %d)", mark), String.format("SELECT id FROM hajdbc_t c WHERE c.hajdbc_epoch > %d", mark));
+	}
+	
+	@Test
+	public void inherit() throws Exception
+	{
+		MockDatabase source = this.databases.get("1");
+		MockDatabase target = this.databases.get("2");
+		MockDatabase other = this.databases.get("3");
+		for (MockDatabase database: this.databases.values())
+		{
+			this.exists(database);
+		}
+		this.activate(source);
+		
+		this.strategy.init(this.cluster);
+		this.strategy.capture(this.cluster, target);
+		this.strategy.capture(this.cluster, other);
+		this.clearLogs();
+		
+		this.strategy.mark(this.cluster, this.createContext(source, target));
+		
+		long mark = this.stamp(source);
+		
+		// A database synchronized by another strategy inherits the high-water mark of the active databases, without stamping any changes
+		this.activate(target);
+		this.clearLogs();
+		this.strategy.inherit(this.cluster, other.getId());
+		
+		for (List<String> log: this.logs.values())
+		{
+			assertTrue(log.isEmpty());
+		}
+		
+		this.synchronize(source, other, String.format("SELECT id FROM hajdbc_t c WHERE (c.hajdbc_epoch IS NULL) OR (c.hajdbc_epoch > %d)", mark), String.format("SELECT t.id, t.value FROM t t INNER JOIN hajdbc_t c ON t.id = c.id WHERE (c.hajdbc_epoch IS NULL) OR (c.hajdbc_epoch > %d)", mark), String.format("SELECT id FROM hajdbc_t c WHERE c.hajdbc_epoch > %d", mark));
+	}
+	
+	private void synchronize(MockDatabase source, MockDatabase target, String selectSourceChangesSQL, String selectChangedRowsSQL, String selectTargetChangesSQL) throws Exception
+	{
+		Connection sourceConnection = source.connect(null);
+		Connection targetConnection = target.connect(null);
+		
+		this.clearLogs();
+		
+		// Key 1 changed on the source database, key 2 changed on the target database prior to its deactivation, and key 3 changed on both
+		Map<String, List<Object[]>> sourceResults = this.results.get(source);
+		sourceResults.put(selectSourceChangesSQL, Arrays.asList(new Object[] { 1 }, new Object[] { 3 }));
+		sourceResults.put(selectChangedRowsSQL, Arrays.asList(new Object[] { 1, "one" }, new Object[] { 3, "three" }));
+		sourceResults.put("SELECT id, value FROM t WHERE id = ?", Arrays.asList(new Object[] { 2, "two" }, new Object[] { 3, "three" }));
+		this.results.get(target).put(selectTargetChangesSQL, Arrays.asList(new Object[] { 2 }, new Object[] { 3 }));
+		
+		this.strategy.synchronize(this.createContext(source, target), this.table);
+		
+		List<String> targetLog = this.logs.get(target);
+		assertTrue(targetLog.toString(), STAMP_PATTERN.matcher(targetLog.get(0)).matches());
+		assertEquals(Arrays.asList(selectTargetChangesSQL, selectSourceChangesSQL, selectChangedRowsSQL), getQueries(targetLog, this.logs.get(source)));
+		
+		// Every changed key is deleted, and re-inserted if it still exists on the source database
+		PreparedStatement deleteStatement = this.getStatement(targetConnection, "DELETE FROM t WHERE id = ?");
+		PreparedStatement insertStatement = this.getStatement(targetConnection, "INSERT INTO t (id, value) VALUES (?, ?)");
+		verify(deleteStatement).setObject(1, 2, 0);
+		verify(deleteStatement, times(2)).setObject(1, 3, 0);
+		verify(deleteStatement).setObject(1, 1, 0);
+		verify(deleteStatement, times(4)).addBatch();
+		verify(insertStatement, times(4)).addBatch();
+		verify(insertStatement).setObject(2, "two", 0);
+		verify(insertStatement).setObject(2, "one", 0);
+		verify(insertStatement, times(2)).setObject(2, "three", 0);
+	}
+	
+	@Test
+	public void replayConcurrentWrites() throws Exception
+	{
+		final Store source = new Store("1");
+		final Store target = new Store("2");
+		final ReadWriteLock lock = new ReentrantReadWriteLock();
+		this.databases.put("1", source.database);
+		this.databases.put("2", target.database);
+		this.activate(source.database);
+		
+		for (int id = 1; id <= 100; ++id)
+		{
+			source.rows.put(id, "initial");
+			target.rows.put(id, "stale");
+		}
+		for (int id = 101; id <= 110; ++id)
+		{
+			target.rows.put(id, "stale");
+		}
+		// Changes already applied to the target database, and changes not yet stamped
+		for (int id = 51; id <= 60; ++id)
+		{
+			source.changes.put(id, 1L);
+			source.changes.put(id + 10, null);
+		}
+		// Changes applied to the target database prior to its deactivation
+		for (int id = 71; id <= 75; ++id)
+		{
+			target.changes.put(id, null);
+		}
+		
+		this.strategy.init(this.cluster);
+		this.strategy.capture(this.cluster, target.database);
+		
+		SynchronizationContext<Void, MockDatabase> context = this.createContext(source.database, target.database);
+		
+		lock.writeLock().lock();
+		try
+		{
+			this.strategy.begin(context);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+		
+		final AtomicInteger writes = new AtomicInteger();
+		final AtomicBoolean stopped = new AtomicBoolean(false);
+		
+		// Writes to the keys 1-50 of the active database, while the target database is copied
+		Callable<Void> writer = new Callable<Void>()
+		{
+			@Override
+			public Void call() throws InterruptedException
+			{
+				Random random = new Random();
+				
+				while (!stopped.get())
+				{
+					lock.readLock().lock();
+					try
+					{
+						// Once activated, writes would also apply to the target database
+						if (!stopped.get())
+						{
+							int id = random.nextInt(50) + 1;
+							source.write(id, (random.nextInt(3) > 0) ? String.valueOf(writes.incrementAndGet()) : null);
+						}
+					}
+					finally
+					{
+						lock.readLock().unlock();
+					}
+					Thread.sleep(0, 100000);
+				}
+				return null;
+			}
+		};
+		
+		Future<Void> future = this.executor.submit(writer);
+		
+		try
+		{
+			// Copy row by row, like a full synchronization
+			target.truncate();
+			
+			int count = writes.get();
+			
+			for (int id = 1; id <= 100; ++id)
+			{
+				String value = source.read(id);
+				if (value != null)
+				{
+					target.write(id, value);
+				}
+				Thread.sleep(1);
+			}
+			
+			assertTrue(writes.get() > count);
+			
+			target.deleted.clear();
+			
+			lock.writeLock().lock();
+			try
+			{
+				this.strategy.replay(context);
+				
+				stopped.set(true);
+			}
+			finally
+			{
+				lock.writeLock().unlock();
+			}
+		}
+		finally
+		{
+			stopped.set(true);
+			future.get();
+		}
+		
+		assertEquals(source.rows, target.rows);
+		
+		// Changes captured prior to the copy are not replayed
+		for (Integer id: target.deleted)
+		{
+			assertTrue(target.deleted.toString(), id <= 50);
+		}
+		
+		// The target database retains the changes captured on the source database, which inactive database 3 requires
+		assertEquals(source.changes, target.changes);
+		assertTrue(source.changes.containsKey(51));
+		assertFalse(target.changes.containsValue(null));
+	}
+	
+	private static List<String> getQueries(List<String> targetLog, List<String> sourceLog)
+	{
+		List<String> queries = new ArrayList<>();
+		for (String sql: targetLog)
+		{
+			if (sql.startsWith("SELECT")) queries.add(sql);
+		}
+		for (String sql: sourceLog)
+		{
+			if (sql.startsWith("SELECT") && !sql.endsWith("?")) queries.add(sql);
+		}
+		return queries;
+	}
+	
+	private PreparedStatement getStatement(Connection connection, String sql)
+	{
+		PreparedStatement statement = this.statements.get(connection).get(sql);
+		assertNotNull(sql, statement);
+		return statement;
+	}
+	
+	private static String stampSQL(long epoch)
+	{
+		return String.format("UPDATE hajdbc_t SET hajdbc_epoch = %d WHERE hajdbc_epoch IS NULL", epoch);
+	}
+	
+	private static String clearSQL(long epoch)
+	{
+		return String.format("DELETE FROM hajdbc_t WHERE hajdbc_epoch <= %d", epoch);
+	}
+	
+	private long stamp(MockDatabase database)
+	{
+		for (String sql: this.logs.get(database))
+		{
+			Matcher matcher = STAMP_PATTERN.matcher(sql);
+			if (matcher.matches())
+			{
+				return Long.parseLong(matcher.group(1));
+			}
+		}
+		fail(this.logs.get(database).toString());
+		return 0;
+	}
+	
+	private void activate(MockDatabase database)
+	{
+		this.balancer.add(database);
+	}
+	
+	private void deactivate(MockDatabase database)
+	{
+		this.balancer.remove(database);
+	}
+	
+	private static String triggerExistsSQL(String name)
+	{
+		return String.format("SELECT 1 FROM triggers WHERE name = '%s'", name);
+	}
+	
+	private void exists(MockDatabase database)
+	{
+		Map<String, List<Object[]>> results = this.results.get(database);
+		results.put(TABLE_EXISTS_SQL, Collections.<Object[]>emptyList());
+		for (TriggerEventEnum event: TriggerEventEnum.values())
+		{
+			results.put(triggerExistsSQL("hajdbc_t_" + event.name().toLowerCase()), Collections.singletonList(new Object[] { 1 }));
+		}
+	}
+	
+	private SynchronizationContext<Void, MockDatabase> createContext(MockDatabase source, MockDatabase target) throws SQLException
+	{
+		SynchronizationSupport support = mock(SynchronizationSupport.class);
+		when(support.getObject(any(ResultSet.class), anyInt(), anyInt())).thenAnswer(new Answer<Object>()
+		{
+			@Override
+			public Object answer(InvocationOnMock invocation) throws SQLException
+			{
+				Object[] arguments = invocation.getArguments();
+				return ((ResultSet) arguments[0]).getObject((Integer) arguments[1]);
+			}
+		});
+		@SuppressWarnings("unchecked")
+		SynchronizationContext<Void, MockDatabase> context = mock(SynchronizationContext.class);
+		when(context.getSourceDatabase()).thenReturn(source);
+		when(context.getTargetDatabase()).thenReturn(target);
+		when(context.getActiveDatabaseSet()).thenReturn(this.balancer);
+		when(context.getSourceDatabaseProperties()).thenReturn(this.properties);
+		when(context.getDialect()).thenReturn(this.dialect);
+		when(context.getSynchronizationSupport()).thenReturn(support);
+		when(context.getExecutor()).thenReturn(this.executor);
+		for (MockDatabase database: this.databases.values())
+		{
+			when(context.getConnection(database)).thenReturn(database.connect(null));
+		}
+		return context;
+	}
+	
+	private void clearLogs()
+	{
+		for (List<String> log: this.logs.values())
+		{
+			log.clear();
+		}
+	}
+	
+	private MockDatabase createDatabase(String id) throws SQLException
+	{
+		final List<String> log = new CopyOnWriteArrayList<>();
+		final Map<String, List<Object[]>> results = new HashMap<>();
+		for (TriggerEventEnum event: TriggerEventEnum.values())
+		{
+			results.put(triggerExistsSQL("hajdbc_t_" + event.name().toLowerCase()), Collections.<Object[]>emptyList());
+		}
+		final Map<String, PreparedStatement> statements = new HashMap<>();
+		final Connection connection = mock(Connection.class);
+		DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+		
+		when(connection.getMetaData()).thenReturn(metaData);
+		when(metaData.getIdentifierQuoteString()).thenReturn("\"");
+		when(connection.createStatement()).thenAnswer(new Answer<Statement>()
+		{
+			@Override
+			public Statement answer(InvocationOnMock invocation) throws SQLException
+			{
+				Statement statement = mock(Statement.class);
+				when(statement.execute(anyString())).thenAnswer(new Answer<Boolean>()
+				{
+					@Override
+					public Boolean answer(InvocationOnMock invocation) throws SQLException
+					{
+						String sql = (String) invocation.getArguments()[0];
+						log.add(sql);
+						if (FastDifferentialSynchronizationStrategyTest.this.failures.contains(sql))
+						{
+							throw new SQLException(sql);
+						}
+						if (!FastDifferentialSynchronizationStrategyTest.this.ignored.contains(sql))
+						{
+							String[] words = sql.split(" ");
+							// Track the change tables and triggers created and dropped
+							if (sql.startsWith("CREATE TABLE hajdbc_t "))
+							{
+								results.put(TABLE_EXISTS_SQL, Collections.<Object[]>emptyList());
+							}
+							else if (sql.equals("DROP TABLE hajdbc_t"))
+							{
+								results.remove(TABLE_EXISTS_SQL);
+							}
+							else if (sql.startsWith("CREATE TRIGGER "))
+							{
+								results.put(triggerExistsSQL(words[2]), Collections.singletonList(new Object[] { 1 }));
+							}
+							else if (sql.startsWith("DROP TRIGGER "))
+							{
+								results.put(triggerExistsSQL(words[2]), Collections.<Object[]>emptyList());
+							}
+						}
+						return false;
+					}
+				});
+				when(statement.executeQuery(anyString())).thenAnswer(new Answer<ResultSet>()
+				{
+					@Override
+					public ResultSet answer(InvocationOnMock invocation) throws SQLException
+					{
+						String sql = (String) invocation.getArguments()[0];
+						log.add(sql);
+						return createResultSet(results, sql);
+					}
+				});
+				return statement;
+			}
+		});
+		when(connection.prepareStatement(anyString())).thenAnswer(new Answer<PreparedStatement>()
+		{
+			@Override
+			public PreparedStatement answer(InvocationOnMock invocation) throws SQLException
+			{
+				final String sql = (String) invocation.getArguments()[0];
+				log.add(sql);
+				final PreparedStatement statement = mock(PreparedStatement.class);
+				final Object[] key = new Object[1];
+				doAnswer(new Answer<Void>()
+				{
+					@Override
+					public Void answer(InvocationOnMock invocation)
+					{
+						key[0] = invocation.getArguments()[1];
+						return null;
+					}
+				}).when(statement).setObject(eq(1), any(), anyInt());
+				// Queries by key only return the row with that key
+				when(statement.executeQuery()).thenAnswer(new Answer<ResultSet>()
+				{
+					@Override
+					public ResultSet answer(InvocationOnMock invocation) throws SQLException
+					{
+						List<Object[]> rows = new ArrayList<>();
+						for (Object[] row: results.get(sql))
+						{
+							if (row[0].equals(key[0]))
+							{
+								rows.add(row);
+							}
+						}
+						return createResultSet(Collections.singletonMap(sql, rows), sql);
+					}
+				});
+				when(statement.executeBatch()).thenReturn(new int[0]);
+				statements.put(sql, statement);
+				return statement;
+			}
+		});
+		
+		MockDatabase database = new MockDatabase(id)
+		{
+			@Override
+			public Connection connect(Decoder decoder)
+			{
+				return connection;
+			}
+		};
+		this.logs.put(database, log);
+		this.results.put(database, results);
+		this.statements.put(connection, statements);
+		return database;
+	}
+	
+	/**
+	 * An in-memory database containing table t and its change table, which interprets the SQL of the strategy.
+	 */
+	static class Store
+	{
+		private static final Pattern PURGE = Pattern.compile("DELETE FROM hajdbc_t WHERE hajdbc_epoch <= (\\d+)");
+		private static final Pattern SELECT_CHANGES = Pattern.compile("SELECT (id|t\\.id, t\\.value) FROM (?:hajdbc_t c|t t INNER JOIN hajdbc_t c ON t\\.id = c\\.id)(?: WHERE \\(c\\.hajdbc_epoch IS NULL\\) OR \\(c\\.hajdbc_epoch > (\\d+)\\))?");
+		
+		final Map<Integer, String> rows = new TreeMap<>();
+		// Epoch of each captured change, or null if not yet stamped
+		final Map<Integer, Long> changes = new TreeMap<>();
+		// Keys deleted from table t
+		final List<Integer> deleted = new ArrayList<>();
+		final MockDatabase database;
+		
+		Store(String id)
+		{
+			this.database = new MockDatabase(id)
+			{
+				@Override
+				public Connection connect(Decoder decoder) throws SQLException
+				{
+					return Store.this.createConnection();
+				}
+			};
+		}
+		
+		synchronized String read(int id)
+		{
+			return this.rows.get(id);
+		}
+		
+		/**
+		 * Inserts, updates, or deletes (if the value is null) the row with the specified key, capturing the change.
+		 */
+		synchronized void write(int id, String value)
+		{
+			if (value != null)
+			{
+				this.rows.put(id, value);
+			}
+			else if (this.rows.remove(id) != null)
+			{
+				this.deleted.add(id);
+			}
+			this.changes.put(id, null);
+		}
+		
+		synchronized void truncate()
+		{
+			for (Integer id: new ArrayList<>(this.rows.keySet()))
+			{
+				this.write(id, null);
+			}
+		}
+		
+		synchronized void execute(String sql)
+		{
+			Matcher matcher = STAMP_PATTERN.matcher(sql);
+			if (matcher.matches())
+			{
+				for (Map.Entry<Integer, Long> entry: this.changes.entrySet())
+				{
+					if (entry.getValue() == null)
+					{
+						entry.setValue(Long.valueOf(matcher.group(1)));
+					}
+				}
+				return;
+			}
+			matcher = PURGE.matcher(sql);
+			if (matcher.matches())
+			{
+				Iterator<Long> epochs = this.changes.values().iterator();
+				while (epochs.hasNext())
+				{
+					Long epoch = epochs.next();
+					if ((epoch != null) && (epoch <= Long.parseLong(matcher.group(1))))
+					{
+						epochs.remove();
+					}
+				}
+				return;
+			}
+			assertEquals("DELETE FROM hajdbc_t", sql);
+			this.changes.clear();
+		}
+		
+		synchronized List<Object[]> query(String sql)
+		{
+			List<Object[]> result = new ArrayList<>();
+			// Change capture is already installed
+			if (sql.equals("SELECT 1 FROM hajdbc_t WHERE 1 = 0")) return result;
+			if (sql.startsWith("SELECT 1 FROM triggers"))
+			{
+				result.add(new Object[] { 1 });
+				return result;
+			}
+			if (sql.equals("SELECT id, hajdbc_epoch FROM hajdbc_t"))
+			{
+				for (Map.Entry<Integer, Long> entry: this.changes.entrySet())
+				{
+					result.add(new Object[] { entry.getKey(), entry.getValue() });
+				}
+				return result;
+			}
+			Matcher matcher = SELECT_CHANGES.matcher(sql);
+			assertTrue(sql, matcher.matches());
+			boolean join = !matcher.group(1).equals("id");
+			Long mark = (matcher.group(2) != null) ? Long.valueOf(matcher.group(2)) : null;
+			for (Map.Entry<Integer, Long> entry: this.changes.entrySet())
+			{
+				Integer id = entry.getKey();
+				Long epoch = entry.getValue();
+				if ((mark != null) && (epoch != null) && (epoch <= mark)) continue;
+				if (!join)
+				{
+					result.add(new Object[] { id });
+				}
+				else if (this.rows.containsKey(id))
+				{
+					result.add(new Object[] { id, this.rows.get(id) });
+				}
+			}
+			return result;
+		}
+		
+		synchronized void update(String sql, Object[] parameters)
+		{
+			if (sql.equals("DELETE FROM t WHERE id = ?"))
+			{
+				this.write((Integer) parameters[0], null);
+			}
+			else if (sql.equals("INSERT INTO t (id, value) VALUES (?, ?)"))
+			{
+				this.write((Integer) parameters[0], (String) parameters[1]);
+			}
+			else
+			{
+				assertEquals("INSERT INTO hajdbc_t (id, hajdbc_epoch) VALUES (?, ?)", sql);
+				this.changes.put((Integer) parameters[0], (Long) parameters[1]);
+			}
+		}
+		
+		Connection createConnection() throws SQLException
+		{
+			Connection connection = mock(Connection.class);
+			DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+			
+			when(connection.getMetaData()).thenReturn(metaData);
+			when(metaData.getIdentifierQuoteString()).thenReturn("\"");
+			when(connection.createStatement()).thenAnswer(new Answer<Statement>()
+			{
+				@Override
+				public Statement answer(InvocationOnMock invocation) throws SQLException
+				{
+					Statement statement = mock(Statement.class);
+					when(statement.execute(anyString())).thenAnswer(new Answer<Boolean>()
+					{
+						@Override
+						public Boolean answer(InvocationOnMock invocation)
+						{
+							Store.this.execute((String) invocation.getArguments()[0]);
+							return false;
+						}
+					});
+					when(statement.executeQuery(anyString())).thenAnswer(new Answer<ResultSet>()
+					{
+						@Override
+						public ResultSet answer(InvocationOnMock invocation) throws SQLException
+						{
+							String sql = (String) invocation.getArguments()[0];
+							return createResultSet(Collections.singletonMap(sql, Store.this.query(sql)), sql);
+						}
+					});
+					return statement;
+				}
+			});
+			when(connection.prepareStatement(anyString())).thenAnswer(new Answer<PreparedStatement>()
+			{
+				@Override
+				public PreparedStatement answer(InvocationOnMock invocation) throws SQLException
+				{
+					final String sql = (String) invocation.getArguments()[0];
+					final Object[] parameters = new Object[2];
+					final List<Object[]> batch = new ArrayList<>();
+					PreparedStatement statement = mock(PreparedStatement.class);
+					
+					doAnswer(new Answer<Void>()
+					{
+						@Override
+						public Void answer(InvocationOnMock invocation)
+						{
+							Object[] arguments = invocation.getArguments();
+							parameters[(Integer) arguments[0] - 1] = arguments[1];
+							return null;
+						}
+					}).when(statement).setObject(anyInt(), any(), anyInt());
+					doAnswer(new Answer<Void>()
+					{
+						@Override
+						public Void answer(InvocationOnMock invocation)
+						{
+							parameters[(Integer) invocation.getArguments()[0] - 1] = null;
+							return null;
+						}
+					}).when(statement).setNull(anyInt(), anyInt());
+					doAnswer(new Answer<Void>()
+					{
+						@Override
+						public Void answer(InvocationOnMock invocation)
+						{
+							batch.add(parameters.clone());
+							return null;
+						}
+					}).when(statement).addBatch();
+					when(statement.executeBatch()).thenAnswer(new Answer<int[]>()
+					{
+						@Override
+						public int[] answer(InvocationOnMock invocation)
+						{
+							for (Object[] row: batch)
+							{
+								Store.this.update(sql, row);
+							}
+							int[] counts = new int[batch.size()];
+							batch.clear();
+							return counts;
+						}
+					});
+					return statement;
+				}
+			});
+			return connection;
+		}
+	}
+	
+	static ResultSet createResultSet(Map<String, List<Object[]>> results, String sql) throws SQLException
+	{
+		List<Object[]> rows = results.get(sql);
+		
+		if (rows == null)
+		{
+			throw new SQLException(sql);
+		}
+		
+		final Iterator<Object[]> iterator = rows.iterator();
+		final Object[][] row = new Object[1][];
+		ResultSet resultSet = mock(ResultSet.class);
+		
+		when(resultSet.next()).thenAnswer(new Answer<Boolean>()
+		{
+			@Override
+			public Boolean answer(InvocationOnMock invocation)
+			{
+				boolean next = iterator.hasNext();
+				row[0] = next ? iterator.next() : null;
+				return next;
+			}
+		});
+		when(resultSet.getObject(anyInt())).thenAnswer(new Answer<Object>()
+		{
+			@Override
+			public Object answer(InvocationOnMock invocation)
+			{
+				return row[0][(Integer) invocation.getArguments()[0] - 1];
+			}
+		});
+		
+		return resultSet;
+	}
+}
@@ -0,0 +1,284 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.sync;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import net.sf.hajdbc.ColumnProperties;
+import net.sf.hajdbc.DatabaseProperties;
+import net.sf.hajdbc.MockDatabase;
+import net.sf.hajdbc.QualifiedName;
+import net.sf.hajdbc.TableProperties;
+import net.sf.hajdbc.UniqueConstraint;
+import net.sf.hajdbc.codec.Decoder;
+import net.sf.hajdbc.dialect.Dialect;
+
+/**
+ * @author Paul Ferraro
+ */
+public class FullSynchronizationStrategyTest
+{
+	private static final String SELECT_SQL = "SELECT id FROM test";
+	private static final String MIN_MAX_SQL = "SELECT MIN(id), MAX(id) FROM test";
+	private static final String SELECT_RANGE_SQL = "SELECT id FROM test WHERE id >= ? AND id <= ?";
+	private static final String DELETE_SQL = "DELETE FROM test";
+	private static final String INSERT_SQL = "INSERT INTO test (id) VALUES (?)";
+	
+	private final FullSynchronizationStrategy strategy = new FullSynchronizationStrategy();
+	@SuppressWarnings("unchecked")
+	private final SynchronizationContext<Void, MockDatabase> context = mock(SynchronizationContext.class);
+	private final Dialect dialect = mock(Dialect.class);
+	private final TableProperties table = mock(TableProperties.class);
+	private final ColumnProperties column = mock(ColumnProperties.class);
+	private final Connection sourceConnection = mock(Connection.class);
+	private final Connection targetConnection = mock(Connection.class);
+	private final Statement sourceStatement = mock(Statement.class);
+	private final Statement targetStatement = mock(Statement.class);
+	private final ResultSet resultSet = mock(ResultSet.class);
+	private final ResultSet minMaxResultSet = mock(ResultSet.class);
+	private final PreparedStatement insertStatement = mock(PreparedStatement.class);
+	private final SynchronizationSupport support = mock(SynchronizationSupport.class);
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final AtomicInteger threads = new AtomicInteger();
+	// Key range bounds of the select statements of each range task
+	private final List<Long> bounds = Collections.synchronizedList(new ArrayList<Long>());
+	
+	@Before
+	public void init() throws SQLException
+	{
+		MockDatabase source = this.createDatabase("source");
+		MockDatabase target = this.createDatabase("target");
+		QualifiedName name = mock(QualifiedName.class);
+		UniqueConstraint primaryKey = mock(UniqueConstraint.class);
+		final ThreadFactory threadFactory = Executors.defaultThreadFactory();
+		
+		when(this.context.getSourceDatabase()).thenReturn(source);
+		when(this.context.getTargetDatabase()).thenReturn(target);
+		when(this.context.getConnection(source)).thenReturn(this.sourceConnection);
+		when(this.context.getConnection(target)).thenReturn(this.targetConnection);
+		when(this.context.getDialect()).thenReturn(this.dialect);
+		when(this.context.getExecutor()).thenReturn(this.executor);
+		when(this.context.getThreadFactory()).thenReturn(new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable task)
+			{
+				FullSynchronizationStrategyTest.this.threads.incrementAndGet();
+				return threadFactory.newThread(task);
+			}
+		});
+		when(this.table.getName()).thenReturn(name);
+		when(name.getDMLName()).thenReturn("test");
+		when(this.table.getColumns()).thenReturn(Arrays.asList("id"));
+		when(this.table.getColumnProperties("id")).thenReturn(this.column);
+		when(this.table.getPrimaryKey()).thenReturn(primaryKey);
+		when(primaryKey.getColumnList()).thenReturn(Arrays.asList("id"));
+		when(this.dialect.getTruncateTableSQL(this.table)).thenReturn(DELETE_SQL);
+		when(this.dialect.getColumnType(this.column)).thenReturn(Types.INTEGER);
+		
+		when(this.sourceConnection.createStatement()).thenReturn(this.sourceStatement);
+		when(this.sourceStatement.executeQuery(SELECT_SQL)).thenReturn(this.resultSet);
+		when(this.sourceStatement.executeQuery(MIN_MAX_SQL)).thenReturn(this.minMaxResultSet);
+		when(this.minMaxResultSet.next()).thenReturn(true);
+		when(this.targetConnection.createStatement()).thenReturn(this.targetStatement);
+		when(this.targetConnection.prepareStatement(INSERT_SQL)).thenReturn(this.insertStatement);
+	}
+	
+	@After
+	public void destroy()
+	{
+		this.executor.shutdownNow();
+	}
+	
+	@Test
+	public void partition() throws SQLException
+	{
+		this.strategy.setPartitions(2);
+		
+		when(this.minMaxResultSet.getLong(1)).thenReturn(1L);
+		when(this.minMaxResultSet.getLong(2)).thenReturn(10L);
+		
+		this.strategy.synchronize(this.context, this.table);
+		
+		// Each range is copied using its own connections
+		Collections.sort(this.bounds);
+		assertEquals(Arrays.asList(1L, 5L, 6L, 10L), this.bounds);
+		
+		// Range tasks run on threads of the cluster
+		assertTrue(this.threads.get() > 0);
+		
+		verify(this.targetStatement).executeUpdate(DELETE_SQL);
+		verify(this.targetConnection).commit();
+		verify(this.sourceStatement, never()).executeQuery(SELECT_SQL);
+	}
+	
+	@Test
+	public void partitionSingleRow() throws SQLException
+	{
+		this.strategy.setPartitions(2);
+		
+		when(this.minMaxResultSet.getLong(1)).thenReturn(5L);
+		when(this.minMaxResultSet.getLong(2)).thenReturn(5L);
+		
+		this.strategy.synchronize(this.context, this.table);
+		
+		this.verifyNotPartitioned();
+	}
+	
+	@Test
+	public void partitionEmpty() throws SQLException
+	{
+		this.strategy.setPartitions(2);
+		
+		when(this.minMaxResultSet.getLong(1)).thenReturn(0L);
+		when(this.minMaxResultSet.getLong(2)).thenReturn(0L);
+		when(this.minMaxResultSet.wasNull()).thenReturn(true);
+		
+		this.strategy.synchronize(this.context, this.table);
+		
+		this.verifyNotPartitioned();
+	}
+	
+	@Test
+	public void partitionNonNumericKey() throws SQLException
+	{
+		this.strategy.setPartitions(2);
+		
+		when(this.dialect.getColumnType(this.column)).thenReturn(Types.VARCHAR);
+		
+		this.strategy.synchronize(this.context, this.table);
+		
+		verify(this.sourceStatement, never()).executeQuery(MIN_MAX_SQL);
+		this.verifyNotPartitioned();
+	}
+	
+	@Test
+	public void synchronizeTargets() throws SQLException
+	{
+		@SuppressWarnings("unchecked")
+		SynchronizationContext<Void, MockDatabase> otherContext = mock(SynchronizationContext.class);
+		SynchronizationSupport otherSupport = mock(SynchronizationSupport.class);
+		MockDatabase other = new MockDatabase("other");
+		Connection otherConnection = mock(Connection.class);
+		Statement otherStatement = mock(Statement.class);
+		PreparedStatement otherInsertStatement = mock(PreparedStatement.class);
+		DatabaseProperties properties = mock(DatabaseProperties.class);
+		
+		MockDatabase source = this.context.getSourceDatabase();
+		
+		when(otherContext.getSourceDatabase()).thenReturn(source);
+		when(otherContext.getTargetDatabase()).thenReturn(other);
+		when(otherContext.getConnection(other)).thenReturn(otherConnection);
+		when(otherContext.getSynchronizationSupport()).thenReturn(otherSupport);
+		when(otherConnection.createStatement()).thenReturn(otherStatement);
+		when(otherConnection.prepareStatement(INSERT_SQL)).thenReturn(otherInsertStatement);
+		when(this.context.getSourceDatabaseProperties()).thenReturn(properties);
+		when(this.context.getSynchronizationSupport()).thenReturn(this.support);
+		when(properties.getTables()).thenReturn(Arrays.asList(this.table));
+		when(this.resultSet.next()).thenReturn(true, true, true, false);
+		when(this.resultSet.getInt(1)).thenReturn(1, 2, 3);
+		
+		this.strategy.synchronize(Arrays.asList(this.context, otherContext));
+		
+		// The source table is read once
+		verify(this.sourceStatement).executeQuery(SELECT_SQL);
+		verify(otherContext, never()).getConnection(source);
+		
+		// Writes to the other target run on threads of the cluster
+		assertTrue(this.threads.get() > 0);
+		
+		verify(this.targetStatement).executeUpdate(DELETE_SQL);
+		verify(otherStatement).executeUpdate(DELETE_SQL);
+		
+		for (PreparedStatement statement: Arrays.asList(this.insertStatement, otherInsertStatement))
+		{
+			verify(statement).setInt(1, 1);
+			verify(statement).setInt(1, 2);
+			verify(statement).setInt(1, 3);
+			verify(statement).executeBatch();
+		}
+		
+		verify(this.targetConnection).commit();
+		verify(otherConnection).commit();
+		
+		for (SynchronizationSupport support: Arrays.asList(this.support, otherSupport))
+		{
+			verify(support).dropForeignKeys();
+			verify(support).restoreForeignKeys();
+			verify(support).synchronizeSequences();
+		}
+	}
+	
+	private void verifyNotPartitioned() throws SQLException
+	{
+		verify(this.sourceStatement).executeQuery(SELECT_SQL);
+		verify(this.targetStatement).executeUpdate(DELETE_SQL);
+		verify(this.targetConnection).prepareStatement(INSERT_SQL);
+		assertTrue(this.bounds.isEmpty());
+		assertEquals(0, this.threads.get());
+	}
+	
+	private MockDatabase createDatabase(String id)
+	{
+		return new MockDatabase(id)
+		{
+			@Override
+			public Connection connect(Decoder decoder) throws SQLException
+			{
+				Connection connection = mock(Connection.class);
+				PreparedStatement selectStatement = mock(PreparedStatement.class);
+				
+				doAnswer(new Answer<Void>()
+				{
+					@Override
+					public Void answer(InvocationOnMock invocation)
+					{
+						FullSynchronizationStrategyTest.this.bounds.add((Long) invocation.getArguments()[1]);
+						return null;
+					}
+				}).when(selectStatement).setLong(anyInt(), anyLong());
+				when(selectStatement.executeQuery()).thenReturn(mock(ResultSet.class));
+				when(connection.prepareStatement(SELECT_RANGE_SQL)).thenReturn(selectStatement);
+				when(connection.prepareStatement(INSERT_SQL)).thenReturn(mock(PreparedStatement.class));
+				return connection;
+			}
+		};
+	}
+}
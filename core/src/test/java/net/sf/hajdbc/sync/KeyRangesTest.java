@@ -0,0 +1,63 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.sync;
+
+import static org.junit.Assert.*;
+
+import java.sql.Types;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Paul Ferraro
+ */
+public class KeyRangesTest
+{
+	@Test
+	public void isSplittable()
+	{
+		assertTrue(KeyRanges.isSplittable(Types.INTEGER));
+		assertTrue(KeyRanges.isSplittable(Types.BIGINT));
+		assertFalse(KeyRanges.isSplittable(Types.VARCHAR));
+		assertFalse(KeyRanges.isSplittable(Types.DECIMAL));
+	}
+	
+	@Test
+	public void split()
+	{
+		List<long[]> ranges = KeyRanges.split(1, 10, 3);
+		
+		assertEquals(3, ranges.size());
+		assertArrayEquals(new long[] { 1, 4 }, ranges.get(0));
+		assertArrayEquals(new long[] { 5, 8 }, ranges.get(1));
+		assertArrayEquals(new long[] { 9, 10 }, ranges.get(2));
+		
+		ranges = KeyRanges.split(5, 6, 16);
+		
+		assertEquals(2, ranges.size());
+		assertArrayEquals(new long[] { 5, 5 }, ranges.get(0));
+		assertArrayEquals(new long[] { 6, 6 }, ranges.get(1));
+		
+		ranges = KeyRanges.split(Long.MIN_VALUE, Long.MAX_VALUE, 2);
+		
+		assertEquals(2, ranges.size());
+		assertArrayEquals(new long[] { Long.MIN_VALUE, -1 }, ranges.get(0));
+		assertArrayEquals(new long[] { 0, Long.MAX_VALUE }, ranges.get(1));
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.sync;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import net.sf.hajdbc.DatabaseProperties;
+import net.sf.hajdbc.MockDatabase;
+import net.sf.hajdbc.QualifiedName;
+import net.sf.hajdbc.TableProperties;
+import net.sf.hajdbc.codec.Decoder;
+import net.sf.hajdbc.state.simple.SimpleStateManager;
+
+/**
+ * @author Paul Ferraro
+ */
+public class PerTableSynchronizationStrategyTest
+{
+	private final TableSynchronizationStrategy tableStrategy = mock(TableSynchronizationStrategy.class);
+	private final PerTableSynchronizationStrategy strategy = new PerTableSynchronizationStrategy(this.tableStrategy);
+	@SuppressWarnings("unchecked")
+	private final SynchronizationContext<Void, MockDatabase> context = mock(SynchronizationContext.class);
+	private final SynchronizationSupport support = mock(SynchronizationSupport.class);
+	private final SynchronizationProgress progress = new SynchronizationProgress(new SimpleStateManager(), "target");
+	private final DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+	private final Connection sourceConnection = mock(Connection.class);
+	private final Connection targetConnection = mock(Connection.class);
+	// Connections of concurrent tasks
+	private final List<Connection> connections = Collections.synchronizedList(new ArrayList<Connection>());
+	private final TableProperties small = createTable("small");
+	private final TableProperties medium = createTable("medium");
+	private final TableProperties large = createTable("large");
+	
+	private static TableProperties createTable(String name)
+	{
+		TableProperties table = mock(TableProperties.class);
+		QualifiedName qualifiedName = mock(QualifiedName.class);
+		when(table.getName()).thenReturn(qualifiedName);
+		when(qualifiedName.getName()).thenReturn(name);
+		when(qualifiedName.getDMLName()).thenReturn(name);
+		return table;
+	}
+	
+	@Before
+	public void init() throws SQLException
+	{
+		MockDatabase source = this.createDatabase("source");
+		MockDatabase target = this.createDatabase("target");
+		DatabaseProperties properties = mock(DatabaseProperties.class);
+		
+		when(this.context.getSourceDatabase()).thenReturn(source);
+		when(this.context.getTargetDatabase()).thenReturn(target);
+		when(this.context.getConnection(source)).thenReturn(this.sourceConnection);
+		when(this.context.getConnection(target)).thenReturn(this.targetConnection);
+		when(this.context.getSourceDatabaseProperties()).thenReturn(properties);
+		when(this.context.getSynchronizationSupport()).thenReturn(this.support);
+		when(this.context.getProgress()).thenReturn(this.progress);
+		when(this.context.getThreadFactory()).thenReturn(Executors.defaultThreadFactory());
+		when(properties.getTables()).thenReturn(Arrays.asList(this.small, this.large, this.medium));
+		when(this.sourceConnection.getMetaData()).thenReturn(this.metaData);
+		when(this.metaData.getConnection()).thenReturn(this.sourceConnection);
+		
+		this.cardinality(this.small, 10);
+		this.cardinality(this.medium, 20);
+		this.cardinality(this.large, 30);
+	}
+	
+	@Test
+	public void synchronizeConcurrently() throws Exception
+	{
+		final List<TableProperties> tables = Collections.synchronizedList(new ArrayList<TableProperties>());
+		// The 2 largest tables must be synchronized concurrently
+		final CyclicBarrier barrier = new CyclicBarrier(2);
+		
+		doAnswer(new Answer<Void>()
+		{
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Exception
+			{
+				TableProperties table = (TableProperties) invocation.getArguments()[1];
+				tables.add(table);
+				
+				if (table != PerTableSynchronizationStrategyTest.this.small)
+				{
+					barrier.await(10, TimeUnit.SECONDS);
+				}
+				return null;
+			}
+		}).when(this.tableStrategy).synchronize(any(SynchronizationContext.class), any(TableProperties.class));
+		
+		this.strategy.setParallelism(2);
+		this.strategy.synchronize(this.context);
+		
+		assertEquals(3, tables.size());
+		assertEquals(new HashSet<>(Arrays.asList(this.large, this.medium)), new HashSet<>(tables.subList(0, 2)));
+		assertSame(this.small, tables.get(2));
+		
+		// Catalog is not used to narrow the index statistics of the source database
+		verify(this.metaData).getIndexInfo(null, null, "large", false, true);
+		
+		for (TableProperties table: Arrays.asList(this.small, this.medium, this.large))
+		{
+			assertTrue(this.progress.isComplete(table));
+		}
+		
+		// Each task commits its tables using its own target connection
+		assertEquals(2, this.connections.size());
+		for (Connection connection: this.connections)
+		{
+			verify(connection, atLeastOnce()).commit();
+		}
+		verify(this.targetConnection, never()).commit();
+		verify(this.tableStrategy).dropConstraints(this.context);
+		verify(this.tableStrategy).restoreConstraints(this.context);
+		verify(this.support).synchronizeSequences();
+	}
+	
+	@Test
+	public void synchronizeConcurrentlyFailure() throws Exception
+	{
+		final SQLException exception = new SQLException("failure");
+		
+		doThrow(exception).when(this.tableStrategy).synchronize(any(SynchronizationContext.class), same(this.large));
+		
+		this.strategy.setParallelism(2);
+		
+		try
+		{
+			this.strategy.synchronize(this.context);
+			fail();
+		}
+		catch (SQLException e)
+		{
+			assertEquals(exception.getMessage(), e.getMessage());
+		}
+		
+		assertFalse(this.progress.isComplete(this.large));
+		verify(this.tableStrategy, never()).restoreConstraints(this.context);
+		verify(this.support, never()).synchronizeSequences();
+	}
+	
+	@Test
+	public void skipCompleted() throws Exception
+	{
+		this.progress.complete(this.large);
+		this.progress.complete(this.small);
+		
+		this.strategy.synchronize(this.context);
+		
+		verify(this.tableStrategy).synchronize(this.context, this.medium);
+		verify(this.tableStrategy, never()).synchronize(this.context, this.large);
+		verify(this.tableStrategy, never()).synchronize(this.context, this.small);
+		verify(this.targetConnection).commit();
+		
+		// Nothing left to schedule concurrently
+		this.progress.complete(this.medium);
+		
+		this.strategy.setParallelism(2);
+		this.strategy.synchronize(this.context);
+		
+		verify(this.tableStrategy, times(1)).synchronize(any(SynchronizationContext.class), any(TableProperties.class));
+		assertTrue(this.connections.isEmpty());
+	}
+	
+	private void cardinality(TableProperties table, final long cardinality) throws SQLException
+	{
+		ResultSet resultSet = mock(ResultSet.class);
+		when(resultSet.next()).thenReturn(true, false);
+		when(resultSet.getLong("CARDINALITY")).thenReturn(cardinality);
+		when(this.metaData.getIndexInfo(null, null, table.getName().getName(), false, true)).thenReturn(resultSet);
+	}
+	
+	private MockDatabase createDatabase(String id)
+	{
+		return new MockDatabase(id)
+		{
+			@Override
+			public Connection connect(Decoder decoder)
+			{
+				Connection connection = mock(Connection.class);
+				PerTableSynchronizationStrategyTest.this.connections.add(connection);
+				return connection;
+			}
+		};
+	}
+}
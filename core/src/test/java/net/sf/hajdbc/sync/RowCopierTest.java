@@ -0,0 +1,207 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.sync;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Blob;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import net.sf.hajdbc.ColumnProperties;
+import net.sf.hajdbc.TableProperties;
+import net.sf.hajdbc.dialect.Dialect;
+
+/**
+ * @author Paul Ferraro
+ */
+public class RowCopierTest
+{
+	private final Dialect dialect = mock(Dialect.class);
+	private final SynchronizationSupport support = mock(SynchronizationSupport.class);
+	private final TableProperties table = mock(TableProperties.class);
+	private final ColumnProperties id = mock(ColumnProperties.class);
+	private final ColumnProperties flags = mock(ColumnProperties.class);
+	private final List<String> columns = Arrays.asList("id", "flags");
+	private final ResultSet resultSet = mock(ResultSet.class);
+	private final PreparedStatement statement = mock(PreparedStatement.class);
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	
+	@Before
+	public void init() throws SQLException
+	{
+		when(this.table.getColumnProperties("id")).thenReturn(this.id);
+		when(this.table.getColumnProperties("flags")).thenReturn(this.flags);
+		when(this.dialect.getColumnType(this.id)).thenReturn(Types.INTEGER);
+		when(this.dialect.getColumnType(this.flags)).thenReturn(Types.BIT);
+	}
+	
+	@After
+	public void destroy()
+	{
+		this.executor.shutdownNow();
+	}
+	
+	@Test
+	public void copy() throws SQLException
+	{
+		when(this.resultSet.next()).thenReturn(true, true, true, false);
+		when(this.resultSet.getInt(1)).thenReturn(1, 2, 3);
+		when(this.support.getObject(this.resultSet, 2, Types.BIT)).thenReturn("101");
+		
+		RowCopier copier = new RowCopier(this.dialect, this.support, this.table, this.columns, 2);
+		
+		assertEquals(3, copier.copy(this.resultSet, this.statement, this.executor));
+		
+		verify(this.statement).setInt(1, 1);
+		verify(this.statement).setInt(1, 2);
+		verify(this.statement).setInt(1, 3);
+		// BIT columns may contain several bits, so must not be copied as booleans
+		verify(this.statement, times(3)).setObject(2, "101", Types.BIT);
+		verify(this.resultSet, never()).getBoolean(2);
+		verify(this.statement, times(3)).addBatch();
+		verify(this.statement, times(2)).executeBatch();
+	}
+	
+	@Test
+	public void copyLobs() throws SQLException
+	{
+		final Thread thread = Thread.currentThread();
+		final AtomicInteger writers = new AtomicInteger();
+		Blob blob = mock(Blob.class);
+		PreparedStatement otherStatement = mock(PreparedStatement.class);
+		Answer<int[]> answer = new Answer<int[]>()
+		{
+			@Override
+			public int[] answer(InvocationOnMock invocation)
+			{
+				// LOB locators must not be read by several targets concurrently
+				assertSame(thread, Thread.currentThread());
+				assertEquals(1, writers.incrementAndGet());
+				writers.decrementAndGet();
+				return new int[0];
+			}
+		};
+		
+		when(this.dialect.getColumnType(this.flags)).thenReturn(Types.BLOB);
+		when(this.resultSet.next()).thenReturn(true, true, false);
+		when(this.resultSet.getInt(1)).thenReturn(1, 2);
+		when(this.support.getObject(this.resultSet, 2, Types.BLOB)).thenReturn(blob);
+		when(this.statement.executeBatch()).thenAnswer(answer);
+		when(otherStatement.executeBatch()).thenAnswer(answer);
+		
+		RowCopier copier = new RowCopier(this.dialect, this.support, this.table, this.columns, 1);
+		
+		assertEquals(2, copier.copy(this.resultSet, Arrays.asList(this.statement, otherStatement), this.executor));
+		
+		for (PreparedStatement statement: Arrays.asList(this.statement, otherStatement))
+		{
+			verify(statement).setInt(1, 1);
+			verify(statement).setInt(1, 2);
+			verify(statement, times(2)).setObject(2, blob, Types.BLOB);
+			verify(statement, times(2)).executeBatch();
+		}
+	}
+	
+	@Test
+	public void copyEmpty() throws SQLException
+	{
+		when(this.resultSet.next()).thenReturn(false);
+		
+		RowCopier copier = new RowCopier(this.dialect, this.support, this.table, this.columns, 2);
+		
+		assertEquals(0, copier.copy(this.resultSet, this.statement, this.executor));
+		
+		verify(this.statement, never()).addBatch();
+		verify(this.statement, never()).executeBatch();
+	}
+	
+	@Test(timeout = 10000)
+	public void readerFailure() throws SQLException
+	{
+		SQLException exception = new SQLException("read failure");
+		
+		when(this.resultSet.next()).thenReturn(true, true, true);
+		when(this.resultSet.getInt(1)).thenReturn(1, 2).thenThrow(exception);
+		
+		RowCopier copier = new RowCopier(this.dialect, this.support, this.table, this.columns, 2);
+		
+		try
+		{
+			copier.copy(this.resultSet, this.statement, this.executor);
+			fail();
+		}
+		catch (SQLException e)
+		{
+			assertEquals(exception.getMessage(), e.getMessage());
+		}
+		
+		// The full batch read before the failure may have been written, but not the partial batch
+		verify(this.statement, never()).setInt(1, 3);
+	}
+	
+	@Test(timeout = 10000)
+	public void writerFailure() throws Exception
+	{
+		SQLException exception = new SQLException("write failure");
+		final AtomicInteger reads = new AtomicInteger();
+		
+		// An endless result set
+		when(this.resultSet.next()).thenAnswer(new Answer<Boolean>()
+		{
+			@Override
+			public Boolean answer(InvocationOnMock invocation)
+			{
+				reads.incrementAndGet();
+				return true;
+			}
+		});
+		when(this.statement.executeBatch()).thenThrow(exception);
+		
+		RowCopier copier = new RowCopier(this.dialect, this.support, this.table, this.columns, 2);
+		
+		try
+		{
+			copier.copy(this.resultSet, this.statement, this.executor);
+			fail();
+		}
+		catch (SQLException e)
+		{
+			assertSame(exception, e);
+		}
+		
+		// The reader must have stopped using the result set before the copy returns
+		int count = reads.get();
+		Thread.sleep(100);
+		assertEquals(count, reads.get());
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.sync;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.sf.hajdbc.DatabaseCluster;
+import net.sf.hajdbc.DatabaseProperties;
+import net.sf.hajdbc.MockDatabase;
+import net.sf.hajdbc.balancer.Balancer;
+import net.sf.hajdbc.cache.DatabaseMetaDataCache;
+import net.sf.hajdbc.codec.Decoder;
+import net.sf.hajdbc.state.simple.SimpleStateManager;
+
+/**
+ * @author Paul Ferraro
+ */
+public class SynchronizationContextImplTest
+{
+	@SuppressWarnings("unchecked")
+	private final DatabaseCluster<Void, MockDatabase> cluster = mock(DatabaseCluster.class);
+	@SuppressWarnings("unchecked")
+	private final Balancer<Void, MockDatabase> balancer = mock(Balancer.class);
+	@SuppressWarnings("unchecked")
+	private final DatabaseMetaDataCache<Void, MockDatabase> cache = mock(DatabaseMetaDataCache.class);
+	private final DatabaseProperties sourceProperties = mock(DatabaseProperties.class);
+	private final List<Connection> sourceConnections = new ArrayList<>();
+	private final List<Connection> targetConnections = new ArrayList<>();
+	private final MockDatabase source = this.createDatabase("source", this.sourceConnections);
+	private final MockDatabase target1 = this.createDatabase("target1", this.targetConnections);
+	private final MockDatabase target2 = this.createDatabase("target2", this.targetConnections);
+	
+	@Before
+	public void init() throws SQLException
+	{
+		when(this.cluster.getBalancer()).thenReturn(this.balancer);
+		when(this.cluster.getThreadFactory()).thenReturn(Executors.defaultThreadFactory());
+		when(this.cluster.getStateManager()).thenReturn(new SimpleStateManager());
+		when(this.cluster.getDatabaseMetaDataCache()).thenReturn(this.cache);
+		when(this.balancer.size()).thenReturn(1);
+		when(this.cache.getDatabaseProperties(same(this.source), any(Connection.class))).thenReturn(this.sourceProperties);
+	}
+	
+	@Test
+	public void sharedSourceConnection() throws SQLException
+	{
+		try (SynchronizationContext<Void, MockDatabase> context = new SynchronizationContextImpl<>(this.cluster, this.source, this.target1))
+		{
+			try (SynchronizationContext<Void, MockDatabase> otherContext = new SynchronizationContextImpl<>(this.cluster, context, this.target2))
+			{
+				assertSame(this.source, otherContext.getSourceDatabase());
+				assertSame(this.sourceProperties, otherContext.getSourceDatabaseProperties());
+				assertSame(context.getConnection(this.source), otherContext.getConnection(this.source));
+				assertNotSame(context.getConnection(this.target1), otherContext.getConnection(this.target2));
+			}
+			
+			// Only the context that opened the source connection may close it
+			assertEquals(1, this.sourceConnections.size());
+			verify(this.sourceConnections.get(0), never()).close();
+			assertEquals(2, this.targetConnections.size());
+			verify(this.targetConnections.get(1)).close();
+		}
+		
+		verify(this.sourceConnections.get(0)).close();
+	}
+	
+	private MockDatabase createDatabase(String id, final List<Connection> connections)
+	{
+		return new MockDatabase(id)
+		{
+			@Override
+			public Connection connect(Decoder decoder)
+			{
+				Connection connection = mock(Connection.class);
+				connections.add(connection);
+				return connection;
+			}
+		};
+	}
+}
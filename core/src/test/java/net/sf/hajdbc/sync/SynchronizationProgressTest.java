@@ -0,0 +1,102 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.sync;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import net.sf.hajdbc.QualifiedName;
+import net.sf.hajdbc.TableProperties;
+import net.sf.hajdbc.state.StateManager;
+import net.sf.hajdbc.state.SynchronizationCheckpoint;
+import net.sf.hajdbc.state.simple.SimpleStateManager;
+
+import org.junit.Test;
+
+/**
+ * @author Paul Ferraro
+ */
+public class SynchronizationProgressTest
+{
+	private final StateManager manager = new SimpleStateManager();
+	private final TableProperties table1 = createTable("table1");
+	private final TableProperties table2 = createTable("table2");
+	
+	private static TableProperties createTable(String name)
+	{
+		TableProperties table = mock(TableProperties.class);
+		QualifiedName qualifiedName = mock(QualifiedName.class);
+		when(table.getName()).thenReturn(qualifiedName);
+		when(qualifiedName.getDMLName()).thenReturn(name);
+		return table;
+	}
+	
+	@Test
+	public void notResumed()
+	{
+		SynchronizationProgress progress = new SynchronizationProgress(this.manager, "db1");
+		
+		progress.setPosition(this.table1, 100L);
+		progress.complete(this.table2);
+		
+		assertTrue(progress.isComplete(this.table2));
+		assertEquals(Long.valueOf(100L), progress.getPosition(this.table1));
+		
+		// Progress is not recorded unless resumed
+		assertNull(this.manager.getCheckpoint("db1"));
+	}
+	
+	@Test
+	public void resume()
+	{
+		SynchronizationProgress progress = new SynchronizationProgress(this.manager, "db1");
+		
+		assertFalse(progress.resume());
+		
+		progress.complete(this.table1);
+		progress.setPosition(this.table2, 100L);
+		
+		SynchronizationCheckpoint checkpoint = this.manager.getCheckpoint("db1");
+		
+		assertNotNull(checkpoint);
+		assertTrue(checkpoint.getTables().contains("table1"));
+		assertEquals(Long.valueOf(100L), checkpoint.getPositions().get("table2"));
+		
+		progress = new SynchronizationProgress(this.manager, "db1");
+		
+		assertFalse(progress.isComplete(this.table1));
+		assertNull(progress.getPosition(this.table2));
+		
+		assertTrue(progress.resume());
+		
+		assertTrue(progress.isComplete(this.table1));
+		assertFalse(progress.isComplete(this.table2));
+		assertEquals(Long.valueOf(100L), progress.getPosition(this.table2));
+		
+		progress.complete(this.table2);
+		
+		assertTrue(progress.isComplete(this.table2));
+		assertNull(progress.getPosition(this.table2));
+		assertTrue(this.manager.getCheckpoint("db1").getPositions().isEmpty());
+		
+		progress.reset();
+		
+		assertFalse(progress.isComplete(this.table1));
+		assertNull(this.manager.getCheckpoint("db1"));
+	}
+}
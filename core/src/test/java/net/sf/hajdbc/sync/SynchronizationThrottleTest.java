@@ -0,0 +1,116 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.sync;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @author Paul Ferraro
+ */
+public class SynchronizationThrottleTest
+{
+	@Test
+	public void unlimited() throws InterruptedException
+	{
+		SynchronizationThrottle throttle = new SynchronizationThrottle();
+		
+		assertFalse(throttle.isEnabled());
+		
+		long start = System.nanoTime();
+		
+		for (int i = 0; i < 1000; ++i)
+		{
+			throttle.acquire(1000, 1000000, TimeUnit.SECONDS.toNanos(1));
+		}
+		
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+	}
+	
+	@Test
+	public void maxRowRate() throws InterruptedException
+	{
+		SynchronizationThrottle throttle = new SynchronizationThrottle();
+		throttle.setMaxRowRate(1000);
+		
+		assertTrue(throttle.isEnabled());
+		assertFalse(throttle.isByteRateLimited());
+		assertFalse(throttle.isLatencyLimited());
+		
+		long start = System.nanoTime();
+		
+		// 200 rows at 1000 rows per second should take at least 200ms
+		for (int i = 0; i < 4; ++i)
+		{
+			throttle.acquire(50, 0, 0);
+		}
+		
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(190));
+		
+		// Limits can be lifted at any time
+		throttle.setMaxRowRate(0);
+		
+		assertFalse(throttle.isEnabled());
+	}
+	
+	@Test
+	public void maxByteRate() throws InterruptedException
+	{
+		SynchronizationThrottle throttle = new SynchronizationThrottle();
+		throttle.setMaxByteRate(10000);
+		
+		assertTrue(throttle.isByteRateLimited());
+		
+		long start = System.nanoTime();
+		
+		throttle.acquire(1, 1000, 0);
+		throttle.acquire(1, 1000, 0);
+		
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(190));
+	}
+	
+	@Test
+	public void maxLatency() throws InterruptedException
+	{
+		SynchronizationThrottle throttle = new SynchronizationThrottle();
+		throttle.setMaxLatency(10);
+		
+		assertTrue(throttle.isLatencyLimited());
+		
+		// Reads within the latency threshold are not paused
+		long start = System.nanoTime();
+		
+		throttle.acquire(100, 0, TimeUnit.MILLISECONDS.toNanos(1));
+		
+		assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+		
+		// Pauses grow while reads exceed the latency threshold
+		start = System.nanoTime();
+		
+		for (int i = 0; i < 8; ++i)
+		{
+			throttle.acquire(100, 0, TimeUnit.MILLISECONDS.toNanos(20));
+		}
+		
+		// 1 + 2 + 4 + ... + 128 ms
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(250));
+	}
+}
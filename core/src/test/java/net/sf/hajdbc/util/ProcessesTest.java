@@ -0,0 +1,134 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests process piping using stub dump/restore executables.
+ * @author Paul Ferraro
+ */
+public class ProcessesTest
+{
+	private static final int ROWS = 100000;
+	
+	private File dump;
+	private File restore;
+	private File output;
+	
+	@Before
+	public void before() throws IOException
+	{
+		Assume.assumeTrue(new File("/bin/sh").canExecute());
+		
+		this.dump = Files.createTempFile(".sh");
+		this.restore = Files.createTempFile(".sh");
+		this.output = Files.createTempFile(".out");
+	}
+	
+	@After
+	public void after()
+	{
+		for (File file: new File[] { this.dump, this.restore, this.output })
+		{
+			if (file != null)
+			{
+				Files.delete(file);
+			}
+		}
+	}
+	
+	@Test
+	public void pipe() throws Exception
+	{
+		// Emits more output than fits in a pipe buffer, as well as some diagnostics
+		script(this.dump, "echo dumping >&2", "i=0", "while [ $i -lt " + ROWS + " ]; do echo $i; i=$((i+1)); done");
+		script(this.restore, "echo restoring", "cat > \"$1\"");
+		
+		Processes.pipe(new ProcessBuilder(this.dump.getPath()), new ProcessBuilder(this.restore.getPath(), this.output.getPath()));
+		
+		try (BufferedReader reader = new BufferedReader(new FileReader(this.output)))
+		{
+			for (int i = 0; i < ROWS; ++i)
+			{
+				Assert.assertEquals(Integer.toString(i), reader.readLine());
+			}
+			Assert.assertNull(reader.readLine());
+		}
+	}
+	
+	@Test
+	public void dumpFailure() throws Exception
+	{
+		script(this.dump, "echo partial", "exit 3");
+		script(this.restore, "cat > \"$1\"");
+		
+		try
+		{
+			Processes.pipe(new ProcessBuilder(this.dump.getPath()), new ProcessBuilder(this.restore.getPath(), this.output.getPath()));
+			Assert.fail();
+		}
+		catch (Exception e)
+		{
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains(this.dump.getPath()));
+		}
+	}
+	
+	@Test
+	public void restoreFailure() throws Exception
+	{
+		// Restore exits without consuming its input, while the dump still has plenty to write
+		script(this.dump, "i=0", "while [ $i -lt " + ROWS + " ]; do echo $i; i=$((i+1)); done");
+		script(this.restore, "exit 2");
+		
+		try
+		{
+			Processes.pipe(new ProcessBuilder(this.dump.getPath()), new ProcessBuilder(this.restore.getPath(), this.output.getPath()));
+			Assert.fail();
+		}
+		catch (Exception e)
+		{
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains(this.restore.getPath()));
+		}
+	}
+	
+	private static void script(File file, String... lines) throws IOException
+	{
+		try (Writer writer = new FileWriter(file))
+		{
+			writer.write("#!/bin/sh\n");
+			for (String line: lines)
+			{
+				writer.write(line);
+				writer.write('\n');
+			}
+		}
+		Assert.assertTrue(file.setExecutable(true));
+	}
+}
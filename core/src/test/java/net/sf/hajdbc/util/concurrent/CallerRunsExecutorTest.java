@@ -0,0 +1,118 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Paul Ferraro
+ */
+public class CallerRunsExecutorTest
+{
+	@Test
+	public void test() throws InterruptedException, ExecutionException
+	{
+		ExecutorService service = Executors.newCachedThreadPool();
+		try
+		{
+			List<Task> tasks = new ArrayList<>(3);
+			for (int i = 0; i < 3; ++i)
+			{
+				tasks.add(new Task(i));
+			}
+			
+			List<Future<Thread>> futures = new CallerRunsExecutor(service).invokeAll(tasks);
+			
+			Assert.assertEquals(tasks.size(), futures.size());
+			
+			// Make sure 1st task ran in the caller thread, and the remainder did not
+			Assert.assertSame(Thread.currentThread(), futures.get(0).get());
+			for (Future<Thread> future: futures.subList(1, futures.size()))
+			{
+				Assert.assertTrue(future.isDone());
+				Assert.assertNotSame(Thread.currentThread(), future.get());
+			}
+		}
+		finally
+		{
+			service.shutdown();
+		}
+	}
+	
+	@Test
+	public void exception() throws InterruptedException
+	{
+		ExecutorService service = Executors.newCachedThreadPool();
+		try
+		{
+			List<Callable<Thread>> tasks = new ArrayList<>(2);
+			tasks.add(new Task(0));
+			tasks.add(new Callable<Thread>()
+			{
+				@Override
+				public Thread call() throws Exception
+				{
+					throw new Exception();
+				}
+			});
+			
+			List<Future<Thread>> futures = new CallerRunsExecutor(service).invokeAll(tasks);
+			
+			Assert.assertTrue(futures.get(1).isDone());
+			try
+			{
+				futures.get(1).get();
+				Assert.fail();
+			}
+			catch (ExecutionException e)
+			{
+				// Expected
+			}
+		}
+		finally
+		{
+			service.shutdown();
+		}
+	}
+	
+	private class Task implements Callable<Thread>
+	{
+		private final long sleep;
+		
+		Task(long sleep)
+		{
+			this.sleep = sleep;
+		}
+
+		@Override
+		public Thread call() throws Exception
+		{
+			Thread.sleep(this.sleep);
+			return Thread.currentThread();
+		}
+	}
+}
@@ -34,6 +34,7 @@ import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
 import java.util.Map;
 
 import javax.sql.DataSource;
@@ -44,6 +45,7 @@ import net.sf.hajdbc.Database;
 import net.sf.hajdbc.DatabaseBuilder;
 import net.sf.hajdbc.DatabaseClusterConfiguration;
 import net.sf.hajdbc.DatabaseClusterConfigurationBuilder;
+import net.sf.hajdbc.Identifiable;
 import net.sf.hajdbc.Locality;
 import net.sf.hajdbc.MockDataSource;
 import net.sf.hajdbc.MockDriver;
@@ -111,6 +113,46 @@ public class XMLDatabaseClusterConfigurationFactoryTest
 		assertEquals("db2", ((MockDataSource) db2.getConnectionSource()).getName());
 	}
 	
+	@Test
+	public void executorRoundTrip() throws SQLException
+	{
+		for (String executor: Arrays.asList("default", "virtual"))
+		{
+			StringBuilder builder = new StringBuilder();
+			builder.append("<?xml version=\"1.0\"?>");
+			builder.append("<ha-jdbc xmlns=\"").append(Namespace.CURRENT_VERSION.getURI()).append("\">");
+			builder.append("\t<sync id=\"passive\"/>");
+			builder.append(String.format("\t<cluster default-sync=\"passive\" executor=\"%s\">", executor));
+			builder.append(String.format("\t\t<database id=\"db1\" location=\"%s\"/>", MockDataSource.class.getName()));
+			builder.append("\t</cluster>");
+			builder.append("</ha-jdbc>");
+			
+			XMLStreamFactory streamFactory = mock(XMLStreamFactory.class);
+			XMLDatabaseClusterConfigurationFactory<DataSource, DataSourceDatabase> factory = new XMLDatabaseClusterConfigurationFactory<>(streamFactory);
+			
+			when(streamFactory.createSource()).thenReturn(new StreamSource(new StringReader(builder.toString())));
+			
+			DatabaseClusterConfiguration<DataSource, DataSourceDatabase> configuration = factory.createConfiguration(new DataSourceDatabaseClusterConfigurationBuilder());
+			
+			assertEquals(executor, ((Identifiable) configuration.getExecutorProvider()).getId());
+			
+			StringWriter writer = new StringWriter();
+			
+			when(streamFactory.createResult()).thenReturn(new StreamResult(writer));
+			
+			factory.export(configuration);
+			
+			// The exported configuration must be readable
+			reset(streamFactory);
+			
+			when(streamFactory.createSource()).thenReturn(new StreamSource(new StringReader(writer.toString())));
+			
+			configuration = factory.createConfiguration(new DataSourceDatabaseClusterConfigurationBuilder());
+			
+			assertEquals(executor, ((Identifiable) configuration.getExecutorProvider()).getId());
+		}
+	}
+	
 	private static <Z, D extends Database<Z>, B extends DatabaseBuilder<Z, D>> DatabaseClusterConfiguration<Z, D> createConfiguration(DatabaseClusterConfigurationBuilder<Z, D, B> configurationBuilder, String location1, String location2, Map.Entry<String, String> property1, Map.Entry<String, String> property2) throws SQLException
 	{
 		StringBuilder builder = new StringBuilder();
@@ -177,6 +219,10 @@ public class XMLDatabaseClusterConfigurationFactoryTest
 		assertFalse(configuration.isIdentityColumnDetectionEnabled());
 		assertFalse(configuration.isRandEvaluationEnabled());
 		assertFalse(configuration.isSequenceDetectionEnabled());
+		assertFalse(configuration.isOnlineActivationEnabled());
+		assertEquals(0, configuration.getDurabilityReplicationLag());
+		assertEquals(0, configuration.getLockLease());
+		assertFalse(configuration.isLockPartitioningEnabled());
 		
 		Map<String, D> databases = configuration.getDatabaseMap();
 		
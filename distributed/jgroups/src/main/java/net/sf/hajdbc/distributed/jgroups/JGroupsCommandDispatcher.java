@@ -24,22 +24,25 @@ import java.io.OutputStream;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
 
 import net.sf.hajdbc.distributed.Command;
+import net.sf.hajdbc.distributed.CommandCodec;
 import net.sf.hajdbc.distributed.CommandDispatcher;
 import net.sf.hajdbc.distributed.CommandResponse;
 import net.sf.hajdbc.distributed.Member;
 import net.sf.hajdbc.distributed.MembershipListener;
 import net.sf.hajdbc.distributed.Stateful;
+import net.sf.hajdbc.distributed.ViewListener;
 import net.sf.hajdbc.logging.Level;
 import net.sf.hajdbc.logging.Logger;
 import net.sf.hajdbc.logging.LoggerFactory;
 import net.sf.hajdbc.util.ObjectInputStream;
-import net.sf.hajdbc.util.Objects;
 
 import org.jgroups.Address;
 import org.jgroups.Channel;
@@ -67,6 +70,7 @@ public class JGroupsCommandDispatcher<C> implements RequestHandler, CommandDispa
 	private final long timeout;
 	private final MessageDispatcher dispatcher;
 	private final C context;
+	private final CommandCodec<C> codec;
 	private final AtomicReference<View> viewReference = new AtomicReference<>();
 	private final MembershipListener membershipListener;
 	private final Stateful stateful;
@@ -77,14 +81,16 @@ public class JGroupsCommandDispatcher<C> implements RequestHandler, CommandDispa
 	 * @param channel a JGroups channel
 	 * @param timeout the command timeout
 	 * @param context the execution context
+	 * @param codec the command codec
 	 * @param stateful the state transfer handler
 	 * @param membershipListener notified of membership changes
 	 * @throws Exception if channel cannot be created
 	 */
-	public JGroupsCommandDispatcher(String id, Channel channel, long timeout, C context, Stateful stateful, MembershipListener membershipListener) throws Exception
+	public JGroupsCommandDispatcher(String id, Channel channel, long timeout, C context, CommandCodec<C> codec, Stateful stateful, MembershipListener membershipListener) throws Exception
 	{
 		this.id = id;
 		this.context = context;
+		this.codec = codec;
 		this.stateful = stateful;
 		this.membershipListener = membershipListener;
 		
@@ -192,7 +198,7 @@ public class JGroupsCommandDispatcher<C> implements RequestHandler, CommandDispa
 	
 	private <R> Message createMessage(Address destination, Command<R, C> command)
 	{
-		return new Message(destination, this.getLocalAddress(), Objects.serialize(command));
+		return new Message(destination, this.getLocalAddress(), this.codec.encode(command));
 	}
 	
 	private RequestOptions createRequestOptions()
@@ -239,7 +245,7 @@ public class JGroupsCommandDispatcher<C> implements RequestHandler, CommandDispa
 	@Override
 	public Object handle(Message message)
 	{
-		Command<Object, C> command = Objects.deserialize(message.getRawBuffer(), Command.class);
+		Command<Object, C> command = this.codec.decode(message.getRawBuffer(), message.getOffset(), message.getLength(), new AddressMember(message.getSrc()));
 
 		this.logger.log(Level.DEBUG, "{0} received from {1}", command, message.getSrc());
 		
@@ -275,6 +281,17 @@ public class JGroupsCommandDispatcher<C> implements RequestHandler, CommandDispa
 					}
 				}
 			}
+			
+			if (this.membershipListener instanceof ViewListener)
+			{
+				Set<Member> members = new TreeSet<>();
+				for (Address address: view.getMembers())
+				{
+					members.add(new AddressMember(address));
+				}
+				// View ids are assigned by the coordinator, and are the same on every member
+				((ViewListener) this.membershipListener).viewChanged(view.getViewId().getId(), members);
+			}
 		}
 	}
 
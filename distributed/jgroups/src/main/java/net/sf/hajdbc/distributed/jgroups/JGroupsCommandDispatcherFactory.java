@@ -17,6 +17,7 @@
  */
 package net.sf.hajdbc.distributed.jgroups;
 
+import net.sf.hajdbc.distributed.CommandCodec;
 import net.sf.hajdbc.distributed.CommandDispatcher;
 import net.sf.hajdbc.distributed.CommandDispatcherFactory;
 import net.sf.hajdbc.distributed.MembershipListener;
@@ -48,14 +49,14 @@ public class JGroupsCommandDispatcherFactory implements CommandDispatcherFactory
 	}
 
 	@Override
-	public <C> CommandDispatcher<C> createCommandDispatcher(String id, C context, Stateful stateful, MembershipListener membershipListener) throws Exception
+	public <C> CommandDispatcher<C> createCommandDispatcher(String id, C context, CommandCodec<C> codec, Stateful stateful, MembershipListener membershipListener) throws Exception
 	{
 		Channel channel = new JChannel(this.stack);
 		if (this.name != null)
 		{
 			channel.setName(this.name);
 		}
-		return new JGroupsCommandDispatcher<>(id, channel, this.timeout, context, stateful, membershipListener);
+		return new JGroupsCommandDispatcher<>(id, channel, this.timeout, context, codec, stateful, membershipListener);
 	}
 
 	public String getName()
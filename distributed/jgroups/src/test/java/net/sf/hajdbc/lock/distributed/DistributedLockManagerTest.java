@@ -20,6 +20,8 @@ package net.sf.hajdbc.lock.distributed;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.util.Arrays;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -169,6 +171,60 @@ public class DistributedLockManagerTest
 		}
 	}
 	
+	@Test
+	public void multiple()
+	{
+		multiple(this.manager1, this.manager2);
+		multiple(this.manager2, this.manager1);
+	}
+
+	private static void multiple(LockManager manager1, LockManager manager2)
+	{
+		Lock locks = manager1.writeLocks(new TreeSet<>(Arrays.asList("1", "2")));
+		Lock lock = manager2.writeLock("2");
+		
+		assertTrue(lock.tryLock());
+		
+		try
+		{
+			// Validate that a partial acquisition is rolled back
+			boolean locked = locks.tryLock();
+			try
+			{
+				assertFalse(locked);
+			}
+			finally
+			{
+				if (locked)
+				{
+					locks.unlock();
+				}
+			}
+			
+			test(manager2.writeLock("1"));
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		
+		assertTrue(locks.tryLock());
+		
+		try
+		{
+			// Validate that all locks are held
+			assertFalse(manager2.writeLock("1").tryLock());
+			assertFalse(manager2.writeLock("2").tryLock());
+		}
+		finally
+		{
+			locks.unlock();
+		}
+		
+		test(manager2.writeLock("1"));
+		test(manager2.writeLock("2"));
+	}
+	
 	@Test
 	public void failover() throws Exception
 	{
@@ -216,4 +272,66 @@ public class DistributedLockManagerTest
 			executor.shutdownNow();
 		}
 	}
+	
+	@Test
+	public void leased() throws Exception
+	{
+		String id = "leased";
+		DatabaseCluster<?, ?> cluster1 = mock(DatabaseCluster.class);
+		DatabaseCluster<?, ?> cluster2 = mock(DatabaseCluster.class);
+
+		when(cluster1.getId()).thenReturn(id);
+		when(cluster1.getLockManager()).thenReturn(new SemaphoreLockManager(false));
+		when(cluster1.getLockLease()).thenReturn(60000L);
+		when(cluster2.getId()).thenReturn(id);
+		when(cluster2.getLockManager()).thenReturn(new SemaphoreLockManager(false));
+		when(cluster2.getLockLease()).thenReturn(60000L);
+
+		LockManager manager1 = new DistributedLockManager(cluster1, createCommandDispatcherFactory("lease1"));
+		manager1.start();
+		try
+		{
+			LockManager manager2 = new DistributedLockManager(cluster2, createCommandDispatcherFactory("lease2"));
+			manager2.start();
+			try
+			{
+				Lock lock1 = manager1.writeLock("1");
+				Lock lock2 = manager2.writeLock("1");
+				
+				test(lock1);
+				
+				// Validate that the lease is retained
+				test(lock1);
+				
+				// Validate that the lease is revoked upon request by another member
+				assertTrue(lock2.tryLock(10, TimeUnit.SECONDS));
+				lock2.unlock();
+				
+				assertTrue(lock1.tryLock(10, TimeUnit.SECONDS));
+				
+				try
+				{
+					// Validate that a lease in use is not revoked
+					assertFalse(lock2.tryLock(100, TimeUnit.MILLISECONDS));
+				}
+				finally
+				{
+					lock1.unlock();
+				}
+				
+				// Validate that the global lock revokes all leases
+				Lock globalLock = manager2.writeLock(null);
+				assertTrue(globalLock.tryLock(10, TimeUnit.SECONDS));
+				globalLock.unlock();
+			}
+			finally
+			{
+				manager2.stop();
+			}
+		}
+		finally
+		{
+			manager1.stop();
+		}
+	}
 }
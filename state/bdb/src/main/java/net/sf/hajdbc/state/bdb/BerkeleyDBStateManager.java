@@ -39,6 +39,7 @@ import net.sf.hajdbc.state.DatabaseEvent;
 import net.sf.hajdbc.state.DurabilityListenerAdapter;
 import net.sf.hajdbc.state.SerializedDurabilityListener;
 import net.sf.hajdbc.state.StateManager;
+import net.sf.hajdbc.state.SynchronizationCheckpoint;
 import net.sf.hajdbc.util.Objects;
 
 import com.sleepycat.bind.ByteArrayBinding;
@@ -62,6 +63,7 @@ public class BerkeleyDBStateManager extends CloseablePoolProvider<Environment, D
 	private static final String STATE = "state";
 	private static final String INVOCATION = "invocation";
 	private static final String INVOKER = "invoker";
+	private static final String CHECKPOINT = "checkpoint";
 	private static final EntryBinding<InvocationKey> INVOCATION_KEY_BINDING = new KeyBinding<>(InvocationKey.class);
 	private static final EntryBinding<InvokerKey> INVOKER_KEY_BINDING = new KeyBinding<>(InvokerKey.class);
 	private static final EntryBinding<byte[]> BLOB_BINDING = new ByteArrayBinding();
@@ -93,7 +95,7 @@ public class BerkeleyDBStateManager extends CloseablePoolProvider<Environment, D
 		Environment env = this.pool.take();
 		try
 		{
-			for (String databaseName: Arrays.asList(STATE, INVOCATION, INVOKER))
+			for (String databaseName: Arrays.asList(STATE, INVOCATION, INVOKER, CHECKPOINT))
 			{
 				try (Database database = env.openDatabase(null, databaseName, new DatabaseConfig().setAllowCreate(true).setTransactional(false)))
 				{
@@ -172,10 +174,52 @@ public class BerkeleyDBStateManager extends CloseablePoolProvider<Environment, D
 		this.execute(operation);
 	}
 
+	@Override
+	public SynchronizationCheckpoint getCheckpoint(final String databaseId)
+	{
+		DatabaseQuery<SynchronizationCheckpoint> query = new DatabaseQuery<SynchronizationCheckpoint>(CHECKPOINT)
+		{
+			@Override
+			SynchronizationCheckpoint execute(Database database)
+			{
+				byte[] value = createCheckpointMap(database, true).get(databaseId);
+				return (value != null) ? Objects.deserialize(value, SynchronizationCheckpoint.class) : null;
+			}
+		};
+		return this.execute(query);
+	}
+
+	@Override
+	public void setCheckpoint(final String databaseId, final SynchronizationCheckpoint checkpoint)
+	{
+		DatabaseOperation operation = new DatabaseOperation(CHECKPOINT)
+		{
+			@Override
+			void execute(Database database)
+			{
+				Map<String, byte[]> checkpoints = createCheckpointMap(database, false);
+				if (checkpoint != null)
+				{
+					checkpoints.put(databaseId, Objects.serialize(checkpoint));
+				}
+				else
+				{
+					checkpoints.remove(databaseId);
+				}
+			}
+		};
+		this.execute(operation);
+	}
+
 	Set<String> createStateSet(Database database, boolean readOnly)
 	{
 		return new StoredKeySet<>(database, TupleBinding.getPrimitiveBinding(String.class), !readOnly);
 	}
+
+	Map<String, byte[]> createCheckpointMap(Database database, boolean readOnly)
+	{
+		return new StoredMap<>(database, TupleBinding.getPrimitiveBinding(String.class), BLOB_BINDING, !readOnly);
+	}
 	
 	@Override
 	public void beforeInvocation(InvocationEvent event)
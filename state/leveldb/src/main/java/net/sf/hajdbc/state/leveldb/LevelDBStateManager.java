@@ -29,6 +29,7 @@ import net.sf.hajdbc.state.DatabaseEvent;
 import net.sf.hajdbc.state.DurabilityListenerAdapter;
 import net.sf.hajdbc.state.SerializedDurabilityListener;
 import net.sf.hajdbc.state.StateManager;
+import net.sf.hajdbc.state.SynchronizationCheckpoint;
 import net.sf.hajdbc.util.Objects;
 
 public class LevelDBStateManager implements StateManager, SerializedDurabilityListener
@@ -43,6 +44,7 @@ public class LevelDBStateManager implements StateManager, SerializedDurabilityLi
 	private volatile DB stateDatabase;
 	private volatile DB invokerDatabase;
 	private volatile DB invocationDatabase;
+	private volatile DB checkpointDatabase;
 	
 	public LevelDBStateManager(DatabaseCluster<?, ?> cluster, DBFactory factory, File file, Options options)
 	{
@@ -61,6 +63,7 @@ public class LevelDBStateManager implements StateManager, SerializedDurabilityLi
 			this.stateDatabase = this.factory.open(this.file, this.options);
 			this.invokerDatabase = this.factory.open(this.file, this.options);
 			this.invocationDatabase = this.factory.open(this.file, this.options);
+			this.checkpointDatabase = this.factory.open(this.file, this.options);
 		}
 		catch (IOException e)
 		{
@@ -76,6 +79,7 @@ public class LevelDBStateManager implements StateManager, SerializedDurabilityLi
 			this.stateDatabase.close();
 			this.invokerDatabase.close();
 			this.invocationDatabase.close();
+			this.checkpointDatabase.close();
 		}
 		catch (IOException e)
 		{
@@ -140,6 +144,27 @@ public class LevelDBStateManager implements StateManager, SerializedDurabilityLi
 		}
 	}
 
+	@Override
+	public SynchronizationCheckpoint getCheckpoint(String databaseId)
+	{
+		byte[] value = this.checkpointDatabase.get(databaseId.getBytes(StandardCharsets.UTF_8));
+		return (value != null) ? Objects.deserialize(value, SynchronizationCheckpoint.class) : null;
+	}
+
+	@Override
+	public void setCheckpoint(String databaseId, SynchronizationCheckpoint checkpoint)
+	{
+		byte[] key = databaseId.getBytes(StandardCharsets.UTF_8);
+		if (checkpoint != null)
+		{
+			this.checkpointDatabase.put(key, Objects.serialize(checkpoint));
+		}
+		else
+		{
+			this.checkpointDatabase.delete(key);
+		}
+	}
+
 	@Override
 	public void beforeInvocation(byte[] transactionId, byte phase, byte exceptionType)
 	{
@@ -0,0 +1,211 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.state.mmap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * A fixed size, memory-mapped, append-only segment of the durability log.
+ * Each record is laid out as:
+ * <ol>
+ * <li>length of record body (int)</li>
+ * <li>record body, i.e. record type (byte) followed by the payload</li>
+ * <li>CRC-32 checksum of the record body (int)</li>
+ * </ol>
+ * A length of 0 (i.e. the zero-filled remainder of the segment) marks the end of the segment.
+ * A record whose checksum does not match, e.g. due to a torn write, also marks the end of the segment.
+ * @author Paul Ferraro
+ */
+public class LogSegment implements AutoCloseable
+{
+	private static final String SUFFIX = ".log";
+	
+	// Overhead of length and checksum
+	static final int RECORD_OVERHEAD = 8;
+
+	private final long id;
+	private final File file;
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	
+	/**
+	 * Parses the identifier of the segment contained in the specified file.
+	 * @param file a file
+	 * @return a segment identifier, or null if the specified file is not a log segment
+	 */
+	public static Long parseId(File file)
+	{
+		String name = file.getName();
+		if (!name.endsWith(SUFFIX)) return null;
+		try
+		{
+			return Long.valueOf(name.substring(0, name.length() - SUFFIX.length()));
+		}
+		catch (NumberFormatException e)
+		{
+			return null;
+		}
+	}
+	
+	/**
+	 * Creates a new empty log segment.
+	 * @param directory the log directory
+	 * @param id the segment identifier
+	 * @param size the segment size in bytes
+	 * @return a new log segment
+	 * @throws IOException if the segment could not be created
+	 */
+	public static LogSegment create(File directory, long id, int size) throws IOException
+	{
+		File file = new File(directory, id + SUFFIX);
+		if (file.exists() && !file.delete())
+		{
+			throw new IOException(file.getPath());
+		}
+		return new LogSegment(id, file, size);
+	}
+	
+	/**
+	 * Opens an existing log segment.
+	 * @param file the segment file
+	 * @return an existing log segment
+	 * @throws IOException if the segment could not be opened
+	 */
+	public static LogSegment open(File file) throws IOException
+	{
+		return new LogSegment(parseId(file), file, (int) file.length());
+	}
+
+	private LogSegment(long id, File file, int size) throws IOException
+	{
+		this.id = id;
+		this.file = file;
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+	}
+	
+	public long getId()
+	{
+		return this.id;
+	}
+	
+	public File getFile()
+	{
+		return this.file;
+	}
+	
+	/**
+	 * Appends the specified record body to this segment.
+	 * @param body a record body
+	 * @return true, if the record was appended, false if this segment has insufficient space.
+	 */
+	public boolean append(byte[] body)
+	{
+		if (this.buffer.remaining() < body.length + RECORD_OVERHEAD) return false;
+		
+		CRC32 checksum = new CRC32();
+		checksum.update(body, 0, body.length);
+		
+		this.buffer.putInt(body.length);
+		this.buffer.put(body);
+		this.buffer.putInt((int) checksum.getValue());
+		
+		return true;
+	}
+
+	/**
+	 * Passes each intact record in this segment, in order, to the specified handler.
+	 * @param handler a record handler
+	 */
+	public void read(RecordHandler handler)
+	{
+		ByteBuffer buffer = this.buffer.duplicate();
+		buffer.position(0);
+		
+		try
+		{
+			while (buffer.remaining() > RECORD_OVERHEAD)
+			{
+				int length = buffer.getInt();
+				if ((length <= 0) || (length > buffer.remaining() - 4)) return;
+				
+				byte[] body = new byte[length];
+				buffer.get(body);
+				
+				CRC32 checksum = new CRC32();
+				checksum.update(body, 0, length);
+				if (buffer.getInt() != (int) checksum.getValue()) return;
+				
+				RecordType type = RecordType.valueOf(body[0]);
+				if (type == null) return;
+				
+				handler.handle(type, ByteBuffer.wrap(body, 1, length - 1));
+			}
+		}
+		catch (BufferUnderflowException e)
+		{
+			// Truncated record, treat as end of segment
+		}
+	}
+
+	/**
+	 * Forces any appended records to the storage device.
+	 */
+	public void force()
+	{
+		this.buffer.force();
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		this.channel.close();
+	}
+	
+	/**
+	 * Closes and deletes this segment.
+	 * @return true, if the segment file was deleted, false otherwise
+	 */
+	public boolean delete()
+	{
+		try
+		{
+			this.close();
+		}
+		catch (IOException e)
+		{
+			// Ignore
+		}
+		return this.file.delete();
+	}
+	
+	/**
+	 * Callback for reading log records.
+	 */
+	public interface RecordHandler
+	{
+		void handle(RecordType type, ByteBuffer payload);
+	}
+}
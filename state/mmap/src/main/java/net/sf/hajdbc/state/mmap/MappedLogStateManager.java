@@ -0,0 +1,758 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.state.mmap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import net.sf.hajdbc.DatabaseCluster;
+import net.sf.hajdbc.durability.DurabilityEventFactory;
+import net.sf.hajdbc.durability.InvocationEvent;
+import net.sf.hajdbc.durability.InvokerEvent;
+import net.sf.hajdbc.durability.InvokerResult;
+import net.sf.hajdbc.logging.Level;
+import net.sf.hajdbc.logging.Logger;
+import net.sf.hajdbc.logging.LoggerFactory;
+import net.sf.hajdbc.state.DatabaseEvent;
+import net.sf.hajdbc.state.DurabilityListenerAdapter;
+import net.sf.hajdbc.state.SerializedDurabilityListener;
+import net.sf.hajdbc.state.StateManager;
+import net.sf.hajdbc.state.SynchronizationCheckpoint;
+import net.sf.hajdbc.util.Objects;
+
+/**
+ * State manager that persists cluster state and durability events to a segmented, memory-mapped, append-only log.
+ * The live state (i.e. active databases and incomplete invocations) is also retained in memory.
+ * Whenever the current segment fills, the live state is written as a snapshot to a new segment, and all prior segments are deleted.
+ * Consequently, completed transactions are compacted away, and recovery need only replay the remaining segments in order.
+ * Concurrent writers force the log to disk as a group, i.e. a single fsync covers all records appended before it.
+ * @author Paul Ferraro
+ */
+public class MappedLogStateManager implements StateManager, SerializedDurabilityListener
+{
+	private static final Logger logger = LoggerFactory.getLogger(MappedLogStateManager.class);
+
+	private final File directory;
+	private final int segmentSize;
+	private final boolean sync;
+	private final DurabilityEventFactory eventFactory;
+	private final DurabilityListenerAdapter listener;
+
+	// The following are guarded by this.appendLock
+	private final Object appendLock = new Object();
+	private final Set<String> activeDatabases = new TreeSet<>();
+	private final Map<InvocationKey, Invocation> invocations = new LinkedHashMap<>();
+	private final Map<String, byte[]> checkpoints = new TreeMap<>();
+	private final List<LogSegment> segments = new ArrayList<>();
+	private boolean compacting = false;
+
+	// Logical positions (in records) of the log, used to group forces
+	private final Object forceLock = new Object();
+	private volatile long appended = 0;
+	private long forced = 0;
+	
+	public MappedLogStateManager(DatabaseCluster<?, ?> cluster, File directory, int segmentSize, boolean sync)
+	{
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.sync = sync;
+		this.eventFactory = cluster.getDurability();
+		this.listener = new DurabilityListenerAdapter(this, cluster.getTransactionIdentifierFactory(), this.eventFactory);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.Lifecycle#start()
+	 */
+	@Override
+	public void start() throws SQLException
+	{
+		if (!this.directory.exists() && !this.directory.mkdirs())
+		{
+			throw new SQLException(this.directory.getPath());
+		}
+		
+		File[] files = this.directory.listFiles();
+		TreeMap<Long, File> existing = new TreeMap<>();
+		if (files != null)
+		{
+			for (File file: files)
+			{
+				Long id = LogSegment.parseId(file);
+				if (id != null)
+				{
+					existing.put(id, file);
+				}
+			}
+		}
+		
+		synchronized (this.appendLock)
+		{
+			try
+			{
+				// Replay existing segments in order
+				for (File file: existing.values())
+				{
+					try (LogSegment segment = LogSegment.open(file))
+					{
+						segment.read(new LogSegment.RecordHandler()
+						{
+							@Override
+							public void handle(RecordType type, ByteBuffer payload)
+							{
+								MappedLogStateManager.this.replay(type, payload);
+							}
+						});
+					}
+				}
+				
+				if (Boolean.getBoolean(StateManager.CLEAR_LOCAL_STATE))
+				{
+					this.activeDatabases.clear();
+				}
+				
+				// Start a fresh segment containing only the live state, then discard the replayed segments
+				long id = existing.isEmpty() ? 0 : existing.lastKey() + 1;
+				this.segments.add(LogSegment.create(this.directory, id, this.segmentSize));
+				this.snapshot();
+				this.current().force();
+			}
+			catch (IOException e)
+			{
+				throw new SQLException(e);
+			}
+		}
+		
+		for (File file: existing.values())
+		{
+			if (!file.delete())
+			{
+				logger.log(Level.WARN, "Failed to delete {0}", file);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.Lifecycle#stop()
+	 */
+	@Override
+	public void stop()
+	{
+		synchronized (this.appendLock)
+		{
+			for (LogSegment segment: this.segments)
+			{
+				try
+				{
+					segment.force();
+					segment.close();
+				}
+				catch (IOException e)
+				{
+					logger.log(Level.WARN, e);
+				}
+			}
+			this.segments.clear();
+			this.activeDatabases.clear();
+			this.invocations.clear();
+			this.checkpoints.clear();
+		}
+	}
+
+	@Override
+	public boolean isEnabled()
+	{
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.DatabaseClusterListener#activated(net.sf.hajdbc.state.DatabaseEvent)
+	 */
+	@Override
+	public void activated(DatabaseEvent event)
+	{
+		this.append(RecordType.ACTIVATED, new RecordBuilder().add(event.getSource()));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.DatabaseClusterListener#deactivated(net.sf.hajdbc.state.DatabaseEvent)
+	 */
+	@Override
+	public void deactivated(DatabaseEvent event)
+	{
+		this.append(RecordType.DEACTIVATED, new RecordBuilder().add(event.getSource()));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.state.StateManager#getActiveDatabases()
+	 */
+	@Override
+	public Set<String> getActiveDatabases()
+	{
+		synchronized (this.appendLock)
+		{
+			return new TreeSet<>(this.activeDatabases);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.state.StateManager#setActiveDatabases(java.util.Set)
+	 */
+	@Override
+	public void setActiveDatabases(Set<String> databases)
+	{
+		this.append(RecordType.ACTIVE_DATABASES, createActiveDatabasesRecord(databases));
+	}
+
+	private static RecordBuilder createActiveDatabasesRecord(Set<String> databases)
+	{
+		RecordBuilder builder = new RecordBuilder().add(databases.size());
+		for (String database: databases)
+		{
+			builder.add(database);
+		}
+		return builder;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.state.StateManager#getCheckpoint(java.lang.String)
+	 */
+	@Override
+	public SynchronizationCheckpoint getCheckpoint(String databaseId)
+	{
+		byte[] checkpoint;
+		synchronized (this.appendLock)
+		{
+			checkpoint = this.checkpoints.get(databaseId);
+		}
+		return (checkpoint != null) ? Objects.deserialize(checkpoint, SynchronizationCheckpoint.class) : null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.state.StateManager#setCheckpoint(java.lang.String, net.sf.hajdbc.state.SynchronizationCheckpoint)
+	 */
+	@Override
+	public void setCheckpoint(String databaseId, SynchronizationCheckpoint checkpoint)
+	{
+		this.append(RecordType.CHECKPOINT, new RecordBuilder().add(databaseId).add((checkpoint != null) ? Objects.serialize(checkpoint) : null));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.state.SerializedDurabilityListener#beforeInvocation(byte[], byte, byte)
+	 */
+	@Override
+	public void beforeInvocation(byte[] transactionId, byte phase, byte exceptionType)
+	{
+		this.append(RecordType.BEFORE_INVOCATION, new RecordBuilder().add(transactionId).add(phase).add(exceptionType));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.state.SerializedDurabilityListener#afterInvocation(byte[], byte)
+	 */
+	@Override
+	public void afterInvocation(byte[] transactionId, byte phase)
+	{
+		this.append(RecordType.AFTER_INVOCATION, new RecordBuilder().add(transactionId).add(phase));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.state.SerializedDurabilityListener#beforeInvoker(byte[], byte, java.lang.String)
+	 */
+	@Override
+	public void beforeInvoker(byte[] transactionId, byte phase, String databaseId)
+	{
+		this.append(RecordType.BEFORE_INVOKER, new RecordBuilder().add(transactionId).add(phase).add(databaseId));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.state.SerializedDurabilityListener#afterInvoker(byte[], byte, java.lang.String, byte[])
+	 */
+	@Override
+	public void afterInvoker(byte[] transactionId, byte phase, String databaseId, byte[] result)
+	{
+		this.append(RecordType.AFTER_INVOKER, new RecordBuilder().add(transactionId).add(phase).add(databaseId).add(result));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.state.StateManager#recover()
+	 */
+	@Override
+	public Map<InvocationEvent, Map<String, InvokerEvent>> recover()
+	{
+		Map<InvocationEvent, Map<String, InvokerEvent>> map = new HashMap<>();
+		
+		synchronized (this.appendLock)
+		{
+			for (Map.Entry<InvocationKey, Invocation> entry: this.invocations.entrySet())
+			{
+				InvocationKey key = entry.getKey();
+				InvocationEvent event = this.listener.createInvocationEvent(key.transactionId, key.phase, entry.getValue().exceptionType);
+				Map<String, InvokerEvent> invokers = new HashMap<>();
+				
+				for (Map.Entry<String, byte[]> invokerEntry: entry.getValue().invokers.entrySet())
+				{
+					String databaseId = invokerEntry.getKey();
+					byte[] result = invokerEntry.getValue();
+					
+					InvokerEvent invokerEvent = this.eventFactory.createInvokerEvent(event.getTransactionId(), event.getPhase(), databaseId);
+					
+					if (result != null)
+					{
+						invokerEvent.setResult(Objects.deserialize(result, InvokerResult.class));
+					}
+					
+					invokers.put(databaseId, invokerEvent);
+				}
+				
+				map.put(event, invokers);
+			}
+		}
+		
+		return map;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.durability.DurabilityListener#beforeInvocation(net.sf.hajdbc.durability.InvocationEvent)
+	 */
+	@Override
+	public void beforeInvocation(InvocationEvent event)
+	{
+		this.listener.beforeInvocation(event);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.durability.DurabilityListener#afterInvocation(net.sf.hajdbc.durability.InvocationEvent)
+	 */
+	@Override
+	public void afterInvocation(InvocationEvent event)
+	{
+		this.listener.afterInvocation(event);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.durability.DurabilityListener#beforeInvoker(net.sf.hajdbc.durability.InvokerEvent)
+	 */
+	@Override
+	public void beforeInvoker(InvokerEvent event)
+	{
+		this.listener.beforeInvoker(event);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.durability.DurabilityListener#afterInvoker(net.sf.hajdbc.durability.InvokerEvent)
+	 */
+	@Override
+	public void afterInvoker(InvokerEvent event)
+	{
+		this.listener.afterInvoker(event);
+	}
+
+	private void append(RecordType type, RecordBuilder builder)
+	{
+		byte[] body = builder.build(type);
+		long position;
+		
+		synchronized (this.appendLock)
+		{
+			try
+			{
+				this.write(body);
+			}
+			catch (IOException e)
+			{
+				throw new IllegalStateException(e);
+			}
+			
+			this.replay(type, ByteBuffer.wrap(body, 1, body.length - 1));
+			
+			position = ++this.appended;
+		}
+		
+		if (this.sync)
+		{
+			this.force(position);
+		}
+	}
+
+	/**
+	 * Forces the log to disk, unless a concurrent force already covered the specified position.
+	 * @param position a logical log position
+	 */
+	private void force(long position)
+	{
+		synchronized (this.forceLock)
+		{
+			if (this.forced >= position) return;
+			
+			// Any segment preceding the current one was already forced during rollover
+			long target = this.appended;
+			LogSegment segment;
+			synchronized (this.appendLock)
+			{
+				segment = this.current();
+			}
+			if (segment != null)
+			{
+				segment.force();
+			}
+			this.forced = target;
+		}
+	}
+
+	// Must be called while holding this.appendLock
+	private LogSegment current()
+	{
+		return this.segments.isEmpty() ? null : this.segments.get(this.segments.size() - 1);
+	}
+
+	// Must be called while holding this.appendLock
+	private void write(byte[] body) throws IOException
+	{
+		LogSegment segment = this.current();
+		
+		if (segment == null)
+		{
+			throw new IllegalStateException();
+		}
+		
+		if (!segment.append(body))
+		{
+			if (body.length + LogSegment.RECORD_OVERHEAD > this.segmentSize)
+			{
+				throw new IOException(String.format("Record of %d bytes exceeds segment size of %d bytes", body.length, this.segmentSize));
+			}
+			
+			LogSegment next = this.roll(segment);
+			
+			if (!this.compacting)
+			{
+				this.compact(next);
+			}
+			
+			// Compaction may have filled the new segment
+			if (!this.current().append(body))
+			{
+				this.roll(this.current()).append(body);
+			}
+		}
+	}
+
+	// Must be called while holding this.appendLock
+	private LogSegment roll(LogSegment segment) throws IOException
+	{
+		segment.force();
+		
+		LogSegment next = LogSegment.create(this.directory, segment.getId() + 1, this.segmentSize);
+		this.segments.add(next);
+		return next;
+	}
+
+	// Must be called while holding this.appendLock
+	private void compact(LogSegment first) throws IOException
+	{
+		this.compacting = true;
+		try
+		{
+			// Snapshot the live state into the new segment(s), making all prior segments obsolete
+			this.snapshot();
+			
+			LogSegment current = this.current();
+			if (current != first)
+			{
+				// Snapshot spanned multiple segments, so make sure the earlier ones are durable before discarding old ones
+				for (LogSegment segment: this.segments)
+				{
+					if (segment != current)
+					{
+						segment.force();
+					}
+				}
+			}
+			current.force();
+			
+			List<LogSegment> obsolete = new ArrayList<>();
+			for (LogSegment segment: this.segments)
+			{
+				if (segment == first) break;
+				obsolete.add(segment);
+			}
+			for (LogSegment segment: obsolete)
+			{
+				if (!segment.delete())
+				{
+					logger.log(Level.WARN, "Failed to delete {0}", segment.getFile());
+				}
+				this.segments.remove(segment);
+			}
+		}
+		finally
+		{
+			this.compacting = false;
+		}
+	}
+
+	// Must be called while holding this.appendLock
+	private void snapshot() throws IOException
+	{
+		this.write(createActiveDatabasesRecord(this.activeDatabases).build(RecordType.ACTIVE_DATABASES));
+		
+		for (Map.Entry<InvocationKey, Invocation> entry: this.invocations.entrySet())
+		{
+			InvocationKey key = entry.getKey();
+			this.write(new RecordBuilder().add(key.transactionId).add(key.phase).add(entry.getValue().exceptionType).build(RecordType.BEFORE_INVOCATION));
+			
+			for (Map.Entry<String, byte[]> invoker: entry.getValue().invokers.entrySet())
+			{
+				byte[] result = invoker.getValue();
+				if (result != null)
+				{
+					this.write(new RecordBuilder().add(key.transactionId).add(key.phase).add(invoker.getKey()).add(result).build(RecordType.AFTER_INVOKER));
+				}
+				else
+				{
+					this.write(new RecordBuilder().add(key.transactionId).add(key.phase).add(invoker.getKey()).build(RecordType.BEFORE_INVOKER));
+				}
+			}
+		}
+		
+		for (Map.Entry<String, byte[]> entry: this.checkpoints.entrySet())
+		{
+			this.write(new RecordBuilder().add(entry.getKey()).add(entry.getValue()).build(RecordType.CHECKPOINT));
+		}
+	}
+
+	// Applies the specified record to the in-memory state.  Must be called while holding this.appendLock
+	void replay(RecordType type, ByteBuffer payload)
+	{
+		switch (type)
+		{
+			case ACTIVATED:
+			{
+				this.activeDatabases.add(readString(payload));
+				break;
+			}
+			case DEACTIVATED:
+			{
+				this.activeDatabases.remove(readString(payload));
+				break;
+			}
+			case ACTIVE_DATABASES:
+			{
+				this.activeDatabases.clear();
+				int count = payload.getInt();
+				for (int i = 0; i < count; ++i)
+				{
+					this.activeDatabases.add(readString(payload));
+				}
+				break;
+			}
+			case BEFORE_INVOCATION:
+			{
+				InvocationKey key = new InvocationKey(readBytes(payload), payload.get());
+				this.invocations.put(key, new Invocation(payload.get()));
+				break;
+			}
+			case AFTER_INVOCATION:
+			{
+				this.invocations.remove(new InvocationKey(readBytes(payload), payload.get()));
+				break;
+			}
+			case BEFORE_INVOKER:
+			{
+				Invocation invocation = this.invocations.get(new InvocationKey(readBytes(payload), payload.get()));
+				if (invocation != null)
+				{
+					invocation.invokers.put(readString(payload), null);
+				}
+				break;
+			}
+			case AFTER_INVOKER:
+			{
+				Invocation invocation = this.invocations.get(new InvocationKey(readBytes(payload), payload.get()));
+				if (invocation != null)
+				{
+					invocation.invokers.put(readString(payload), readBytes(payload));
+				}
+				break;
+			}
+			case CHECKPOINT:
+			{
+				String databaseId = readString(payload);
+				byte[] checkpoint = readBytes(payload);
+				if (checkpoint != null)
+				{
+					this.checkpoints.put(databaseId, checkpoint);
+				}
+				else
+				{
+					this.checkpoints.remove(databaseId);
+				}
+				break;
+			}
+		}
+	}
+
+	private static byte[] readBytes(ByteBuffer buffer)
+	{
+		int length = buffer.getInt();
+		if (length < 0) return null;
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	private static String readString(ByteBuffer buffer)
+	{
+		return new String(readBytes(buffer), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Builds the compact binary form of a log record.
+	 */
+	static class RecordBuilder
+	{
+		private final List<Object> values = new ArrayList<>(4);
+		private int size = 1;
+
+		RecordBuilder add(byte value)
+		{
+			this.values.add(value);
+			this.size += 1;
+			return this;
+		}
+
+		RecordBuilder add(int value)
+		{
+			this.values.add(value);
+			this.size += 4;
+			return this;
+		}
+
+		RecordBuilder add(byte[] value)
+		{
+			this.values.add(value);
+			this.size += 4 + ((value != null) ? value.length : 0);
+			return this;
+		}
+
+		RecordBuilder add(String value)
+		{
+			return this.add(value.getBytes(StandardCharsets.UTF_8));
+		}
+
+		byte[] build(RecordType type)
+		{
+			ByteBuffer buffer = ByteBuffer.allocate(this.size);
+			buffer.put(type.code());
+			for (Object value: this.values)
+			{
+				if (value instanceof Byte)
+				{
+					buffer.put((Byte) value);
+				}
+				else if (value instanceof Integer)
+				{
+					buffer.putInt((Integer) value);
+				}
+				else if (value != null)
+				{
+					byte[] bytes = (byte[]) value;
+					buffer.putInt(bytes.length);
+					buffer.put(bytes);
+				}
+				else
+				{
+					buffer.putInt(-1);
+				}
+			}
+			return buffer.array();
+		}
+	}
+
+	/**
+	 * The live state of an incomplete invocation.
+	 */
+	static class Invocation
+	{
+		final byte exceptionType;
+		// Per database results, or null if the invoker has not yet completed
+		final Map<String, byte[]> invokers = new LinkedHashMap<>();
+
+		Invocation(byte exceptionType)
+		{
+			this.exceptionType = exceptionType;
+		}
+	}
+
+	/**
+	 * Identifies an invocation by transaction identifier and durability phase.
+	 */
+	static class InvocationKey
+	{
+		final byte[] transactionId;
+		final byte phase;
+
+		InvocationKey(byte[] transactionId, byte phase)
+		{
+			this.transactionId = transactionId;
+			this.phase = phase;
+		}
+
+		@Override
+		public boolean equals(Object object)
+		{
+			if (!(object instanceof InvocationKey)) return false;
+			InvocationKey key = (InvocationKey) object;
+			return (this.phase == key.phase) && Arrays.equals(this.transactionId, key.transactionId);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return 31 * Arrays.hashCode(this.transactionId) + this.phase;
+		}
+	}
+}
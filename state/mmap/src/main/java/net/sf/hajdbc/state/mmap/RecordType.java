@@ -0,0 +1,56 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.state.mmap;
+
+/**
+ * Enumerates the types of records contained in the durability log.
+ * The ordinal of each type is persisted, so new types must only ever be appended.
+ * @author Paul Ferraro
+ */
+public enum RecordType
+{
+	// database id
+	ACTIVATED,
+	// database id
+	DEACTIVATED,
+	// count, database id...
+	ACTIVE_DATABASES,
+	// transaction id, phase, exception type
+	BEFORE_INVOCATION,
+	// transaction id, phase
+	AFTER_INVOCATION,
+	// transaction id, phase, database id
+	BEFORE_INVOKER,
+	// transaction id, phase, database id, result
+	AFTER_INVOKER,
+	// database id, checkpoint
+	CHECKPOINT,
+	;
+	
+	private static final RecordType[] VALUES = values();
+	
+	public static RecordType valueOf(byte code)
+	{
+		return ((code >= 0) && (code < VALUES.length)) ? VALUES[code] : null;
+	}
+	
+	public byte code()
+	{
+		return (byte) this.ordinal();
+	}
+}
@@ -0,0 +1,301 @@
+/*
+ * HA-JDBC: High-Availability JDBC
+ * Copyright (C) 2012  Paul Ferraro
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.hajdbc.state.mmap;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.sf.hajdbc.Database;
+import net.sf.hajdbc.DatabaseCluster;
+import net.sf.hajdbc.ExceptionType;
+import net.sf.hajdbc.durability.Durability;
+import net.sf.hajdbc.durability.InvocationEvent;
+import net.sf.hajdbc.durability.InvocationEventImpl;
+import net.sf.hajdbc.durability.InvokerEvent;
+import net.sf.hajdbc.durability.InvokerEventImpl;
+import net.sf.hajdbc.durability.InvokerResultImpl;
+import net.sf.hajdbc.durability.fine.FineDurability;
+import net.sf.hajdbc.state.DatabaseEvent;
+import net.sf.hajdbc.state.SynchronizationCheckpoint;
+import net.sf.hajdbc.state.StateManager;
+import net.sf.hajdbc.tx.SimpleTransactionIdentifierFactory;
+
+/**
+ * @author Paul Ferraro
+ */
+public class MappedLogStateManagerTest
+{
+	private final DatabaseCluster<?, ?> cluster = mock(DatabaseCluster.class);
+	private File directory;
+
+	@Before
+	public void init() throws IOException
+	{
+		this.directory = Files.createTempDirectory("mmap").toFile();
+		
+		doReturn(new FineDurability<>(this.cluster)).when(this.cluster).getDurability();
+		doReturn(new SimpleTransactionIdentifierFactory()).when(this.cluster).getTransactionIdentifierFactory();
+	}
+
+	@After
+	public void destroy()
+	{
+		File[] files = this.directory.listFiles();
+		if (files != null)
+		{
+			for (File file: files)
+			{
+				file.delete();
+			}
+		}
+		this.directory.delete();
+	}
+
+	private StateManager start(int segmentSize) throws Exception
+	{
+		StateManager manager = new MappedLogStateManager(this.cluster, this.directory, segmentSize, true);
+		manager.start();
+		return manager;
+	}
+
+	@Test
+	public void reopen() throws Exception
+	{
+		StateManager manager = this.start(4096);
+		
+		manager.activated(event("db1"));
+		manager.activated(event("db2"));
+		manager.activated(event("db3"));
+		manager.deactivated(event("db2"));
+		
+		manager.setCheckpoint("db2", new SynchronizationCheckpoint(Collections.singleton("table"), Collections.singletonMap("table", 10L)));
+		
+		InvocationEvent completed = new InvocationEventImpl(1L, Durability.Phase.COMMIT, ExceptionType.SQL);
+		manager.beforeInvocation(completed);
+		manager.afterInvocation(completed);
+		
+		InvocationEvent pending = new InvocationEventImpl(2L, Durability.Phase.COMMIT, ExceptionType.SQL);
+		manager.beforeInvocation(pending);
+		InvokerEvent invoker1 = new InvokerEventImpl(2L, Durability.Phase.COMMIT, "db1");
+		manager.beforeInvoker(invoker1);
+		invoker1.setResult(new InvokerResultImpl(Integer.valueOf(1)));
+		manager.afterInvoker(invoker1);
+		manager.beforeInvoker(new InvokerEventImpl(2L, Durability.Phase.COMMIT, "db3"));
+		
+		manager.stop();
+		
+		manager = this.start(4096);
+		try
+		{
+			assertEquals(new TreeSet<>(Arrays.asList("db1", "db3")), manager.getActiveDatabases());
+			
+			SynchronizationCheckpoint checkpoint = manager.getCheckpoint("db2");
+			assertNotNull(checkpoint);
+			assertEquals(Collections.singleton("table"), checkpoint.getTables());
+			assertEquals(Long.valueOf(10L), checkpoint.getPositions().get("table"));
+			assertNull(manager.getCheckpoint("db1"));
+			
+			Map<InvocationEvent, Map<String, InvokerEvent>> invocations = manager.recover();
+			assertEquals(1, invocations.size());
+			Map.Entry<InvocationEvent, Map<String, InvokerEvent>> entry = invocations.entrySet().iterator().next();
+			assertEquals(pending, entry.getKey());
+			assertSame(ExceptionType.SQL, entry.getKey().getExceptionType());
+			
+			Map<String, InvokerEvent> invokers = entry.getValue();
+			assertEquals(new TreeSet<>(Arrays.asList("db1", "db3")), invokers.keySet());
+			assertEquals(Integer.valueOf(1), invokers.get("db1").getResult().getValue());
+			assertNull(invokers.get("db3").getResult());
+		}
+		finally
+		{
+			manager.stop();
+		}
+	}
+
+	@Test
+	public void tornRecord() throws Exception
+	{
+		StateManager manager = this.start(4096);
+		manager.activated(event("db1"));
+		manager.activated(event("db2"));
+		manager.stop();
+		
+		// Corrupt the body of the last record, as if its write was torn
+		File segment = this.segment();
+		long[] positions = records(segment);
+		try (RandomAccessFile file = new RandomAccessFile(segment, "rw"))
+		{
+			file.seek(positions[0] + 8);
+			file.write(~file.read());
+		}
+		
+		manager = this.start(4096);
+		try
+		{
+			assertEquals(Collections.singleton("db1"), manager.getActiveDatabases());
+			
+			// Log remains appendable after recovery
+			manager.activated(event("db3"));
+		}
+		finally
+		{
+			manager.stop();
+		}
+		
+		manager = this.start(4096);
+		try
+		{
+			assertEquals(new TreeSet<>(Arrays.asList("db1", "db3")), manager.getActiveDatabases());
+		}
+		finally
+		{
+			manager.stop();
+		}
+	}
+
+	@Test
+	public void partialRecord() throws Exception
+	{
+		StateManager manager = this.start(4096);
+		manager.activated(event("db1"));
+		manager.stop();
+		
+		// Append the header of a record whose body never made it to disk
+		File segment = this.segment();
+		long[] positions = records(segment);
+		try (RandomAccessFile file = new RandomAccessFile(segment, "rw"))
+		{
+			file.seek(positions[1]);
+			file.writeInt(64);
+			file.write(RecordType.ACTIVATED.code());
+		}
+		
+		manager = this.start(4096);
+		try
+		{
+			assertEquals(Collections.singleton("db1"), manager.getActiveDatabases());
+		}
+		finally
+		{
+			manager.stop();
+		}
+	}
+
+	@Test
+	public void compaction() throws Exception
+	{
+		int segmentSize = 256;
+		StateManager manager = this.start(segmentSize);
+		try
+		{
+			manager.activated(event("db1"));
+			
+			InvocationEvent pending = new InvocationEventImpl(1L, Durability.Phase.PREPARE, ExceptionType.SQL);
+			manager.beforeInvocation(pending);
+			
+			// Generate many segments' worth of records, the effects of which cancel out
+			for (int i = 0; i < 1000; ++i)
+			{
+				manager.activated(event("db2"));
+				manager.deactivated(event("db2"));
+				
+				InvocationEvent event = new InvocationEventImpl(Long.valueOf(i + 2), Durability.Phase.COMMIT, ExceptionType.SQL);
+				manager.beforeInvocation(event);
+				manager.afterInvocation(event);
+			}
+			
+			// Obsolete segments were discarded
+			assertTrue(this.segments().length <= 2);
+			assertEquals(Collections.singleton("db1"), manager.getActiveDatabases());
+		}
+		finally
+		{
+			manager.stop();
+		}
+		
+		manager = this.start(segmentSize);
+		try
+		{
+			assertEquals(Collections.singleton("db1"), manager.getActiveDatabases());
+			
+			Map<InvocationEvent, Map<String, InvokerEvent>> invocations = manager.recover();
+			assertEquals(1, invocations.size());
+			assertEquals(new InvocationEventImpl(1L, Durability.Phase.PREPARE, ExceptionType.SQL), invocations.keySet().iterator().next());
+		}
+		finally
+		{
+			manager.stop();
+		}
+	}
+
+	private static DatabaseEvent event(String id)
+	{
+		Database<?> database = mock(Database.class);
+		when(database.getId()).thenReturn(id);
+		return new DatabaseEvent(database);
+	}
+
+	private File[] segments()
+	{
+		File[] files = this.directory.listFiles();
+		assertNotNull(files);
+		return files;
+	}
+
+	private File segment()
+	{
+		File[] files = this.segments();
+		assertEquals(1, files.length);
+		return files[0];
+	}
+
+	/**
+	 * Returns the positions of the start of the last record and of the end of the last record in the specified segment.
+	 */
+	private static long[] records(File segment) throws IOException
+	{
+		long last = -1;
+		try (RandomAccessFile file = new RandomAccessFile(segment, "r"))
+		{
+			long position = 0;
+			int length = file.readInt();
+			while (length > 0)
+			{
+				last = position;
+				position += length + LogSegment.RECORD_OVERHEAD;
+				file.seek(position);
+				length = file.readInt();
+			}
+			assertTrue(last >= 0);
+			return new long[] { last, position };
+		}
+	}
+}
@@ -46,6 +46,7 @@ import net.sf.hajdbc.state.DatabaseEvent;
 import net.sf.hajdbc.state.DurabilityListenerAdapter;
 import net.sf.hajdbc.state.SerializedDurabilityListener;
 import net.sf.hajdbc.state.StateManager;
+import net.sf.hajdbc.state.SynchronizationCheckpoint;
 import net.sf.hajdbc.util.Objects;
 
 import org.tmatesoft.sqljet.core.SqlJetException;
@@ -76,10 +77,14 @@ public class SQLiteStateManager<Z, D extends Database<Z>> implements StateManage
 	private static final String EXCEPTION_COLUMN = "exception_id";
 	private static final String RESULT_COLUMN = "result";
 
+	private static final String CHECKPOINT_TABLE = "cluster_checkpoint";
+	private static final String CHECKPOINT_COLUMN = "checkpoint";
+
 	static final String CREATE_INVOCATION_SQL = MessageFormat.format("CREATE TABLE {0} ({1} BLOB NOT NULL, {2} INTEGER NOT NULL, {3} INTEGER NOT NULL, PRIMARY KEY ({1}, {2}))", INVOCATION_TABLE, TRANSACTION_COLUMN, PHASE_COLUMN, EXCEPTION_COLUMN);
 	static final String CREATE_INVOKER_SQL = MessageFormat.format("CREATE TABLE {0} ({1} BLOB NOT NULL, {2} INTEGER NOT NULL, {3} TEXT NOT NULL, {4} BLOB, PRIMARY KEY ({1}, {2}, {3}))", INVOKER_TABLE, TRANSACTION_COLUMN, PHASE_COLUMN, DATABASE_COLUMN, RESULT_COLUMN);
 	static final String CREATE_INVOKER_INDEX = MessageFormat.format("CREATE INDEX {0} ON {1} ({2}, {3})", INVOKER_TABLE_INDEX, INVOKER_TABLE, TRANSACTION_COLUMN, PHASE_COLUMN);
 	static final String CREATE_STATE_SQL = MessageFormat.format("CREATE TABLE {0} ({1} TEXT NOT NULL, PRIMARY KEY ({1}))", STATE_TABLE, DATABASE_COLUMN);
+	static final String CREATE_CHECKPOINT_SQL = MessageFormat.format("CREATE TABLE {0} ({1} TEXT NOT NULL, {2} BLOB NOT NULL, PRIMARY KEY ({1}))", CHECKPOINT_TABLE, DATABASE_COLUMN, CHECKPOINT_COLUMN);
 
 	final DurabilityListenerAdapter listener;
 	final DurabilityEventFactory eventFactory;
@@ -233,6 +238,10 @@ public class SQLiteStateManager<Z, D extends Database<Z>> implements StateManage
 				{
 					database.getTable(STATE_TABLE).clear();
 				}
+				if (schema.getTable(CHECKPOINT_TABLE) == null)
+				{
+					database.createTable(CREATE_CHECKPOINT_SQL);
+				}
 			}
 		};
 		Transaction invocationTransaction = new Transaction()
@@ -353,6 +362,83 @@ public class SQLiteStateManager<Z, D extends Database<Z>> implements StateManage
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.state.StateManager#getCheckpoint(java.lang.String)
+	 */
+	@Override
+	public SynchronizationCheckpoint getCheckpoint(final String databaseId)
+	{
+		Query<SynchronizationCheckpoint> query = new Query<SynchronizationCheckpoint>()
+		{
+			@Override
+			public SynchronizationCheckpoint execute(SqlJetDb database) throws SqlJetException
+			{
+				ISqlJetTable table = database.getTable(CHECKPOINT_TABLE);
+				ISqlJetCursor cursor = table.lookup(table.getPrimaryKeyIndexName(), databaseId);
+				try
+				{
+					return !cursor.eof() ? Objects.deserialize(cursor.getBlobAsArray(CHECKPOINT_COLUMN), SynchronizationCheckpoint.class) : null;
+				}
+				finally
+				{
+					close(cursor);
+				}
+			}
+		};
+		
+		try
+		{
+			return this.execute(query, DB.STATE);
+		}
+		catch (SqlJetException e)
+		{
+			logger.log(Level.ERROR, e);
+			return null;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see net.sf.hajdbc.state.StateManager#setCheckpoint(java.lang.String, net.sf.hajdbc.state.SynchronizationCheckpoint)
+	 */
+	@Override
+	public void setCheckpoint(final String databaseId, final SynchronizationCheckpoint checkpoint)
+	{
+		Transaction transaction = new Transaction()
+		{
+			@Override
+			public void execute(SqlJetDb db) throws SqlJetException
+			{
+				ISqlJetTable table = db.getTable(CHECKPOINT_TABLE);
+				ISqlJetCursor cursor = table.lookup(table.getPrimaryKeyIndexName(), databaseId);
+				try
+				{
+					if (!cursor.eof())
+					{
+						cursor.delete();
+					}
+				}
+				finally
+				{
+					close(cursor);
+				}
+				if (checkpoint != null)
+				{
+					table.insert(databaseId, Objects.serialize(checkpoint));
+				}
+			}
+		};
+		try
+		{
+			this.execute(transaction, DB.STATE);
+		}
+		catch (SqlJetException e)
+		{
+			logger.log(Level.ERROR, e);
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * @see net.sf.hajdbc.state.StateManager#recover()